@@ -2,13 +2,14 @@ package net.ripe.db.whois.api.freetext;
 
 import com.google.common.base.CharMatcher;
 import com.google.common.base.Stopwatch;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import net.ripe.db.whois.api.search.IndexTemplate;
 import net.ripe.db.whois.api.search.RebuildableIndex;
 import net.ripe.db.whois.common.dao.jdbc.JdbcRpslObjectOperations;
 import net.ripe.db.whois.common.dao.jdbc.JdbcStreamingHelper;
-import net.ripe.db.whois.common.domain.serials.SerialEntry;
 import net.ripe.db.whois.common.rpsl.AttributeType;
 import net.ripe.db.whois.common.rpsl.RpslAttribute;
 import net.ripe.db.whois.common.rpsl.RpslObject;
@@ -31,6 +32,8 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
@@ -40,6 +43,7 @@ import javax.sql.DataSource;
 import java.io.IOException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -104,7 +108,11 @@ public class FreeTextIndex extends RebuildableIndex {
         NOT_INDEXED_NOT_TOKENIZED.freeze();
     }
 
+    private static final int SERIAL_WINDOW_SIZE = 10000;
+    private static final int OBJECT_BATCH_SIZE = 1000;
+
     private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
     private final String source;
     private final FacetsConfig facetsConfig;
 
@@ -117,6 +125,7 @@ public class FreeTextIndex extends RebuildableIndex {
         super(LOGGER, indexDir);
 
         this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
         this.source = source;
         this.facetsConfig = new FacetsConfig();
     }
@@ -228,27 +237,22 @@ public class FreeTextIndex extends RebuildableIndex {
             LOGGER.debug("Updating index {} from {} to {}", indexDir, last, end);
 
             final Stopwatch stopwatch = Stopwatch.createStarted();
-            for (int serial = last + 1; serial <= end; serial++) {
-                final SerialEntry serialEntry = JdbcRpslObjectOperations.getSerialEntry(jdbcTemplate, serial);
-                if (serialEntry == null) {
-                    // suboptimal;there could be big gaps in serial entries.
-                    continue;
-                }
-
-                final RpslObject rpslObject = serialEntry.getRpslObject();
+            final Set<Integer> objectIds = Sets.newHashSet();
+            for (int windowBegin = last + 1; windowBegin <= end; windowBegin += SERIAL_WINDOW_SIZE) {
+                final int windowEnd = Math.min(end, windowBegin + SERIAL_WINDOW_SIZE - 1);
+                objectIds.addAll(jdbcTemplate.queryForList("" +
+                                "SELECT DISTINCT object_id " +
+                                "FROM serials " +
+                                "WHERE serial_id BETWEEN ? AND ?",
+                        Integer.class, windowBegin, windowEnd));
+            }
 
-                switch (serialEntry.getOperation()) {
-                    case UPDATE:
-                        deleteEntry(indexWriter, rpslObject);
-                        addEntry(indexWriter, taxonomyWriter, rpslObject);
-                        break;
-                    case DELETE:
-                        deleteEntry(indexWriter, rpslObject);
-                        break;
-                }
+            // every changed object is indexed once, in the state it has at the end serial
+            for (final List<Integer> batch : Iterables.partition(objectIds, OBJECT_BATCH_SIZE)) {
+                updateEntries(indexWriter, taxonomyWriter, batch);
             }
 
-            LOGGER.debug("Updated index {} in {}", indexDir, stopwatch.stop());
+            LOGGER.debug("Updated {} objects in index {} in {}", objectIds.size(), indexDir, stopwatch.stop());
         }
 
         updateMetadata(indexWriter, source, end);
@@ -261,7 +265,52 @@ public class FreeTextIndex extends RebuildableIndex {
         indexWriter.setCommitData(metadata);
     }
 
+    private void updateEntries(final IndexWriter indexWriter, final TaxonomyWriter taxonomyWriter, final List<Integer> objectIds) throws IOException {
+        final Map<Integer, byte[]> objects = Maps.newHashMapWithExpectedSize(objectIds.size());
+        namedParameterJdbcTemplate.query("" +
+                        "SELECT object_id, object " +
+                        "FROM last " +
+                        "WHERE object_id IN (:objectIds) " +
+                        "AND sequence_id != 0",
+                Collections.singletonMap("objectIds", objectIds),
+                new RowCallbackHandler() {
+                    @Override
+                    public void processRow(final ResultSet rs) throws SQLException {
+                        objects.put(rs.getInt(1), rs.getBytes(2));
+                    }
+                });
+
+        final List<Term> deleted = Lists.newArrayList();
+        for (final Integer objectId : objectIds) {
+            final Term term = new Term(PRIMARY_KEY_FIELD_NAME, Integer.toString(objectId));
+            final byte[] object = objects.get(objectId);
+            if (object == null) {
+                deleted.add(term);
+                continue;
+            }
+
+            final RpslObject rpslObject;
+            try {
+                rpslObject = RpslObject.parse(objectId, object);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Unable to parse object with id: {}", objectId, e);
+                deleted.add(term);
+                continue;
+            }
+
+            indexWriter.updateDocument(term, createDocument(taxonomyWriter, rpslObject));
+        }
+
+        if (!deleted.isEmpty()) {
+            indexWriter.deleteDocuments(deleted.toArray(new Term[deleted.size()]));
+        }
+    }
+
     private void addEntry(final IndexWriter indexWriter, final TaxonomyWriter taxonomyWriter, final RpslObject rpslObject) throws IOException {
+        indexWriter.addDocument(createDocument(taxonomyWriter, rpslObject));
+    }
+
+    private Document createDocument(final TaxonomyWriter taxonomyWriter, final RpslObject rpslObject) throws IOException {
         final Document document = new Document();
         document.add(new Field(PRIMARY_KEY_FIELD_NAME, Integer.toString(rpslObject.getObjectId()), INDEXED_NOT_TOKENIZED));
         document.add(new Field(OBJECT_TYPE_FIELD_NAME, rpslObject.getType().getName(), INDEXED_AND_TOKENIZED));
@@ -277,17 +326,13 @@ public class FreeTextIndex extends RebuildableIndex {
 
         document.add(new FacetField(OBJECT_TYPE_FIELD_NAME, rpslObject.getType().getName()));
 
-        indexWriter.addDocument(facetsConfig.build(taxonomyWriter, document));
+        return facetsConfig.build(taxonomyWriter, document);
     }
 
     private static String sanitise(final String value) {
         return CharMatcher.JAVA_ISO_CONTROL.removeFrom(value);
     }
 
-    private void deleteEntry(final IndexWriter indexWriter, final RpslObject rpslObject) throws IOException {
-        indexWriter.deleteDocuments(new Term(PRIMARY_KEY_FIELD_NAME, Integer.toString(rpslObject.getObjectId())));
-    }
-
     private String filterAttribute(final String value) {
         if (value.toLowerCase().startsWith("md5-pw")) {
             return "MD5-PW";
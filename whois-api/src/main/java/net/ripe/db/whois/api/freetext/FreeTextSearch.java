@@ -34,6 +34,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.oxm.Marshaller;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.Nullable;
 import javax.xml.transform.stream.StreamResult;
 import java.io.IOException;
 import java.io.Writer;
@@ -91,19 +92,11 @@ public class FreeTextSearch {
             @Override
             public Void search(final IndexReader indexReader, final TaxonomyReader taxonomyReader, final IndexSearcher indexSearcher) throws IOException {
 
-                final int maxResults = Math.max(100, indexReader.numDocs());
-                final TopFieldCollector topFieldCollector = TopFieldCollector.create(SORT_BY_OBJECT_TYPE, maxResults, false, false, false, false);
-                final FacetsCollector facetsCollector = new FacetsCollector();
+                final FacetsCollector facetsCollector = searchRequest.isFacet() ? new FacetsCollector() : null;
+                final TopDocs topDocs = search(indexSearcher, query, Math.max(0, searchRequest.getStart()), searchRequest.getRows(), facetsCollector);
 
-                indexSearcher.search(query, MultiCollector.wrap(topFieldCollector, facetsCollector));
-
-                final List<Document> documents = Lists.newArrayList();
-
-                final TopDocs topDocs = topFieldCollector.topDocs();
-                final int start = Math.max(0, searchRequest.getStart());
-                final int end = Math.min(start + searchRequest.getRows(), topDocs.totalHits);
-                for (int index = start; index < end; index++) {
-                    final ScoreDoc scoreDoc = topDocs.scoreDocs[index];
+                final List<Document> documents = Lists.newArrayListWithExpectedSize(topDocs.scoreDocs.length);
+                for (final ScoreDoc scoreDoc : topDocs.scoreDocs) {
                     documents.add(indexSearcher.doc(scoreDoc.doc));
                 }
 
@@ -131,6 +124,21 @@ public class FreeTextSearch {
         });
     }
 
+    /**
+     * Returns the page of <code>rows</code> hits from <code>start</code>, sorted by object type, with the total number of
+     * hits. Only <code>start + rows</code> hits are kept while searching, instead of all matching documents.
+     *
+     * @param facetsCollector if not null, also collects facets for all hits in the same pass.
+     */
+    static TopDocs search(final IndexSearcher indexSearcher, final Query query, final int start, final int rows, @Nullable final FacetsCollector facetsCollector) throws IOException {
+        final int numHits = (int) Math.max(1, Math.min((long) start + rows, indexSearcher.getIndexReader().maxDoc()));
+        final TopFieldCollector topFieldCollector = TopFieldCollector.create(SORT_BY_OBJECT_TYPE, numHits, false, false, false, false);
+
+        indexSearcher.search(query, facetsCollector == null ? topFieldCollector : MultiCollector.wrap(topFieldCollector, facetsCollector));
+
+        return topFieldCollector.topDocs(start, rows);
+    }
+
     private SearchResponse.Lst getResponseHeader(SearchRequest searchRequest, final long elapsedTime) {
         SearchResponse.Lst responseHeader = new SearchResponse.Lst("responseHeader");
         final List<SearchResponse.Int> responseHeaderInts = Lists.newArrayList(new SearchResponse.Int("status", "0"), new SearchResponse.Int("QTime", Long.toString(elapsedTime)));
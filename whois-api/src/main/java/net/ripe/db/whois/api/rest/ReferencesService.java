@@ -18,6 +18,7 @@ import net.ripe.db.whois.api.rest.domain.WhoisResources;
 import net.ripe.db.whois.api.rest.mapper.FormattedServerAttributeMapper;
 import net.ripe.db.whois.api.rest.mapper.WhoisObjectMapper;
 import net.ripe.db.whois.common.Message;
+import net.ripe.db.whois.common.dao.ReferenceGraph;
 import net.ripe.db.whois.common.dao.RpslObjectDao;
 import net.ripe.db.whois.common.dao.RpslObjectInfo;
 import net.ripe.db.whois.common.dao.RpslObjectUpdateDao;
@@ -99,6 +100,7 @@ public class ReferencesService {
     private final LoggerContext loggerContext;
     private final WhoisObjectMapper whoisObjectMapper;
     private final String dummyRole;
+    private final int maxReferences;
 
     @Autowired
     public ReferencesService(
@@ -110,7 +112,8 @@ public class ReferencesService {
             final WhoisService whoisService,
             final LoggerContext loggerContext,
             final WhoisObjectMapper whoisObjectMapper,
-            @Value("${whois.dummy_role.nichdl}") final String dummyRole) {
+            @Value("${whois.dummy_role.nichdl}") final String dummyRole,
+            @Value("${whois.references.max_objects:1000}") final int maxReferences) {
 
         this.rpslObjectDao = rpslObjectDao;
         this.rpslObjectUpdateDao = rpslObjectUpdateDao;
@@ -121,6 +124,7 @@ public class ReferencesService {
         this.loggerContext = loggerContext;
         this.whoisObjectMapper = whoisObjectMapper;
         this.dummyRole = dummyRole;
+        this.maxReferences = maxReferences;
     }
 
     /**
@@ -137,26 +141,24 @@ public class ReferencesService {
             @PathParam("objectType") final String objectTypeParam,
             @PathParam("key") final String keyParam) {
 
-        final Reference result = new Reference(keyParam, objectTypeParam);
-        populateIncomingReferences(result);
+        final RpslObject primaryObject = lookupObjectByKey(keyParam, objectTypeParam);
+        final ReferenceGraph referenceGraph = findReferences(primaryObject);
+        if (referenceGraph.isTruncated()) {
+            throw new IllegalArgumentException("Object " + primaryObject.getKey() + " has too many references.");
+        }
 
-        for (Reference reference : result.getIncoming()) {
-            populateIncomingReferences(reference);
+        final Reference result = new Reference(keyParam, objectTypeParam);
+        for (RpslObjectInfo incoming : referenceGraph.getIncoming(primaryObject.getObjectId())) {
+            final Reference reference = new Reference(incoming.getKey(), incoming.getObjectType().getName());
+            for (RpslObjectInfo incomingToIncoming : referenceGraph.getIncoming(incoming.getObjectId())) {
+                reference.getIncoming().add(new Reference(incomingToIncoming.getKey(), incomingToIncoming.getObjectType().getName()));
+            }
+            result.getIncoming().add(reference);
         }
 
         return result;
     }
 
-    private void populateIncomingReferences(final Reference reference) {
-        final RpslObject primaryObject = lookupObjectByKey(reference.getPrimaryKey(), reference.getObjectType());
-
-        for (Map.Entry<RpslObjectInfo, RpslObject> entry : findReferences(primaryObject).entrySet()) {
-            final RpslObject referenceObject = entry.getValue();
-            final Reference referenceToReference = new Reference(referenceObject.getKey().toString(), referenceObject.getType().getName());
-            reference.getIncoming().add(referenceToReference);
-        }
-    }
-
     @POST
     @Consumes({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
     @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
@@ -408,8 +410,13 @@ public class ReferencesService {
         checkForMainSource(request, sourceParam);
 
         final RpslObject primaryObject = lookupObjectByKey(keyParam, objectTypeParam);
-        final Map<RpslObjectInfo, RpslObject> references = findReferences(primaryObject);
-        validateReferences(primaryObject, references);
+        final ReferenceGraph referenceGraph = findReferences(primaryObject);
+        if (referenceGraph.isTruncated()) {
+            throw new IllegalArgumentException("Object " + primaryObject.getKey() + " has too many references.");
+        }
+
+        final Map<RpslObjectInfo, RpslObject> references = getReferences(referenceGraph);
+        validateReferences(primaryObject, references, referenceGraph);
 
         try {
 
@@ -536,7 +543,7 @@ public class ReferencesService {
         }
     }
 
-    private void validateReferences(final RpslObject primaryObject, final Map<RpslObjectInfo, RpslObject> references) {
+    private void validateReferences(final RpslObject primaryObject, final Map<RpslObjectInfo, RpslObject> references, final ReferenceGraph referenceGraph) {
 
         // make sure that primary object, and all references, are of a valid type
 
@@ -576,7 +583,7 @@ public class ReferencesService {
 
             final RpslObject reference = entry.getValue();
 
-            for (RpslObjectInfo referenceToReference : rpslObjectUpdateDao.getReferences(reference)) {
+            for (RpslObjectInfo referenceToReference : referenceGraph.getIncoming(reference.getObjectId())) {
 
                 if (!referenceMatches(referenceToReference, primaryObject) && !references.keySet().contains(referenceToReference)) {
 
@@ -666,19 +673,28 @@ public class ReferencesService {
         }
     }
 
-    private Map<RpslObjectInfo, RpslObject> findReferences(final RpslObject rpslObject) {
-        final Map<RpslObjectInfo, RpslObject> references = Maps.newHashMap();
-
+    // find the references to an object, and the references to those, loading each level in bulk
+    private ReferenceGraph findReferences(final RpslObject rpslObject) {
         try {
-            for (RpslObjectInfo rpslObjectInfo : rpslObjectUpdateDao.getReferences(rpslObject)) {
-                references.put(rpslObjectInfo, rpslObjectDao.getById(rpslObjectInfo.getObjectId()));
-            }
+            return rpslObjectUpdateDao.getReferenceGraph(rpslObject, 2, maxReferences);
         } catch (EmptyResultDataAccessException e) {
             throw e;
         } catch (DataAccessException e) {
             LOGGER.error("Unexpected", e);
             throw new EmptyResultDataAccessException(1);
         }
+    }
+
+    private Map<RpslObjectInfo, RpslObject> getReferences(final ReferenceGraph referenceGraph) {
+        final Map<RpslObjectInfo, RpslObject> references = Maps.newHashMap();
+
+        for (RpslObjectInfo rpslObjectInfo : referenceGraph.getIncoming(referenceGraph.getRoot().getObjectId())) {
+            final RpslObject reference = referenceGraph.getObject(rpslObjectInfo.getObjectId());
+            if (reference == null) {
+                throw new EmptyResultDataAccessException(1);
+            }
+            references.put(rpslObjectInfo, reference);
+        }
 
         return references;
     }
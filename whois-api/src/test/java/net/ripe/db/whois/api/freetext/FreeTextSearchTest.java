@@ -0,0 +1,112 @@
+package net.ripe.db.whois.api.freetext;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.facet.FacetsCollector;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.Version;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class FreeTextSearchTest {
+    private static final String[] OBJECT_TYPES = {"inetnum", "person", "mntner", "aut-num", "route"};
+    private static final int NUM_DOCUMENTS = 200;
+
+    private RAMDirectory directory;
+    private DirectoryReader indexReader;
+    private IndexSearcher indexSearcher;
+
+    @Before
+    public void setup() throws IOException {
+        directory = new RAMDirectory();
+        try (final IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig(Version.LUCENE_4_10_4, FreeTextIndex.INDEX_ANALYZER))) {
+            for (int i = 0; i < NUM_DOCUMENTS; i++) {
+                final Document document = new Document();
+                document.add(new TextField(FreeTextIndex.OBJECT_TYPE_FIELD_NAME, OBJECT_TYPES[i % OBJECT_TYPES.length], Field.Store.YES));
+                document.add(new TextField("descr", i % 2 == 0 ? "even" : "odd", Field.Store.YES));
+                indexWriter.addDocument(document);
+            }
+        }
+
+        indexReader = DirectoryReader.open(directory);
+        indexSearcher = new IndexSearcher(indexReader);
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        indexReader.close();
+        directory.close();
+    }
+
+    @Test
+    public void first_page() throws IOException {
+        assertPage(new TermQuery(new Term("descr", "even")), 0, 10);
+    }
+
+    @Test
+    public void later_page() throws IOException {
+        assertPage(new TermQuery(new Term("descr", "odd")), 40, 10);
+    }
+
+    @Test
+    public void last_partial_page() throws IOException {
+        final TopDocs page = assertPage(new TermQuery(new Term("descr", "odd")), 95, 10);
+
+        assertThat(page.scoreDocs.length, is(5));
+    }
+
+    @Test
+    public void page_after_last_hit() throws IOException {
+        final TopDocs page = FreeTextSearch.search(indexSearcher, new TermQuery(new Term("descr", "odd")), 500, 10, null);
+
+        assertThat(page.totalHits, is(NUM_DOCUMENTS / 2));
+        assertThat(page.scoreDocs.length, is(0));
+    }
+
+    @Test
+    public void no_hits() throws IOException {
+        final TopDocs page = FreeTextSearch.search(indexSearcher, new TermQuery(new Term("descr", "none")), 0, 10, null);
+
+        assertThat(page.totalHits, is(0));
+        assertThat(page.scoreDocs.length, is(0));
+    }
+
+    @Test
+    public void facets_collected_for_all_hits() throws IOException {
+        final FacetsCollector facetsCollector = new FacetsCollector();
+
+        FreeTextSearch.search(indexSearcher, new TermQuery(new Term("descr", "even")), 0, 10, facetsCollector);
+
+        int collected = 0;
+        for (final FacetsCollector.MatchingDocs matchingDocs : facetsCollector.getMatchingDocs()) {
+            collected += matchingDocs.totalHits;
+        }
+        assertThat(collected, is(NUM_DOCUMENTS / 2));
+    }
+
+    private TopDocs assertPage(final Query query, final int start, final int rows) throws IOException {
+        final TopDocs all = FreeTextSearch.search(indexSearcher, query, 0, NUM_DOCUMENTS, null);
+        final TopDocs page = FreeTextSearch.search(indexSearcher, query, start, rows, null);
+
+        assertThat(page.totalHits, is(all.totalHits));
+        for (int index = 0; index < page.scoreDocs.length; index++) {
+            assertThat(page.scoreDocs[index].doc, is(all.scoreDocs[start + index].doc));
+        }
+        return page;
+    }
+}
@@ -354,6 +354,39 @@ public class FreeTextSearchTestIntegration extends AbstractIntegrationTest {
         assertThat(query("q=JM1-RIPE"), containsString("numFound=\"0\""));
     }
 
+    @Test
+    public void search_after_multiple_changes_since_last_update() {
+        databaseHelper.addObject("" +
+                "person: John McDonald\n" +
+                "nic-hdl: JM1-RIPE\n" +
+                "remarks: first\n" +
+                "source: RIPE");
+        freeTextIndex.rebuild();
+
+        databaseHelper.updateObject("" +
+                "person: John McDonald\n" +
+                "nic-hdl: JM1-RIPE\n" +
+                "remarks: second\n" +
+                "source: RIPE");
+        databaseHelper.updateObject("" +
+                "person: John McDonald\n" +
+                "nic-hdl: JM1-RIPE\n" +
+                "remarks: third\n" +
+                "source: RIPE");
+        final RpslObject deleted = databaseHelper.addObject("" +
+                "person: Ed Shryane\n" +
+                "nic-hdl: ES1-RIPE\n" +
+                "source: RIPE");
+        databaseHelper.deleteObject(deleted);
+        freeTextIndex.scheduledUpdate();
+
+        assertThat(query("q=JM1-RIPE"), containsString("numFound=\"1\""));
+        assertThat(query("q=first"), containsString("numFound=\"0\""));
+        assertThat(query("q=second"), containsString("numFound=\"0\""));
+        assertThat(query("q=third"), containsString("numFound=\"1\""));
+        assertThat(query("q=ES1-RIPE"), containsString("numFound=\"0\""));
+    }
+
     @Test
     public void search_with_forward_slash() {
         databaseHelper.addObject(RpslObject.parse(
@@ -31,6 +31,7 @@ import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import javax.annotation.Nullable;
 import javax.ws.rs.BadRequestException;
@@ -63,6 +64,8 @@ public class ReferencesServiceTestIntegration extends AbstractIntegrationTest {
     private WhoisObjectMapper whoisObjectMapper;
     @Autowired
     private MailSenderStub mailSenderStub;
+    @Autowired
+    private ReferencesService referencesService;
 
     @Before
     public void setup() {
@@ -261,6 +264,28 @@ public class ReferencesServiceTestIntegration extends AbstractIntegrationTest {
         }
     }
 
+    @Test
+    public void lookup_mntner_references_too_many_references() {
+        databaseHelper.addObject(
+                "person:        Other Person\n" +
+                "nic-hdl:       OP1-TEST\n" +
+                "mnt-by:        OWNER-MNT\n" +
+                "source:        TEST");
+
+        ReflectionTestUtils.setField(referencesService, "maxReferences", 1);
+        try {
+            RestTest.target(getPort(), "whois/references/TEST/mntner/OWNER-MNT")
+                .request()
+                .get(String.class);
+            fail();
+        } catch (BadRequestException e) {
+            final WhoisResources response = e.getResponse().readEntity(WhoisResources.class);
+            assertThat(response.getErrorMessages(), contains(new ErrorMessage(new Message(Messages.Type.ERROR, "Object OWNER-MNT has too many references."))));
+        } finally {
+            ReflectionTestUtils.setField(referencesService, "maxReferences", 1000);
+        }
+    }
+
     // UPDATE
 
     @Test
@@ -0,0 +1,184 @@
+package net.ripe.db.whois.api.rest;
+
+import com.google.common.collect.Lists;
+import net.ripe.db.whois.api.AbstractIntegrationTest;
+import net.ripe.db.whois.api.RestTest;
+import net.ripe.db.whois.api.rest.domain.WhoisResources;
+import net.ripe.db.whois.api.rest.mapper.FormattedClientAttributeMapper;
+import net.ripe.db.whois.api.rest.mapper.WhoisObjectMapper;
+import net.ripe.db.whois.api.syncupdate.SyncUpdateUtils;
+import net.ripe.db.whois.common.IntegrationTest;
+import net.ripe.db.whois.common.domain.User;
+import net.ripe.db.whois.common.rpsl.AttributeType;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.update.handler.UpdateLocking;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.MediaType;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+@Category(IntegrationTest.class)
+public class UpdateLockingTestIntegration extends AbstractIntegrationTest {
+
+    private static final int UPDATES = 10;
+
+    @Autowired private UpdateLocking updateLocking;
+    @Autowired private WhoisObjectMapper whoisObjectMapper;
+
+    private ExecutorService executorService;
+
+    @Before
+    public void setup() {
+        ReflectionTestUtils.setField(updateLocking, "perObject", true);
+        executorService = Executors.newFixedThreadPool(2 * UPDATES);
+
+        databaseHelper.insertUser(User.createWithPlainTextPassword("personadmin", "secret", ObjectType.values()));
+        databaseHelper.addObject("person: Test Person\nnic-hdl: TP1-TEST");
+        for (int i = 1; i <= UPDATES; i++) {
+            databaseHelper.addObject(ownerMntner(i));
+            databaseHelper.addObject(person(i));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+        ReflectionTestUtils.setField(updateLocking, "perObject", false);
+    }
+
+    @Test
+    public void disjoint_updates_all_succeed() throws Exception {
+        final List<Future<String>> responses = Lists.newArrayList();
+        for (int i = 1; i <= UPDATES; i++) {
+            responses.add(syncupdate(person(i) + "remarks: updated " + i + "\npassword: test"));
+        }
+
+        for (int i = 1; i <= UPDATES; i++) {
+            assertThat(responses.get(i - 1).get(30, TimeUnit.SECONDS), containsString("Modify SUCCEEDED: [person] CP" + i + "-TEST"));
+            assertThat(rpslObjectDao.getByKey(ObjectType.PERSON, "CP" + i + "-TEST").getValueForAttribute(AttributeType.REMARKS).toString(), is("updated " + i));
+        }
+    }
+
+    @Test
+    public void conflicting_updates_are_serialised() throws Exception {
+        final List<Future<String>> deletes = Lists.newArrayList();
+        final List<Future<String>> creates = Lists.newArrayList();
+        for (int i = 1; i <= UPDATES; i++) {
+            // deleting the person and creating a maintainer referencing it both lock the nic-hdl, so only one can succeed
+            deletes.add(syncupdate(person(i) + "delete: conflicting\npassword: test"));
+            creates.add(syncupdate(referencingMntner(i) + "password: test"));
+        }
+
+        for (int i = 1; i <= UPDATES; i++) {
+            final boolean deleted = deletes.get(i - 1).get(30, TimeUnit.SECONDS).contains("Delete SUCCEEDED: [person] CP" + i + "-TEST");
+            final boolean created = creates.get(i - 1).get(30, TimeUnit.SECONDS).contains("Create SUCCEEDED: [mntner] TEST" + i + "-MNT");
+
+            assertThat("update " + i + " deleted " + deleted + " created " + created, deleted, is(not(created)));
+            assertThat(rpslObjectDao.getByKeyOrNull(ObjectType.PERSON, "CP" + i + "-TEST") == null, is(deleted));
+            assertThat(rpslObjectDao.getByKeyOrNull(ObjectType.MNTNER, "TEST" + i + "-MNT") != null, is(created));
+        }
+    }
+
+    @Test
+    public void batched_updates_do_not_deadlock() throws Exception {
+        final List<Future<WhoisResources>> batches = Lists.newArrayList();
+        final List<Future<String>> updates = Lists.newArrayList();
+        for (int i = 1; i <= UPDATES; i++) {
+            // the batch modifies the maintainer it created, which needs the resource lock once the maintainer exists
+            batches.add(batchUpdate(batchMntner(i, "created"), batchMntner(i, "modified")));
+            // modifying an existing maintainer takes the resource lock too
+            updates.add(syncupdate(ownerMntner(i) + "remarks: updated " + i + "\npassword: test"));
+        }
+
+        for (int i = 1; i <= UPDATES; i++) {
+            batches.get(i - 1).get(30, TimeUnit.SECONDS);
+            assertThat(updates.get(i - 1).get(30, TimeUnit.SECONDS), containsString("Modify SUCCEEDED: [mntner] OWNER" + i + "-MNT"));
+            assertThat(rpslObjectDao.getByKey(ObjectType.MNTNER, "BATCH" + i + "-MNT").getValueForAttribute(AttributeType.DESCR).toString(), is("modified"));
+        }
+    }
+
+    private Future<WhoisResources> batchUpdate(final RpslObject... rpslObjects) {
+        final WhoisResources whoisResources = whoisObjectMapper.mapRpslObjects(FormattedClientAttributeMapper.class, rpslObjects);
+        return executorService.submit(new Callable<WhoisResources>() {
+            @Override
+            public WhoisResources call() throws Exception {
+                return RestTest.target(getPort(), "whois/references/test")
+                        .queryParam("override", SyncUpdateUtils.encode("personadmin,secret,reason"))
+                        .request()
+                        .put(Entity.entity(whoisResources, MediaType.APPLICATION_JSON_TYPE), WhoisResources.class);
+            }
+        });
+    }
+
+    private Future<String> syncupdate(final String data) {
+        return executorService.submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return RestTest.target(getPort(), "whois/syncupdates/test?DATA=" + SyncUpdateUtils.encode(data))
+                        .request()
+                        .get(String.class);
+            }
+        });
+    }
+
+    private static String person(final int i) {
+        return "" +
+                "person:      Conflicting Person\n" +
+                "address:     Singel 258\n" +
+                "phone:       +31 6 12345678\n" +
+                "nic-hdl:     CP" + i + "-TEST\n" +
+                "mnt-by:      OWNER" + i + "-MNT\n" +
+                "source:      TEST\n";
+    }
+
+    // every person has its own maintainer, so updates of different persons lock different keys
+    private static String ownerMntner(final int i) {
+        return "" +
+                "mntner:      OWNER" + i + "-MNT\n" +
+                "descr:       Owner Maintainer\n" +
+                "admin-c:     TP1-TEST\n" +
+                "upd-to:      noreply@ripe.net\n" +
+                "auth:        MD5-PW $1$d9fKeTr2$Si7YudNf4rUGmR71n/cqk/ #test\n" +
+                "mnt-by:      OWNER" + i + "-MNT\n" +
+                "source:      TEST\n";
+    }
+
+    private static RpslObject batchMntner(final int i, final String descr) {
+        return RpslObject.parse("" +
+                "mntner:      BATCH" + i + "-MNT\n" +
+                "descr:       " + descr + "\n" +
+                "admin-c:     TP1-TEST\n" +
+                "upd-to:      noreply@ripe.net\n" +
+                "auth:        MD5-PW $1$d9fKeTr2$Si7YudNf4rUGmR71n/cqk/ #test\n" +
+                "mnt-by:      BATCH" + i + "-MNT\n" +
+                "source:      TEST");
+    }
+
+    private static String referencingMntner(final int i) {
+        return "" +
+                "mntner:      TEST" + i + "-MNT\n" +
+                "descr:       Maintainer\n" +
+                "admin-c:     CP" + i + "-TEST\n" +
+                "upd-to:      noreply@ripe.net\n" +
+                "auth:        MD5-PW $1$d9fKeTr2$Si7YudNf4rUGmR71n/cqk/ #test\n" +
+                "mnt-by:      TEST" + i + "-MNT\n" +
+                "source:      TEST\n";
+    }
+}
@@ -0,0 +1,99 @@
+package net.ripe.db.whois.api.freetext;
+
+import net.ripe.db.whois.benchmarks.RpslCorpus;
+import net.ripe.db.whois.common.rpsl.RpslAttribute;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldCollector;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.Version;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares collecting only the requested page of a broad free text query with collecting (and sorting) all hits.
+ * Run with <code>-prof gc</code> to also report allocation per query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class FreeTextSearchBenchmark {
+    @Param({"100000"})
+    private int corpusSize;
+
+    @Param({"0", "1000"})
+    private int start;
+
+    private static final int ROWS = 10;
+
+    private RAMDirectory directory;
+    private DirectoryReader indexReader;
+    private IndexSearcher indexSearcher;
+    private Query query;
+
+    @Setup
+    public void setup() throws IOException {
+        directory = new RAMDirectory();
+        try (final IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig(Version.LUCENE_4_10_4, FreeTextIndex.INDEX_ANALYZER))) {
+            for (final RpslObject rpslObject : new RpslCorpus(corpusSize).getRpslObjects()) {
+                final Document document = new Document();
+                document.add(new TextField(FreeTextIndex.OBJECT_TYPE_FIELD_NAME, rpslObject.getType().getName(), Field.Store.YES));
+                for (final RpslAttribute attribute : rpslObject.getAttributes()) {
+                    document.add(new TextField(attribute.getKey(), attribute.getValue().trim(), Field.Store.YES));
+                }
+                indexWriter.addDocument(document);
+            }
+        }
+
+        indexReader = DirectoryReader.open(directory);
+        indexSearcher = new IndexSearcher(indexReader);
+
+        // matches every object
+        query = new TermQuery(new Term("source", "test"));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        indexReader.close();
+        directory.close();
+    }
+
+    @Benchmark
+    public TopDocs page() throws IOException {
+        return FreeTextSearch.search(indexSearcher, query, start, ROWS, null);
+    }
+
+    @Benchmark
+    public TopDocs allHits() throws IOException {
+        final int maxResults = Math.max(100, indexReader.numDocs());
+        final TopFieldCollector topFieldCollector = TopFieldCollector.create(FreeTextSearch.SORT_BY_OBJECT_TYPE, maxResults, false, false, false, false);
+        indexSearcher.search(query, topFieldCollector);
+        return topFieldCollector.topDocs(start, ROWS);
+    }
+}
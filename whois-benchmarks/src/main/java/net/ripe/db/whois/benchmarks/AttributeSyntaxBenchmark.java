@@ -0,0 +1,72 @@
+package net.ripe.db.whois.benchmarks;
+
+import com.google.common.collect.Lists;
+import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.rpsl.AttributeType;
+import net.ripe.db.whois.common.rpsl.ObjectTemplate;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import net.ripe.db.whois.common.rpsl.RpslAttribute;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class AttributeSyntaxBenchmark {
+    @Param({"1000"})
+    private int corpusSize;
+
+    private List<RpslObject> objects;
+    private List<ObjectType> objectTypes;
+    private List<AttributeType> attributeTypes;
+    private List<String> values;
+
+    @Setup
+    public void setup() {
+        objects = new RpslCorpus(corpusSize).getRpslObjects();
+        objectTypes = Lists.newArrayList();
+        attributeTypes = Lists.newArrayList();
+        values = Lists.newArrayList();
+
+        for (final RpslObject object : objects) {
+            for (final RpslAttribute attribute : object.getAttributes()) {
+                for (final CIString value : attribute.getCleanValues()) {
+                    objectTypes.add(object.getType());
+                    attributeTypes.add(attribute.getType());
+                    values.add(value.toString());
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void matches(final Blackhole blackhole) {
+        for (int i = 0; i < values.size(); i++) {
+            blackhole.consume(attributeTypes.get(i).getSyntax().matches(objectTypes.get(i), values.get(i)));
+        }
+    }
+
+    @Benchmark
+    public void validate(final Blackhole blackhole) {
+        for (final RpslObject object : objects) {
+            blackhole.consume(ObjectTemplate.getTemplate(object.getType()).validate(object));
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package net.ripe.db.whois.benchmarks;
+
+import com.google.common.collect.Lists;
+import net.ripe.db.whois.common.rpsl.RpslAttribute;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RpslAttribute} caches its clean values, so every invocation starts from new attributes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class CleanValuesBenchmark {
+    @Param({"1000"})
+    private int corpusSize;
+
+    private List<String[]> attributes;
+
+    @Setup
+    public void setup() {
+        attributes = Lists.newArrayList();
+        for (final RpslObject object : new RpslCorpus(corpusSize).getRpslObjects()) {
+            for (final RpslAttribute attribute : object.getAttributes()) {
+                attributes.add(new String[]{attribute.getKey(), attribute.getValue()});
+            }
+        }
+    }
+
+    @Benchmark
+    public void getCleanValues(final Blackhole blackhole) {
+        for (final String[] attribute : attributes) {
+            blackhole.consume(new RpslAttribute(attribute[0], attribute[1]).getCleanValues());
+        }
+    }
+}
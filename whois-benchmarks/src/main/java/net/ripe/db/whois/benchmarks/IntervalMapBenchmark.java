@@ -0,0 +1,117 @@
+package net.ripe.db.whois.benchmarks;
+
+import net.ripe.db.whois.common.etree.ImmutableNestedIntervalMap;
+import net.ripe.db.whois.common.etree.IntervalMap;
+import net.ripe.db.whois.common.etree.Ipv4CompactIntervalMap;
+import net.ripe.db.whois.common.etree.NestedIntervalMap;
+import net.ripe.db.whois.common.ip.Ipv4Resource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups in an IPv4 tree with /8 to /24 allocations nested like the RIPE address space.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class IntervalMapBenchmark {
+    private static final int LOOKUPS = 1024;
+
+    public enum Implementation {
+        NESTED {
+            @Override
+            IntervalMap<Ipv4Resource, Ipv4Resource> copyOf(final NestedIntervalMap<Ipv4Resource, Ipv4Resource> source) {
+                return source;
+            }
+        },
+        IMMUTABLE {
+            @Override
+            IntervalMap<Ipv4Resource, Ipv4Resource> copyOf(final NestedIntervalMap<Ipv4Resource, Ipv4Resource> source) {
+                return ImmutableNestedIntervalMap.copyOf(source);
+            }
+        },
+        COMPACT {
+            @Override
+            IntervalMap<Ipv4Resource, Ipv4Resource> copyOf(final NestedIntervalMap<Ipv4Resource, Ipv4Resource> source) {
+                final Ipv4CompactIntervalMap<Ipv4Resource> result = new Ipv4CompactIntervalMap<>();
+                for (final Ipv4Resource resource : source.findAllMoreSpecific(Ipv4Resource.MAX_RANGE)) {
+                    result.put(resource, resource);
+                }
+                return result;
+            }
+        };
+
+        abstract IntervalMap<Ipv4Resource, Ipv4Resource> copyOf(NestedIntervalMap<Ipv4Resource, Ipv4Resource> source);
+    }
+
+    @Param({"NESTED", "IMMUTABLE", "COMPACT"})
+    private Implementation implementation;
+
+    @Param({"100000"})
+    private int size;
+
+    private IntervalMap<Ipv4Resource, Ipv4Resource> map;
+    private Ipv4Resource[] addresses;
+    private Ipv4Resource[] ranges;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(RpslCorpus.SEED);
+        final NestedIntervalMap<Ipv4Resource, Ipv4Resource> nestedIntervalMap = new NestedIntervalMap<>();
+        for (int i = 0; i < size; i++) {
+            final int prefixLength = 8 + random.nextInt(17);
+            final long begin = (random.nextLong() & 0xFFFFFFFFL) & (0xFFFFFFFFL << (32 - prefixLength));
+            final Ipv4Resource resource = new Ipv4Resource(begin, begin + (1L << (32 - prefixLength)) - 1);
+            if (nestedIntervalMap.findExact(resource).isEmpty()) {
+                nestedIntervalMap.put(resource, resource);
+            }
+        }
+        map = implementation.copyOf(nestedIntervalMap);
+
+        addresses = new Ipv4Resource[LOOKUPS];
+        ranges = new Ipv4Resource[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            final long address = random.nextLong() & 0xFFFFFFFFL;
+            addresses[i] = new Ipv4Resource(address, address);
+            final long begin = address & 0xFFFF0000L;
+            ranges[i] = new Ipv4Resource(begin, begin + 0xFFFFL);
+        }
+    }
+
+    @Benchmark
+    public void findExactOrFirstLessSpecific(final Blackhole blackhole) {
+        for (final Ipv4Resource address : addresses) {
+            blackhole.consume(map.findExactOrFirstLessSpecific(address));
+        }
+    }
+
+    @Benchmark
+    public void findAllLessSpecific(final Blackhole blackhole) {
+        for (final Ipv4Resource address : addresses) {
+            blackhole.consume(map.findAllLessSpecific(address));
+        }
+    }
+
+    @Benchmark
+    public void findFirstMoreSpecific(final Blackhole blackhole) {
+        for (final Ipv4Resource range : ranges) {
+            blackhole.consume(map.findFirstMoreSpecific(range));
+        }
+    }
+}
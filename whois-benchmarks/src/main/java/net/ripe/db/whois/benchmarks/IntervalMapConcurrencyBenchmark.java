@@ -0,0 +1,128 @@
+package net.ripe.db.whois.benchmarks;
+
+import net.ripe.db.whois.common.etree.ImmutableNestedIntervalMap;
+import net.ripe.db.whois.common.etree.IntervalMap;
+import net.ripe.db.whois.common.etree.NestedIntervalMap;
+import net.ripe.db.whois.common.etree.SynchronizedIntervalMap;
+import net.ripe.db.whois.common.ip.Ipv4Resource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups by several query threads while a writer keeps applying batches of changes like the IpTreeUpdater does, in
+ * a {@link SynchronizedIntervalMap} and in published {@link ImmutableNestedIntervalMap} snapshots.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class IntervalMapConcurrencyBenchmark {
+    private static final int BATCH_SIZE = 10;
+
+    public enum Implementation {
+        SYNCHRONIZED {
+            private IntervalMap<Ipv4Resource, Ipv4Resource> map;
+
+            @Override
+            void setup(final NestedIntervalMap<Ipv4Resource, Ipv4Resource> source) {
+                map = SynchronizedIntervalMap.synchronizedMap(source);
+            }
+
+            @Override
+            IntervalMap<Ipv4Resource, Ipv4Resource> get() {
+                return map;
+            }
+
+            @Override
+            void apply(final int[] batch) {
+                applyBatch(map, batch);
+            }
+        },
+        SNAPSHOT {
+            private volatile ImmutableNestedIntervalMap<Ipv4Resource, Ipv4Resource> snapshot;
+
+            @Override
+            void setup(final NestedIntervalMap<Ipv4Resource, Ipv4Resource> source) {
+                snapshot = ImmutableNestedIntervalMap.copyOf(source);
+            }
+
+            @Override
+            IntervalMap<Ipv4Resource, Ipv4Resource> get() {
+                return snapshot;
+            }
+
+            @Override
+            void apply(final int[] batch) {
+                final ImmutableNestedIntervalMap.Builder<Ipv4Resource, Ipv4Resource> builder = snapshot.toBuilder();
+                applyBatch(builder, batch);
+                snapshot = builder.build();
+            }
+        };
+
+        abstract void setup(NestedIntervalMap<Ipv4Resource, Ipv4Resource> source);
+
+        abstract IntervalMap<Ipv4Resource, Ipv4Resource> get();
+
+        abstract void apply(int[] batch);
+    }
+
+    @Param({"SYNCHRONIZED", "SNAPSHOT"})
+    private Implementation implementation;
+
+    @Param({"10000"})
+    private int size;
+
+    @Setup
+    public void setup() {
+        final NestedIntervalMap<Ipv4Resource, Ipv4Resource> nestedIntervalMap = new NestedIntervalMap<>();
+        for (int index = 0; index < size; index++) {
+            final Ipv4Resource resource = new Ipv4Resource(index * 16L, index * 16L + 15);
+            nestedIntervalMap.put(resource, resource);
+        }
+        implementation.setup(nestedIntervalMap);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(7)
+    public void lookup(final Blackhole blackhole) {
+        final long address = ThreadLocalRandom.current().nextInt(size) * 16L + 9;
+        blackhole.consume(implementation.get().findAllLessSpecific(new Ipv4Resource(address, address)));
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public void update() {
+        final int[] batch = new int[BATCH_SIZE];
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch[i] = ThreadLocalRandom.current().nextInt(size);
+        }
+        implementation.apply(batch);
+    }
+
+    private static void applyBatch(final IntervalMap<Ipv4Resource, Ipv4Resource> map, final int[] batch) {
+        for (final int index : batch) {
+            final Ipv4Resource resource = new Ipv4Resource(index * 16L, index * 16L + 7);
+            map.put(resource, resource);
+            map.remove(resource, resource);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package net.ripe.db.whois.benchmarks;
+
+import net.ripe.db.whois.common.jdbc.driver.LoggingDriver;
+import net.ripe.db.whois.common.jdbc.driver.LoggingHandler;
+import net.ripe.db.whois.common.jdbc.driver.ResultInfo;
+import net.ripe.db.whois.common.jdbc.driver.StatementInfo;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads objects from an in-memory H2 database, directly and through the logging JDBC driver.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class LoggingDriverBenchmark {
+    private static final int CORPUS_SIZE = 1000;
+
+    // direct: the H2 driver, none: no logging handler, idle: no update is being logged, logging: an update is being logged
+    @Param({"direct", "none", "idle", "logging"})
+    private String mode;
+
+    private Connection connection;
+
+    @Setup
+    public void setup() throws SQLException {
+        final String url = "jdbc:h2:mem:" + mode;
+
+        switch (mode) {
+            case "direct":
+                connection = new org.h2.Driver().connect(url, new Properties());
+                break;
+            case "none":
+                connection = connect(url, null);
+                break;
+            case "idle":
+                connection = connect(url, new BenchmarkLoggingHandler(false));
+                break;
+            case "logging":
+                connection = connect(url, new BenchmarkLoggingHandler(true));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown mode: " + mode);
+        }
+
+        try (final Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE last (object_id INT PRIMARY KEY, sequence_id INT, object BLOB)");
+        }
+
+        final List<RpslObject> objects = new RpslCorpus(CORPUS_SIZE).getRpslObjects();
+        try (final PreparedStatement statement = connection.prepareStatement("INSERT INTO last VALUES (?, ?, ?)")) {
+            for (int objectId = 0; objectId < objects.size(); objectId++) {
+                statement.setInt(1, objectId);
+                statement.setInt(2, 1);
+                statement.setBytes(3, objects.get(objectId).toByteArray());
+                statement.executeUpdate();
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    private static Connection connect(final String url, final LoggingHandler loggingHandler) throws SQLException {
+        final LoggingDriver loggingDriver = new LoggingDriver();
+        loggingDriver.setLoggingHandler(loggingHandler);
+        return loggingDriver.connect(url.replace("jdbc:", "jdbc:log:") + ";driver=org.h2.Driver", new Properties());
+    }
+
+    // one object by primary key, like JdbcRpslObjectDao.getById()
+    @Benchmark
+    public void getById(final Blackhole blackhole) throws SQLException {
+        try (final PreparedStatement statement = connection.prepareStatement("SELECT object FROM last WHERE object_id = ?")) {
+            statement.setInt(1, CORPUS_SIZE / 2);
+            try (final ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    blackhole.consume(resultSet.getBytes(1));
+                }
+            }
+        }
+    }
+
+    // all objects, like a large inverse lookup or an export
+    @Benchmark
+    public void iterate(final Blackhole blackhole) throws SQLException {
+        try (final PreparedStatement statement = connection.prepareStatement("SELECT object_id, sequence_id, object FROM last")) {
+            try (final ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    blackhole.consume(resultSet.getInt(1));
+                    blackhole.consume(resultSet.getInt(2));
+                    blackhole.consume(resultSet.getBytes(3));
+                }
+            }
+        }
+    }
+
+    private static final class BenchmarkLoggingHandler implements LoggingHandler {
+        private final boolean logging;
+
+        private BenchmarkLoggingHandler(final boolean logging) {
+            this.logging = logging;
+        }
+
+        @Override
+        public boolean isLogging() {
+            return logging;
+        }
+
+        @Override
+        public void log(final StatementInfo statementInfo, final ResultInfo resultInfo) {
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package net.ripe.db.whois.benchmarks;
+
+import net.ripe.db.whois.query.query.Query;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class QueryParseBenchmark {
+    @Param({"1000"})
+    private int corpusSize;
+
+    private List<String> queries;
+
+    @Setup
+    public void setup() {
+        queries = new RpslCorpus(corpusSize).getQueries();
+    }
+
+    @Benchmark
+    public void parse(final Blackhole blackhole) {
+        for (final String query : queries) {
+            blackhole.consume(Query.parse(query));
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package net.ripe.db.whois.benchmarks;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic RPSL objects and queries. The same seed always produces the same corpus, so results of
+ * different runs can be compared.
+ */
+public final class RpslCorpus {
+    public static final long SEED = 20160901L;
+
+    private static final String[] COUNTRIES = {"NL", "DE", "GB", "FR", "SE", "RU", "IT", "ES"};
+
+    private final Random random;
+    private final List<String> objects;
+
+    public RpslCorpus(final int size) {
+        this(size, SEED);
+    }
+
+    public RpslCorpus(final int size, final long seed) {
+        this.random = new Random(seed);
+        this.objects = Lists.newArrayListWithCapacity(size);
+
+        for (int i = 0; i < size; i++) {
+            switch (i % 6) {
+                case 0:
+                    objects.add(inetnum(i));
+                    break;
+                case 1:
+                    objects.add(inet6num(i));
+                    break;
+                case 2:
+                    objects.add(route(i));
+                    break;
+                case 3:
+                    objects.add(autnum(i));
+                    break;
+                case 4:
+                    objects.add(person(i));
+                    break;
+                default:
+                    objects.add(mntner(i));
+                    break;
+            }
+        }
+    }
+
+    public List<String> getObjects() {
+        return objects;
+    }
+
+    public List<byte[]> getObjectBytes() {
+        final List<byte[]> result = Lists.newArrayListWithCapacity(objects.size());
+        for (final String object : objects) {
+            result.add(object.getBytes(Charsets.ISO_8859_1));
+        }
+        return result;
+    }
+
+    public List<RpslObject> getRpslObjects() {
+        final List<RpslObject> result = Lists.newArrayListWithCapacity(objects.size());
+        for (final String object : objects) {
+            result.add(RpslObject.parse(object));
+        }
+        return result;
+    }
+
+    public List<String> getQueries() {
+        final List<String> result = Lists.newArrayListWithCapacity(objects.size());
+        for (int i = 0; i < objects.size(); i++) {
+            switch (i % 6) {
+                case 0:
+                    result.add(String.format("-r -T inetnum %s", ipv4Address()));
+                    break;
+                case 1:
+                    result.add(String.format("-rBG -T inet6num 2001:db8:%x::/48", random.nextInt(0xffff)));
+                    break;
+                case 2:
+                    result.add(String.format("-T route -x 10.%d.%d.0/24", random.nextInt(256), random.nextInt(256)));
+                    break;
+                case 3:
+                    result.add(String.format("AS%d", 1 + random.nextInt(65000)));
+                    break;
+                case 4:
+                    result.add(String.format("-i mnt-by MNT%d-TEST", random.nextInt(1000)));
+                    break;
+                default:
+                    result.add(String.format("--no-personal -B %s", ipv4Address()));
+                    break;
+            }
+        }
+        return result;
+    }
+
+    private String ipv4Address() {
+        return String.format("10.%d.%d.%d", random.nextInt(256), random.nextInt(256), random.nextInt(256));
+    }
+
+    private String country() {
+        return COUNTRIES[random.nextInt(COUNTRIES.length)];
+    }
+
+    private String inetnum(final int index) {
+        final int second = random.nextInt(256);
+        final int third = random.nextInt(256);
+        return String.format("" +
+                        "inetnum:        10.%d.%d.0 - 10.%d.%d.255\n" +
+                        "netname:        NET-%d\n" +
+                        "descr:          Synthetic network %d\n" +
+                        "                spanning a continuation line\n" +
+                        "country:        %s\n" +
+                        "admin-c:        P%d-TEST\n" +
+                        "tech-c:         P%d-TEST\n" +
+                        "status:         ASSIGNED PA\n" +
+                        "remarks:        generated # with a comment\n" +
+                        "mnt-by:         MNT%d-TEST\n" +
+                        "mnt-lower:      MNT%d-TEST\n" +
+                        "source:         TEST\n",
+                second, third, second, third, index, index, country(), index, index, index % 1000, (index + 1) % 1000);
+    }
+
+    private String inet6num(final int index) {
+        return String.format("" +
+                        "inet6num:       2001:db8:%x::/48\n" +
+                        "netname:        NET6-%d\n" +
+                        "descr:          Synthetic IPv6 network %d\n" +
+                        "country:        %s\n" +
+                        "admin-c:        P%d-TEST\n" +
+                        "tech-c:         P%d-TEST\n" +
+                        "status:         ASSIGNED\n" +
+                        "mnt-by:         MNT%d-TEST\n" +
+                        "source:         TEST\n",
+                random.nextInt(0xffff), index, index, country(), index, index, index % 1000);
+    }
+
+    private String route(final int index) {
+        return String.format("" +
+                        "route:          10.%d.%d.0/24\n" +
+                        "descr:          Synthetic route %d\n" +
+                        "origin:         AS%d\n" +
+                        "member-of:      RS-TEST, RS-SYNTHETIC\n" +
+                        "mnt-by:         MNT%d-TEST\n" +
+                        "source:         TEST\n",
+                random.nextInt(256), random.nextInt(256), index, 1 + random.nextInt(65000), index % 1000);
+    }
+
+    private String autnum(final int index) {
+        final int asn = 1 + random.nextInt(65000);
+        return String.format("" +
+                        "aut-num:        AS%d\n" +
+                        "as-name:        SYNTHETIC-%d\n" +
+                        "descr:          Synthetic autonomous system\n" +
+                        "import:         from AS%d accept ANY\n" +
+                        "export:         to AS%d announce AS%d\n" +
+                        "mp-import:      afi ipv6.unicast from AS%d accept ANY\n" +
+                        "mp-export:      afi ipv6.unicast to AS%d announce AS%d\n" +
+                        "admin-c:        P%d-TEST\n" +
+                        "tech-c:         P%d-TEST\n" +
+                        "mnt-by:         MNT%d-TEST\n" +
+                        "source:         TEST\n",
+                asn, index, asn + 1, asn + 1, asn, asn + 2, asn + 2, asn, index, index, index % 1000);
+    }
+
+    private String person(final int index) {
+        return String.format("" +
+                        "person:         Synthetic Person %d\n" +
+                        "address:        Singel %d\n" +
+                        "address:        Amsterdam\n" +
+                        "phone:          +31 20 %07d\n" +
+                        "e-mail:         person%d@example.net\n" +
+                        "nic-hdl:        P%d-TEST\n" +
+                        "mnt-by:         MNT%d-TEST\n" +
+                        "source:         TEST\n",
+                index, 1 + random.nextInt(500), random.nextInt(10000000), index, index, index % 1000);
+    }
+
+    private String mntner(final int index) {
+        return String.format("" +
+                        "mntner:         MNT%d-TEST\n" +
+                        "descr:          Synthetic maintainer\n" +
+                        "admin-c:        P%d-TEST\n" +
+                        "upd-to:         noreply%d@example.net\n" +
+                        "auth:           MD5-PW $1$%08x$abcdefghijklmnopqrstuv\n" +
+                        "mnt-by:         MNT%d-TEST\n" +
+                        "source:         TEST\n",
+                index % 1000, index, index, random.nextInt(), index % 1000);
+    }
+}
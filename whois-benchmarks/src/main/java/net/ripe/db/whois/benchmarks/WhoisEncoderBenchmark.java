@@ -0,0 +1,81 @@
+package net.ripe.db.whois.benchmarks;
+
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import com.google.common.base.Charsets;
+import net.ripe.db.whois.query.pipeline.WhoisEncoder;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBufferOutputStream;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class WhoisEncoderBenchmark {
+    // a large inverse (-i) or more specific (-M) response
+    @Param({"1000", "10000"})
+    private int corpusSize;
+
+    private List<RpslObject> objects;
+    private ExposedWhoisEncoder encoder;
+
+    @Setup
+    public void setup() {
+        objects = new RpslCorpus(corpusSize).getRpslObjects();
+        encoder = new ExposedWhoisEncoder();
+    }
+
+    // objects that were encoded before, e.g. by an earlier query
+    @Benchmark
+    public void encode(final Blackhole blackhole) throws IOException {
+        for (final RpslObject object : objects) {
+            blackhole.consume(encoder.encode(object));
+        }
+    }
+
+    // objects encoded for the first time, e.g. filtered or decorated objects
+    @Benchmark
+    public void encodeNew(final Blackhole blackhole) throws IOException {
+        for (final RpslObject object : objects) {
+            blackhole.consume(encoder.encode(new RpslObject(object, object.getAttributes())));
+        }
+    }
+
+    // baseline: every object is encoded attribute by attribute into a new dynamic buffer
+    @Benchmark
+    public void encodeDynamicBuffer(final Blackhole blackhole) throws IOException {
+        for (final RpslObject object : objects) {
+            final ChannelBuffer result = ChannelBuffers.dynamicBuffer(1024);
+            final ChannelBufferOutputStream out = new ChannelBufferOutputStream(result);
+            object.writeTo(new OutputStreamWriter(out, Charsets.ISO_8859_1));
+            out.write('\n');
+            blackhole.consume(result);
+        }
+    }
+
+    // the channel context is not used when encoding
+    private static final class ExposedWhoisEncoder extends WhoisEncoder {
+        Object encode(final Object msg) throws IOException {
+            return super.encode(null, null, msg);
+        }
+    }
+}
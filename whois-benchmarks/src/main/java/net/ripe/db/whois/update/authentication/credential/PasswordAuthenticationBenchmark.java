@@ -0,0 +1,124 @@
+package net.ripe.db.whois.update.authentication.credential;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.rpsl.AttributeType;
+import net.ripe.db.whois.common.rpsl.PasswordHelper;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.update.domain.Action;
+import net.ripe.db.whois.update.domain.Credentials;
+import net.ripe.db.whois.update.domain.Operation;
+import net.ripe.db.whois.update.domain.Paragraph;
+import net.ripe.db.whois.update.domain.PasswordCredential;
+import net.ripe.db.whois.update.domain.PreparedUpdate;
+import net.ripe.db.whois.update.domain.Update;
+import net.ripe.db.whois.update.domain.UpdateContext;
+import net.ripe.db.whois.update.log.LoggerContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Authenticates an update of an inetnum with several mnt-by maintainers, each with many MD5 passwords, which is
+ * authenticated again against the mnt-lower of its parent (the same maintainers). The client offers two passwords, of
+ * which only the last one matches, and only for the last maintainer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class PasswordAuthenticationBenchmark {
+    private static final int MAINTAINERS = 4;
+    private static final int PASSWORDS_PER_MAINTAINER = 8;
+
+    // 0 disables the cache of verified passwords
+    @Param({"0", "10000"})
+    private int cacheSize;
+
+    private LoggerContext loggerContext;
+    private AuthenticationModule authenticationModule;
+    private PreparedUpdate update;
+    private List<RpslObject> maintainers;
+    private List<String> offeredPasswords;
+
+    @Setup
+    public void setup() {
+        loggerContext = new NullLoggerContext();
+        authenticationModule = new AuthenticationModule(loggerContext, new PasswordCredentialValidator(loggerContext, new VerifiedPasswordCache(cacheSize, 300)));
+
+        maintainers = Lists.newArrayList();
+        for (int mntner = 0; mntner < MAINTAINERS; mntner++) {
+            final StringBuilder builder = new StringBuilder("mntner: TEST" + mntner + "-MNT\n");
+            for (int password = 0; password < PASSWORDS_PER_MAINTAINER; password++) {
+                builder.append("auth: MD5-PW ").append(PasswordHelper.hashMd5Password("password-" + mntner + "-" + password)).append('\n');
+            }
+            builder.append("source: TEST\n");
+            maintainers.add(RpslObject.parse(builder.toString()));
+        }
+
+        offeredPasswords = Lists.newArrayList("wrong", "password-" + (MAINTAINERS - 1) + "-" + (PASSWORDS_PER_MAINTAINER - 1));
+        final Set<PasswordCredential> offered = Sets.newLinkedHashSet();
+        for (final String offeredPassword : offeredPasswords) {
+            offered.add(new PasswordCredential(offeredPassword));
+        }
+        final Credentials credentials = new Credentials(offered);
+
+        final RpslObject inetnum = RpslObject.parse("" +
+                "inetnum: 10.0.0.0 - 10.0.0.255\n" +
+                "netname: TEST-NET\n" +
+                "source: TEST\n");
+        update = new PreparedUpdate(new Update(new Paragraph(inetnum.toString(), credentials), Operation.UNSPECIFIED, null, inetnum), inetnum, inetnum, Action.MODIFY);
+    }
+
+    // baseline: every offered password is crypted against every known hash, for every check
+    @Benchmark
+    public void crypt(final Blackhole blackhole) {
+        for (int check = 0; check < 2; check++) {
+            for (final RpslObject maintainer : maintainers) {
+                for (final CIString auth : maintainer.getValuesForAttribute(AttributeType.AUTH)) {
+                    blackhole.consume(PasswordHelper.authenticateMd5Passwords(auth.toString(), offeredPasswords));
+                }
+            }
+        }
+    }
+
+    // one update request: mnt-by of the object and mnt-lower of the parent
+    @Benchmark
+    public void authenticate(final Blackhole blackhole) {
+        final UpdateContext updateContext = new UpdateContext(loggerContext);
+        blackhole.consume(authenticationModule.authenticate(update, updateContext, maintainers));
+        blackhole.consume(authenticationModule.authenticate(update, updateContext, maintainers));
+    }
+
+    // the audit log is not written
+    private static final class NullLoggerContext extends LoggerContext {
+        private NullLoggerContext() {
+            super(null, null);
+        }
+
+        @Override
+        public void logAuthenticationStrategy(final Update update, final String authenticationStrategy, final Collection<RpslObject> maintainers) {
+        }
+
+        @Override
+        public void logString(final Update update, final String element, final String auditMessage) {
+        }
+    }
+}
@@ -1,19 +1,84 @@
 package net.ripe.db.whois.common.sso;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.joda.time.LocalDateTime;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Translates SSO tokens into user sessions.
+ * <p/>
+ * Translations are cached for a short time, as a single session issues many requests. Concurrent requests for the same
+ * token wait for the same lookup. Tokens that Crowd does not know are also cached, for a shorter time; lookups that
+ * failed because Crowd could not be reached are not.
+ */
 @Component
 public class SsoTokenTranslator {
-
     private final CrowdClient crowdClient;
+    private final LoadingCache<String, UserSession> userSessions;
+    private final Cache<String, String> invalidTokens;
+    private final boolean enabled;
 
     @Autowired
-    public SsoTokenTranslator(final CrowdClient crowdClient) {
+    public SsoTokenTranslator(final CrowdClient crowdClient,
+                              @Value("${sso.cache.size:10000}") final int cacheSize,
+                              @Value("${sso.cache.ttl.secs:60}") final int ttlSeconds,
+                              @Value("${sso.cache.invalid.ttl.secs:10}") final int invalidTtlSeconds) {
         this.crowdClient = crowdClient;
+        this.userSessions = CacheBuilder.newBuilder()
+                .maximumSize(Math.max(cacheSize, 0))
+                .expireAfterWrite(Math.max(ttlSeconds, 0), TimeUnit.SECONDS)
+                .build(new CacheLoader<String, UserSession>() {
+                    @Override
+                    public UserSession load(final String ssoToken) {
+                        return translate(ssoToken);
+                    }
+                });
+        this.invalidTokens = CacheBuilder.newBuilder()
+                .maximumSize(Math.max(cacheSize, 0))
+                .expireAfterWrite(Math.max(invalidTtlSeconds, 0), TimeUnit.SECONDS)
+                .build();
+        this.enabled = cacheSize > 0 && ttlSeconds > 0;
     }
 
     public UserSession translateSsoToken(final String ssoToken) throws CrowdClientException {
+        if (!enabled) {
+            return translate(ssoToken);
+        }
+
+        final String invalidTokenMessage = invalidTokens.getIfPresent(ssoToken);
+        if (invalidTokenMessage != null) {
+            throw new CrowdClientException(invalidTokenMessage);
+        }
+
+        try {
+            final UserSession cachedUserSession = userSessions.getIfPresent(ssoToken);
+            if (cachedUserSession != null && cachedUserSession.getExpiryDate().isBefore(LocalDateTime.now())) {
+                userSessions.invalidate(ssoToken);
+            }
+
+            return userSessions.getUnchecked(ssoToken);
+        } catch (UncheckedExecutionException e) {
+            if (e.getCause() instanceof CrowdClientException) {
+                final CrowdClientException cause = (CrowdClientException) e.getCause();
+                // Crowd answered that the token (or its user) is unknown, as opposed to not answering at all
+                if (cause.getCause() == null) {
+                    invalidTokens.put(ssoToken, cause.getMessage());
+                }
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private UserSession translate(final String ssoToken) {
         final UserSession userSession = crowdClient.getUserSession(ssoToken);
         userSession.setUuid(crowdClient.getUuid(userSession.getUsername()));
         return userSession;
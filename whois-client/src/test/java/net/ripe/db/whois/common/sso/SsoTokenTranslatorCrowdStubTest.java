@@ -0,0 +1,162 @@
+package net.ripe.db.whois.common.sso;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Counts the requests made to a local Crowd stub.
+ */
+public class SsoTokenTranslatorCrowdStubTest {
+    private static final String VALID_TOKEN = "valid-token";
+    private static final int LOOKUPS = 50;
+
+    private final AtomicInteger sessionRequests = new AtomicInteger();
+    private final AtomicInteger uuidRequests = new AtomicInteger();
+
+    private HttpServer server;
+    private ExecutorService executorService;
+    private CrowdClient crowdClient;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/crowd/rest/usermanagement/1/session/", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                sessionRequests.incrementAndGet();
+                sleep(50);
+                if (exchange.getRequestURI().getPath().endsWith("/" + VALID_TOKEN)) {
+                    respond(exchange, 200, "" +
+                            "<session expand=\"user\">" +
+                            "<user name=\"test@ripe.net\"><display-name>Test User</display-name><active>true</active></user>" +
+                            "<expiry-date>2033-01-30T16:38:27.369+11:00</expiry-date>" +
+                            "</session>");
+                } else {
+                    respond(exchange, 400, "");
+                }
+            }
+        });
+        server.createContext("/crowd/rest/usermanagement/1/user/attribute", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                uuidRequests.incrementAndGet();
+                respond(exchange, 200, "<attributes><attribute name=\"uuid\"><values><value>8ffe29be-89ef-41c8-ba7f-0e1553a623e5</value></values></attribute></attributes>");
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        executorService = Executors.newFixedThreadPool(10);
+        crowdClient = new CrowdClient(String.format("http://localhost:%d/crowd", server.getAddress().getPort()), "crowduser", "crowdpassword");
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+        server.stop(0);
+    }
+
+    @Test
+    public void valid_token_uncached() {
+        final SsoTokenTranslator subject = new SsoTokenTranslator(crowdClient, 0, 0, 0);
+
+        for (int i = 0; i < LOOKUPS; i++) {
+            assertThat(subject.translateSsoToken(VALID_TOKEN).getUuid(), is("8ffe29be-89ef-41c8-ba7f-0e1553a623e5"));
+        }
+
+        assertThat(sessionRequests.get(), is(LOOKUPS));
+        assertThat(uuidRequests.get(), is(LOOKUPS));
+    }
+
+    @Test
+    public void valid_token_cached() {
+        final SsoTokenTranslator subject = new SsoTokenTranslator(crowdClient, 100, 60, 10);
+
+        for (int i = 0; i < LOOKUPS; i++) {
+            assertThat(subject.translateSsoToken(VALID_TOKEN).getUuid(), is("8ffe29be-89ef-41c8-ba7f-0e1553a623e5"));
+        }
+
+        assertThat(sessionRequests.get(), is(1));
+        assertThat(uuidRequests.get(), is(1));
+    }
+
+    @Test
+    public void invalid_token_cached() {
+        final SsoTokenTranslator subject = new SsoTokenTranslator(crowdClient, 100, 60, 10);
+
+        for (int i = 0; i < LOOKUPS; i++) {
+            try {
+                subject.translateSsoToken("invalid-token");
+                fail();
+            } catch (CrowdClientException expected) {
+                assertThat(expected.getMessage(), is("Unknown RIPE NCC Access token: invalid-token"));
+            }
+        }
+
+        assertThat(sessionRequests.get(), is(1));
+        assertThat(uuidRequests.get(), is(0));
+    }
+
+    @Test
+    public void concurrent_lookups_coalesced() throws Exception {
+        final SsoTokenTranslator subject = new SsoTokenTranslator(crowdClient, 100, 60, 10);
+        final CountDownLatch start = new CountDownLatch(1);
+
+        final List<Future<UserSession>> futures = Lists.newArrayList();
+        for (int i = 0; i < LOOKUPS; i++) {
+            futures.add(executorService.submit(new Callable<UserSession>() {
+                @Override
+                public UserSession call() throws Exception {
+                    start.await();
+                    return subject.translateSsoToken(VALID_TOKEN);
+                }
+            }));
+        }
+        start.countDown();
+
+        for (final Future<UserSession> future : futures) {
+            assertThat(future.get().getUsername(), is("test@ripe.net"));
+        }
+
+        assertThat(sessionRequests.get(), is(1));
+        assertThat(uuidRequests.get(), is(1));
+    }
+
+    private static void respond(final HttpExchange exchange, final int status, final String body) throws IOException {
+        final byte[] bytes = body.getBytes(Charsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (final OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    private static void sleep(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -6,8 +6,13 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import javax.ws.rs.ProcessingException;
+
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -19,7 +24,7 @@ public class SsoTokenTranslatorTest {
 
     @Before
     public void setup() {
-        subject = new SsoTokenTranslator(crowdClient);
+        subject = new SsoTokenTranslator(crowdClient, 100, 60, 10);
     }
 
     @Test
@@ -39,6 +44,87 @@ public class SsoTokenTranslatorTest {
         assertThat(userSession.isActive(), is(true));
     }
 
+    @Test
+    public void translateSsoToken_cached() {
+        final String ssotoken = "ssotoken";
+        final String username = "username";
+
+        when(crowdClient.getUserSession(ssotoken)).thenReturn(new UserSession(username, "Test User", true, "2033-01-30T16:38:27.369+11:00"));
+        when(crowdClient.getUuid(username)).thenReturn("uuid");
+
+        subject.translateSsoToken(ssotoken);
+        final UserSession userSession = subject.translateSsoToken(ssotoken);
+
+        assertThat(userSession.getUuid(), is("uuid"));
+        verify(crowdClient, times(1)).getUserSession(ssotoken);
+        verify(crowdClient, times(1)).getUuid(username);
+    }
+
+    @Test
+    public void translateSsoToken_not_cached() {
+        subject = new SsoTokenTranslator(crowdClient, 0, 0, 0);
+        final String ssotoken = "ssotoken";
+        final String username = "username";
+
+        when(crowdClient.getUserSession(ssotoken)).thenReturn(new UserSession(username, "Test User", true, "2033-01-30T16:38:27.369+11:00"));
+        when(crowdClient.getUuid(username)).thenReturn("uuid");
+
+        subject.translateSsoToken(ssotoken);
+        subject.translateSsoToken(ssotoken);
+
+        verify(crowdClient, times(2)).getUserSession(ssotoken);
+    }
+
+    @Test
+    public void translateSsoToken_expired_session_not_cached() {
+        final String ssotoken = "ssotoken";
+        final String username = "username";
+
+        when(crowdClient.getUserSession(ssotoken)).thenReturn(new UserSession(username, "Test User", true, "2001-01-30T16:38:27.369+11:00"));
+        when(crowdClient.getUuid(username)).thenReturn("uuid");
+
+        subject.translateSsoToken(ssotoken);
+        subject.translateSsoToken(ssotoken);
+
+        verify(crowdClient, times(2)).getUserSession(ssotoken);
+    }
+
+    @Test
+    public void translateSsoToken_invalid_session_cached() {
+        final String ssotoken = "ssotoken";
+
+        when(crowdClient.getUserSession(ssotoken)).thenThrow(new CrowdClientException("Unknown RIPE NCC Access token: " + ssotoken));
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                subject.translateSsoToken(ssotoken);
+                fail();
+            } catch (CrowdClientException expected) {
+                assertThat(expected.getMessage(), is("Unknown RIPE NCC Access token: " + ssotoken));
+            }
+        }
+
+        verify(crowdClient, times(1)).getUserSession(ssotoken);
+    }
+
+    @Test
+    public void translateSsoToken_unavailable_not_cached() {
+        final String ssotoken = "ssotoken";
+
+        when(crowdClient.getUserSession(ssotoken)).thenThrow(new CrowdClientException(new ProcessingException("Connection refused")));
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                subject.translateSsoToken(ssotoken);
+                fail();
+            } catch (CrowdClientException expected) {
+                // expected
+            }
+        }
+
+        verify(crowdClient, times(2)).getUserSession(ssotoken);
+    }
+
     @Test(expected = CrowdClientException.class)
     public void translateSsoToken_invalid_session() {
         final String ssotoken = "ssotoken";
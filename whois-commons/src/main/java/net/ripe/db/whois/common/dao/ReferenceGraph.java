@@ -0,0 +1,62 @@
+package net.ripe.db.whois.common.dao;
+
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.SetMultimap;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+
+import javax.annotation.CheckForNull;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The objects referencing an object, and the objects referencing those, up to a maximum depth.
+ * <p/>
+ * Objects are only loaded for the levels that were expanded; the deepest level is known by {@link RpslObjectInfo} only.
+ */
+public class ReferenceGraph {
+    private final RpslObject root;
+    private final Map<Integer, RpslObject> objects = Maps.newHashMap();
+    private final SetMultimap<Integer, RpslObjectInfo> incoming = LinkedHashMultimap.create();
+    private boolean truncated;
+
+    public ReferenceGraph(final RpslObject root) {
+        this.root = root;
+        this.objects.put(root.getObjectId(), root);
+    }
+
+    public RpslObject getRoot() {
+        return root;
+    }
+
+    /**
+     * @return the objects referencing the given object, excluding the object itself.
+     */
+    public Set<RpslObjectInfo> getIncoming(final int objectId) {
+        return incoming.get(objectId);
+    }
+
+    @CheckForNull
+    public RpslObject getObject(final int objectId) {
+        return objects.get(objectId);
+    }
+
+    /**
+     * @return true if expanding stopped because the maximum number of objects was reached.
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public void addIncoming(final int objectId, final RpslObjectInfo reference) {
+        incoming.put(objectId, reference);
+    }
+
+    public void addObject(final RpslObject object) {
+        objects.put(object.getObjectId(), object);
+    }
+
+    public void setTruncated() {
+        this.truncated = true;
+    }
+}
@@ -26,6 +26,12 @@ public interface RpslObjectUpdateDao {
 
     Set<RpslObjectInfo> getReferences(RpslObject object);
 
+    /**
+     * Finds the objects referencing <code>object</code>, and the objects referencing those, up to <code>maxDepth</code>
+     * levels or <code>maxObjects</code> referencing objects.
+     */
+    ReferenceGraph getReferenceGraph(RpslObject object, int maxDepth, int maxObjects);
+
     Map<RpslAttribute, Set<CIString>> getInvalidReferences(RpslObject object);
 
     @CheckForNull
@@ -3,6 +3,8 @@ package net.ripe.db.whois.common.dao;
 import net.ripe.db.whois.common.domain.serials.SerialEntry;
 import net.ripe.db.whois.common.domain.serials.SerialRange;
 
+import java.util.List;
+
 public interface SerialDao {
 
     SerialRange getSerials();
@@ -11,5 +13,11 @@ public interface SerialDao {
 
     SerialEntry getByIdForNrtm(int serialId);
 
+    /**
+     * Reads the serial entries from <code>serialBegin</code> up to and including <code>serialEnd</code> in one query,
+     * ordered by serial id. Callers should keep the range small enough (e.g. a thousand serials) to fit in memory.
+     */
+    List<SerialEntry> getByIdRangeForNrtm(int serialBegin, int serialEnd);
+
     Integer getAgeOfExactOrNextExistingSerial(int serialId);
 }
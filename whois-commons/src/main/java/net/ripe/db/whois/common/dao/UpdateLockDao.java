@@ -1,5 +1,13 @@
 package net.ripe.db.whois.common.dao;
 
+import java.util.Collection;
+
 public interface UpdateLockDao {
     void setUpdateLock();
+
+    /**
+     * Lock the given keys until the end of the transaction. Updates locking other keys are not blocked, unless they
+     * share a lock with one of the given keys.
+     */
+    void setUpdateLocks(Collection<String> keys);
 }
@@ -2,6 +2,7 @@ package net.ripe.db.whois.common.dao.jdbc;
 
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import net.ripe.db.whois.common.dao.RpslObjectInfo;
 import net.ripe.db.whois.common.dao.UpdateLockDao;
@@ -19,19 +20,31 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.dao.DataIntegrityViolationException;
-import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Component
 public class JdbcIndexDao implements IndexDao {
@@ -39,29 +52,44 @@ public class JdbcIndexDao implements IndexDao {
 
     private final static int BATCH_SIZE = 100;
     private final static int LOG_EVERY = 100_000;
+    private final static int MAX_ATTEMPTS = 5;
 
     private final JdbcTemplate jdbcTemplate;
     private final UpdateLockDao updateLockDao;
     private final AttributeSanitizer attributeSanitizer;
+    private final RpslObjectCache rpslObjectCache;
     private final ConcurrentState state;
+    private final int nrThreads;
 
     private enum Phase {KEYS, OTHER}
 
     @Autowired
-    JdbcIndexDao(@Qualifier("sourceAwareDataSource") final DataSource dataSource, final UpdateLockDao updateLockDao, final AttributeSanitizer attributeSanitizer) {
+    JdbcIndexDao(
+            @Qualifier("sourceAwareDataSource") final DataSource dataSource,
+            final UpdateLockDao updateLockDao,
+            final AttributeSanitizer attributeSanitizer,
+            final RpslObjectCache rpslObjectCache,
+            @Value("${index.rebuild.threads:1}") final int nrThreads) {
         this.jdbcTemplate = new JdbcTemplate(dataSource);
         this.updateLockDao = updateLockDao;
         this.attributeSanitizer = attributeSanitizer;
+        this.rpslObjectCache = rpslObjectCache;
         this.state = new ConcurrentState();
+        this.nrThreads = nrThreads;
     }
 
     @Override
     public void rebuild() {
         deleteIndexesForMissingObjects();
 
-        final List<Integer> objectIds = jdbcTemplate.queryForList("SELECT object_id FROM last WHERE sequence_id != 0", Integer.class);
-        rebuildForObjects(objectIds, Phase.KEYS);
-        rebuildForObjects(objectIds, Phase.OTHER);
+        final List<Integer> objectIds = jdbcTemplate.queryForList("SELECT object_id FROM last WHERE sequence_id != 0 ORDER BY object_id", Integer.class);
+        if (nrThreads > 1) {
+            rebuildForObjectsInParallel(objectIds, Phase.KEYS);
+            rebuildForObjectsInParallel(objectIds, Phase.OTHER);
+        } else {
+            rebuildForObjects(objectIds, Phase.KEYS);
+            rebuildForObjects(objectIds, Phase.OTHER);
+        }
     }
 
     @Override
@@ -97,6 +125,60 @@ public class JdbcIndexDao implements IndexDao {
         }
     }
 
+    /**
+     * Splits the object ids in consecutive ranges, one per thread. The KEYS phase completes before the OTHER phase starts,
+     * as references are resolved using the key indexes.
+     */
+    private void rebuildForObjectsInParallel(final List<Integer> objectIds, final Phase phase) {
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        state.set(true);
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(nrThreads, new ThreadFactory() {
+            final AtomicInteger threadNum = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable r) {
+                return new Thread(r, String.format("IndexRebuild-%s", threadNum.incrementAndGet()));
+            }
+        });
+
+        final AtomicInteger count = new AtomicInteger();
+        try {
+            final List<Future<?>> futures = Lists.newArrayListWithCapacity(nrThreads);
+            final int partitionSize = Math.max(BATCH_SIZE, (objectIds.size() + nrThreads - 1) / nrThreads);
+            for (final List<Integer> partition : Lists.partition(objectIds, partitionSize)) {
+                futures.add(executorService.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (final List<Integer> objectIdBatch : Lists.partition(partition, BATCH_SIZE)) {
+                            state.waitUntil(true);
+
+                            rebuildIndexes(objectIdBatch, phase);
+
+                            final int total = count.addAndGet(objectIdBatch.size());
+                            if (total / LOG_EVERY > (total - objectIdBatch.size()) / LOG_EVERY) {
+                                LOGGER.info("Rebuilt {} indexes for {} objects in {}", phase, total, stopwatch);
+                            }
+                        }
+                    }
+                }));
+            }
+
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while rebuilding indexes", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Rebuilding " + phase + " indexes", e.getCause());
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        LOGGER.info("Rebuilt {} indexes for {} objects in {}", phase, count, stopwatch);
+    }
+
     @Override
     public void rebuildForObject(final int objectId) {
         final Set<Integer> objectIds = Collections.singleton(objectId);
@@ -104,43 +186,149 @@ public class JdbcIndexDao implements IndexDao {
         rebuildIndexes(objectIds, Phase.OTHER);
     }
 
-    @Transactional(isolation = Isolation.READ_COMMITTED, propagation = Propagation.REQUIRES_NEW)
-    private void rebuildIndexes(final Iterable<Integer> objectIds, final Phase phase) {
-        updateLockDao.setUpdateLock();
-
-        for (final Integer objectId : objectIds) {
+    /**
+     * Index rows are written without the update lock. Before the batch is committed, the sequence ids are checked, and
+     * objects that were changed in the meantime are indexed again. An update removes the index rows of an object before
+     * changing it in last, so an update that is not seen by the check waits for the index rows written here, and then
+     * replaces them.
+     */
+    private void rebuildIndexes(final Collection<Integer> objectIds, final Phase phase) {
+        for (int attempt = 1; ; attempt++) {
             try {
-                final Map<String, Object> map = jdbcTemplate.queryForMap(
-                        "SELECT object_id, object, pkey FROM last " +
-                        "WHERE object_id = ? " +
-                        "AND sequence_id != 0 ",
-                        objectId);
-                RpslObject rpslObject = RpslObject.parse(((Long)map.get("object_id")).intValue(), (byte[])map.get("object"));
-                final String pkey = (String)map.get("pkey");
-
-                if (phase == Phase.KEYS) {
-                    rpslObject = sanitizeObject(rpslObject, pkey);
+                rebuildIndexes(objectIds, getObjects(objectIds), phase);
+                return;
+            } catch (ConcurrencyFailureException e) {
+                // deadlock with an update of the same objects, which rolled back the batch
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw e;
                 }
+                LOGGER.info("Retrying {} indexes for {} objects: {}", phase, objectIds.size(), e.getMessage());
+            }
+        }
+    }
 
-                final ObjectTemplate objectTemplate = ObjectTemplate.getTemplate(rpslObject.getType());
-                final Set<AttributeType> keyAttributes = objectTemplate.getKeyAttributes();
-                final Set<AttributeType> otherAttributes = Sets.newHashSet();
-                otherAttributes.addAll(objectTemplate.getInverseLookupAttributes());
-                otherAttributes.addAll(objectTemplate.getLookupAttributes());
-                otherAttributes.removeAll(keyAttributes);
+    @Transactional(isolation = Isolation.READ_COMMITTED, propagation = Propagation.REQUIRES_NEW)
+    private void rebuildIndexes(final Collection<Integer> objectIds, final Map<Integer, IndexedObject> indexedObjects, final Phase phase) {
+        Collection<Integer> pendingObjectIds = objectIds;
+        while (!pendingObjectIds.isEmpty()) {
+            for (final Integer objectId : pendingObjectIds) {
+                final IndexedObject indexedObject = indexedObjects.get(objectId);
+                if (indexedObject == null) {
+                    LOGGER.debug("Missing: {}", objectId);
+                    continue;
+                }
+
+                try {
+                    RpslObject rpslObject = indexedObject.rpslObject;
 
-                final Set<AttributeType> updateAttributes = Phase.KEYS.equals(phase) ? keyAttributes : otherAttributes;
+                    if (phase == Phase.KEYS) {
+                        rpslObject = sanitizeObject(indexedObject);
+                    }
 
-                for (final AttributeType attributeType : updateAttributes) {
-                    updateAttributeIndex(rpslObject, attributeType);
+                    for (final AttributeType attributeType : getAttributes(rpslObject, phase)) {
+                        updateAttributeIndex(rpslObject, attributeType);
+                    }
+                } catch (ConcurrencyFailureException e) {
+                    throw e;
+                } catch (RuntimeException e) {
+                    LOGGER.error("Rebuilding indexes: {}", objectId, e);
                 }
+            }
 
-            } catch (EmptyResultDataAccessException e) {
-                LOGGER.debug("Missing: {}", objectId);
-            } catch (RuntimeException e) {
-                LOGGER.error("Rebuilding indexes: {}", objectId, e);
+            pendingObjectIds = getChangedObjectIds(pendingObjectIds, indexedObjects, phase);
+        }
+    }
+
+    /**
+     * @return the objects that changed since they were read. These are read again, and the index rows of deleted objects
+     * are removed.
+     */
+    private List<Integer> getChangedObjectIds(final Collection<Integer> objectIds, final Map<Integer, IndexedObject> indexedObjects, final Phase phase) {
+        final Map<Integer, Integer> sequenceIds = getSequenceIds(objectIds);
+
+        final List<Integer> changedObjectIds = Lists.newArrayList();
+        for (final Integer objectId : objectIds) {
+            final IndexedObject indexedObject = indexedObjects.get(objectId);
+            if (indexedObject == null) {
+                // missing, or failed to parse
+                continue;
+            }
+
+            final Integer sequenceId = sequenceIds.get(objectId);
+            if (sequenceId == null) {
+                indexedObjects.remove(objectId);
+                removeIndexes(indexedObject.rpslObject, phase);
+            } else if (indexedObject.sequenceId != sequenceId) {
+                changedObjectIds.add(objectId);
             }
         }
+
+        indexedObjects.putAll(getObjects(changedObjectIds));
+        return changedObjectIds;
+    }
+
+    private void removeIndexes(final RpslObject rpslObject, final Phase phase) {
+        final RpslObjectInfo rpslObjectInfo = new RpslObjectInfo(rpslObject.getObjectId(), rpslObject.getType(), rpslObject.getKey());
+        for (final AttributeType attributeType : getAttributes(rpslObject, phase)) {
+            IndexStrategies.get(attributeType).removeFromIndex(jdbcTemplate, rpslObjectInfo);
+        }
+    }
+
+    private static Set<AttributeType> getAttributes(final RpslObject rpslObject, final Phase phase) {
+        final ObjectTemplate objectTemplate = ObjectTemplate.getTemplate(rpslObject.getType());
+        final Set<AttributeType> keyAttributes = objectTemplate.getKeyAttributes();
+        if (phase == Phase.KEYS) {
+            return keyAttributes;
+        }
+
+        final Set<AttributeType> otherAttributes = Sets.newHashSet();
+        otherAttributes.addAll(objectTemplate.getInverseLookupAttributes());
+        otherAttributes.addAll(objectTemplate.getLookupAttributes());
+        otherAttributes.removeAll(keyAttributes);
+        return otherAttributes;
+    }
+
+    private Map<Integer, IndexedObject> getObjects(final Collection<Integer> objectIds) {
+        final Map<Integer, IndexedObject> indexedObjects = Maps.newHashMapWithExpectedSize(objectIds.size());
+        if (objectIds.isEmpty()) {
+            return indexedObjects;
+        }
+
+        new NamedParameterJdbcTemplate(jdbcTemplate).query(
+                "SELECT object_id, sequence_id, object, pkey FROM last " +
+                "WHERE object_id IN (:objectIds) " +
+                "AND sequence_id != 0 ",
+                Collections.singletonMap("objectIds", objectIds),
+                new RowCallbackHandler() {
+                    @Override
+                    public void processRow(final ResultSet rs) throws SQLException {
+                        final int objectId = rs.getInt(1);
+                        try {
+                            indexedObjects.put(objectId, new IndexedObject(RpslObject.parse(objectId, rs.getBytes(3)), rs.getInt(2), rs.getString(4)));
+                        } catch (RuntimeException e) {
+                            LOGGER.error("Rebuilding indexes: {}", objectId, e);
+                        }
+                    }
+                });
+
+        return indexedObjects;
+    }
+
+    private Map<Integer, Integer> getSequenceIds(final Collection<Integer> objectIds) {
+        final Map<Integer, Integer> sequenceIds = Maps.newHashMapWithExpectedSize(objectIds.size());
+        new NamedParameterJdbcTemplate(jdbcTemplate).query(
+                "SELECT object_id, sequence_id FROM last " +
+                "WHERE object_id IN (:objectIds) " +
+                "AND sequence_id != 0 ",
+                Collections.singletonMap("objectIds", objectIds),
+                new RowCallbackHandler() {
+                    @Override
+                    public void processRow(final ResultSet rs) throws SQLException {
+                        sequenceIds.put(rs.getInt(1), rs.getInt(2));
+                    }
+                });
+
+        return sequenceIds;
     }
 
     private void updateAttributeIndex(final RpslObject rpslObject, final AttributeType attributeType) {
@@ -168,25 +356,34 @@ public class JdbcIndexDao implements IndexDao {
         }
     }
 
-    private RpslObject sanitizeObject(final RpslObject rpslObject, final String pkey) {
+    private RpslObject sanitizeObject(final IndexedObject indexedObject) {
+        final RpslObject rpslObject = indexedObject.rpslObject;
         final RpslObject sanitizedObject = attributeSanitizer.sanitize(rpslObject, new ObjectMessages());
 
         final CIString sanitizedPKey = sanitizedObject.getKey();
         if (sanitizedPKey.equals(rpslObject.getKey()) &&
-                sanitizedPKey.toString().equals(pkey)) {
+                sanitizedPKey.toString().equals(indexedObject.pkey)) {
             return rpslObject;
         }
 
         LOGGER.info("Updating {} object from {} to {}", rpslObject.getType(), rpslObject.getKey(), sanitizedPKey);
 
-        final int rows = jdbcTemplate.update("UPDATE last SET pkey = ?, object = ? WHERE object_id = ?",
+        final int rows = jdbcTemplate.update("UPDATE last SET pkey = ?, object = ? WHERE object_id = ? AND sequence_id = ?",
                 sanitizedObject.getKey(),
                 sanitizedObject.toByteArray(),
-                rpslObject.getObjectId());
+                rpslObject.getObjectId(),
+                indexedObject.sequenceId);
+        if (rows == 0) {
+            // changed in the meantime, the new version is indexed (and sanitized) again
+            return sanitizedObject;
+        }
         if (rows != 1) {
             throw new DataIntegrityViolationException("Unexpected rows:" + rows + " when updating object:" + rpslObject.getObjectId());
         }
 
+        // the object is changed without a new sequence id
+        rpslObjectCache.invalidate(rpslObject.getObjectId());
+
         return sanitizedObject;
     }
 
@@ -208,4 +405,16 @@ public class JdbcIndexDao implements IndexDao {
             LOGGER.error("Remove {} indexes for missing objects", attributeType, e);
         }
     }
+
+    private static class IndexedObject {
+        private final RpslObject rpslObject;
+        private final int sequenceId;
+        private final String pkey;
+
+        IndexedObject(final RpslObject rpslObject, final int sequenceId, final String pkey) {
+            this.rpslObject = rpslObject;
+            this.sequenceId = sequenceId;
+            this.pkey = pkey;
+        }
+    }
 }
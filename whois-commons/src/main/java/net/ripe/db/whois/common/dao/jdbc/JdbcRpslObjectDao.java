@@ -1,7 +1,6 @@
 package net.ripe.db.whois.common.dao.jdbc;
 
-import com.google.common.base.Function;
-import com.google.common.collect.Iterables;
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
@@ -17,7 +16,6 @@ import net.ripe.db.whois.common.domain.Identifiable;
 import net.ripe.db.whois.common.rpsl.AttributeType;
 import net.ripe.db.whois.common.rpsl.ObjectTemplate;
 import net.ripe.db.whois.common.rpsl.ObjectType;
-import net.ripe.db.whois.common.rpsl.RpslAttribute;
 import net.ripe.db.whois.common.rpsl.RpslObject;
 import net.ripe.db.whois.common.source.IllegalSourceException;
 import net.ripe.db.whois.common.source.Source;
@@ -32,6 +30,7 @@ import org.springframework.dao.IncorrectResultSizeDataAccessException;
 import org.springframework.dao.RecoverableDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 
@@ -39,13 +38,11 @@ import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import javax.sql.DataSource;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.text.MessageFormat;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -55,15 +52,29 @@ import java.util.Set;
 public class JdbcRpslObjectDao implements RpslObjectDao {
     private static final Logger LOGGER = LoggerFactory.getLogger(JdbcRpslObjectDao.class);
 
+    // the object is only fetched when the sequence id differs from the cached one
+    private static final String CACHED_OBJECT_QUERY = "" +
+            "SELECT object_id, sequence_id, CASE WHEN sequence_id = ? THEN NULL ELSE object END " +
+            "FROM last " +
+            "WHERE object_id = ? " +
+            "AND sequence_id != 0";
+    private static final int NOT_CACHED = -1;
+
     private static final List<AttributeType> RELATED_TO_ATTRIBUTES = Lists.newArrayList(AttributeType.ADMIN_C, AttributeType.AUTHOR, AttributeType.ORG, AttributeType.PING_HDL, AttributeType.TECH_C, AttributeType.ZONE_C);
 
     private final JdbcTemplate jdbcTemplate;
     private final SourceContext sourceContext;
+    private final ReferenceResolver referenceResolver;
+    private final RpslObjectCache rpslObjectCache;
 
     @Autowired
-    public JdbcRpslObjectDao(@Qualifier("sourceAwareDataSource") final DataSource dataSource, final SourceContext sourceContext) {
+    public JdbcRpslObjectDao(@Qualifier("sourceAwareDataSource") final DataSource dataSource,
+                             final SourceContext sourceContext,
+                             final RpslObjectCache rpslObjectCache) {
         this.jdbcTemplate = new JdbcTemplate(dataSource);
         this.sourceContext = sourceContext;
+        this.referenceResolver = new ReferenceResolver(jdbcTemplate);
+        this.rpslObjectCache = rpslObjectCache;
     }
 
     @Override
@@ -91,26 +102,22 @@ public class JdbcRpslObjectDao implements RpslObjectDao {
             }
         }
 
-        final List<RpslObject> rpslObjects = Lists.newArrayList(loadedObjects.values());
-        Collections.sort(rpslObjects, new Comparator<RpslObject>() {
-            final List<Integer> requestedIds = Lists.newArrayList(Iterables.transform(proxy, new Function<Identifiable, Integer>() {
-                @Override
-                public Integer apply(final Identifiable input) {
-                    return input.getObjectId();
-                }
-            }));
-
-            @Override
-            public int compare(final RpslObject o1, final RpslObject o2) {
-                return requestedIds.indexOf(o1.getObjectId()) - requestedIds.indexOf(o2.getObjectId());
+        final List<RpslObject> rpslObjects = Lists.newArrayListWithExpectedSize(loadedObjects.size());
+        for (final Identifiable identifiable : proxy) {
+            final RpslObject rpslObject = loadedObjects.remove(identifiable.getObjectId());
+            if (rpslObject != null) {
+                rpslObjects.add(rpslObject);
             }
-        });
+        }
 
         // TODO [AK] Return result rather than adding all to the collection
         result.addAll(rpslObjects);
     }
 
     private Set<Integer> loadObjects(final List<Identifiable> proxy, final Map<Integer, RpslObject> loadedObjects) {
+        final boolean useCache = rpslObjectCache.isEnabled();
+        final Map<Integer, RpslObjectCache.Entry> cachedEntries = Maps.newHashMap();
+
         final StringBuilder queryBuilder = new StringBuilder();
         final List<Integer> objectIds = Lists.newArrayListWithExpectedSize(proxy.size());
         for (final Identifiable identifiable : proxy) {
@@ -127,11 +134,20 @@ public class JdbcRpslObjectDao implements RpslObjectDao {
                     queryBuilder.append(" UNION ALL ");
                 }
 
-                queryBuilder.append("" +
-                        "SELECT object_id, object " +
-                        "FROM last " +
-                        "WHERE object_id = ? " +
-                        "AND sequence_id != 0");
+                if (useCache) {
+                    queryBuilder.append(CACHED_OBJECT_QUERY);
+
+                    final RpslObjectCache.Entry cachedEntry = rpslObjectCache.get(objectId);
+                    if (cachedEntry != null) {
+                        cachedEntries.put(objectId, cachedEntry);
+                    }
+                } else {
+                    queryBuilder.append("" +
+                            "SELECT object_id, object " +
+                            "FROM last " +
+                            "WHERE object_id = ? " +
+                            "AND sequence_id != 0");
+                }
 
                 objectIds.add(objectId);
             }
@@ -142,12 +158,16 @@ public class JdbcRpslObjectDao implements RpslObjectDao {
                 new PreparedStatementSetter() {
                     @Override
                     public void setValues(final PreparedStatement ps) throws SQLException {
-                        for (int i = 0; i < objectIds.size(); i++) {
-                            ps.setInt(i + 1, objectIds.get(i));
+                        int index = 1;
+                        for (final Integer objectId : objectIds) {
+                            if (useCache) {
+                                ps.setInt(index++, getCachedSequenceId(cachedEntries.get(objectId)));
+                            }
+                            ps.setInt(index++, objectId);
                         }
                     }
                 },
-                new RpslObjectRowMapper());
+                useCache ? new CachingRpslObjectRowMapper(cachedEntries) : new RpslObjectRowMapper());
 
         for (final RpslObject rpslObject : rpslObjects) {
             loadedObjects.put(rpslObject.getObjectId(), rpslObject);
@@ -170,7 +190,20 @@ public class JdbcRpslObjectDao implements RpslObjectDao {
 
     @Override
     public RpslObject getById(final int objectId) {
-        return JdbcRpslObjectOperations.getObjectById(jdbcTemplate, objectId);
+        if (!rpslObjectCache.isEnabled()) {
+            return JdbcRpslObjectOperations.getObjectById(jdbcTemplate, objectId);
+        }
+
+        final RpslObjectCache.Entry cachedEntry = rpslObjectCache.get(objectId);
+        final Map<Integer, RpslObjectCache.Entry> cachedEntries = (cachedEntry == null) ?
+                Collections.<Integer, RpslObjectCache.Entry>emptyMap() :
+                Collections.singletonMap(objectId, cachedEntry);
+
+        return jdbcTemplate.queryForObject(
+                CACHED_OBJECT_QUERY,
+                new CachingRpslObjectRowMapper(cachedEntries),
+                getCachedSequenceId(cachedEntry),
+                objectId);
     }
 
     @Override
@@ -201,15 +234,27 @@ public class JdbcRpslObjectDao implements RpslObjectDao {
 
     @Override
     public List<RpslObject> getByKeys(final ObjectType type, final Collection<CIString> searchKeys) {
-        final List<RpslObject> result = new ArrayList<>(searchKeys.size());
+        final AttributeType keyLookupAttribute = ObjectTemplate.getTemplate(type).getKeyLookupAttribute();
+        final ListMultimap<CIString, RpslObjectInfo> objectInfos = IndexStrategies.get(keyLookupAttribute).findInIndex(jdbcTemplate, searchKeys, type);
 
+        final List<Identifiable> proxy = Lists.newArrayListWithExpectedSize(searchKeys.size());
         for (final CIString searchKey : searchKeys) {
-            try {
-                result.add(getByKey(type, searchKey));
-            } catch (EmptyResultDataAccessException ignored) {
+            final List<RpslObjectInfo> keyObjectInfos = objectInfos.get(searchKey);
+            switch (keyObjectInfos.size()) {
+                case 0:
+                    break;
+                case 1:
+                    proxy.add(keyObjectInfos.get(0));
+                    break;
+                default:
+                    throw new IncorrectResultSizeDataAccessException(String.format("Multiple objects found in key index for object [%s] %s", type, searchKey), 1, keyObjectInfos.size());
             }
         }
 
+        final List<RpslObject> result = Lists.newArrayListWithExpectedSize(proxy.size());
+        if (!proxy.isEmpty()) {
+            load(proxy, result);
+        }
         return result;
     }
 
@@ -322,24 +367,37 @@ public class JdbcRpslObjectDao implements RpslObjectDao {
 
     @Override
     public Collection<RpslObjectInfo> relatedTo(final RpslObject identifiable, final Set<ObjectType> excludeObjectTypes) {
-        final LinkedHashSet<RpslObjectInfo> result = Sets.newLinkedHashSet();
+        return referenceResolver.findOutgoing(identifiable, RELATED_TO_ATTRIBUTES, excludeObjectTypes);
+    }
 
-        for (final RpslAttribute attribute : identifiable.findAttributes(RELATED_TO_ATTRIBUTES)) {
-            for (final CIString referenceValue : attribute.getReferenceValues()) {
-                for (final ObjectType objectType : attribute.getType().getReferences(referenceValue)) {
-                    if (excludeObjectTypes.contains(objectType)) {
-                        continue;
-                    }
+    private static int getCachedSequenceId(@Nullable final RpslObjectCache.Entry cachedEntry) {
+        return (cachedEntry == null) ? NOT_CACHED : cachedEntry.getSequenceId();
+    }
 
-                    for (RpslObjectInfo rpslObjectInfo : findByKeyInIndex(objectType, referenceValue.toString())) {
-                        if (rpslObjectInfo.getObjectId() != identifiable.getObjectId()) {
-                            result.add(rpslObjectInfo);
-                        }
-                    }
-                }
-            }
+    /**
+     * Returns the cached object if it is still current, otherwise parses the object and caches it.
+     */
+    private final class CachingRpslObjectRowMapper implements RowMapper<RpslObject> {
+        private final Map<Integer, RpslObjectCache.Entry> cachedEntries;
+
+        private CachingRpslObjectRowMapper(final Map<Integer, RpslObjectCache.Entry> cachedEntries) {
+            this.cachedEntries = cachedEntries;
         }
 
-        return result;
+        @Override
+        public RpslObject mapRow(final ResultSet rs, final int rowNum) throws SQLException {
+            final int objectId = rs.getInt(1);
+            final int sequenceId = rs.getInt(2);
+            final byte[] object = rs.getBytes(3);
+
+            if (object == null) {
+                rpslObjectCache.recordHit();
+                return cachedEntries.get(objectId).getRpslObject();
+            }
+
+            final RpslObject rpslObject = RpslObject.parse(objectId, object);
+            rpslObjectCache.put(rpslObject, sequenceId);
+            return rpslObject;
+        }
     }
 }
@@ -4,6 +4,7 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import net.ripe.db.whois.common.DateTimeProvider;
 import net.ripe.db.whois.common.collect.CollectionHelper;
+import net.ripe.db.whois.common.dao.ReferenceGraph;
 import net.ripe.db.whois.common.dao.RpslObjectInfo;
 import net.ripe.db.whois.common.dao.RpslObjectUpdateDao;
 import net.ripe.db.whois.common.dao.RpslObjectUpdateInfo;
@@ -38,12 +39,14 @@ public class JdbcRpslObjectUpdateDao implements RpslObjectUpdateDao {
 
     private final JdbcTemplate jdbcTemplate;
     private final DateTimeProvider dateTimeProvider;
+    private final ReferenceResolver referenceResolver;
 
     @Autowired
     public JdbcRpslObjectUpdateDao(@Qualifier("sourceAwareDataSource") final DataSource dataSource,
                                    final DateTimeProvider dateTimeProvider) {
         this.jdbcTemplate = new JdbcTemplate(dataSource);
         this.dateTimeProvider = dateTimeProvider;
+        this.referenceResolver = new ReferenceResolver(jdbcTemplate);
     }
 
     @Override
@@ -88,6 +91,11 @@ public class JdbcRpslObjectUpdateDao implements RpslObjectUpdateDao {
         return references;
     }
 
+    @Override
+    public ReferenceGraph getReferenceGraph(final RpslObject object, final int maxDepth, final int maxObjects) {
+        return referenceResolver.findIncoming(object, maxDepth, maxObjects);
+    }
+
     @Override
     public Map<RpslAttribute, Set<CIString>> getInvalidReferences(final RpslObject object) {
         final Map<RpslAttribute, Set<CIString>> invalidReferenceMap = Maps.newHashMap();
@@ -12,6 +12,7 @@ import org.springframework.stereotype.Repository;
 
 import javax.annotation.CheckForNull;
 import javax.sql.DataSource;
+import java.util.List;
 
 @Repository
 @Primary
@@ -42,6 +43,11 @@ public class JdbcSerialDao implements SerialDao {
         return JdbcRpslObjectOperations.getSerialEntryForNrtm(jdbcTemplate, serialId);
     }
 
+    @Override
+    public List<SerialEntry> getByIdRangeForNrtm(final int serialBegin, final int serialEnd) {
+        return JdbcRpslObjectOperations.getSerialEntriesForNrtm(jdbcTemplate, serialBegin, serialEnd);
+    }
+
     @Override
     @CheckForNull
     public Integer getAgeOfExactOrNextExistingSerial(final int serialId) {
@@ -1,6 +1,9 @@
 package net.ripe.db.whois.common.dao.jdbc;
 
+import com.google.common.collect.Sets;
 import net.ripe.db.whois.common.dao.UpdateLockDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -9,9 +12,21 @@ import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.sql.DataSource;
+import java.util.Collection;
+import java.util.SortedSet;
 
+/**
+ * Update locks are rows in the update_lock table, locked until the end of the transaction.
+ * <p/>
+ * Row 0 is the global update lock. Keys are hashed onto rows 1 to {@value #KEY_LOCKS}. If those rows are missing, the
+ * global update lock is taken instead.
+ */
 @Repository
 class JdbcUpdateLockDao implements UpdateLockDao {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JdbcUpdateLockDao.class);
+
+    static final int KEY_LOCKS = 1024;
+
     private final JdbcTemplate jdbcTemplate;
 
     @Autowired
@@ -22,11 +37,39 @@ class JdbcUpdateLockDao implements UpdateLockDao {
     @Override
     @Transactional(propagation = Propagation.MANDATORY)
     public void setUpdateLock() {
+        checkIsolationLevel();
+
+        jdbcTemplate.queryForObject("SELECT global_lock FROM update_lock WHERE global_lock = 0 FOR UPDATE", Integer.class);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void setUpdateLocks(final Collection<String> keys) {
+        checkIsolationLevel();
+
+        // always lock in ascending order, so transactions locking overlapping keys cannot deadlock (the global lock is 0,
+        // but it is only ever taken after the key locks)
+        for (final Integer lock : getLocks(keys)) {
+            if (jdbcTemplate.queryForList("SELECT global_lock FROM update_lock WHERE global_lock = ? FOR UPDATE", Integer.class, lock).isEmpty()) {
+                LOGGER.warn("Update lock {} does not exist, taking the global update lock", lock);
+                setUpdateLock();
+                return;
+            }
+        }
+    }
+
+    static SortedSet<Integer> getLocks(final Collection<String> keys) {
+        final SortedSet<Integer> locks = Sets.newTreeSet();
+        for (final String key : keys) {
+            locks.add(1 + Math.floorMod(key.hashCode(), KEY_LOCKS));
+        }
+        return locks;
+    }
+
+    private void checkIsolationLevel() {
         final String isolationLevel = jdbcTemplate.queryForObject("select @@tx_isolation", String.class);
         if (!isolationLevel.equals("READ-COMMITTED")) {
             throw new IllegalStateException("Invalid isolation level: " + isolationLevel);
         }
-
-        jdbcTemplate.queryForObject("SELECT global_lock FROM update_lock WHERE global_lock = 0 FOR UPDATE", Integer.class);
     }
 }
@@ -0,0 +1,146 @@
+package net.ripe.db.whois.common.dao.jdbc;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
+import net.ripe.db.whois.common.dao.ReferenceGraph;
+import net.ripe.db.whois.common.dao.RpslObjectInfo;
+import net.ripe.db.whois.common.dao.jdbc.domain.RpslObjectRowMapper;
+import net.ripe.db.whois.common.dao.jdbc.index.IndexStrategies;
+import net.ripe.db.whois.common.dao.jdbc.index.IndexStrategy;
+import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.rpsl.AttributeType;
+import net.ripe.db.whois.common.rpsl.ObjectTemplate;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import net.ripe.db.whois.common.rpsl.RpslAttribute;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolves references one level of the reference graph at a time, with a single index query per attribute type and a
+ * single query to load the objects of a level, instead of a lookup per reference.
+ */
+class ReferenceResolver {
+    private final JdbcTemplate jdbcTemplate;
+
+    ReferenceResolver(final JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Finds the objects referencing <code>root</code> breadth-first, up to <code>maxDepth</code> levels.
+     * Expanding stops when more than <code>maxObjects</code> referencing objects are found.
+     */
+    ReferenceGraph findIncoming(final RpslObject root, final int maxDepth, final int maxObjects) {
+        final ReferenceGraph graph = new ReferenceGraph(root);
+        final Set<Integer> seen = Sets.newHashSet(root.getObjectId());
+
+        List<RpslObject> level = Collections.singletonList(root);
+        for (int depth = 1; depth <= maxDepth && !level.isEmpty(); depth++) {
+            final Set<Integer> next = Sets.newLinkedHashSet();
+
+            for (final Map.Entry<ObjectType, Collection<RpslObject>> entry : groupByType(level).asMap().entrySet()) {
+                for (final IndexStrategy indexStrategy : IndexStrategies.getReferencing(entry.getKey())) {
+                    for (final Map.Entry<Integer, RpslObjectInfo> reference : indexStrategy.findReferencing(jdbcTemplate, entry.getValue()).entries()) {
+                        final int referencedId = reference.getKey();
+                        final int referencingId = reference.getValue().getObjectId();
+                        if (referencedId == referencingId) {
+                            continue;
+                        }
+
+                        graph.addIncoming(referencedId, reference.getValue());
+                        if (seen.add(referencingId)) {
+                            next.add(referencingId);
+                        }
+                    }
+                }
+            }
+
+            if (seen.size() - 1 > maxObjects) {
+                graph.setTruncated();
+                break;
+            }
+
+            if (depth == maxDepth) {
+                break;
+            }
+
+            level = loadObjects(next);
+            for (final RpslObject object : level) {
+                graph.addObject(object);
+            }
+        }
+
+        return graph;
+    }
+
+    /**
+     * Finds the objects referenced by <code>object</code> through <code>attributeTypes</code>, with a single key
+     * lookup per referenced object type. The result is in the order of the references in the object.
+     */
+    Set<RpslObjectInfo> findOutgoing(final RpslObject object, final Collection<AttributeType> attributeTypes, final Set<ObjectType> excludeObjectTypes) {
+        final List<Map.Entry<ObjectType, CIString>> references = Lists.newArrayList();
+        final SetMultimap<ObjectType, CIString> keysByType = LinkedHashMultimap.create();
+
+        for (final RpslAttribute attribute : object.findAttributes(attributeTypes)) {
+            for (final CIString referenceValue : attribute.getReferenceValues()) {
+                for (final ObjectType objectType : attribute.getType().getReferences(referenceValue)) {
+                    if (excludeObjectTypes.contains(objectType)) {
+                        continue;
+                    }
+
+                    references.add(Maps.immutableEntry(objectType, referenceValue));
+                    keysByType.put(objectType, referenceValue);
+                }
+            }
+        }
+
+        final Map<ObjectType, ListMultimap<CIString, RpslObjectInfo>> found = Maps.newEnumMap(ObjectType.class);
+        for (final Map.Entry<ObjectType, Collection<CIString>> entry : keysByType.asMap().entrySet()) {
+            final ObjectType objectType = entry.getKey();
+            final IndexStrategy indexStrategy = IndexStrategies.get(ObjectTemplate.getTemplate(objectType).getKeyLookupAttribute());
+            found.put(objectType, indexStrategy.findInIndex(jdbcTemplate, entry.getValue(), objectType));
+        }
+
+        final Set<RpslObjectInfo> result = Sets.newLinkedHashSet();
+        for (final Map.Entry<ObjectType, CIString> reference : references) {
+            for (final RpslObjectInfo rpslObjectInfo : found.get(reference.getKey()).get(reference.getValue())) {
+                if (rpslObjectInfo.getObjectId() != object.getObjectId()) {
+                    result.add(rpslObjectInfo);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private List<RpslObject> loadObjects(final Set<Integer> objectIds) {
+        if (objectIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        return new NamedParameterJdbcTemplate(jdbcTemplate).query(
+                "SELECT object_id, object FROM last WHERE object_id IN (:objectIds) AND sequence_id != 0",
+                Collections.singletonMap("objectIds", objectIds),
+                new RpslObjectRowMapper());
+    }
+
+    private static ListMultimap<ObjectType, RpslObject> groupByType(final List<RpslObject> objects) {
+        final ListMultimap<ObjectType, RpslObject> result = ArrayListMultimap.create();
+        for (final RpslObject object : objects) {
+            result.put(object.getType(), object);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,169 @@
+package net.ripe.db.whois.common.dao.jdbc;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.Sets;
+import net.ripe.db.whois.common.iptree.IpTreeCacheManager;
+import net.ripe.db.whois.common.iptree.SerialFollowingCache;
+import net.ripe.db.whois.common.rpsl.RpslAttribute;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.common.source.SourceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.CheckForNull;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Set;
+
+/**
+ * Caches parsed objects of the main source by object id, together with the sequence id they were read at.
+ * <p/>
+ * Readers always compare the cached sequence id with the current one in the database, and only fetch and parse the
+ * object when it has changed, so a cached object is never stale. Objects read inside a transaction are not cached, as
+ * the transaction can still be rolled back. Changed and deleted objects are evicted from the serials, once the IP trees
+ * have been updated past them.
+ */
+@Component
+public class RpslObjectCache extends SerialFollowingCache {
+    // cache entry with its key, entry and sequence id
+    private static final int ENTRY_BYTES = 96;
+    // object, attribute list, key and lazily created type cache
+    private static final int OBJECT_BYTES = 256;
+    // attribute with its key and value strings, without their characters, and its lazily created clean values
+    private static final int ATTRIBUTE_BYTES = 160;
+    private static final int ARRAY_BYTES = 16;
+
+    private final SourceContext sourceContext;
+    private final Cache<Integer, Entry> cache;
+
+    @Autowired
+    public RpslObjectCache(final IpTreeCacheManager ipTreeCacheManager,
+                           final SourceContext sourceContext,
+                           @Value("${rpsl.object.cache.bytes:33554432}") final long cacheBytes) {
+        super(ipTreeCacheManager, sourceContext, "object", cacheBytes > 0);
+        this.sourceContext = sourceContext;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(Math.max(cacheBytes, 0))
+                .weigher(new Weigher<Integer, Entry>() {
+                    @Override
+                    public int weigh(final Integer objectId, final Entry entry) {
+                        return estimateBytes(entry.rpslObject);
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @return true if objects of the current source are cached.
+     */
+    @Override
+    public boolean isEnabled() {
+        return super.isEnabled() && sourceContext.isMain();
+    }
+
+    @CheckForNull
+    Entry get(final int objectId) {
+        return cache.asMap().get(objectId);
+    }
+
+    /**
+     * Called with every object that was fetched and parsed.
+     */
+    void put(final RpslObject rpslObject, final int sequenceId) {
+        recordMiss();
+
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            cache.put(rpslObject.getObjectId(), new Entry(sequenceId, rpslObject));
+        }
+    }
+
+    /**
+     * Invalidate an object that was changed without creating a new version.
+     */
+    public void invalidate(final int objectId) {
+        cache.invalidate(objectId);
+    }
+
+    @Override
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    protected void invalidate(final JdbcTemplate jdbcTemplate, final long fromExclusive, final long toInclusive) {
+        final Set<Integer> changedObjectIds = Sets.newHashSet();
+        jdbcTemplate.query("" +
+                        "SELECT object_id " +
+                        "FROM serials " +
+                        "WHERE serial_id > ? " +
+                        "AND serial_id <= ?",
+                new RowCallbackHandler() {
+                    @Override
+                    public void processRow(final ResultSet rs) throws SQLException {
+                        changedObjectIds.add(rs.getInt(1));
+                    }
+                },
+                fromExclusive,
+                toInclusive);
+
+        evict(changedObjectIds);
+    }
+
+    void evict(final Set<Integer> changedObjectIds) {
+        cache.invalidateAll(changedObjectIds);
+    }
+
+    public long getEvictions() {
+        return cache.stats().evictionCount();
+    }
+
+    @Override
+    public long getSize() {
+        return cache.size();
+    }
+
+    /**
+     * @return the approximate heap used by a cached object on a 64-bit JVM with compressed references: the cache entry,
+     * the object, its attributes with their UTF-16 key and value strings, and the encoded form the object keeps once
+     * it has been written. The estimate is checked by RpslObjectCacheFootprintTest.
+     */
+    static int estimateBytes(final RpslObject rpslObject) {
+        int chars = 0;
+        for (final RpslAttribute attribute : rpslObject.getAttributes()) {
+            chars += attribute.getKey().length() + attribute.getValue().length();
+        }
+
+        final int attributes = rpslObject.getAttributes().size();
+        final int encodedBytes = rpslObject.toByteBuffer().remaining();
+
+        return ENTRY_BYTES + OBJECT_BYTES
+                + attributes * ATTRIBUTE_BYTES
+                + 2 * chars
+                + ARRAY_BYTES + encodedBytes;
+    }
+
+    static final class Entry {
+        private final int sequenceId;
+        private final RpslObject rpslObject;
+
+        private Entry(final int sequenceId, final RpslObject rpslObject) {
+            this.sequenceId = sequenceId;
+            this.rpslObject = rpslObject;
+        }
+
+        int getSequenceId() {
+            return sequenceId;
+        }
+
+        RpslObject getRpslObject() {
+            return rpslObject;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package net.ripe.db.whois.common.dao.jdbc;
+
+import net.ripe.db.whois.common.iptree.SerialFollowingCacheJmx;
+import net.ripe.db.whois.common.jmx.JmxBase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+@Component
+@ManagedResource(objectName = JmxBase.OBJECT_NAME_BASE + "RpslObjectCache", description = "Whois object cache")
+public class RpslObjectCacheJmx extends SerialFollowingCacheJmx {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RpslObjectCacheJmx.class);
+
+    private final RpslObjectCache rpslObjectCache;
+
+    @Autowired
+    public RpslObjectCacheJmx(final RpslObjectCache rpslObjectCache) {
+        super(LOGGER, rpslObjectCache);
+        this.rpslObjectCache = rpslObjectCache;
+    }
+
+    @ManagedAttribute(description = "Number of objects evicted because the cache is full")
+    public long getEvictions() {
+        return rpslObjectCache.getEvictions();
+    }
+}
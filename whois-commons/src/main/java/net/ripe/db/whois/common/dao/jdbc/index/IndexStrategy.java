@@ -1,5 +1,6 @@
 package net.ripe.db.whois.common.dao.jdbc.index;
 
+import com.google.common.collect.ListMultimap;
 import net.ripe.db.whois.common.dao.RpslObjectInfo;
 import net.ripe.db.whois.common.domain.CIString;
 import net.ripe.db.whois.common.rpsl.AttributeType;
@@ -7,6 +8,7 @@ import net.ripe.db.whois.common.rpsl.ObjectType;
 import net.ripe.db.whois.common.rpsl.RpslObject;
 import org.springframework.jdbc.core.JdbcTemplate;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface IndexStrategy {
@@ -23,8 +25,24 @@ public interface IndexStrategy {
     List<RpslObjectInfo> findInIndex(final JdbcTemplate jdbcTemplate, final RpslObjectInfo value);
     List<RpslObjectInfo> findInIndex(final JdbcTemplate jdbcTemplate, final RpslObjectInfo value, final ObjectType type);
 
+    /**
+     * Looks up several values at once, with the same semantics as {@link #findInIndex(JdbcTemplate, CIString, ObjectType)}.
+     *
+     * @return the matching objects, by the requested value they match.
+     */
+    ListMultimap<CIString, RpslObjectInfo> findInIndex(JdbcTemplate jdbcTemplate, Collection<CIString> values, ObjectType type);
+
+    /**
+     * Finds the objects that reference any of the given objects through this attribute.
+     *
+     * @return the referencing objects, by the object id of the object they reference.
+     */
+    ListMultimap<Integer, RpslObjectInfo> findReferencing(JdbcTemplate jdbcTemplate, Collection<RpslObject> objects);
+
     void removeFromIndex(JdbcTemplate jdbcTemplate, RpslObjectInfo objectInfo);
 
+    void removeFromIndex(JdbcTemplate jdbcTemplate, Collection<Integer> objectIds);
+
     String getLookupTableName();
 
     String getLookupColumnName();
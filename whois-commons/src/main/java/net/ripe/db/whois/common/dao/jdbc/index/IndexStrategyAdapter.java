@@ -1,13 +1,18 @@
 package net.ripe.db.whois.common.dao.jdbc.index;
 
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
 import net.ripe.db.whois.common.dao.RpslObjectInfo;
 import net.ripe.db.whois.common.domain.CIString;
 import net.ripe.db.whois.common.rpsl.AttributeType;
+import net.ripe.db.whois.common.rpsl.ObjectTemplate;
 import net.ripe.db.whois.common.rpsl.ObjectType;
+import net.ripe.db.whois.common.rpsl.RpslAttribute;
 import net.ripe.db.whois.common.rpsl.RpslObject;
 import org.apache.commons.lang.Validate;
 import org.springframework.jdbc.core.JdbcTemplate;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
@@ -64,10 +69,44 @@ abstract class IndexStrategyAdapter implements IndexStrategy {
         return Collections.emptyList();
     }
 
+    @Override
+    public ListMultimap<CIString, RpslObjectInfo> findInIndex(final JdbcTemplate jdbcTemplate, final Collection<CIString> values, final ObjectType type) {
+        return findEachInIndex(jdbcTemplate, values, type);
+    }
+
+    protected final ListMultimap<CIString, RpslObjectInfo> findEachInIndex(final JdbcTemplate jdbcTemplate, final Collection<CIString> values, final ObjectType type) {
+        final ListMultimap<CIString, RpslObjectInfo> result = ArrayListMultimap.create();
+        for (final CIString value : values) {
+            result.putAll(value, findInIndex(jdbcTemplate, value, type));
+        }
+        return result;
+    }
+
+    @Override
+    public ListMultimap<Integer, RpslObjectInfo> findReferencing(final JdbcTemplate jdbcTemplate, final Collection<RpslObject> objects) {
+        return findEachReferencing(jdbcTemplate, objects);
+    }
+
+    protected final ListMultimap<Integer, RpslObjectInfo> findEachReferencing(final JdbcTemplate jdbcTemplate, final Collection<RpslObject> objects) {
+        final ListMultimap<Integer, RpslObjectInfo> result = ArrayListMultimap.create();
+        for (final RpslObject object : objects) {
+            for (final RpslAttribute keyAttribute : object.findAttributes(ObjectTemplate.getTemplate(object.getType()).getKeyAttributes())) {
+                for (final CIString value : keyAttribute.getReferenceValues()) {
+                    result.putAll(object.getObjectId(), findInIndex(jdbcTemplate, value));
+                }
+            }
+        }
+        return result;
+    }
+
     @Override
     public void removeFromIndex(final JdbcTemplate jdbcTemplate, final RpslObjectInfo objectInfo) {
     }
 
+    @Override
+    public void removeFromIndex(final JdbcTemplate jdbcTemplate, final Collection<Integer> objectIds) {
+    }
+
     @Override
     public String getLookupTableName() {
         return null;
@@ -4,6 +4,10 @@ import net.ripe.db.whois.common.dao.RpslObjectInfo;
 import net.ripe.db.whois.common.rpsl.AttributeType;
 import org.apache.commons.lang.Validate;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.Collection;
+import java.util.Collections;
 
 abstract class IndexStrategyWithSingleLookupTable extends IndexStrategyAdapter {
     protected final String lookupTableName;
@@ -25,6 +29,13 @@ abstract class IndexStrategyWithSingleLookupTable extends IndexStrategyAdapter {
         jdbcTemplate.update(String.format("DELETE FROM %s WHERE object_id = ?", lookupTableName), objectInfo.getObjectId());
     }
 
+    @Override
+    public void removeFromIndex(final JdbcTemplate jdbcTemplate, final Collection<Integer> objectIds) {
+        new NamedParameterJdbcTemplate(jdbcTemplate).update(
+                String.format("DELETE FROM %s WHERE object_id IN (:objectIds)", lookupTableName),
+                Collections.singletonMap("objectIds", objectIds));
+    }
+
     @Override
     public void cleanupMissingObjects(final JdbcTemplate jdbcTemplate) {
         jdbcTemplate.update(String.format("DELETE %s FROM %s LEFT JOIN last ON %s.object_id = last.object_id AND last.sequence_id != 0 WHERE last.object_id IS NULL", lookupTableName, lookupTableName, lookupTableName));
@@ -6,6 +6,7 @@ import net.ripe.db.whois.common.rpsl.AttributeType;
 import net.ripe.db.whois.common.rpsl.RpslObject;
 import org.springframework.jdbc.core.JdbcTemplate;
 
+import java.util.Collection;
 import java.util.List;
 
 class IndexWithLocalAs extends IndexStrategyWithSingleLookupTable {
@@ -38,4 +39,9 @@ class IndexWithLocalAs extends IndexStrategyWithSingleLookupTable {
     public void removeFromIndex(final JdbcTemplate jdbcTemplate, final RpslObjectInfo objectInfo) {
         //do nothing, removed for inet_rtr using the indexWithValue strategy
     }
+
+    @Override
+    public void removeFromIndex(final JdbcTemplate jdbcTemplate, final Collection<Integer> objectIds) {
+        //do nothing, removed for inet_rtr using the indexWithValue strategy
+    }
 }
@@ -1,5 +1,6 @@
 package net.ripe.db.whois.common.dao.jdbc.index;
 
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
 import net.ripe.db.whois.common.dao.RpslObjectInfo;
 import net.ripe.db.whois.common.domain.CIString;
@@ -7,6 +8,8 @@ import net.ripe.db.whois.common.rpsl.AttributeType;
 import net.ripe.db.whois.common.rpsl.ObjectType;
 import org.springframework.jdbc.core.JdbcTemplate;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import static net.ripe.db.whois.common.domain.CIString.ciString;
@@ -26,4 +29,18 @@ class IndexWithMaintainer extends IndexWithValue {
 
         return super.findInIndex(jdbcTemplate, value);
     }
+
+    @Override
+    public ListMultimap<CIString, RpslObjectInfo> findInIndex(final JdbcTemplate jdbcTemplate, final Collection<CIString> values, final ObjectType type) {
+        if (!values.contains(ANY)) {
+            return super.findInIndex(jdbcTemplate, values, type);
+        }
+
+        final List<CIString> otherValues = Lists.newArrayList(values);
+        otherValues.removeAll(Collections.singleton(ANY));
+
+        final ListMultimap<CIString, RpslObjectInfo> result = super.findInIndex(jdbcTemplate, otherValues, type);
+        result.put(ANY, new RpslObjectInfo(0, ObjectType.MNTNER, ANY));
+        return result;
+    }
 }
@@ -1,5 +1,6 @@
 package net.ripe.db.whois.common.dao.jdbc.index;
 
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import net.ripe.db.whois.common.dao.RpslObjectInfo;
@@ -11,6 +12,7 @@ import net.ripe.db.whois.common.rpsl.RpslObject;
 import org.springframework.jdbc.core.JdbcTemplate;
 
 import java.text.MessageFormat;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -43,6 +45,12 @@ class IndexWithMemberOf extends IndexWithReference {
         return result;
     }
 
+    // members are only referencing a set if the set allows it (mbrs-by-ref), so look up each set key
+    @Override
+    public ListMultimap<Integer, RpslObjectInfo> findReferencing(final JdbcTemplate jdbcTemplate, final Collection<RpslObject> objects) {
+        return findEachReferencing(jdbcTemplate, objects);
+    }
+
     private List<RpslObjectInfo> findInIndex(final JdbcTemplate jdbcTemplate, final String value, final IndexStrategy referenceStrategy) {
         final String query = MessageFormat.format("" +
                 "SELECT l.object_id, l.object_type, l.pkey\n" +
@@ -8,8 +8,11 @@ import net.ripe.db.whois.common.rpsl.attrs.MntRoutes;
 import net.ripe.db.whois.common.rpsl.AttributeType;
 import net.ripe.db.whois.common.rpsl.RpslObject;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 
 import java.text.MessageFormat;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 class IndexWithMntRoutes extends IndexWithReference {
@@ -74,4 +77,9 @@ class IndexWithMntRoutes extends IndexWithReference {
     public void removeFromIndex(final JdbcTemplate jdbcTemplate, final RpslObjectInfo objectInfo) {
         jdbcTemplate.update("DELETE FROM mnt_routes WHERE object_id = ?", objectInfo.getObjectId());
     }
+
+    @Override
+    public void removeFromIndex(final JdbcTemplate jdbcTemplate, final Collection<Integer> objectIds) {
+        new NamedParameterJdbcTemplate(jdbcTemplate).update("DELETE FROM mnt_routes WHERE object_id IN (:objectIds)", Collections.singletonMap("objectIds", objectIds));
+    }
 }
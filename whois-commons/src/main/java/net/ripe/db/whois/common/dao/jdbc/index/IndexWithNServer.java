@@ -1,11 +1,15 @@
 package net.ripe.db.whois.common.dao.jdbc.index;
 
+import com.google.common.collect.ListMultimap;
 import net.ripe.db.whois.common.dao.RpslObjectInfo;
 import net.ripe.db.whois.common.dao.jdbc.domain.RpslObjectInfoResultSetExtractor;
+import net.ripe.db.whois.common.domain.CIString;
 import net.ripe.db.whois.common.rpsl.AttributeType;
+import net.ripe.db.whois.common.rpsl.ObjectType;
 import org.springframework.jdbc.core.JdbcTemplate;
 
 import java.text.MessageFormat;
+import java.util.Collection;
 import java.util.List;
 
 class IndexWithNServer extends IndexWithValue {
@@ -32,4 +36,9 @@ class IndexWithNServer extends IndexWithValue {
 
         return jdbcTemplate.query(query, new RpslObjectInfoResultSetExtractor(), host + "%");
     }
+
+    @Override
+    public ListMultimap<CIString, RpslObjectInfo> findInIndex(final JdbcTemplate jdbcTemplate, final Collection<CIString> values, final ObjectType type) {
+        return findEachInIndex(jdbcTemplate, values, type);
+    }
 }
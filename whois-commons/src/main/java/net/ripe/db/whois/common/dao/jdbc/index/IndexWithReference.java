@@ -1,9 +1,12 @@
 package net.ripe.db.whois.common.dao.jdbc.index;
 
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Sets;
 import net.ripe.db.whois.common.collect.CollectionHelper;
 import net.ripe.db.whois.common.dao.RpslObjectInfo;
 import net.ripe.db.whois.common.dao.jdbc.domain.ObjectTypeIds;
+import net.ripe.db.whois.common.dao.jdbc.domain.RpslObjectInfoMapper;
 import net.ripe.db.whois.common.dao.jdbc.domain.RpslObjectInfoResultSetExtractor;
 import net.ripe.db.whois.common.rpsl.AttributeType;
 import net.ripe.db.whois.common.rpsl.ObjectTemplate;
@@ -11,11 +14,15 @@ import net.ripe.db.whois.common.rpsl.ObjectType;
 import net.ripe.db.whois.common.rpsl.RpslObject;
 import org.apache.commons.lang.Validate;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 
 import javax.annotation.CheckForNull;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.text.MessageFormat;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
@@ -138,4 +145,43 @@ class IndexWithReference extends IndexStrategySimpleLookup {
 
         return jdbcTemplate.query(query, new RpslObjectInfoResultSetExtractor(), value.getObjectId(), ObjectTypeIds.getId(type));
     }
+
+    @Override
+    public ListMultimap<Integer, RpslObjectInfo> findReferencing(final JdbcTemplate jdbcTemplate, final Collection<RpslObject> objects) {
+        final ListMultimap<Integer, RpslObjectInfo> result = ArrayListMultimap.create();
+        if (objects.isEmpty()) {
+            return result;
+        }
+
+        final Set<Integer> ids = Sets.newHashSetWithExpectedSize(objects.size());
+        for (final RpslObject object : objects) {
+            ids.add(object.getObjectId());
+        }
+
+        final String query = MessageFormat.format(
+                "SELECT l.object_id, l.object_type, l.pkey, {0}.{1} " +
+                        "  FROM {0} " +
+                        "  LEFT JOIN last l ON l.object_id = {0}.object_id " +
+                        "  WHERE {0}.{1} in (:ids) " +
+                        "  AND l.sequence_id != 0 ",
+                lookupTableName,
+                lookupColumnName
+        );
+
+        final RpslObjectInfoMapper rpslObjectInfoMapper = new RpslObjectInfoMapper();
+        new NamedParameterJdbcTemplate(jdbcTemplate).query(
+                query,
+                new MapSqlParameterSource("ids", ids),
+                new RowCallbackHandler() {
+                    @Override
+                    public void processRow(final ResultSet rs) throws SQLException {
+                        final RpslObjectInfo rpslObjectInfo = rpslObjectInfoMapper.mapRow(rs, rs.getRow());
+                        if (rpslObjectInfo != null) {
+                            result.put(rs.getInt(4), rpslObjectInfo);
+                        }
+                    }
+                });
+
+        return result;
+    }
 }
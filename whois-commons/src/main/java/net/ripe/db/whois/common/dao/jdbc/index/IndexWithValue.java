@@ -1,14 +1,30 @@
 package net.ripe.db.whois.common.dao.jdbc.index;
 
+import com.google.common.base.Functions;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
 import net.ripe.db.whois.common.dao.RpslObjectInfo;
+import net.ripe.db.whois.common.dao.jdbc.domain.RpslObjectInfoMapper;
 import net.ripe.db.whois.common.dao.jdbc.domain.RpslObjectInfoResultSetExtractor;
+import net.ripe.db.whois.common.domain.CIString;
 import net.ripe.db.whois.common.rpsl.AttributeType;
+import net.ripe.db.whois.common.rpsl.ObjectType;
 import net.ripe.db.whois.common.rpsl.RpslObject;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.text.MessageFormat;
+import java.util.Collection;
 import java.util.List;
 
+import static net.ripe.db.whois.common.domain.CIString.ciString;
+
 class IndexWithValue extends IndexStrategySimpleLookup {
 
     protected IndexWithValue(final AttributeType attributeType, final String lookupTableName, final String lookupColumnName) {
@@ -36,4 +52,42 @@ class IndexWithValue extends IndexStrategySimpleLookup {
 
         return jdbcTemplate.query(query, new RpslObjectInfoResultSetExtractor(), value);
     }
+
+    @Override
+    public ListMultimap<CIString, RpslObjectInfo> findInIndex(final JdbcTemplate jdbcTemplate, final Collection<CIString> values, final ObjectType type) {
+        final String query = MessageFormat.format("" +
+                "SELECT l.object_id, l.object_type, l.pkey, {0}.{1} " +
+                "  FROM {0} " +
+                "  LEFT JOIN last l ON l.object_id = {0}.object_id " +
+                "  WHERE {0}.{1} IN (:values) " +
+                "  AND l.sequence_id != 0 ",
+                lookupTableName,
+                lookupColumnName
+        );
+
+        return findValuesInIndex(jdbcTemplate, query, new MapSqlParameterSource(), values);
+    }
+
+    static ListMultimap<CIString, RpslObjectInfo> findValuesInIndex(final JdbcTemplate jdbcTemplate, final String query, final MapSqlParameterSource parameters, final Collection<CIString> values) {
+        final ListMultimap<CIString, RpslObjectInfo> result = ArrayListMultimap.create();
+        if (values.isEmpty()) {
+            return result;
+        }
+
+        final RpslObjectInfoMapper rpslObjectInfoMapper = new RpslObjectInfoMapper();
+        new NamedParameterJdbcTemplate(jdbcTemplate).query(
+                query,
+                parameters.addValue("values", Lists.newArrayList(Iterables.transform(values, Functions.toStringFunction()))),
+                new RowCallbackHandler() {
+                    @Override
+                    public void processRow(final ResultSet rs) throws SQLException {
+                        final RpslObjectInfo rpslObjectInfo = rpslObjectInfoMapper.mapRow(rs, rs.getRow());
+                        if (rpslObjectInfo != null) {
+                            result.put(ciString(rs.getString(4)), rpslObjectInfo);
+                        }
+                    }
+                });
+
+        return result;
+    }
 }
@@ -1,14 +1,18 @@
 package net.ripe.db.whois.common.dao.jdbc.index;
 
+import com.google.common.collect.ListMultimap;
 import net.ripe.db.whois.common.dao.RpslObjectInfo;
 import net.ripe.db.whois.common.dao.jdbc.domain.ObjectTypeIds;
 import net.ripe.db.whois.common.dao.jdbc.domain.RpslObjectInfoResultSetExtractor;
+import net.ripe.db.whois.common.domain.CIString;
 import net.ripe.db.whois.common.rpsl.AttributeType;
 import net.ripe.db.whois.common.rpsl.ObjectType;
 import net.ripe.db.whois.common.rpsl.RpslObject;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 
 import java.text.MessageFormat;
+import java.util.Collection;
 import java.util.List;
 
 class IndexWithValueAndType extends IndexWithValue {
@@ -32,6 +36,21 @@ class IndexWithValueAndType extends IndexWithValue {
         return jdbcTemplate.query(query, new RpslObjectInfoResultSetExtractor(), value, ObjectTypeIds.getId(type));
     }
 
+    @Override
+    public ListMultimap<CIString, RpslObjectInfo> findInIndex(final JdbcTemplate jdbcTemplate, final Collection<CIString> values, final ObjectType type) {
+        final String query = MessageFormat.format("" +
+                        "SELECT l.object_id, l.object_type, l.pkey, {0}.{1} " +
+                        "  FROM {0} " +
+                        "  LEFT JOIN last l ON l.object_id = {0}.object_id " +
+                        "  WHERE {0}.{1} IN (:values) AND {0}.object_type = :objectType " +
+                        "  AND l.sequence_id != 0 ",
+                lookupTableName,
+                lookupColumnName
+        );
+
+        return findValuesInIndex(jdbcTemplate, query, new MapSqlParameterSource("objectType", ObjectTypeIds.getId(type)), values);
+    }
+
     @Override
     public int addToIndex(final JdbcTemplate jdbcTemplate, final RpslObjectInfo objectInfo, final RpslObject object, final String value) {
         final String query = String.format("INSERT INTO %s (object_id, %s, object_type) VALUES (?, ?, ?)", lookupTableName, lookupColumnName);
@@ -3,6 +3,7 @@ package net.ripe.db.whois.common.domain.serials;
 import net.ripe.db.whois.common.rpsl.RpslObject;
 
 public class SerialEntry {
+    final private int serialId;
     final private Operation operation;
     final private boolean atLast;
 
@@ -12,6 +13,15 @@ public class SerialEntry {
     private RpslObject rpslObject;
 
     public SerialEntry(final Operation operation, final boolean atLast, final int lastTimestamp, final int historyTimestamp) {
+        this(0, operation, atLast, lastTimestamp, historyTimestamp);
+    }
+
+    public SerialEntry(final Operation operation, final boolean atLast, final int objectId, final int lastTimestamp, final int historyTimestamp, final byte[] blob) {
+        this(0, operation, atLast, objectId, lastTimestamp, historyTimestamp, blob);
+    }
+
+    private SerialEntry(final int serialId, final Operation operation, final boolean atLast, final int lastTimestamp, final int historyTimestamp) {
+        this.serialId = serialId;
         this.operation = operation;
         this.atLast = atLast;
         this.lastTimestamp = lastTimestamp;
@@ -19,8 +29,8 @@ public class SerialEntry {
         rpslObject = null;
     }
 
-    public SerialEntry(final Operation operation, final boolean atLast, final int objectId, final int lastTimestamp, final int historyTimestamp, final byte[] blob) {
-        this(operation, atLast, lastTimestamp, historyTimestamp);
+    private SerialEntry(final int serialId, final Operation operation, final boolean atLast, final int objectId, final int lastTimestamp, final int historyTimestamp, final byte[] blob) {
+        this(serialId, operation, atLast, lastTimestamp, historyTimestamp);
         rpslObject = RpslObject.parse(objectId, blob);
     }
 
@@ -28,6 +38,17 @@ public class SerialEntry {
         return new SerialEntry(operation, atLast, objectId, 0, 0, blob);
     }
 
+    public static SerialEntry createSerialEntryWithoutTimestamps(final int serialId, final Operation operation, final boolean atLast, final int objectId, final byte[] blob){
+        return new SerialEntry(serialId, operation, atLast, objectId, 0, 0, blob);
+    }
+
+    /**
+     * @return the serial id, or 0 if it was not read with this entry.
+     */
+    public int getSerialId() {
+        return serialId;
+    }
+
     public RpslObject getRpslObject() {
         return rpslObject;
     }
@@ -0,0 +1,411 @@
+package net.ripe.db.whois.common.etree;
+
+import com.google.common.collect.Lists;
+import net.ripe.db.whois.common.collect.CollectionHelper;
+import net.ripe.db.whois.common.ip.Interval;
+import org.apache.commons.lang.Validate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A map with intervals as keys, with the same semantics as {@link NestedIntervalMap}, that stores its intervals in
+ * primitive arrays instead of a tree of nodes.
+ * <p/>
+ * Intervals are kept sorted by lower-bound, then by descending upper-bound. In this order every interval is directly
+ * followed by the intervals it contains, so the nesting is implicit. Only the index of the parent of every interval is
+ * stored, to walk up the tree.
+ * <p/>
+ * Lookups are comparable to {@link NestedIntervalMap}, but every change shifts the arrays, so this implementation is
+ * meant for large maps that are built once and change infrequently.
+ * <p/>
+ * <strong>Note that this implementation is not synchronized.</strong>
+ *
+ * @param <K> the type of the interval (must implement {@link Interval}).
+ * @param <V> the type of the values to store.
+ */
+public abstract class CompactIntervalMap<K extends Interval<K>, V> implements IntervalMap<K, V> {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int NO_PARENT = -1;
+
+    private Object[] values;
+    private int[] parents;
+    private int size;
+
+    protected CompactIntervalMap() {
+        this.values = new Object[INITIAL_CAPACITY];
+        this.parents = new int[INITIAL_CAPACITY];
+    }
+
+    protected CompactIntervalMap(final CompactIntervalMap<K, V> source) {
+        this.values = Arrays.copyOf(source.values, Math.max(source.size, INITIAL_CAPACITY));
+        this.parents = Arrays.copyOf(source.parents, Math.max(source.size, INITIAL_CAPACITY));
+        this.size = source.size;
+    }
+
+    /**
+     * @return the number of intervals in this map.
+     */
+    public int size() {
+        return size;
+    }
+
+    int capacity() {
+        return values.length;
+    }
+
+    /**
+     * Compares the interval at <code>index</code> with <code>key</code>, by lower-bound and then by descending
+     * upper-bound.
+     */
+    abstract int compare(int index, K key);
+
+    /**
+     * Compares the upper-bound of the interval at <code>index</code> with the upper-bound of <code>key</code>.
+     */
+    abstract int compareUpperBound(int index, K key);
+
+    /**
+     * Compares the lower-bound of the interval at <code>index</code> with the upper-bound of <code>key</code>.
+     */
+    abstract int compareLowerBoundToUpperBound(int index, K key);
+
+    abstract boolean contains(int index, K key);
+
+    abstract boolean isContainedIn(int index, K key);
+
+    abstract boolean contains(int index, int otherIndex);
+
+    abstract K getKey(int index);
+
+    /**
+     * @return a new interval that has both its lower- and upper-bound set to the upper-bound of <code>key</code>.
+     */
+    abstract K singletonIntervalAtUpperBound(K key);
+
+    abstract void resizeKeys(int capacity);
+
+    abstract void moveKeys(int from, int to, int length);
+
+    abstract void setKey(int index, K key);
+
+    @Override
+    public void put(final K key, final V value) {
+        Validate.notNull(key);
+        Validate.notNull(value);
+
+        final int index = upperBound(key) - 1;
+        if (index >= 0 && compare(index, key) == 0) {
+            values[index] = value;
+            return;
+        }
+
+        final int container = findContaining(index, key);
+        final List<K> intersections = getIntersectingChildren(container, key);
+        if (!intersections.isEmpty()) {
+            throw new IntersectingIntervalException(key, intersections);
+        }
+
+        final int insertAt = index + 1;
+        if (size == values.length) {
+            final int capacity = size + (size >> 1);
+            values = Arrays.copyOf(values, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            resizeKeys(capacity);
+        }
+
+        System.arraycopy(values, insertAt, values, insertAt + 1, size - insertAt);
+        moveKeys(insertAt, insertAt + 1, size - insertAt);
+        values[insertAt] = value;
+        setKey(insertAt, key);
+        size++;
+
+        updateParents(insertAt);
+    }
+
+    @Override
+    public void remove(final K key) {
+        Validate.notNull(key);
+
+        final int index = upperBound(key) - 1;
+        if (index < 0 || compare(index, key) != 0) {
+            return;
+        }
+
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        moveKeys(index + 1, index, size - index - 1);
+        size--;
+        values[size] = null;
+
+        updateParents(index);
+    }
+
+    @Override
+    public void remove(final K key, final V value) {
+        Validate.notNull(key);
+        Validate.notNull(value);
+
+        if (value.equals(CollectionHelper.uniqueResult(findExact(key)))) {
+            remove(key);
+        }
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+    }
+
+    @Override
+    public List<V> findFirstLessSpecific(final K key) {
+        Validate.notNull(key);
+        final List<V> result = findAllLessSpecific(key);
+        return result.isEmpty() ? result : Collections.singletonList(result.get(result.size() - 1));
+    }
+
+    @Override
+    public List<V> findExact(final K key) {
+        Validate.notNull(key);
+        final int index = upperBound(key) - 1;
+        if (index >= 0 && compare(index, key) == 0) {
+            return Collections.singletonList(getValue(index));
+        }
+        return Collections.emptyList();
+    }
+
+    @Override
+    public List<V> findExactOrFirstLessSpecific(final K key) {
+        Validate.notNull(key);
+        final int index = findContaining(upperBound(key) - 1, key);
+        return index == NO_PARENT ? Collections.<V>emptyList() : Collections.singletonList(getValue(index));
+    }
+
+    @Override
+    public List<V> findAllLessSpecific(final K key) {
+        Validate.notNull(key);
+        final List<V> result = findExactAndAllLessSpecific(key);
+        if (!result.isEmpty() && !findExact(key).isEmpty()) {
+            return result.subList(0, result.size() - 1);
+        }
+        return result;
+    }
+
+    @Override
+    public List<V> findExactAndAllLessSpecific(final K key) {
+        Validate.notNull(key);
+        final List<V> result = Lists.newArrayList();
+        for (int index = findContaining(upperBound(key) - 1, key); index != NO_PARENT; index = parents[index]) {
+            result.add(getValue(index));
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    @Override
+    public List<V> findFirstMoreSpecific(final K key) {
+        Validate.notNull(key);
+        final List<V> result = Lists.newArrayList();
+        int index = lowerBound(key);
+        if (index < size && compare(index, key) == 0) {
+            index++;
+        }
+
+        while (index < size && compareLowerBoundToUpperBound(index, key) <= 0) {
+            if (isContainedIn(index, key)) {
+                result.add(getValue(index));
+                index = getSubtreeEnd(index);
+            } else {
+                index++;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<V> findAllMoreSpecific(final K key) {
+        Validate.notNull(key);
+        final List<V> result = findExactAndAllMoreSpecific(key);
+        if (!result.isEmpty() && !findExact(key).isEmpty()) {
+            return result.subList(1, result.size());
+        }
+        return result;
+    }
+
+    @Override
+    public List<V> findExactAndAllMoreSpecific(final K key) {
+        Validate.notNull(key);
+        final List<V> result = Lists.newArrayList();
+        for (int index = lowerBound(key); index < size && compareLowerBoundToUpperBound(index, key) <= 0; index++) {
+            if (isContainedIn(index, key)) {
+                result.add(getValue(index));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+
+        final CompactIntervalMap<?, ?> that = (CompactIntervalMap<?, ?>) obj;
+        if (size != that.size) {
+            return false;
+        }
+
+        for (int index = 0; index < size; index++) {
+            if (!getKey(index).equals(that.getKey(index)) || !values[index].equals(that.values[index])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = size;
+        for (int index = 0; index < size; index++) {
+            result = 31 * result + getKey(index).hashCode();
+            result = 31 * result + values[index].hashCode();
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("[");
+        for (int index = 0; index < size; index++) {
+            if (index > 0) {
+                builder.append(", ");
+            }
+            builder.append(getKey(index)).append('=').append(values[index]);
+        }
+        return builder.append(']').toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private V getValue(final int index) {
+        return (V) values[index];
+    }
+
+    /*
+     * Returns the index of the first interval that is ordered after <code>key</code>.
+     */
+    private int upperBound(final K key) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (compare(mid, key) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /*
+     * Returns the index of the first interval that is not ordered before <code>key</code>.
+     */
+    private int lowerBound(final K key) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (compare(mid, key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /*
+     * Returns the most specific interval that contains <code>key</code>, starting from the last interval that is not
+     * ordered after <code>key</code>.
+     */
+    private int findContaining(final int start, final K key) {
+        int index = start;
+        while (index != NO_PARENT && !contains(index, key)) {
+            index = parents[index];
+        }
+        return index;
+    }
+
+    /*
+     * Returns the index after the last interval contained in the interval at <code>index</code>.
+     */
+    private int getSubtreeEnd(final int index) {
+        return upperBound(singletonIntervalAtUpperBound(getKey(index)));
+    }
+
+    private int getChildrenEnd(final int parent) {
+        return parent == NO_PARENT ? size : getSubtreeEnd(parent);
+    }
+
+    /*
+     * Returns the first child of <code>parent</code> with an upper-bound that is not less than the upper-bound of
+     * <code>point</code>, like the ceiling lookup in {@link ChildNodeTreeMap}.
+     */
+    private int findChildCeiling(final int parent, final K point) {
+        final int childrenEnd = getChildrenEnd(parent);
+
+        int index = upperBound(point) - 1;
+        if (index <= parent) {
+            return parent + 1 < childrenEnd ? parent + 1 : NO_PARENT;
+        }
+
+        while (parents[index] != parent) {
+            index = parents[index];
+        }
+
+        if (compareUpperBound(index, point) >= 0) {
+            return index;
+        }
+
+        final int next = getSubtreeEnd(index);
+        return next < childrenEnd ? next : NO_PARENT;
+    }
+
+    private List<K> getIntersectingChildren(final int parent, final K range) {
+        List<K> result = Collections.emptyList();
+        final int lowerCandidate = findChildCeiling(parent, range.singletonIntervalAtLowerBound());
+        if (lowerCandidate != NO_PARENT && intersectsButNotContained(range, getKey(lowerCandidate))) {
+            result = new ArrayList<>(result);
+            result.add(getKey(lowerCandidate));
+        }
+        final int upperCandidate = findChildCeiling(parent, singletonIntervalAtUpperBound(range));
+        if (upperCandidate != NO_PARENT && intersectsButNotContained(range, getKey(upperCandidate))) {
+            result = new ArrayList<>(result);
+            result.add(getKey(upperCandidate));
+        }
+        return result;
+    }
+
+    private boolean intersectsButNotContained(final K left, final K right) {
+        return left.intersects(right) && !left.contains(right) && !right.contains(left);
+    }
+
+    /*
+     * Recalculates the parents from <code>from</code>, as all intervals before it are unaffected by a change there.
+     */
+    private void updateParents(final int from) {
+        int previous = from - 1;
+        for (int index = from; index < size; index++) {
+            int parent = previous;
+            while (parent != NO_PARENT && !contains(parent, index)) {
+                parent = parents[parent];
+            }
+            parents[index] = parent;
+            previous = index;
+        }
+    }
+}
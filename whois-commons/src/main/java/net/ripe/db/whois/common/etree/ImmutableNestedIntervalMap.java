@@ -0,0 +1,505 @@
+package net.ripe.db.whois.common.etree;
+
+import com.google.common.collect.Lists;
+import net.ripe.db.whois.common.collect.CollectionHelper;
+import net.ripe.db.whois.common.ip.Interval;
+import org.apache.commons.lang.Validate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable version of {@link NestedIntervalMap}. Since an instance is never modified it can be read by any number
+ * of threads without locking.
+ * <p/>
+ * A new version of the map is created with a {@link Builder}. The builder only copies the nodes on the path to the
+ * intervals that are changed, all other nodes are shared with the version the builder was created from.
+ *
+ * @param <K> the type of the interval (must implement {@link Interval}).
+ * @param <V> the type of the values to store.
+ */
+public final class ImmutableNestedIntervalMap<K extends Interval<K>, V> implements IntervalMap<K, V> {
+
+    @SuppressWarnings("rawtypes")
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static final ImmutableNestedIntervalMap EMPTY = new ImmutableNestedIntervalMap(new Node(null, null, null));
+
+    private final Node<K, V> root;
+
+    private ImmutableNestedIntervalMap(final Node<K, V> root) {
+        this.root = root;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K extends Interval<K>, V> ImmutableNestedIntervalMap<K, V> of() {
+        return (ImmutableNestedIntervalMap<K, V>) EMPTY;
+    }
+
+    /**
+     * Construct a new {@link ImmutableNestedIntervalMap} with (key, values) of <code>source</code> copied.
+     *
+     * @param source the source to copy.
+     */
+    public static <K extends Interval<K>, V> ImmutableNestedIntervalMap<K, V> copyOf(final NestedIntervalMap<K, V> source) {
+        return new ImmutableNestedIntervalMap<>(copyOf(null, null, source.getChildren().values()));
+    }
+
+    private static <K extends Interval<K>, V> Node<K, V> copyOf(final K interval, final V value, final Collection<InternalNode<K, V>> children) {
+        final Node<K, V> node = new Node<>(null, interval, value);
+        node.children = newArray(children.size());
+        for (final InternalNode<K, V> child : children) {
+            node.children[node.childCount++] = copyOf(child.getInterval(), child.getValue(), child.getChildren().values());
+        }
+        return node;
+    }
+
+    /**
+     * @return a builder for the next version of this map.
+     */
+    public Builder<K, V> toBuilder() {
+        return new Builder<>(root);
+    }
+
+    @Override
+    public void put(final K key, final V value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void remove(final K key) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void remove(final K key, final V value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<V> findFirstLessSpecific(final K key) {
+        Validate.notNull(key);
+        return mapToValues(internalFindFirstLessSpecific(root, key));
+    }
+
+    @Override
+    public List<V> findExact(final K key) {
+        Validate.notNull(key);
+        return mapToValues(internalFindExact(root, key));
+    }
+
+    @Override
+    public List<V> findExactOrFirstLessSpecific(final K key) {
+        Validate.notNull(key);
+        return mapToValues(internalFindExactOrFirstLessSpecific(root, key));
+    }
+
+    @Override
+    public List<V> findAllLessSpecific(final K key) {
+        Validate.notNull(key);
+        return mapToValues(internalFindAllLessSpecific(root, key));
+    }
+
+    @Override
+    public List<V> findExactAndAllLessSpecific(final K key) {
+        Validate.notNull(key);
+        return mapToValues(internalFindExactAndAllLessSpecific(root, key));
+    }
+
+    @Override
+    public List<V> findFirstMoreSpecific(final K key) {
+        Validate.notNull(key);
+        return mapToValues(internalFindFirstMoreSpecific(root, key));
+    }
+
+    @Override
+    public List<V> findAllMoreSpecific(final K key) {
+        Validate.notNull(key);
+        return mapToValues(internalFindAllMoreSpecific(root, key));
+    }
+
+    @Override
+    public List<V> findExactAndAllMoreSpecific(final K key) {
+        Validate.notNull(key);
+        return mapToValues(internalFindExactAndAllMoreSpecific(root, key));
+    }
+
+    @Override
+    public String toString() {
+        return root.toString();
+    }
+
+    /**
+     * A mutable {@link IntervalMap} that creates new versions of an {@link ImmutableNestedIntervalMap}.
+     * <p/>
+     * Nodes created by the builder are modified in place until {@link #build()} is called, nodes of previously built
+     * versions are copied on first modification.
+     * <p/>
+     * <strong>Note that this implementation is not synchronized.</strong>
+     */
+    public static final class Builder<K extends Interval<K>, V> implements IntervalMap<K, V> {
+        private Object owner = new Object();
+        private Node<K, V> root;
+
+        private Builder(final Node<K, V> root) {
+            this.root = root;
+        }
+
+        /**
+         * @return the current state of this builder as an immutable map. Further changes to the builder are not
+         * visible in the returned map.
+         */
+        public ImmutableNestedIntervalMap<K, V> build() {
+            final ImmutableNestedIntervalMap<K, V> result = new ImmutableNestedIntervalMap<>(root);
+            owner = new Object();
+            return result;
+        }
+
+        @Override
+        public void put(final K key, final V value) {
+            Validate.notNull(key);
+            Validate.notNull(value);
+            root = editable(root);
+            addChild(root, new Node<>(owner, key, value));
+        }
+
+        @Override
+        public void remove(final K key) {
+            Validate.notNull(key);
+            if (internalFindExact(root, key) != null) {
+                root = editable(root);
+                removeChild(root, key);
+            }
+        }
+
+        @Override
+        public void remove(final K key, final V value) {
+            Validate.notNull(key);
+            Validate.notNull(value);
+
+            if (value.equals(CollectionHelper.uniqueResult(findExact(key)))) {
+                remove(key);
+            }
+        }
+
+        @Override
+        public void clear() {
+            root = new Node<>(owner, null, null);
+        }
+
+        @Override
+        public List<V> findFirstLessSpecific(final K key) {
+            Validate.notNull(key);
+            return mapToValues(internalFindFirstLessSpecific(root, key));
+        }
+
+        @Override
+        public List<V> findExact(final K key) {
+            Validate.notNull(key);
+            return mapToValues(internalFindExact(root, key));
+        }
+
+        @Override
+        public List<V> findExactOrFirstLessSpecific(final K key) {
+            Validate.notNull(key);
+            return mapToValues(internalFindExactOrFirstLessSpecific(root, key));
+        }
+
+        @Override
+        public List<V> findAllLessSpecific(final K key) {
+            Validate.notNull(key);
+            return mapToValues(internalFindAllLessSpecific(root, key));
+        }
+
+        @Override
+        public List<V> findExactAndAllLessSpecific(final K key) {
+            Validate.notNull(key);
+            return mapToValues(internalFindExactAndAllLessSpecific(root, key));
+        }
+
+        @Override
+        public List<V> findFirstMoreSpecific(final K key) {
+            Validate.notNull(key);
+            return mapToValues(internalFindFirstMoreSpecific(root, key));
+        }
+
+        @Override
+        public List<V> findAllMoreSpecific(final K key) {
+            Validate.notNull(key);
+            return mapToValues(internalFindAllMoreSpecific(root, key));
+        }
+
+        @Override
+        public List<V> findExactAndAllMoreSpecific(final K key) {
+            Validate.notNull(key);
+            return mapToValues(internalFindExactAndAllMoreSpecific(root, key));
+        }
+
+        private Node<K, V> editable(final Node<K, V> node) {
+            if (node.owner == owner) {
+                return node;
+            }
+
+            final Node<K, V> copy = new Node<>(owner, node.interval, node.value);
+            copy.children = Arrays.copyOf(node.children, node.childCount);
+            copy.childCount = node.childCount;
+            return copy;
+        }
+
+        private void addChild(final Node<K, V> parent, final Node<K, V> nodeToAdd) {
+            final K range = nodeToAdd.interval;
+            final int index = ceilingIndex(parent, range.singletonIntervalAtLowerBound());
+            if (index < parent.childCount && parent.children[index].interval.contains(range)) {
+                final Node<K, V> containingChild = editable(parent.children[index]);
+                parent.children[index] = containingChild;
+                if (containingChild.interval.equals(range)) {
+                    containingChild.value = nodeToAdd.value;
+                } else {
+                    addChild(containingChild, nodeToAdd);
+                }
+                return;
+            }
+
+            final List<K> intersections = getIntersectingChildren(parent, range, index);
+            if (!intersections.isEmpty()) {
+                throw new IntersectingIntervalException(range, intersections);
+            }
+
+            int end = index;
+            while (end < parent.childCount && range.contains(parent.children[end].interval)) {
+                end++;
+            }
+
+            nodeToAdd.children = Arrays.copyOfRange(parent.children, index, end);
+            nodeToAdd.childCount = end - index;
+            replace(parent, index, end, Collections.singletonList(nodeToAdd));
+        }
+
+        private void removeChild(final Node<K, V> parent, final K range) {
+            final int index = ceilingIndex(parent, range.singletonIntervalAtLowerBound());
+            final Node<K, V> containingChild = parent.children[index];
+            if (containingChild.interval.equals(range)) {
+                replace(parent, index, index + 1, Arrays.asList(containingChild.children).subList(0, containingChild.childCount));
+            } else {
+                final Node<K, V> editableChild = editable(containingChild);
+                parent.children[index] = editableChild;
+                removeChild(editableChild, range);
+            }
+        }
+
+        /*
+         * Replaces the children [from, to) of the (editable) parent with the given nodes.
+         */
+        private void replace(final Node<K, V> parent, final int from, final int to, final List<Node<K, V>> nodes) {
+            final int newCount = parent.childCount - (to - from) + nodes.size();
+            if (newCount > parent.children.length) {
+                parent.children = Arrays.copyOf(parent.children, Math.max(newCount, parent.children.length + (parent.children.length >> 1)));
+            }
+
+            System.arraycopy(parent.children, to, parent.children, from + nodes.size(), parent.childCount - to);
+            for (int index = 0; index < nodes.size(); index++) {
+                parent.children[from + index] = nodes.get(index);
+            }
+
+            if (newCount < parent.childCount) {
+                Arrays.fill(parent.children, newCount, parent.childCount, null);
+            }
+            parent.childCount = newCount;
+        }
+    }
+
+    /*
+     * A node in the tree. The root node has no interval. Children are ordered by the upper-bound of their interval,
+     * like in {@link ChildNodeTreeMap}. Nodes are only modified by the {@link Builder} that owns them.
+     */
+    private static final class Node<K extends Interval<K>, V> {
+        private final Object owner;
+        private final K interval;
+        private V value;
+        private Node<K, V>[] children = noChildren();
+        private int childCount;
+
+        private Node(final Object owner, final K interval, final V value) {
+            this.owner = owner;
+            this.interval = interval;
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            return "Node(" + interval + ", " + value + ", " + Arrays.asList(children).subList(0, childCount) + ")";
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K extends Interval<K>, V> Node<K, V>[] noChildren() {
+        return NO_CHILDREN;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K extends Interval<K>, V> Node<K, V>[] newArray(final int size) {
+        return new Node[size];
+    }
+
+    /*
+     * Returns the index of the first child with an upper-bound that is not less than the upper-bound of
+     * <code>key</code>.
+     */
+    private static <K extends Interval<K>, V> int ceilingIndex(final Node<K, V> parent, final K key) {
+        int low = 0;
+        int high = parent.childCount - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (parent.children[mid].interval.compareUpperBound(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private static <K extends Interval<K>, V> List<K> getIntersectingChildren(final Node<K, V> parent, final K range, final int lowerIndex) {
+        List<K> result = Collections.emptyList();
+        if (lowerIndex < parent.childCount && intersectsButNotContained(range, parent.children[lowerIndex].interval)) {
+            result = new ArrayList<>(result);
+            result.add(parent.children[lowerIndex].interval);
+        }
+        final int upperIndex = ceilingIndex(parent, range);
+        if (upperIndex < parent.childCount && intersectsButNotContained(range, parent.children[upperIndex].interval)) {
+            result = new ArrayList<>(result);
+            result.add(parent.children[upperIndex].interval);
+        }
+        return result;
+    }
+
+    private static <K extends Interval<K>> boolean intersectsButNotContained(final K left, final K right) {
+        return left.intersects(right) && !left.contains(right) && !right.contains(left);
+    }
+
+    private static <K extends Interval<K>, V> List<V> mapToValues(final Node<K, V> node) {
+        if (node == null) {
+            return Collections.emptyList();
+        }
+
+        return Collections.singletonList(node.value);
+    }
+
+    private static <K extends Interval<K>, V> List<V> mapToValues(final List<Node<K, V>> nodes) {
+        final List<V> result = Lists.newArrayListWithExpectedSize(nodes.size());
+        for (final Node<K, V> node : nodes) {
+            result.add(node.value);
+        }
+        return result;
+    }
+
+    private static <K extends Interval<K>, V> Node<K, V> internalFindExactOrFirstLessSpecific(final Node<K, V> root, final K range) {
+        final List<Node<K, V>> list = internalFindExactAndAllLessSpecific(root, range);
+        return list.isEmpty() ? null : list.get(list.size() - 1);
+    }
+
+    private static <K extends Interval<K>, V> Node<K, V> internalFindFirstLessSpecific(final Node<K, V> root, final K range) {
+        final List<Node<K, V>> list = internalFindAllLessSpecific(root, range);
+        return list.isEmpty() ? null : list.get(list.size() - 1);
+    }
+
+    private static <K extends Interval<K>, V> List<Node<K, V>> internalFindAllLessSpecific(final Node<K, V> root, final K range) {
+        final List<Node<K, V>> result = internalFindExactAndAllLessSpecific(root, range);
+        if (!result.isEmpty() && result.get(result.size() - 1).interval.equals(range)) {
+            return result.subList(0, result.size() - 1);
+        }
+        return result;
+    }
+
+    private static <K extends Interval<K>, V> List<Node<K, V>> internalFindExactAndAllLessSpecific(final Node<K, V> root, final K range) {
+        final List<Node<K, V>> result = new ArrayList<>();
+        final K lowerBound = range.singletonIntervalAtLowerBound();
+        Node<K, V> parent = root;
+        while (true) {
+            final int index = ceilingIndex(parent, lowerBound);
+            if (index < parent.childCount && parent.children[index].interval.contains(range)) {
+                parent = parent.children[index];
+                result.add(parent);
+            } else {
+                return result;
+            }
+        }
+    }
+
+    private static <K extends Interval<K>, V> Node<K, V> internalFindExact(final Node<K, V> root, final K range) {
+        final Node<K, V> node = internalFindExactOrFirstLessSpecific(root, range);
+        return node != null && node.interval.equals(range) ? node : null;
+    }
+
+    private static <K extends Interval<K>, V> List<Node<K, V>> internalFindFirstMoreSpecific(final Node<K, V> root, final K range) {
+        final List<Node<K, V>> result = new ArrayList<>();
+        final Node<K, V> container = internalFindExactOrFirstLessSpecific(root, range);
+        findFirstMoreSpecific(result, container == null ? root : container, range);
+        return result;
+    }
+
+    private static <K extends Interval<K>, V> void findFirstMoreSpecific(final List<Node<K, V>> result, final Node<K, V> parent, final K range) {
+        for (int index = ceilingIndex(parent, range.singletonIntervalAtLowerBound()); index < parent.childCount; index++) {
+            final Node<K, V> node = parent.children[index];
+            if (range.contains(node.interval)) {
+                result.add(node);
+            } else if (range.intersects(node.interval)) {
+                findFirstMoreSpecific(result, node, range);
+            } else {
+                break;
+            }
+        }
+    }
+
+    private static <K extends Interval<K>, V> List<Node<K, V>> internalFindAllMoreSpecific(final Node<K, V> root, final K range) {
+        final List<Node<K, V>> result = internalFindExactAndAllMoreSpecific(root, range);
+        if (!result.isEmpty() && result.get(0).interval.equals(range)) {
+            return result.subList(1, result.size());
+        }
+        return result;
+    }
+
+    private static <K extends Interval<K>, V> List<Node<K, V>> internalFindExactAndAllMoreSpecific(final Node<K, V> root, final K range) {
+        final List<Node<K, V>> result = new ArrayList<>();
+        final Node<K, V> containing = internalFindExactOrFirstLessSpecific(root, range);
+        if (containing == null) {
+            findExactAndAllMoreSpecific(result, root, range);
+        } else {
+            if (containing.interval.equals(range)) {
+                result.add(containing);
+            }
+            findExactAndAllMoreSpecific(result, containing, range);
+        }
+        return result;
+    }
+
+    private static <K extends Interval<K>, V> void findExactAndAllMoreSpecific(final List<Node<K, V>> result, final Node<K, V> parent, final K range) {
+        for (int index = ceilingIndex(parent, range.singletonIntervalAtLowerBound()); index < parent.childCount; index++) {
+            final Node<K, V> node = parent.children[index];
+            if (range.contains(node.interval)) {
+                result.add(node);
+                addAllChildrenToList(result, node);
+            } else if (range.intersects(node.interval)) {
+                findExactAndAllMoreSpecific(result, node, range);
+            } else {
+                break;
+            }
+        }
+    }
+
+    private static <K extends Interval<K>, V> void addAllChildrenToList(final List<Node<K, V>> result, final Node<K, V> parent) {
+        for (int index = 0; index < parent.childCount; index++) {
+            result.add(parent.children[index]);
+            addAllChildrenToList(result, parent.children[index]);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package net.ripe.db.whois.common.etree;
+
+import net.ripe.db.whois.common.ip.Ipv4Resource;
+
+import java.util.Arrays;
+
+/**
+ * {@link CompactIntervalMap} for IPv4 resources, storing every interval as a single <code>long</code>.
+ * <p/>
+ * The lower-bound is kept in the upper 32 bits and the complement of the upper-bound in the lower 32 bits, so that an
+ * unsigned comparison of two entries matches the ordering of the intervals.
+ */
+public final class Ipv4CompactIntervalMap<V> extends CompactIntervalMap<Ipv4Resource, V> {
+    private static final long MASK = 0xFFFFFFFFL;
+
+    private long[] keys;
+
+    public Ipv4CompactIntervalMap() {
+        this.keys = new long[capacity()];
+    }
+
+    public Ipv4CompactIntervalMap(final Ipv4CompactIntervalMap<V> source) {
+        super(source);
+        this.keys = Arrays.copyOf(source.keys, capacity());
+    }
+
+    private static long pack(final Ipv4Resource key) {
+        return key.begin() << 32 | (MASK - key.end());
+    }
+
+    private long begin(final int index) {
+        return keys[index] >>> 32;
+    }
+
+    private long end(final int index) {
+        return MASK - (keys[index] & MASK);
+    }
+
+    @Override
+    int compare(final int index, final Ipv4Resource key) {
+        return Long.compareUnsigned(keys[index], pack(key));
+    }
+
+    @Override
+    int compareUpperBound(final int index, final Ipv4Resource key) {
+        return Long.compare(end(index), key.end());
+    }
+
+    @Override
+    int compareLowerBoundToUpperBound(final int index, final Ipv4Resource key) {
+        return Long.compare(begin(index), key.end());
+    }
+
+    @Override
+    boolean contains(final int index, final Ipv4Resource key) {
+        return begin(index) <= key.begin() && end(index) >= key.end();
+    }
+
+    @Override
+    boolean isContainedIn(final int index, final Ipv4Resource key) {
+        return key.begin() <= begin(index) && key.end() >= end(index);
+    }
+
+    @Override
+    boolean contains(final int index, final int otherIndex) {
+        return begin(index) <= begin(otherIndex) && end(index) >= end(otherIndex);
+    }
+
+    @Override
+    Ipv4Resource getKey(final int index) {
+        return new Ipv4Resource(begin(index), end(index));
+    }
+
+    @Override
+    Ipv4Resource singletonIntervalAtUpperBound(final Ipv4Resource key) {
+        return new Ipv4Resource(key.end(), key.end());
+    }
+
+    @Override
+    void resizeKeys(final int capacity) {
+        keys = Arrays.copyOf(keys, capacity);
+    }
+
+    @Override
+    void moveKeys(final int from, final int to, final int length) {
+        System.arraycopy(keys, from, keys, to, length);
+    }
+
+    @Override
+    void setKey(final int index, final Ipv4Resource key) {
+        keys[index] = pack(key);
+    }
+}
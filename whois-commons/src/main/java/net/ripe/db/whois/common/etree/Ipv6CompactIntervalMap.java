@@ -0,0 +1,94 @@
+package net.ripe.db.whois.common.etree;
+
+import net.ripe.db.whois.common.ip.Ipv6Resource;
+
+import java.util.Arrays;
+
+/**
+ * {@link CompactIntervalMap} for IPv6 resources, storing every interval as four consecutive <code>long</code>s: the
+ * most and least significant bits of the lower-bound, followed by those of the upper-bound.
+ */
+public final class Ipv6CompactIntervalMap<V> extends CompactIntervalMap<Ipv6Resource, V> {
+    private static final int STRIDE = 4;
+
+    private long[] keys;
+
+    public Ipv6CompactIntervalMap() {
+        this.keys = new long[capacity() * STRIDE];
+    }
+
+    public Ipv6CompactIntervalMap(final Ipv6CompactIntervalMap<V> source) {
+        super(source);
+        this.keys = Arrays.copyOf(source.keys, capacity() * STRIDE);
+    }
+
+    private int compareBegin(final int index, final long msb, final long lsb) {
+        return Ipv6Resource.compare(keys[index * STRIDE], keys[index * STRIDE + 1], msb, lsb);
+    }
+
+    private int compareEnd(final int index, final long msb, final long lsb) {
+        return Ipv6Resource.compare(keys[index * STRIDE + 2], keys[index * STRIDE + 3], msb, lsb);
+    }
+
+    @Override
+    int compare(final int index, final Ipv6Resource key) {
+        final int result = compareBegin(index, key.beginMsb(), key.beginLsb());
+        return result != 0 ? result : -compareEnd(index, key.endMsb(), key.endLsb());
+    }
+
+    @Override
+    int compareUpperBound(final int index, final Ipv6Resource key) {
+        return compareEnd(index, key.endMsb(), key.endLsb());
+    }
+
+    @Override
+    int compareLowerBoundToUpperBound(final int index, final Ipv6Resource key) {
+        return compareBegin(index, key.endMsb(), key.endLsb());
+    }
+
+    @Override
+    boolean contains(final int index, final Ipv6Resource key) {
+        return compareBegin(index, key.beginMsb(), key.beginLsb()) <= 0 && compareEnd(index, key.endMsb(), key.endLsb()) >= 0;
+    }
+
+    @Override
+    boolean isContainedIn(final int index, final Ipv6Resource key) {
+        return compareBegin(index, key.beginMsb(), key.beginLsb()) >= 0 && compareEnd(index, key.endMsb(), key.endLsb()) <= 0;
+    }
+
+    @Override
+    boolean contains(final int index, final int otherIndex) {
+        final int other = otherIndex * STRIDE;
+        return compareBegin(index, keys[other], keys[other + 1]) <= 0 && compareEnd(index, keys[other + 2], keys[other + 3]) >= 0;
+    }
+
+    @Override
+    Ipv6Resource getKey(final int index) {
+        final int offset = index * STRIDE;
+        return new Ipv6Resource(keys[offset], keys[offset + 1], keys[offset + 2], keys[offset + 3]);
+    }
+
+    @Override
+    Ipv6Resource singletonIntervalAtUpperBound(final Ipv6Resource key) {
+        return new Ipv6Resource(key.endMsb(), key.endLsb(), key.endMsb(), key.endLsb());
+    }
+
+    @Override
+    void resizeKeys(final int capacity) {
+        keys = Arrays.copyOf(keys, capacity * STRIDE);
+    }
+
+    @Override
+    void moveKeys(final int from, final int to, final int length) {
+        System.arraycopy(keys, from * STRIDE, keys, to * STRIDE, length * STRIDE);
+    }
+
+    @Override
+    void setKey(final int index, final Ipv6Resource key) {
+        final int offset = index * STRIDE;
+        keys[offset] = key.beginMsb();
+        keys[offset + 1] = key.beginLsb();
+        keys[offset + 2] = key.endMsb();
+        keys[offset + 3] = key.endLsb();
+    }
+}
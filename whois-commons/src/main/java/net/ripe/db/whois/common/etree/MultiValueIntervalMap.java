@@ -8,22 +8,54 @@ import java.util.List;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
+/**
+ * An {@link IntervalMap} that can store multiple values per key.
+ * <p/>
+ * The value sets are modified in place, unless the map is {@link #copyOnWrite(IntervalMap) copy on write}.
+ */
 public final class MultiValueIntervalMap<K extends Interval<K>, V> implements IntervalMap<K, V> {
     private final IntervalMap<K, SortedSet<V>> wrapped;
+    private final boolean copyOnWrite;
 
     public MultiValueIntervalMap() {
-        this.wrapped = new NestedIntervalMap<>();
+        this(new NestedIntervalMap<K, SortedSet<V>>());
+    }
+
+    public MultiValueIntervalMap(final IntervalMap<K, SortedSet<V>> wrapped) {
+        this(wrapped, false);
+    }
+
+    private MultiValueIntervalMap(final IntervalMap<K, SortedSet<V>> wrapped, final boolean copyOnWrite) {
+        this.wrapped = wrapped;
+        this.copyOnWrite = copyOnWrite;
+    }
+
+    /**
+     * The value sets are never modified once they are stored in the wrapped map, so an
+     * {@link ImmutableNestedIntervalMap.Builder} can share them with the version it was created from.
+     */
+    public static <K extends Interval<K>, V> MultiValueIntervalMap<K, V> copyOnWrite(final IntervalMap<K, SortedSet<V>> wrapped) {
+        return new MultiValueIntervalMap<>(wrapped, true);
     }
 
     @Override
     public void put(K key, V value) {
-        SortedSet<V> set = CollectionHelper.uniqueResult(wrapped.findExact(key));
-        if (set == null) {
-            set = new TreeSet<>();
-            wrapped.put(key, set);
+        final SortedSet<V> existing = CollectionHelper.uniqueResult(wrapped.findExact(key));
+        if (existing != null && existing.contains(value)) {
+            return;
         }
 
-        set.add(value);
+        if (existing == null) {
+            final SortedSet<V> set = new TreeSet<>();
+            set.add(value);
+            wrapped.put(key, set);
+        } else if (copyOnWrite) {
+            final SortedSet<V> set = new TreeSet<>(existing);
+            set.add(value);
+            wrapped.put(key, set);
+        } else {
+            existing.add(value);
+        }
     }
 
     @Override
@@ -38,10 +70,18 @@ public final class MultiValueIntervalMap<K extends Interval<K>, V> implements In
             return;
         }
 
-        set.remove(value);
+        if (!set.contains(value)) {
+            return;
+        }
 
-        if (set.isEmpty()) {
+        if (set.size() == 1) {
             wrapped.remove(key);
+        } else if (copyOnWrite) {
+            final SortedSet<V> remaining = new TreeSet<>(set);
+            remaining.remove(value);
+            wrapped.put(key, remaining);
+        } else {
+            set.remove(value);
         }
     }
 
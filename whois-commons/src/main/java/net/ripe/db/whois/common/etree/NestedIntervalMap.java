@@ -116,6 +116,10 @@ public final class NestedIntervalMap<K extends Interval<K>, V> implements Interv
         return mapToValues(internalFindExactAndAllMoreSpecific(key));
     }
 
+    ChildNodeMap<K, V> getChildren() {
+        return children;
+    }
+
     /**
      * Clears all values from the map.
      */
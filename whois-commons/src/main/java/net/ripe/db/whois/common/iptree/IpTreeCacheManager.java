@@ -5,6 +5,7 @@ import com.google.common.collect.Maps;
 import net.ripe.db.whois.common.dao.jdbc.domain.ObjectTypeIds;
 import net.ripe.db.whois.common.domain.CIString;
 import net.ripe.db.whois.common.domain.serials.Operation;
+import net.ripe.db.whois.common.etree.ImmutableNestedIntervalMap;
 import net.ripe.db.whois.common.etree.IntersectingIntervalException;
 import net.ripe.db.whois.common.etree.IntervalMap;
 import net.ripe.db.whois.common.etree.MultiValueIntervalMap;
@@ -21,6 +22,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
@@ -31,6 +33,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Map;
+import java.util.SortedSet;
 import java.util.concurrent.Semaphore;
 
 import static net.ripe.db.whois.common.domain.serials.Operation.UPDATE;
@@ -47,11 +50,19 @@ public class IpTreeCacheManager {
 
     private final JdbcTemplate jdbcTemplate;
     private final SourceContext sourceContext;
+    private final IpTreeSnapshotStore snapshotStore;
+    private final boolean snapshotEnabled;
 
     @Autowired
-    public IpTreeCacheManager(@Qualifier("sourceAwareDataSource") final DataSource dataSource, final SourceContext sourceContext) {
+    public IpTreeCacheManager(
+            @Qualifier("sourceAwareDataSource") final DataSource dataSource,
+            final SourceContext sourceContext,
+            final IpTreeSnapshotStore snapshotStore,
+            @Value("${iptree.snapshot.enabled:false}") final boolean snapshotEnabled) {
         this.jdbcTemplate = new JdbcTemplate(dataSource);
         this.sourceContext = sourceContext;
+        this.snapshotStore = snapshotStore;
+        this.snapshotEnabled = snapshotEnabled;
     }
 
     private static final class IpTreeUpdate {
@@ -76,7 +87,7 @@ public class IpTreeCacheManager {
     private static final class CacheEntry {
         final SourceConfiguration sourceConfiguration;
         final Semaphore updateLock = new Semaphore(1);
-        NestedIntervalMaps nestedIntervalMaps = new NestedIntervalMaps();
+        volatile NestedIntervalMaps nestedIntervalMaps;
 
         private CacheEntry(final SourceConfiguration sourceConfiguration) {
             this.sourceConfiguration = sourceConfiguration;
@@ -84,16 +95,79 @@ public class IpTreeCacheManager {
     }
 
     static class NestedIntervalMaps {
-        final IntervalMap<Ipv4Resource, Ipv4Entry> ipv4TreeCache = SynchronizedIntervalMap.synchronizedMap(new NestedIntervalMap<Ipv4Resource, Ipv4Entry>());
-        final IntervalMap<Ipv6Resource, Ipv6Entry> ipv6TreeCache = SynchronizedIntervalMap.synchronizedMap(new NestedIntervalMap<Ipv6Resource, Ipv6Entry>());
-        final IntervalMap<Ipv4Resource, Ipv4RouteEntry> ipv4RouteTreeCache = SynchronizedIntervalMap.synchronizedMap(new MultiValueIntervalMap<Ipv4Resource, Ipv4RouteEntry>());
-        final IntervalMap<Ipv6Resource, Ipv6RouteEntry> ipv6RouteTreeCache = SynchronizedIntervalMap.synchronizedMap(new MultiValueIntervalMap<Ipv6Resource, Ipv6RouteEntry>());
-        final IntervalMap<Ipv4Resource, Ipv4Entry> ipv4DomainTreeCache = SynchronizedIntervalMap.synchronizedMap(new NestedIntervalMap<Ipv4Resource, Ipv4Entry>());
-        final IntervalMap<Ipv6Resource, Ipv6Entry> ipv6DomainTreeCache = SynchronizedIntervalMap.synchronizedMap(new NestedIntervalMap<Ipv6Resource, Ipv6Entry>());
+        final IntervalMap<Ipv4Resource, Ipv4Entry> ipv4TreeCache;
+        final IntervalMap<Ipv6Resource, Ipv6Entry> ipv6TreeCache;
+        final IntervalMap<Ipv4Resource, Ipv4RouteEntry> ipv4RouteTreeCache;
+        final IntervalMap<Ipv6Resource, Ipv6RouteEntry> ipv6RouteTreeCache;
+        final IntervalMap<Ipv4Resource, Ipv4Entry> ipv4DomainTreeCache;
+        final IntervalMap<Ipv6Resource, Ipv6Entry> ipv6DomainTreeCache;
 
         volatile long lastSerial = Long.MIN_VALUE;
 
-        void update(final Iterable<IpTreeUpdate> updates, final long lastSerial, final CacheEntry cacheEntry) {
+        NestedIntervalMaps() {
+            this(SynchronizedIntervalMap.synchronizedMap(new NestedIntervalMap<Ipv4Resource, Ipv4Entry>()),
+                    SynchronizedIntervalMap.synchronizedMap(new NestedIntervalMap<Ipv6Resource, Ipv6Entry>()),
+                    SynchronizedIntervalMap.synchronizedMap(new MultiValueIntervalMap<Ipv4Resource, Ipv4RouteEntry>()),
+                    SynchronizedIntervalMap.synchronizedMap(new MultiValueIntervalMap<Ipv6Resource, Ipv6RouteEntry>()),
+                    SynchronizedIntervalMap.synchronizedMap(new NestedIntervalMap<Ipv4Resource, Ipv4Entry>()),
+                    SynchronizedIntervalMap.synchronizedMap(new NestedIntervalMap<Ipv6Resource, Ipv6Entry>()));
+        }
+
+        NestedIntervalMaps(
+                final IntervalMap<Ipv4Resource, Ipv4Entry> ipv4TreeCache,
+                final IntervalMap<Ipv6Resource, Ipv6Entry> ipv6TreeCache,
+                final IntervalMap<Ipv4Resource, Ipv4RouteEntry> ipv4RouteTreeCache,
+                final IntervalMap<Ipv6Resource, Ipv6RouteEntry> ipv6RouteTreeCache,
+                final IntervalMap<Ipv4Resource, Ipv4Entry> ipv4DomainTreeCache,
+                final IntervalMap<Ipv6Resource, Ipv6Entry> ipv6DomainTreeCache) {
+            this.ipv4TreeCache = ipv4TreeCache;
+            this.ipv6TreeCache = ipv6TreeCache;
+            this.ipv4RouteTreeCache = ipv4RouteTreeCache;
+            this.ipv6RouteTreeCache = ipv6RouteTreeCache;
+            this.ipv4DomainTreeCache = ipv4DomainTreeCache;
+            this.ipv6DomainTreeCache = ipv6DomainTreeCache;
+        }
+
+        /**
+         * Applies the updates and returns the trees that should be used for lookups from now on.
+         */
+        NestedIntervalMaps update(final Iterable<IpTreeUpdate> updates, final long lastSerial, final CacheEntry cacheEntry) {
+            apply(updates, cacheEntry);
+            this.lastSerial = lastSerial;
+            return this;
+        }
+
+        /**
+         * Loads the entries of an on-disk snapshot and returns the trees that should be used for lookups from now on.
+         */
+        NestedIntervalMaps load(final IpTreeSnapshot snapshot) {
+            putAll(ipv4TreeCache, snapshot.getIpv4Entries());
+            putAll(ipv6TreeCache, snapshot.getIpv6Entries());
+            putAll(ipv4RouteTreeCache, snapshot.getIpv4RouteEntries());
+            putAll(ipv6RouteTreeCache, snapshot.getIpv6RouteEntries());
+            putAll(ipv4DomainTreeCache, snapshot.getIpv4DomainEntries());
+            putAll(ipv6DomainTreeCache, snapshot.getIpv6DomainEntries());
+            this.lastSerial = snapshot.getLastSerial();
+            return this;
+        }
+
+        private static <K extends Interval<K>, V extends IpEntry<K>> void putAll(final IntervalMap<K, V> intervalMap, final List<V> ipEntries) {
+            for (final V ipEntry : ipEntries) {
+                intervalMap.put(ipEntry.getKey(), ipEntry);
+            }
+        }
+
+        IpTreeSnapshot toSnapshot() {
+            return new IpTreeSnapshot(lastSerial,
+                    ipv4TreeCache.findExactAndAllMoreSpecific(Ipv4Resource.MAX_RANGE),
+                    ipv6TreeCache.findExactAndAllMoreSpecific(Ipv6Resource.MAX_RANGE),
+                    ipv4RouteTreeCache.findExactAndAllMoreSpecific(Ipv4Resource.MAX_RANGE),
+                    ipv6RouteTreeCache.findExactAndAllMoreSpecific(Ipv6Resource.MAX_RANGE),
+                    ipv4DomainTreeCache.findExactAndAllMoreSpecific(Ipv4Resource.MAX_RANGE),
+                    ipv6DomainTreeCache.findExactAndAllMoreSpecific(Ipv6Resource.MAX_RANGE));
+        }
+
+        void apply(final Iterable<IpTreeUpdate> updates, final CacheEntry cacheEntry) {
             for (final IpTreeUpdate ipTreeUpdate : updates) {
                 try {
                     update(ipTreeUpdate);
@@ -103,8 +177,6 @@ public class IpTreeCacheManager {
                     LOGGER.warn("Unable to update object {}: {}", ipTreeUpdate, e.getMessage());
                 }
             }
-
-            this.lastSerial = lastSerial;
         }
 
         private void update(final IpTreeUpdate ipTreeUpdate) {
@@ -177,6 +249,146 @@ public class IpTreeCacheManager {
         }
     }
 
+    /**
+     * Immutable trees that are read without locking. Every update builds the next version of the trees, sharing all
+     * unchanged nodes with the current version, which is then published as a whole.
+     */
+    static final class SnapshotNestedIntervalMaps extends NestedIntervalMaps {
+        private final ImmutableNestedIntervalMap<Ipv4Resource, Ipv4Entry> ipv4Tree;
+        private final ImmutableNestedIntervalMap<Ipv6Resource, Ipv6Entry> ipv6Tree;
+        private final ImmutableNestedIntervalMap<Ipv4Resource, SortedSet<Ipv4RouteEntry>> ipv4RouteTree;
+        private final ImmutableNestedIntervalMap<Ipv6Resource, SortedSet<Ipv6RouteEntry>> ipv6RouteTree;
+        private final ImmutableNestedIntervalMap<Ipv4Resource, Ipv4Entry> ipv4DomainTree;
+        private final ImmutableNestedIntervalMap<Ipv6Resource, Ipv6Entry> ipv6DomainTree;
+
+        SnapshotNestedIntervalMaps() {
+            this(ImmutableNestedIntervalMap.<Ipv4Resource, Ipv4Entry>of(),
+                    ImmutableNestedIntervalMap.<Ipv6Resource, Ipv6Entry>of(),
+                    ImmutableNestedIntervalMap.<Ipv4Resource, SortedSet<Ipv4RouteEntry>>of(),
+                    ImmutableNestedIntervalMap.<Ipv6Resource, SortedSet<Ipv6RouteEntry>>of(),
+                    ImmutableNestedIntervalMap.<Ipv4Resource, Ipv4Entry>of(),
+                    ImmutableNestedIntervalMap.<Ipv6Resource, Ipv6Entry>of(),
+                    Long.MIN_VALUE);
+        }
+
+        private SnapshotNestedIntervalMaps(
+                final ImmutableNestedIntervalMap<Ipv4Resource, Ipv4Entry> ipv4Tree,
+                final ImmutableNestedIntervalMap<Ipv6Resource, Ipv6Entry> ipv6Tree,
+                final ImmutableNestedIntervalMap<Ipv4Resource, SortedSet<Ipv4RouteEntry>> ipv4RouteTree,
+                final ImmutableNestedIntervalMap<Ipv6Resource, SortedSet<Ipv6RouteEntry>> ipv6RouteTree,
+                final ImmutableNestedIntervalMap<Ipv4Resource, Ipv4Entry> ipv4DomainTree,
+                final ImmutableNestedIntervalMap<Ipv6Resource, Ipv6Entry> ipv6DomainTree,
+                final long lastSerial) {
+            super(ipv4Tree,
+                    ipv6Tree,
+                    new MultiValueIntervalMap<>(ipv4RouteTree),
+                    new MultiValueIntervalMap<>(ipv6RouteTree),
+                    ipv4DomainTree,
+                    ipv6DomainTree);
+            this.ipv4Tree = ipv4Tree;
+            this.ipv6Tree = ipv6Tree;
+            this.ipv4RouteTree = ipv4RouteTree;
+            this.ipv6RouteTree = ipv6RouteTree;
+            this.ipv4DomainTree = ipv4DomainTree;
+            this.ipv6DomainTree = ipv6DomainTree;
+            this.lastSerial = lastSerial;
+        }
+
+        @Override
+        NestedIntervalMaps update(final Iterable<IpTreeUpdate> updates, final long lastSerial, final CacheEntry cacheEntry) {
+            if (this.lastSerial == Long.MIN_VALUE) {
+                final MutableNestedIntervalMaps mutableNestedIntervalMaps = new MutableNestedIntervalMaps();
+                mutableNestedIntervalMaps.apply(updates, cacheEntry);
+                return mutableNestedIntervalMaps.freeze(lastSerial);
+            }
+
+            final ImmutableNestedIntervalMap.Builder<Ipv4Resource, Ipv4Entry> ipv4Builder = ipv4Tree.toBuilder();
+            final ImmutableNestedIntervalMap.Builder<Ipv6Resource, Ipv6Entry> ipv6Builder = ipv6Tree.toBuilder();
+            final ImmutableNestedIntervalMap.Builder<Ipv4Resource, SortedSet<Ipv4RouteEntry>> ipv4RouteBuilder = ipv4RouteTree.toBuilder();
+            final ImmutableNestedIntervalMap.Builder<Ipv6Resource, SortedSet<Ipv6RouteEntry>> ipv6RouteBuilder = ipv6RouteTree.toBuilder();
+            final ImmutableNestedIntervalMap.Builder<Ipv4Resource, Ipv4Entry> ipv4DomainBuilder = ipv4DomainTree.toBuilder();
+            final ImmutableNestedIntervalMap.Builder<Ipv6Resource, Ipv6Entry> ipv6DomainBuilder = ipv6DomainTree.toBuilder();
+
+            new NestedIntervalMaps(
+                    ipv4Builder,
+                    ipv6Builder,
+                    MultiValueIntervalMap.copyOnWrite(ipv4RouteBuilder),
+                    MultiValueIntervalMap.copyOnWrite(ipv6RouteBuilder),
+                    ipv4DomainBuilder,
+                    ipv6DomainBuilder).apply(updates, cacheEntry);
+
+            return new SnapshotNestedIntervalMaps(
+                    ipv4Builder.build(),
+                    ipv6Builder.build(),
+                    ipv4RouteBuilder.build(),
+                    ipv6RouteBuilder.build(),
+                    ipv4DomainBuilder.build(),
+                    ipv6DomainBuilder.build(),
+                    lastSerial);
+        }
+
+        @Override
+        NestedIntervalMaps load(final IpTreeSnapshot snapshot) {
+            final MutableNestedIntervalMaps mutableNestedIntervalMaps = new MutableNestedIntervalMaps();
+            mutableNestedIntervalMaps.load(snapshot);
+            return mutableNestedIntervalMaps.freeze(snapshot.getLastSerial());
+        }
+    }
+
+    /**
+     * Unsynchronized trees used to build the initial {@link SnapshotNestedIntervalMaps}, as bulk inserts are done more
+     * efficiently on mutable trees that are frozen afterwards.
+     */
+    private static final class MutableNestedIntervalMaps extends NestedIntervalMaps {
+        private final NestedIntervalMap<Ipv4Resource, Ipv4Entry> ipv4Tree;
+        private final NestedIntervalMap<Ipv6Resource, Ipv6Entry> ipv6Tree;
+        private final NestedIntervalMap<Ipv4Resource, SortedSet<Ipv4RouteEntry>> ipv4RouteTree;
+        private final NestedIntervalMap<Ipv6Resource, SortedSet<Ipv6RouteEntry>> ipv6RouteTree;
+        private final NestedIntervalMap<Ipv4Resource, Ipv4Entry> ipv4DomainTree;
+        private final NestedIntervalMap<Ipv6Resource, Ipv6Entry> ipv6DomainTree;
+
+        MutableNestedIntervalMaps() {
+            this(new NestedIntervalMap<Ipv4Resource, Ipv4Entry>(),
+                    new NestedIntervalMap<Ipv6Resource, Ipv6Entry>(),
+                    new NestedIntervalMap<Ipv4Resource, SortedSet<Ipv4RouteEntry>>(),
+                    new NestedIntervalMap<Ipv6Resource, SortedSet<Ipv6RouteEntry>>(),
+                    new NestedIntervalMap<Ipv4Resource, Ipv4Entry>(),
+                    new NestedIntervalMap<Ipv6Resource, Ipv6Entry>());
+        }
+
+        private MutableNestedIntervalMaps(
+                final NestedIntervalMap<Ipv4Resource, Ipv4Entry> ipv4Tree,
+                final NestedIntervalMap<Ipv6Resource, Ipv6Entry> ipv6Tree,
+                final NestedIntervalMap<Ipv4Resource, SortedSet<Ipv4RouteEntry>> ipv4RouteTree,
+                final NestedIntervalMap<Ipv6Resource, SortedSet<Ipv6RouteEntry>> ipv6RouteTree,
+                final NestedIntervalMap<Ipv4Resource, Ipv4Entry> ipv4DomainTree,
+                final NestedIntervalMap<Ipv6Resource, Ipv6Entry> ipv6DomainTree) {
+            super(ipv4Tree,
+                    ipv6Tree,
+                    new MultiValueIntervalMap<>(ipv4RouteTree),
+                    new MultiValueIntervalMap<>(ipv6RouteTree),
+                    ipv4DomainTree,
+                    ipv6DomainTree);
+            this.ipv4Tree = ipv4Tree;
+            this.ipv6Tree = ipv6Tree;
+            this.ipv4RouteTree = ipv4RouteTree;
+            this.ipv6RouteTree = ipv6RouteTree;
+            this.ipv4DomainTree = ipv4DomainTree;
+            this.ipv6DomainTree = ipv6DomainTree;
+        }
+
+        SnapshotNestedIntervalMaps freeze(final long lastSerial) {
+            return new SnapshotNestedIntervalMaps(
+                    ImmutableNestedIntervalMap.copyOf(ipv4Tree),
+                    ImmutableNestedIntervalMap.copyOf(ipv6Tree),
+                    ImmutableNestedIntervalMap.copyOf(ipv4RouteTree),
+                    ImmutableNestedIntervalMap.copyOf(ipv6RouteTree),
+                    ImmutableNestedIntervalMap.copyOf(ipv4DomainTree),
+                    ImmutableNestedIntervalMap.copyOf(ipv6DomainTree),
+                    lastSerial);
+        }
+    }
+
     private final Map<CIString, CacheEntry> cache = Maps.newHashMap();
 
     void rebuild(final SourceConfiguration sourceConfiguration) {
@@ -191,6 +403,52 @@ public class IpTreeCacheManager {
         cache.put(source, cacheEntry);
     }
 
+    /**
+     * Loads the trees of a source from its on-disk snapshot and catches up from the serial of the snapshot, or
+     * rebuilds the trees from the database if there is no usable snapshot.
+     */
+    void load(final SourceConfiguration sourceConfiguration) {
+        final CIString source = sourceConfiguration.getSource().getName();
+        final JdbcTemplate jdbcTemplate = sourceConfiguration.getJdbcTemplate();
+
+        final IpTreeSnapshot snapshot = snapshotStore.read(source);
+        if (snapshot != null && canCatchUp(jdbcTemplate, snapshot.getLastSerial())) {
+            final CacheEntry cacheEntry = new CacheEntry(sourceConfiguration);
+            try {
+                cacheEntry.nestedIntervalMaps = createNestedIntervalMaps().load(snapshot);
+                update(jdbcTemplate, cacheEntry);
+                cache.put(source, cacheEntry);
+                return;
+            } catch (RuntimeException e) {
+                LOGGER.warn("Unable to load IP tree snapshot of {}, rebuilding: {}", source, e.getMessage());
+            }
+        }
+
+        rebuild(sourceConfiguration);
+    }
+
+    void writeSnapshot(final SourceConfiguration sourceConfiguration) {
+        if (!snapshotStore.isEnabled()) {
+            return;
+        }
+
+        final CIString source = sourceConfiguration.getSource().getName();
+        final CacheEntry cacheEntry = cache.get(source);
+        if (cacheEntry == null) {
+            return;
+        }
+
+        final IpTreeSnapshot snapshot;
+        cacheEntry.updateLock.acquireUninterruptibly();
+        try {
+            snapshot = cacheEntry.nestedIntervalMaps.toSnapshot();
+        } finally {
+            cacheEntry.updateLock.release();
+        }
+
+        snapshotStore.write(source, snapshot);
+    }
+
     public void update(final SourceConfiguration sourceConfiguration) {
         update(sourceConfiguration, sourceConfiguration.getJdbcTemplate());
     }
@@ -273,11 +531,11 @@ public class IpTreeCacheManager {
                     ObjectTypeIds.getId(DOMAIN)
             );
 
-            cacheEntry.nestedIntervalMaps.update(ipTreeUpdates, toInclusive, cacheEntry);
+            cacheEntry.nestedIntervalMaps = cacheEntry.nestedIntervalMaps.update(ipTreeUpdates, toInclusive, cacheEntry);
         }
     }
 
-    Map<SourceConfiguration, Long> getLastSerials() {
+    public Map<SourceConfiguration, Long> getLastSerials() {
         final Map<SourceConfiguration, Long> lastSerials = Maps.newHashMap();
 
         for (final CacheEntry cacheEntry : cache.values()) {
@@ -304,8 +562,12 @@ public class IpTreeCacheManager {
         return cacheEntry.nestedIntervalMaps;
     }
 
+    private NestedIntervalMaps createNestedIntervalMaps() {
+        return snapshotEnabled ? new SnapshotNestedIntervalMaps() : new NestedIntervalMaps();
+    }
+
     private void rebuild(final JdbcTemplate jdbcTemplate, final CacheEntry cacheEntry) {
-        final NestedIntervalMaps nestedIntervalMaps = new NestedIntervalMaps();
+        final NestedIntervalMaps nestedIntervalMaps = createNestedIntervalMaps();
 
         final long toInclusive = getLastSerial(jdbcTemplate);
 
@@ -380,12 +642,23 @@ public class IpTreeCacheManager {
                 }
         ));
 
-        nestedIntervalMaps.update(ipTreeUpdates, toInclusive, cacheEntry);
-
-        cacheEntry.nestedIntervalMaps = nestedIntervalMaps;
+        cacheEntry.nestedIntervalMaps = nestedIntervalMaps.update(ipTreeUpdates, toInclusive, cacheEntry);
     }
 
     private long getLastSerial(final JdbcTemplate jdbcTemplate) {
         return jdbcTemplate.queryForObject("SELECT IFNULL(MAX(serial_id),0) FROM serials", Long.class);
     }
+
+    // the serials after the snapshot must still be available, and the database must not be behind the snapshot
+    private boolean canCatchUp(final JdbcTemplate jdbcTemplate, final long snapshotSerial) {
+        final long firstSerial = jdbcTemplate.queryForObject("SELECT IFNULL(MIN(serial_id),0) FROM serials", Long.class);
+        final long lastSerial = getLastSerial(jdbcTemplate);
+
+        if (snapshotSerial < firstSerial - 1 || snapshotSerial > lastSerial) {
+            LOGGER.info("Ignoring IP tree snapshot at serial {}, database has serials {} to {}", snapshotSerial, firstSerial, lastSerial);
+            return false;
+        }
+
+        return true;
+    }
 }
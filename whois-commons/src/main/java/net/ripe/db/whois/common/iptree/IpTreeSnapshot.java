@@ -0,0 +1,61 @@
+package net.ripe.db.whois.common.iptree;
+
+import java.util.List;
+
+/**
+ * The entries of all trees of a single source, as of the last applied serial.
+ */
+final class IpTreeSnapshot {
+    private final long lastSerial;
+    private final List<Ipv4Entry> ipv4Entries;
+    private final List<Ipv6Entry> ipv6Entries;
+    private final List<Ipv4RouteEntry> ipv4RouteEntries;
+    private final List<Ipv6RouteEntry> ipv6RouteEntries;
+    private final List<Ipv4Entry> ipv4DomainEntries;
+    private final List<Ipv6Entry> ipv6DomainEntries;
+
+    IpTreeSnapshot(
+            final long lastSerial,
+            final List<Ipv4Entry> ipv4Entries,
+            final List<Ipv6Entry> ipv6Entries,
+            final List<Ipv4RouteEntry> ipv4RouteEntries,
+            final List<Ipv6RouteEntry> ipv6RouteEntries,
+            final List<Ipv4Entry> ipv4DomainEntries,
+            final List<Ipv6Entry> ipv6DomainEntries) {
+        this.lastSerial = lastSerial;
+        this.ipv4Entries = ipv4Entries;
+        this.ipv6Entries = ipv6Entries;
+        this.ipv4RouteEntries = ipv4RouteEntries;
+        this.ipv6RouteEntries = ipv6RouteEntries;
+        this.ipv4DomainEntries = ipv4DomainEntries;
+        this.ipv6DomainEntries = ipv6DomainEntries;
+    }
+
+    long getLastSerial() {
+        return lastSerial;
+    }
+
+    List<Ipv4Entry> getIpv4Entries() {
+        return ipv4Entries;
+    }
+
+    List<Ipv6Entry> getIpv6Entries() {
+        return ipv6Entries;
+    }
+
+    List<Ipv4RouteEntry> getIpv4RouteEntries() {
+        return ipv4RouteEntries;
+    }
+
+    List<Ipv6RouteEntry> getIpv6RouteEntries() {
+        return ipv6RouteEntries;
+    }
+
+    List<Ipv4Entry> getIpv4DomainEntries() {
+        return ipv4DomainEntries;
+    }
+
+    List<Ipv6Entry> getIpv6DomainEntries() {
+        return ipv6DomainEntries;
+    }
+}
@@ -0,0 +1,267 @@
+package net.ripe.db.whois.common.iptree;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
+import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.ip.Ipv4Resource;
+import net.ripe.db.whois.common.ip.Ipv6Resource;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.CheckForNull;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Stores the IP trees of each source in a binary file, so they can be loaded on startup instead of being rebuilt from
+ * the database.
+ * <p/>
+ * A file contains the last applied serial and the entries of all six trees, followed by a CRC32 checksum of everything
+ * before it. Files are written next to the target and moved in place, so a reader never sees a partially written file.
+ */
+@Component
+public class IpTreeSnapshotStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(IpTreeSnapshotStore.class);
+
+    private static final int MAGIC = 0x49505452;    // "IPTR"
+    private static final int VERSION = 1;
+    private static final String EXTENSION = ".iptree";
+
+    private final String snapshotDir;
+
+    @Autowired
+    public IpTreeSnapshotStore(@Value("${dir.iptree.snapshot:}") final String snapshotDir) {
+        this.snapshotDir = snapshotDir;
+    }
+
+    public boolean isEnabled() {
+        return StringUtils.isNotBlank(snapshotDir);
+    }
+
+    /**
+     * @return the snapshot of the given source, or null if there is none, or if it cannot be read.
+     */
+    @CheckForNull
+    IpTreeSnapshot read(final CIString source) {
+        if (!isEnabled()) {
+            return null;
+        }
+
+        final Path path = getPath(source);
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final Stopwatch stopwatch = Stopwatch.createStarted();
+            final IpTreeSnapshot snapshot = read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            LOGGER.info("Read IP tree snapshot {} at serial {} in {}", path, snapshot.getLastSerial(), stopwatch);
+            return snapshot;
+        } catch (NoSuchFileException e) {
+            LOGGER.info("No IP tree snapshot {}", path);
+            return null;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Ignoring IP tree snapshot {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    void write(final CIString source, final IpTreeSnapshot snapshot) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        final Path path = getPath(source);
+        final Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(path.getParent());
+
+            final Stopwatch stopwatch = Stopwatch.createStarted();
+            try (final FileOutputStream fileOutputStream = new FileOutputStream(tempPath.toFile())) {
+                final CRC32 checksum = new CRC32();
+                final DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(fileOutputStream), checksum));
+                write(out, snapshot);
+                out.writeLong(checksum.getValue());
+                out.flush();
+                fileOutputStream.getChannel().force(true);
+            }
+
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            LOGGER.info("Wrote IP tree snapshot {} at serial {} in {}", path, snapshot.getLastSerial(), stopwatch);
+        } catch (IOException e) {
+            LOGGER.warn("Unable to write IP tree snapshot {}: {}", path, e.getMessage());
+            try {
+                Files.deleteIfExists(tempPath);
+            } catch (IOException ignored) {
+                LOGGER.debug("Unable to delete {}", tempPath);
+            }
+        }
+    }
+
+    private Path getPath(final CIString source) {
+        return Paths.get(snapshotDir, source.toUpperCase() + EXTENSION);
+    }
+
+    private static void write(final DataOutputStream out, final IpTreeSnapshot snapshot) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(snapshot.getLastSerial());
+
+        writeIpv4Entries(out, snapshot.getIpv4Entries());
+        writeIpv6Entries(out, snapshot.getIpv6Entries());
+
+        out.writeInt(snapshot.getIpv4RouteEntries().size());
+        for (final Ipv4RouteEntry entry : snapshot.getIpv4RouteEntries()) {
+            writeIpv4Resource(out, entry.getKey());
+            out.writeInt(entry.getObjectId());
+            writeOrigin(out, entry.getOrigin());
+        }
+
+        out.writeInt(snapshot.getIpv6RouteEntries().size());
+        for (final Ipv6RouteEntry entry : snapshot.getIpv6RouteEntries()) {
+            writeIpv6Resource(out, entry.getKey());
+            out.writeInt(entry.getObjectId());
+            writeOrigin(out, entry.getOrigin());
+        }
+
+        writeIpv4Entries(out, snapshot.getIpv4DomainEntries());
+        writeIpv6Entries(out, snapshot.getIpv6DomainEntries());
+    }
+
+    private static void writeIpv4Entries(final DataOutputStream out, final List<Ipv4Entry> entries) throws IOException {
+        out.writeInt(entries.size());
+        for (final Ipv4Entry entry : entries) {
+            writeIpv4Resource(out, entry.getKey());
+            out.writeInt(entry.getObjectId());
+        }
+    }
+
+    private static void writeIpv6Entries(final DataOutputStream out, final List<Ipv6Entry> entries) throws IOException {
+        out.writeInt(entries.size());
+        for (final Ipv6Entry entry : entries) {
+            writeIpv6Resource(out, entry.getKey());
+            out.writeInt(entry.getObjectId());
+        }
+    }
+
+    private static void writeIpv4Resource(final DataOutputStream out, final Ipv4Resource resource) throws IOException {
+        out.writeInt((int) resource.begin());
+        out.writeInt((int) resource.end());
+    }
+
+    private static void writeIpv6Resource(final DataOutputStream out, final Ipv6Resource resource) throws IOException {
+        out.writeLong(resource.beginMsb());
+        out.writeLong(resource.beginLsb());
+        out.writeLong(resource.endMsb());
+        out.writeLong(resource.endLsb());
+    }
+
+    private static void writeOrigin(final DataOutputStream out, final String origin) throws IOException {
+        final byte[] bytes = origin.getBytes(Charsets.US_ASCII);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static IpTreeSnapshot read(final MappedByteBuffer buffer) {
+        final int checksumOffset = buffer.limit() - 8;
+        if (checksumOffset < 16) {
+            throw new IllegalStateException("Truncated file");
+        }
+
+        final CRC32 checksum = new CRC32();
+        final ByteBuffer payload = buffer.duplicate();
+        payload.limit(checksumOffset);
+        checksum.update(payload);
+        if (checksum.getValue() != buffer.getLong(checksumOffset)) {
+            throw new IllegalStateException("Checksum mismatch");
+        }
+
+        buffer.limit(checksumOffset);
+        if (buffer.getInt() != MAGIC) {
+            throw new IllegalStateException("Not an IP tree snapshot");
+        }
+
+        final int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IllegalStateException("Unsupported version " + version);
+        }
+
+        final long lastSerial = buffer.getLong();
+        final List<Ipv4Entry> ipv4Entries = readIpv4Entries(buffer);
+        final List<Ipv6Entry> ipv6Entries = readIpv6Entries(buffer);
+
+        final int ipv4RouteCount = buffer.getInt();
+        final List<Ipv4RouteEntry> ipv4RouteEntries = Lists.newArrayListWithCapacity(ipv4RouteCount);
+        for (int i = 0; i < ipv4RouteCount; i++) {
+            ipv4RouteEntries.add(new Ipv4RouteEntry(readIpv4Resource(buffer), buffer.getInt(), readOrigin(buffer)));
+        }
+
+        final int ipv6RouteCount = buffer.getInt();
+        final List<Ipv6RouteEntry> ipv6RouteEntries = Lists.newArrayListWithCapacity(ipv6RouteCount);
+        for (int i = 0; i < ipv6RouteCount; i++) {
+            ipv6RouteEntries.add(new Ipv6RouteEntry(readIpv6Resource(buffer), buffer.getInt(), readOrigin(buffer)));
+        }
+
+        final List<Ipv4Entry> ipv4DomainEntries = readIpv4Entries(buffer);
+        final List<Ipv6Entry> ipv6DomainEntries = readIpv6Entries(buffer);
+
+        if (buffer.hasRemaining()) {
+            throw new IllegalStateException("Unexpected data after entries");
+        }
+
+        return new IpTreeSnapshot(lastSerial, ipv4Entries, ipv6Entries, ipv4RouteEntries, ipv6RouteEntries, ipv4DomainEntries, ipv6DomainEntries);
+    }
+
+    private static List<Ipv4Entry> readIpv4Entries(final ByteBuffer buffer) {
+        final int count = buffer.getInt();
+        final List<Ipv4Entry> entries = Lists.newArrayListWithCapacity(count);
+        for (int i = 0; i < count; i++) {
+            entries.add(new Ipv4Entry(readIpv4Resource(buffer), buffer.getInt()));
+        }
+        return entries;
+    }
+
+    private static List<Ipv6Entry> readIpv6Entries(final ByteBuffer buffer) {
+        final int count = buffer.getInt();
+        final List<Ipv6Entry> entries = Lists.newArrayListWithCapacity(count);
+        for (int i = 0; i < count; i++) {
+            entries.add(new Ipv6Entry(readIpv6Resource(buffer), buffer.getInt()));
+        }
+        return entries;
+    }
+
+    private static Ipv4Resource readIpv4Resource(final ByteBuffer buffer) {
+        final long begin = Integer.toUnsignedLong(buffer.getInt());
+        final long end = Integer.toUnsignedLong(buffer.getInt());
+        return new Ipv4Resource(begin, end);
+    }
+
+    private static Ipv6Resource readIpv6Resource(final ByteBuffer buffer) {
+        final long beginMsb = buffer.getLong();
+        final long beginLsb = buffer.getLong();
+        final long endMsb = buffer.getLong();
+        final long endLsb = buffer.getLong();
+        return new Ipv6Resource(beginMsb, beginLsb, endMsb, endLsb);
+    }
+
+    private static String readOrigin(final ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, Charsets.US_ASCII);
+    }
+}
@@ -90,7 +90,7 @@ public class IpTreeUpdater {
             }
         });
 
-        rebuild();
+        load();
     }
 
     @PreDestroy
@@ -98,6 +98,20 @@ public class IpTreeUpdater {
         executorService.shutdownNow();
     }
 
+    private void load() {
+        LOGGER.info("Loading IP trees");
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+
+        invokeAll(sourceConfigurationsForRebuild, new OperationCallback() {
+            @Override
+            public void execute(final SourceConfiguration sourceConfiguration) {
+                ipTreeCacheManager.load(sourceConfiguration);
+            }
+        });
+
+        LOGGER.info("Finished loading IP trees in {}", stopwatch);
+    }
+
     public void rebuild() {
         LOGGER.info("Building IP trees");
         final Stopwatch stopwatch = Stopwatch.createStarted();
@@ -136,6 +150,17 @@ public class IpTreeUpdater {
         });
     }
 
+    @Scheduled(fixedDelayString = "${iptree.snapshot.write.interval.msecs:3600000}")
+    public void writeSnapshots() {
+        for (final SourceConfiguration sourceConfiguration : sourceConfigurationsForRebuild) {
+            try {
+                ipTreeCacheManager.writeSnapshot(sourceConfiguration);
+            } catch (RuntimeException e) {
+                LOGGER.error("Unable to write IP tree snapshot of {}", sourceConfiguration, e);
+            }
+        }
+    }
+
     public void updateTransactional() {
         ipTreeCacheManager.updateTransactional(sourceContext.getCurrentSourceConfiguration());
     }
@@ -0,0 +1,128 @@
+package net.ripe.db.whois.common.iptree;
+
+import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.source.SourceConfiguration;
+import net.ripe.db.whois.common.source.SourceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cache of the main source that follows the serials, once the IP trees have been updated past them.
+ * <p/>
+ * Every update passes the serials since the previous update to {@link #invalidate(JdbcTemplate, long, long)}, to
+ * invalidate the entries depending on the changed objects. The cache is cleared on the first update, and when the
+ * serials went backwards, e.g. because the database was restored.
+ */
+public abstract class SerialFollowingCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SerialFollowingCache.class);
+
+    private static final int UPDATE_IN_SECONDS = 10;
+    private static final long NOT_INITIALISED = -1;
+
+    private final IpTreeCacheManager ipTreeCacheManager;
+    private final SourceContext sourceContext;
+    private final String name;
+    private final boolean enabled;
+
+    private volatile long lastSerial = NOT_INITIALISED;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    protected SerialFollowingCache(final IpTreeCacheManager ipTreeCacheManager,
+                                   final SourceContext sourceContext,
+                                   final String name,
+                                   final boolean enabled) {
+        this.ipTreeCacheManager = ipTreeCacheManager;
+        this.sourceContext = sourceContext;
+        this.name = name;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return true once the cache follows the serials.
+     */
+    protected boolean isInitialised() {
+        return lastSerial != NOT_INITIALISED;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    @Scheduled(fixedDelay = UPDATE_IN_SECONDS * 1000)
+    public void update() {
+        if (!enabled) {
+            return;
+        }
+
+        final CIString mainSource = sourceContext.getWhoisSlaveSource().getName();
+        for (final Map.Entry<SourceConfiguration, Long> entry : ipTreeCacheManager.getLastSerials().entrySet()) {
+            if (entry.getKey().getSource().getName().equals(mainSource)) {
+                update(entry.getKey().getJdbcTemplate(), entry.getValue());
+            }
+        }
+    }
+
+    private void update(final JdbcTemplate jdbcTemplate, final long toInclusive) {
+        final long fromExclusive = lastSerial;
+        if (toInclusive < 0 || toInclusive == fromExclusive) {
+            return;
+        }
+
+        if (fromExclusive == NOT_INITIALISED || toInclusive < fromExclusive) {
+            LOGGER.info("Clearing {} cache at serial {}", name, toInclusive);
+            clear();
+        } else {
+            invalidate(jdbcTemplate, fromExclusive, toInclusive);
+        }
+
+        lastSerial = toInclusive;
+    }
+
+    /**
+     * Invalidate the entries depending on the objects changed by the serials in the given range.
+     */
+    protected abstract void invalidate(JdbcTemplate jdbcTemplate, long fromExclusive, long toInclusive);
+
+    public abstract void clear();
+
+    public abstract long getSize();
+
+    /**
+     * Called when a lookup was answered from the cache.
+     */
+    public void recordHit() {
+        hits.incrementAndGet();
+    }
+
+    /**
+     * Called when a lookup was not answered from the cache.
+     */
+    public void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public double getHitRate() {
+        final long hits = this.hits.get();
+        final long total = hits + misses.get();
+        return (total == 0) ? 1.0 : (double) hits / total;
+    }
+}
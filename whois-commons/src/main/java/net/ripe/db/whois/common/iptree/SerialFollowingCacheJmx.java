@@ -0,0 +1,52 @@
+package net.ripe.db.whois.common.iptree;
+
+import net.ripe.db.whois.common.jmx.JmxBase;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+
+import java.util.concurrent.Callable;
+
+/**
+ * The statistics and operations common to the JMX beans of {@link SerialFollowingCache}s.
+ */
+public abstract class SerialFollowingCacheJmx extends JmxBase {
+    private final SerialFollowingCache cache;
+
+    protected SerialFollowingCacheJmx(final Logger logger, final SerialFollowingCache cache) {
+        super(logger);
+        this.cache = cache;
+    }
+
+    @ManagedAttribute(description = "Number of lookups answered from the cache")
+    public long getHits() {
+        return cache.getHits();
+    }
+
+    @ManagedAttribute(description = "Number of lookups not answered from the cache")
+    public long getMisses() {
+        return cache.getMisses();
+    }
+
+    @ManagedAttribute(description = "Fraction of lookups answered from the cache")
+    public double getHitRate() {
+        return cache.getHitRate();
+    }
+
+    @ManagedAttribute(description = "Number of entries in the cache")
+    public long getSize() {
+        return cache.getSize();
+    }
+
+    @ManagedOperation(description = "Clear the cache")
+    public String clear() {
+        return invokeOperation("Clear " + cache.getName() + " cache", "", new Callable<String>() {
+            @Override
+            public String call() {
+                cache.clear();
+                return StringUtils.capitalize(cache.getName()) + " cache cleared";
+            }
+        });
+    }
+}
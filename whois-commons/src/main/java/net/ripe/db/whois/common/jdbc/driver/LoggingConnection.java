@@ -0,0 +1,327 @@
+package net.ripe.db.whois.common.jdbc.driver;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.NClob;
+import java.sql.PreparedStatement;
+import java.sql.SQLClientInfoException;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Struct;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+
+/**
+ * Delegates to the target connection. Statements are only wrapped for logging if the logging handler is logging
+ * for the current thread when they are created, otherwise the statements of the target connection are returned as-is.
+ */
+class LoggingConnection implements Connection {
+    private final Connection target;
+    private final LoggingHandler loggingHandler;
+
+    LoggingConnection(final Connection target, final LoggingHandler loggingHandler) {
+        this.target = target;
+        this.loggingHandler = loggingHandler;
+    }
+
+    private Statement wrap(final Statement statement) {
+        if (!loggingHandler.isLogging()) {
+            return statement;
+        }
+
+        final InvocationHandler invocationHandler = new StatementInvocationHandler(loggingHandler, statement);
+        return (Statement) Proxy.newProxyInstance(target.getClass().getClassLoader(), new Class<?>[]{Statement.class}, invocationHandler);
+    }
+
+    private PreparedStatement wrap(final PreparedStatement preparedStatement, final String sql) {
+        if (!loggingHandler.isLogging()) {
+            return preparedStatement;
+        }
+
+        final InvocationHandler invocationHandler = new PreparedStatementInvocationHandler(loggingHandler, preparedStatement, sql);
+        return (PreparedStatement) Proxy.newProxyInstance(target.getClass().getClassLoader(), new Class<?>[]{PreparedStatement.class}, invocationHandler);
+    }
+
+    @Override
+    public Statement createStatement() throws SQLException {
+        return wrap(target.createStatement());
+    }
+
+    @Override
+    public Statement createStatement(final int resultSetType, final int resultSetConcurrency) throws SQLException {
+        return wrap(target.createStatement(resultSetType, resultSetConcurrency));
+    }
+
+    @Override
+    public Statement createStatement(final int resultSetType, final int resultSetConcurrency, final int resultSetHoldability) throws SQLException {
+        return wrap(target.createStatement(resultSetType, resultSetConcurrency, resultSetHoldability));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(final String sql) throws SQLException {
+        return wrap(target.prepareStatement(sql), sql);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(final String sql, final int resultSetType, final int resultSetConcurrency) throws SQLException {
+        return wrap(target.prepareStatement(sql, resultSetType, resultSetConcurrency), sql);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(final String sql, final int resultSetType, final int resultSetConcurrency, final int resultSetHoldability) throws SQLException {
+        return wrap(target.prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability), sql);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(final String sql, final int autoGeneratedKeys) throws SQLException {
+        return wrap(target.prepareStatement(sql, autoGeneratedKeys), sql);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(final String sql, final int[] columnIndexes) throws SQLException {
+        return wrap(target.prepareStatement(sql, columnIndexes), sql);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(final String sql, final String[] columnNames) throws SQLException {
+        return wrap(target.prepareStatement(sql, columnNames), sql);
+    }
+
+    @Override
+    public CallableStatement prepareCall(final String sql) throws SQLException {
+        return target.prepareCall(sql);
+    }
+
+    @Override
+    public CallableStatement prepareCall(final String sql, final int resultSetType, final int resultSetConcurrency) throws SQLException {
+        return target.prepareCall(sql, resultSetType, resultSetConcurrency);
+    }
+
+    @Override
+    public CallableStatement prepareCall(final String sql, final int resultSetType, final int resultSetConcurrency, final int resultSetHoldability) throws SQLException {
+        return target.prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+    }
+
+    @Override
+    public String nativeSQL(final String sql) throws SQLException {
+        return target.nativeSQL(sql);
+    }
+
+    @Override
+    public void setAutoCommit(final boolean autoCommit) throws SQLException {
+        target.setAutoCommit(autoCommit);
+    }
+
+    @Override
+    public boolean getAutoCommit() throws SQLException {
+        return target.getAutoCommit();
+    }
+
+    @Override
+    public void commit() throws SQLException {
+        target.commit();
+    }
+
+    @Override
+    public void rollback() throws SQLException {
+        target.rollback();
+    }
+
+    @Override
+    public void rollback(final Savepoint savepoint) throws SQLException {
+        target.rollback(savepoint);
+    }
+
+    @Override
+    public void close() throws SQLException {
+        target.close();
+    }
+
+    @Override
+    public boolean isClosed() throws SQLException {
+        return target.isClosed();
+    }
+
+    @Override
+    public DatabaseMetaData getMetaData() throws SQLException {
+        return target.getMetaData();
+    }
+
+    @Override
+    public void setReadOnly(final boolean readOnly) throws SQLException {
+        target.setReadOnly(readOnly);
+    }
+
+    @Override
+    public boolean isReadOnly() throws SQLException {
+        return target.isReadOnly();
+    }
+
+    @Override
+    public void setCatalog(final String catalog) throws SQLException {
+        target.setCatalog(catalog);
+    }
+
+    @Override
+    public String getCatalog() throws SQLException {
+        return target.getCatalog();
+    }
+
+    @Override
+    public void setTransactionIsolation(final int level) throws SQLException {
+        target.setTransactionIsolation(level);
+    }
+
+    @Override
+    public int getTransactionIsolation() throws SQLException {
+        return target.getTransactionIsolation();
+    }
+
+    @Override
+    public SQLWarning getWarnings() throws SQLException {
+        return target.getWarnings();
+    }
+
+    @Override
+    public void clearWarnings() throws SQLException {
+        target.clearWarnings();
+    }
+
+    @Override
+    public Map<String, Class<?>> getTypeMap() throws SQLException {
+        return target.getTypeMap();
+    }
+
+    @Override
+    public void setTypeMap(final Map<String, Class<?>> map) throws SQLException {
+        target.setTypeMap(map);
+    }
+
+    @Override
+    public void setHoldability(final int holdability) throws SQLException {
+        target.setHoldability(holdability);
+    }
+
+    @Override
+    public int getHoldability() throws SQLException {
+        return target.getHoldability();
+    }
+
+    @Override
+    public Savepoint setSavepoint() throws SQLException {
+        return target.setSavepoint();
+    }
+
+    @Override
+    public Savepoint setSavepoint(final String name) throws SQLException {
+        return target.setSavepoint(name);
+    }
+
+    @Override
+    public void releaseSavepoint(final Savepoint savepoint) throws SQLException {
+        target.releaseSavepoint(savepoint);
+    }
+
+    @Override
+    public Clob createClob() throws SQLException {
+        return target.createClob();
+    }
+
+    @Override
+    public Blob createBlob() throws SQLException {
+        return target.createBlob();
+    }
+
+    @Override
+    public NClob createNClob() throws SQLException {
+        return target.createNClob();
+    }
+
+    @Override
+    public SQLXML createSQLXML() throws SQLException {
+        return target.createSQLXML();
+    }
+
+    @Override
+    public boolean isValid(final int timeout) throws SQLException {
+        return target.isValid(timeout);
+    }
+
+    @Override
+    public void setClientInfo(final String name, final String value) throws SQLClientInfoException {
+        target.setClientInfo(name, value);
+    }
+
+    @Override
+    public void setClientInfo(final Properties properties) throws SQLClientInfoException {
+        target.setClientInfo(properties);
+    }
+
+    @Override
+    public String getClientInfo(final String name) throws SQLException {
+        return target.getClientInfo(name);
+    }
+
+    @Override
+    public Properties getClientInfo() throws SQLException {
+        return target.getClientInfo();
+    }
+
+    @Override
+    public Array createArrayOf(final String typeName, final Object[] elements) throws SQLException {
+        return target.createArrayOf(typeName, elements);
+    }
+
+    @Override
+    public Struct createStruct(final String typeName, final Object[] attributes) throws SQLException {
+        return target.createStruct(typeName, attributes);
+    }
+
+    @Override
+    public void setSchema(final String schema) throws SQLException {
+        target.setSchema(schema);
+    }
+
+    @Override
+    public String getSchema() throws SQLException {
+        return target.getSchema();
+    }
+
+    @Override
+    public void abort(final Executor executor) throws SQLException {
+        target.abort(executor);
+    }
+
+    @Override
+    public void setNetworkTimeout(final Executor executor, final int milliseconds) throws SQLException {
+        target.setNetworkTimeout(executor, milliseconds);
+    }
+
+    @Override
+    public int getNetworkTimeout() throws SQLException {
+        return target.getNetworkTimeout();
+    }
+
+    @Override
+    public <T> T unwrap(final Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return target.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(final Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || target.isWrapperFor(iface);
+    }
+}
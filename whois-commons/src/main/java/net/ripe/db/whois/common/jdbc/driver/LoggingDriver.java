@@ -8,7 +8,6 @@ import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
-import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.Driver;
 import java.sql.DriverManager;
@@ -74,12 +73,15 @@ public class LoggingDriver implements Driver {
             return null;
         }
 
-        // TODO: [AH] don't create proxies if no logginghandler defined (ergo no logging is going to take place)
         final Target target = getTarget(url);
         final Connection connection = DriverManager.getConnection(target.getUrl(), info);
-        final ConnectionInvocationHandler invocationHandler = new ConnectionInvocationHandler(connection, target.getLoggingHandler());
 
-        return (Connection) Proxy.newProxyInstance(connection.getClass().getClassLoader(), new Class<?>[]{Connection.class}, invocationHandler);
+        // no logging is going to take place without a logging handler
+        if (target.getLoggingHandler() == null) {
+            return connection;
+        }
+
+        return new LoggingConnection(connection, target.getLoggingHandler());
     }
 
     private Target getTarget(final String url) {
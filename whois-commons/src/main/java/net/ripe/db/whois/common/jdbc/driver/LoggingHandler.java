@@ -1,5 +1,10 @@
 package net.ripe.db.whois.common.jdbc.driver;
 
 public interface LoggingHandler {
+    /**
+     * @return true if statements executed by the current thread are logged.
+     */
+    boolean isLogging();
+
     void log(StatementInfo statementInfo, ResultInfo resultInfo);
 }
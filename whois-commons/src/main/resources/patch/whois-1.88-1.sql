@@ -0,0 +1,5 @@
+-- update locks for keys, hashed onto rows 1 to 1024 (row 0 is the global update lock)
+INSERT INTO update_lock (global_lock) SELECT 1 + a.n + 4 * b.n + 16 * c.n + 64 * d.n + 256 * e.n FROM (SELECT 0 AS n UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3) a, (SELECT 0 AS n UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3) b, (SELECT 0 AS n UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3) c, (SELECT 0 AS n UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3) d, (SELECT 0 AS n UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3) e;
+
+TRUNCATE version;
+INSERT INTO version VALUES ('whois-1.88-1');
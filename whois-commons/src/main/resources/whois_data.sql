@@ -1,3 +1,4 @@
 INSERT INTO x509 (keycert_id) VALUES (0);
 INSERT INTO update_lock VALUES (0);
+INSERT INTO update_lock (global_lock) SELECT 1 + a.n + 4 * b.n + 16 * c.n + 64 * d.n + 256 * e.n FROM (SELECT 0 AS n UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3) a, (SELECT 0 AS n UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3) b, (SELECT 0 AS n UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3) c, (SELECT 0 AS n UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3) d, (SELECT 0 AS n UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3) e;
 INSERT INTO transfer_update_lock VALUES (0);
@@ -85,6 +85,7 @@ public class DatabaseHelper implements EmbeddedValueResolverAware {
 
     RpslObjectDao rpslObjectDao;
     RpslObjectUpdateDao rpslObjectUpdateDao;
+    RpslObjectCache rpslObjectCache;
     CrowdClient crowdClient;
     private StringValueResolver valueResolver;
 
@@ -140,6 +141,11 @@ public class DatabaseHelper implements EmbeddedValueResolverAware {
         this.rpslObjectUpdateDao = rpslObjectUpdateDao;
     }
 
+    @Autowired(required = false)
+    public void setRpslObjectCache(RpslObjectCache rpslObjectCache) {
+        this.rpslObjectCache = rpslObjectCache;
+    }
+
     @Override
     public void setEmbeddedValueResolver(final StringValueResolver valueResolver) {
         this.valueResolver = valueResolver;
@@ -283,6 +289,11 @@ public class DatabaseHelper implements EmbeddedValueResolverAware {
     public void setupWhoisDatabase(JdbcTemplate jdbcTemplate) {
         truncateTables(jdbcTemplate);
         loadScripts(jdbcTemplate, "whois_data.sql");
+
+        // object ids are reused after truncating
+        if (rpslObjectCache != null) {
+            rpslObjectCache.clear();
+        }
     }
 
     public void setupAclDatabase() {
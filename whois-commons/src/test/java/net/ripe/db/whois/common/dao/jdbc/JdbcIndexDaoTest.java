@@ -0,0 +1,96 @@
+package net.ripe.db.whois.common.dao.jdbc;
+
+import net.ripe.db.whois.common.dao.UpdateLockDao;
+import net.ripe.db.whois.common.rpsl.AttributeSanitizer;
+import net.ripe.db.whois.common.rpsl.AttributeType;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.common.support.AbstractDaoTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class JdbcIndexDaoTest extends AbstractDaoTest {
+    private static final int NR_OBJECTS = 500;
+
+    @Autowired UpdateLockDao updateLockDao;
+    @Autowired AttributeSanitizer attributeSanitizer;
+    @Autowired RpslObjectCache rpslObjectCache;
+
+    private JdbcIndexDao subject;
+
+    @Before
+    public void setup() {
+        sourceContext.setCurrentSourceToWhoisMaster();
+        subject = new JdbcIndexDao(sourceAwareDataSource, updateLockDao, attributeSanitizer, rpslObjectCache, 4);
+
+        databaseHelper.addObject("person: Test Person\nnic-hdl: TP1-TEST");
+        for (int i = 1; i <= NR_OBJECTS; i++) {
+            databaseHelper.addObject(mntner(i, ""));
+        }
+    }
+
+    @After
+    public void cleanup() {
+        sourceContext.removeCurrentSource();
+    }
+
+    @Test
+    public void rebuild_in_parallel() {
+        whoisTemplate.update("DELETE FROM mntner");
+        whoisTemplate.update("DELETE FROM admin_c");
+        whoisTemplate.update("DELETE FROM mnt_by");
+
+        subject.rebuild();
+
+        for (int i = 1; i <= NR_OBJECTS; i++) {
+            assertThat(rpslObjectDao.findByKey(ObjectType.MNTNER, "TEST" + i + "-MNT").getKey().toString(), is("TEST" + i + "-MNT"));
+        }
+        assertThat(rpslObjectDao.findByAttribute(AttributeType.ADMIN_C, "TP1-TEST"), hasSize(NR_OBJECTS));
+        assertThat(whoisTemplate.queryForObject("SELECT count(*) FROM mnt_by", Integer.class), is(NR_OBJECTS));
+    }
+
+    @Test
+    public void rebuild_in_parallel_with_concurrent_updates() throws Exception {
+        whoisTemplate.update("DELETE FROM mnt_by");
+
+        final ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            final Future<?> rebuild = executorService.submit(() -> subject.rebuild());
+
+            // the rebuild does not take the update lock for its batches, so updates are not blocked for long
+            for (int i = 1; i <= NR_OBJECTS; i += 5) {
+                databaseHelper.updateObject(mntner(i, "mnt-by: TEST1-MNT\n"));
+            }
+
+            rebuild.get(60, TimeUnit.SECONDS);
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        for (int i = 1; i <= NR_OBJECTS; i++) {
+            final RpslObject object = rpslObjectDao.getByKey(ObjectType.MNTNER, "TEST" + i + "-MNT");
+            final int mntBy = object.getValuesForAttribute(AttributeType.MNT_BY).size();
+            assertThat(object.getKey().toString(), whoisTemplate.queryForObject("SELECT count(*) FROM mnt_by WHERE object_id = ?", Integer.class, object.getObjectId()), is(mntBy));
+        }
+    }
+
+    private static RpslObject mntner(final int i, final String extra) {
+        return RpslObject.parse("" +
+                "mntner:  TEST" + i + "-MNT\n" +
+                "admin-c: TP1-TEST\n" +
+                "mnt-by:  TEST" + i + "-MNT\n" +
+                extra +
+                "source:  TEST");
+    }
+}
@@ -1,8 +1,10 @@
 package net.ripe.db.whois.common.dao.jdbc;
 
+import com.google.common.collect.Lists;
 import net.ripe.db.whois.common.dao.RpslObjectDao;
 import net.ripe.db.whois.common.dao.RpslObjectInfo;
 import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.rpsl.AttributeType;
 import net.ripe.db.whois.common.rpsl.ObjectType;
 import net.ripe.db.whois.common.rpsl.RpslObject;
 import net.ripe.db.whois.common.source.Source;
@@ -20,6 +22,7 @@ import java.util.Collections;
 import java.util.List;
 
 import static net.ripe.db.whois.common.domain.CIString.ciSet;
+import static net.ripe.db.whois.common.domain.CIString.ciString;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
@@ -387,6 +390,26 @@ public class JdbcRpslObjectDaoTest extends AbstractDaoTest {
         assertThat(byKeys, hasSize(0));
     }
 
+    @Test
+    public void getByKeys_in_requested_order() {
+        final RpslObject mntner1 = databaseHelper.addObject("mntner: TEST1-MNT");
+        final RpslObject mntner2 = databaseHelper.addObject("mntner: TEST2-MNT");
+        final RpslObject mntner3 = databaseHelper.addObject("mntner: TEST3-MNT");
+
+        final List<RpslObject> byKeys = subject.getByKeys(ObjectType.MNTNER, Lists.newArrayList(
+                ciString("test3-mnt"), ciString("UNKNOWN-MNT"), ciString("TEST1-MNT"), ciString("TEST2-MNT")));
+        assertThat(byKeys, contains(mntner3, mntner1, mntner2));
+    }
+
+    @Test
+    public void getByKeys_with_type() {
+        final RpslObject person = databaseHelper.addObject("person: Test Person\nnic-hdl: TP1-TEST");
+        databaseHelper.addObject("role: Test Role\nnic-hdl: TR1-TEST");
+
+        final List<RpslObject> byKeys = subject.getByKeys(ObjectType.PERSON, ciSet("TR1-TEST", "TP1-TEST"));
+        assertThat(byKeys, contains(person));
+    }
+
     @Test
     public void getById() {
         final RpslObject rpslObject = RpslObject.parse("" +
@@ -400,4 +423,14 @@ public class JdbcRpslObjectDaoTest extends AbstractDaoTest {
         assertThat(object, is(rpslObject));
     }
 
+    @Test
+    public void getById_after_update() {
+        final RpslObject created = databaseHelper.addObject("mntner: TEST-MNT\ndescr: first\nsource: TEST");
+        assertThat(subject.getById(created.getObjectId()).getValueForAttribute(AttributeType.DESCR), is(ciString("first")));
+
+        databaseHelper.updateObject("mntner: TEST-MNT\ndescr: second\nsource: TEST");
+
+        assertThat(subject.getById(created.getObjectId()).getValueForAttribute(AttributeType.DESCR), is(ciString("second")));
+        assertThat(subject.getByKeys(ObjectType.MNTNER, ciSet("TEST-MNT")).get(0).getValueForAttribute(AttributeType.DESCR), is(ciString("second")));
+    }
 }
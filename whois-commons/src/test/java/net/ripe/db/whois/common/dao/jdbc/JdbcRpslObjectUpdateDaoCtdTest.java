@@ -1,6 +1,7 @@
 package net.ripe.db.whois.common.dao.jdbc;
 
 
+import net.ripe.db.whois.common.dao.ReferenceGraph;
 import net.ripe.db.whois.common.dao.RpslObjectInfo;
 import net.ripe.db.whois.common.dao.RpslObjectUpdateDao;
 import net.ripe.db.whois.common.dao.RpslObjectUpdateInfo;
@@ -134,4 +135,39 @@ public class JdbcRpslObjectUpdateDaoCtdTest extends AbstractDaoTest {
         assertThat(roleReferences.size(), is(0));
     }
 
+    @Test
+    public void getReferenceGraph() {
+        final RpslObject person = createObject("person: Test Person\nnic-hdl: TP1-TEST");
+        createObject("role: Test Role\nnic-hdl: TR1-TEST\nadmin-c: TP1-TEST\nabuse-mailbox:abuse@ripe.net");
+        createObject("organisation: ORG-TEST\nabuse-c: TR1-TEST");
+
+        final ReferenceGraph referenceGraph = subject.getReferenceGraph(person, 2, 10);
+
+        final Set<RpslObjectInfo> personReferences = referenceGraph.getIncoming(person.getObjectId());
+        assertThat(personReferences, hasSize(1));
+        final RpslObjectInfo role = personReferences.iterator().next();
+        assertThat(role.getKey(), is("TR1-TEST"));
+        assertThat(referenceGraph.getObject(role.getObjectId()).getKey(), is(ciString("TR1-TEST")));
+
+        final Set<RpslObjectInfo> roleReferences = referenceGraph.getIncoming(role.getObjectId());
+        assertThat(roleReferences, hasSize(1));
+        assertThat(roleReferences.iterator().next().getKey(), is("ORG-TEST"));
+        assertThat(referenceGraph.isTruncated(), is(false));
+    }
+
+    @Test
+    public void getReferenceGraph_too_many_references() {
+        final RpslObject person = createObject("person: Test Person\nnic-hdl: TP1-TEST");
+        createObject("role: Test Role\nnic-hdl: TR1-TEST\nadmin-c: TP1-TEST\nabuse-mailbox:abuse@ripe.net");
+        createObject("organisation: ORG-TEST\nabuse-c: TR1-TEST");
+
+        final ReferenceGraph referenceGraph = subject.getReferenceGraph(person, 2, 1);
+
+        assertThat(referenceGraph.isTruncated(), is(true));
+    }
+
+    private RpslObject createObject(final String object) {
+        final RpslObject rpslObject = RpslObject.parse(object);
+        return new RpslObject(subject.createObject(rpslObject).getObjectId(), rpslObject);
+    }
 }
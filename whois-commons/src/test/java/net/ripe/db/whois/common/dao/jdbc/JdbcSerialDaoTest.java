@@ -15,6 +15,9 @@ import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
@@ -139,6 +142,60 @@ public class JdbcSerialDaoTest extends AbstractDaoTest {
         assertThat(subject.getByIdForNrtm(3).getRpslObject(), is(object3));
     }
 
+    @Test
+    public void getSerialEntriesForNrtm_range() {
+        final RpslObject object1 = databaseHelper.addObject("aut-num: AS1\ndescr: first");
+        final RpslObject object2 = databaseHelper.updateObject("aut-num: AS1\ndescr: second");
+        databaseHelper.deleteObject(object2);
+        final RpslObject object4 = databaseHelper.addObject("aut-num: AS2\ndescr: first");
+
+        final List<SerialEntry> serialEntries = subject.getByIdRangeForNrtm(1, 4);
+
+        assertThat(serialEntries, hasSize(4));
+        assertThat(serialEntries.get(0).getSerialId(), is(1));
+        assertThat(serialEntries.get(0).getRpslObject(), is(object1));
+        assertThat(serialEntries.get(1).getSerialId(), is(2));
+        assertThat(serialEntries.get(1).getRpslObject(), is(object2));
+        assertThat(serialEntries.get(2).getSerialId(), is(3));
+        assertThat(serialEntries.get(2).getOperation(), is(Operation.DELETE));
+        assertThat(serialEntries.get(2).getRpslObject(), is(object2));
+        assertThat(serialEntries.get(3).getSerialId(), is(4));
+        assertThat(serialEntries.get(3).getRpslObject(), is(object4));
+    }
+
+    @Test
+    public void getSerialEntriesForNrtm_partial_range() {
+        databaseHelper.addObject("aut-num: AS1\ndescr: first");
+        final RpslObject object2 = databaseHelper.updateObject("aut-num: AS1\ndescr: second");
+        databaseHelper.updateObject("aut-num: AS1\ndescr: third");
+
+        final List<SerialEntry> serialEntries = subject.getByIdRangeForNrtm(2, 2);
+
+        assertThat(serialEntries, hasSize(1));
+        assertThat(serialEntries.get(0).getRpslObject(), is(object2));
+    }
+
+    @Test
+    public void getSerialEntriesForNrtm_gap_in_serials() {
+        databaseHelper.addObject("aut-num: AS1\ndescr: first");
+        databaseHelper.updateObject("aut-num: AS1\ndescr: second");
+        databaseHelper.updateObject("aut-num: AS1\ndescr: third");
+        databaseHelper.getWhoisTemplate().update("delete from serials where serial_id = ?", 2);
+
+        final List<SerialEntry> serialEntries = subject.getByIdRangeForNrtm(1, 10);
+
+        assertThat(serialEntries, hasSize(2));
+        assertThat(serialEntries.get(0).getSerialId(), is(1));
+        assertThat(serialEntries.get(1).getSerialId(), is(3));
+    }
+
+    @Test
+    public void getSerialEntriesForNrtm_empty_range() {
+        databaseHelper.addObject("aut-num: AS1\ndescr: first");
+
+        assertThat(subject.getByIdRangeForNrtm(2, 10), hasSize(0));
+    }
+
     @Test
     public void getAgeOfExactOrNextExistingSerial_normal_scenario() {
         //10 mins error range to give build machine enough time to run
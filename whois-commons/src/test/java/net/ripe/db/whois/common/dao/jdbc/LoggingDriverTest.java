@@ -94,6 +94,11 @@ public class LoggingDriverTest {
     }
 
     static class TestLoggingHandler implements LoggingHandler {
+        @Override
+        public boolean isLogging() {
+            return currentLoggingHandler.isLogging();
+        }
+
         @Override
         public void log(StatementInfo statementInfo, ResultInfo resultInfo) {
             currentLoggingHandler.log(statementInfo, resultInfo);
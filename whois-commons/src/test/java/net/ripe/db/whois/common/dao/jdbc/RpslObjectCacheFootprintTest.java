@@ -0,0 +1,69 @@
+package net.ripe.db.whois.common.dao.jdbc;
+
+import net.ripe.db.whois.common.ManualTest;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Compares the heap used by a full {@link RpslObjectCache} with the size it estimates for its objects.
+ */
+@Category(ManualTest.class)
+public class RpslObjectCacheFootprintTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RpslObjectCacheFootprintTest.class);
+
+    private static final int SIZE = 20_000;
+
+    @Test
+    public void estimate_matches_footprint() {
+        final RpslObjectCache subject = new RpslObjectCache(null, null, Integer.MAX_VALUE);
+
+        final long before = usedMemory();
+        long estimatedBytes = 0;
+        for (int objectId = 1; objectId <= SIZE; objectId++) {
+            final RpslObject rpslObject = RpslObject.parse(objectId, person(objectId));
+            subject.put(rpslObject, 1);
+            estimatedBytes += RpslObjectCache.estimateBytes(rpslObject);
+        }
+        final long usedBytes = usedMemory() - before;
+
+        LOGGER.info("{} objects: used {} bytes ({} per object), estimated {} bytes ({} per object)",
+                SIZE, usedBytes, usedBytes / SIZE, estimatedBytes, estimatedBytes / SIZE);
+
+        assertThat(subject.getSize(), is((long) SIZE));
+        assertThat((double) usedBytes, greaterThan(estimatedBytes * 0.75));
+        assertThat((double) usedBytes, lessThan(estimatedBytes * 1.25));
+    }
+
+    private static byte[] person(final int objectId) {
+        return ("" +
+                "person:         Test Person " + objectId + "\n" +
+                "address:        Singel 258\n" +
+                "address:        1016 AB Amsterdam\n" +
+                "address:        The Netherlands\n" +
+                "phone:          +31 20 535 " + objectId + "\n" +
+                "e-mail:         test" + objectId + "@ripe.net\n" +
+                "nic-hdl:        TP" + objectId + "-TEST\n" +
+                "mnt-by:         TEST-MNT\n" +
+                "created:        2001-02-04T17:00:00Z\n" +
+                "last-modified:  2001-02-04T17:00:00Z\n" +
+                "source:         TEST\n").getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static long usedMemory() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
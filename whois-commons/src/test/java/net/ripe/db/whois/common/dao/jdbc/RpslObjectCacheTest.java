@@ -0,0 +1,93 @@
+package net.ripe.db.whois.common.dao.jdbc;
+
+import com.google.common.collect.Sets;
+import net.ripe.db.whois.common.iptree.IpTreeCacheManager;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.common.source.SourceContext;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RpslObjectCacheTest {
+    @Mock IpTreeCacheManager ipTreeCacheManager;
+    @Mock SourceContext sourceContext;
+
+    private RpslObjectCache subject;
+
+    @Before
+    public void setup() {
+        subject = new RpslObjectCache(ipTreeCacheManager, sourceContext, 64 * 1024);
+    }
+
+    @Test
+    public void put_and_get() {
+        final RpslObject object = RpslObject.parse(1, "mntner: TEST-MNT\nsource: TEST");
+
+        subject.put(object, 2);
+
+        assertThat(subject.get(1).getRpslObject(), is(object));
+        assertThat(subject.get(1).getSequenceId(), is(2));
+        assertThat(subject.get(2), is(nullValue()));
+    }
+
+    @Test
+    public void put_replaces_previous_version() {
+        subject.put(RpslObject.parse(1, "mntner: TEST-MNT\ndescr: first\nsource: TEST"), 1);
+        subject.put(RpslObject.parse(1, "mntner: TEST-MNT\ndescr: second\nsource: TEST"), 2);
+
+        assertThat(subject.get(1).getSequenceId(), is(2));
+        assertThat(subject.getSize(), is(1L));
+    }
+
+    @Test
+    public void evict_changed_objects() {
+        subject.put(RpslObject.parse(1, "mntner: TEST1-MNT\nsource: TEST"), 1);
+        subject.put(RpslObject.parse(2, "mntner: TEST2-MNT\nsource: TEST"), 1);
+
+        subject.evict(Sets.newHashSet(1));
+
+        assertThat(subject.get(1), is(nullValue()));
+        assertThat(subject.get(2).getSequenceId(), is(1));
+    }
+
+    @Test
+    public void hit_rate() {
+        subject.put(RpslObject.parse(1, "mntner: TEST-MNT\nsource: TEST"), 1);
+        subject.recordHit();
+        subject.recordHit();
+        subject.recordHit();
+
+        assertThat(subject.getHitRate(), is(0.75));
+    }
+
+    @Test
+    public void evicts_when_full() {
+        for (int objectId = 1; objectId <= 200; objectId++) {
+            subject.put(RpslObject.parse(objectId, "mntner: TEST" + objectId + "-MNT\nsource: TEST"), 1);
+        }
+
+        assertThat(subject.getEvictions() > 0, is(true));
+    }
+
+    @Test
+    public void estimate_includes_parsed_and_encoded_object() {
+        final RpslObject object = RpslObject.parse(1, "mntner: TEST-MNT\ndescr: Test maintainer\nsource: TEST");
+
+        assertThat(RpslObjectCache.estimateBytes(object) > 3 * object.toByteArray().length, is(true));
+    }
+
+    @Test
+    public void disabled_for_other_sources() {
+        when(sourceContext.isMain()).thenReturn(false);
+
+        assertThat(subject.isEnabled(), is(false));
+    }
+}
@@ -0,0 +1,54 @@
+package net.ripe.db.whois.common.etree;
+
+import net.ripe.db.whois.common.ManualTest;
+import net.ripe.db.whois.common.ip.Ipv4Resource;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Reports the heap used by a {@link NestedIntervalMap} and a {@link Ipv4CompactIntervalMap} holding the same intervals.
+ */
+@Category(ManualTest.class)
+public class CompactIntervalMapFootprintTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompactIntervalMapFootprintTest.class);
+
+    private static final int SIZE = 1_000_000;
+
+    @Test
+    public void compare_footprint() {
+        final Object value = new Object();
+
+        final long nestedBytes = measure(new NestedIntervalMap<Ipv4Resource, Object>(), value);
+        final long compactBytes = measure(new Ipv4CompactIntervalMap<>(), value);
+
+        LOGGER.info("{} intervals: NestedIntervalMap {} bytes ({} per interval), Ipv4CompactIntervalMap {} bytes ({} per interval)",
+                SIZE, nestedBytes, nestedBytes / SIZE, compactBytes, compactBytes / SIZE);
+
+        assertThat(compactBytes, lessThan(nestedBytes));
+    }
+
+    private static long measure(final IntervalMap<Ipv4Resource, Object> map, final Object value) {
+        final long before = usedMemory();
+        for (int i = 0; i < SIZE; i++) {
+            // a /24 every 256 addresses, with a /25 in every other one
+            final long begin = i / 2 * 256L;
+            map.put(new Ipv4Resource(begin, begin + (i % 2 == 0 ? 255 : 127)), value);
+        }
+        final long used = usedMemory() - before;
+        map.clear();
+        return used;
+    }
+
+    private static long usedMemory() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,109 @@
+package net.ripe.db.whois.common.etree;
+
+import net.ripe.db.whois.common.ip.Ipv4Resource;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Readers of published {@link ImmutableNestedIntervalMap} snapshots, while a writer keeps building new versions like
+ * the IpTreeUpdater does. The throughput is measured by the IntervalMapConcurrencyBenchmark in whois-benchmarks.
+ */
+public class ImmutableNestedIntervalMapConcurrencyTest {
+    private static final int READERS = 4;
+    private static final int SIZE = 1000;
+    private static final int VERSIONS = 200;
+
+    private static final Ipv4Resource ALL = new Ipv4Resource(0, SIZE * 16 - 1);
+
+    private volatile ImmutableNestedIntervalMap<Ipv4Resource, Integer> snapshot;
+    private volatile boolean stop;
+
+    @Test
+    public void readers_always_see_a_complete_version() throws Exception {
+        final ImmutableNestedIntervalMap.Builder<Ipv4Resource, Integer> builder = ImmutableNestedIntervalMap.<Ipv4Resource, Integer>of().toBuilder();
+        putVersion(builder, 0);
+        snapshot = builder.build();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(READERS + 1);
+        try {
+            final List<Future<Integer>> readers = new ArrayList<>();
+            for (int i = 0; i < READERS; i++) {
+                readers.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        int lastVersion = 0;
+                        boolean done;
+                        do {
+                            // the last snapshot is read after the writer has stopped
+                            done = stop;
+                            final ImmutableNestedIntervalMap<Ipv4Resource, Integer> intervalMap = snapshot;
+                            final int version = assertComplete(intervalMap);
+
+                            // versions are published in order, and a snapshot is not changed by the versions after it
+                            assertThat(version, greaterThanOrEqualTo(lastVersion));
+                            assertThat(assertComplete(intervalMap), is(version));
+                            lastVersion = version;
+                        } while (!done);
+                        return lastVersion;
+                    }
+                }));
+            }
+
+            final Future<?> writer = executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int version = 1; version <= VERSIONS; version++) {
+                            final ImmutableNestedIntervalMap.Builder<Ipv4Resource, Integer> next = snapshot.toBuilder();
+                            putVersion(next, version);
+                            snapshot = next.build();
+                        }
+                    } finally {
+                        stop = true;
+                    }
+                }
+            });
+
+            writer.get(30, TimeUnit.SECONDS);
+            for (final Future<Integer> reader : readers) {
+                assertThat(reader.get(30, TimeUnit.SECONDS), is(VERSIONS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // every version replaces all nested intervals, and the values of the intervals in between
+    private static void putVersion(final IntervalMap<Ipv4Resource, Integer> intervalMap, final int version) {
+        for (int index = 0; index < SIZE; index++) {
+            final Ipv4Resource nested = new Ipv4Resource(index * 16 + version % 2 * 8, index * 16 + version % 2 * 8 + 7);
+            final Ipv4Resource previous = new Ipv4Resource(index * 16 + (version + 1) % 2 * 8, index * 16 + (version + 1) % 2 * 8 + 7);
+
+            intervalMap.remove(previous);
+            intervalMap.put(new Ipv4Resource(index * 16, index * 16 + 15), version);
+            intervalMap.put(nested, version);
+        }
+    }
+
+    private static int assertComplete(final IntervalMap<Ipv4Resource, Integer> intervalMap) {
+        final List<Integer> values = intervalMap.findAllMoreSpecific(ALL);
+        assertThat(values, hasSize(2 * SIZE));
+
+        final int version = values.get(0);
+        assertThat(values, everyItem(is(version)));
+        return version;
+    }
+}
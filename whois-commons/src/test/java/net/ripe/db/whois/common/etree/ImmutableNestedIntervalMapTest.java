@@ -0,0 +1,116 @@
+package net.ripe.db.whois.common.etree;
+
+import net.ripe.db.whois.common.ip.Ipv4Resource;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class ImmutableNestedIntervalMapTest {
+    private Ipv4Resource N1_12 = new Ipv4Resource(1, 12);
+    private Ipv4Resource N1_4 = new Ipv4Resource(1, 4);
+    private Ipv4Resource N5_10 = new Ipv4Resource(5, 10);
+    private Ipv4Resource N1_1 = new Ipv4Resource(1, 1);
+    private Ipv4Resource N2_2 = new Ipv4Resource(2, 2);
+    private Ipv4Resource N5_5 = new Ipv4Resource(5, 5);
+    private Ipv4Resource N6_6 = new Ipv4Resource(6, 6);
+    private Ipv4Resource N5_8 = new Ipv4Resource(5, 8);
+    private Ipv4Resource N9_10 = new Ipv4Resource(9, 10);
+
+    private ImmutableNestedIntervalMap<Ipv4Resource, Ipv4Resource> subject;
+
+    @Before
+    public void setup() {
+        final ImmutableNestedIntervalMap.Builder<Ipv4Resource, Ipv4Resource> builder = ImmutableNestedIntervalMap.<Ipv4Resource, Ipv4Resource>of().toBuilder();
+        for (final Ipv4Resource resource : asList(N5_5, N1_12, N6_6, N1_1, N5_10, N2_2, N9_10, N1_4, N5_8)) {
+            builder.put(resource, resource);
+        }
+        subject = builder.build();
+    }
+
+    @Test
+    public void lookups() {
+        assertEquals(asList(N1_12, N1_4, N1_1, N2_2, N5_10, N5_8, N5_5, N6_6, N9_10), subject.findExactAndAllMoreSpecific(Ipv4Resource.MAX_RANGE));
+        assertEquals(asList(N1_4, N5_10), subject.findFirstMoreSpecific(N1_12));
+        assertEquals(asList(N1_12, N5_10, N5_8), subject.findAllLessSpecific(N6_6));
+        assertThat(subject.findFirstLessSpecific(N9_10), contains(N5_10));
+        assertThat(subject.findExactOrFirstLessSpecific(new Ipv4Resource(7, 7)), contains(N5_8));
+        assertThat(subject.findExact(new Ipv4Resource(7, 7)), hasSize(0));
+    }
+
+    @Test
+    public void builder_does_not_change_published_version() {
+        final ImmutableNestedIntervalMap.Builder<Ipv4Resource, Ipv4Resource> builder = subject.toBuilder();
+        builder.remove(N5_10);
+        builder.put(N1_12, N1_1);
+        builder.put(new Ipv4Resource(3, 4), N1_1);
+
+        assertEquals(asList(N1_1, N2_2), subject.findAllMoreSpecific(N1_4));
+        assertThat(subject.findExact(N5_10), contains(N5_10));
+        assertThat(subject.findExact(N1_12), contains(N1_12));
+        assertThat(subject.findExact(new Ipv4Resource(3, 4)), hasSize(0));
+
+        final ImmutableNestedIntervalMap<Ipv4Resource, Ipv4Resource> next = builder.build();
+        assertThat(next.findExact(N5_10), hasSize(0));
+        assertEquals(asList(N5_8, N9_10), next.findFirstMoreSpecific(new Ipv4Resource(5, 10)));
+        assertThat(next.findExact(N1_12), contains(N1_1));
+        assertThat(next.findFirstLessSpecific(new Ipv4Resource(3, 3)), contains(N1_1));
+    }
+
+    @Test
+    public void builder_can_continue_after_build() {
+        final ImmutableNestedIntervalMap.Builder<Ipv4Resource, Ipv4Resource> builder = subject.toBuilder();
+        builder.remove(N1_4);
+        final ImmutableNestedIntervalMap<Ipv4Resource, Ipv4Resource> first = builder.build();
+        builder.remove(N1_12);
+        final ImmutableNestedIntervalMap<Ipv4Resource, Ipv4Resource> second = builder.build();
+
+        assertEquals(asList(N1_1, N2_2, N5_10), first.findFirstMoreSpecific(N1_12));
+        assertEquals(asList(N1_1, N2_2, N5_10), second.findFirstMoreSpecific(N1_12));
+        assertThat(first.findExact(N1_12), contains(N1_12));
+        assertThat(second.findExact(N1_12), hasSize(0));
+    }
+
+    @Test
+    public void fail_on_intersecting_siblings() {
+        try {
+            subject.toBuilder().put(new Ipv4Resource(8, 13), N1_1);
+            fail("Exception expected");
+        } catch (IntersectingIntervalException expected) {
+            assertEquals(new Ipv4Resource(8, 13), expected.getInterval());
+            assertEquals(asList(N1_12), expected.getIntersections());
+        }
+    }
+
+    @Test
+    public void copy_of_nested_interval_map() {
+        final NestedIntervalMap<Ipv4Resource, Ipv4Resource> source = new NestedIntervalMap<>();
+        for (final Ipv4Resource resource : subject.findExactAndAllMoreSpecific(Ipv4Resource.MAX_RANGE)) {
+            source.put(resource, resource);
+        }
+
+        final ImmutableNestedIntervalMap<Ipv4Resource, Ipv4Resource> copy = ImmutableNestedIntervalMap.copyOf(source);
+        source.clear();
+
+        assertEquals(subject.findExactAndAllMoreSpecific(Ipv4Resource.MAX_RANGE), copy.findExactAndAllMoreSpecific(Ipv4Resource.MAX_RANGE));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void immutable() {
+        subject.put(N1_1, N1_1);
+    }
+
+    @Test
+    public void empty() {
+        final ImmutableNestedIntervalMap<Ipv4Resource, Ipv4Resource> empty = ImmutableNestedIntervalMap.of();
+        assertEquals(Collections.emptyList(), empty.findExactAndAllMoreSpecific(Ipv4Resource.MAX_RANGE));
+        assertEquals(Collections.emptyList(), empty.findExactOrFirstLessSpecific(N1_1));
+    }
+}
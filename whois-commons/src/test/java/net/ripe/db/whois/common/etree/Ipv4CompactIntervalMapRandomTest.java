@@ -0,0 +1,16 @@
+package net.ripe.db.whois.common.etree;
+
+import net.ripe.db.whois.common.ip.Ipv4Resource;
+
+public class Ipv4CompactIntervalMapRandomTest extends NestedIntervalMapRandomTest {
+
+    @Override
+    protected IntervalMap<Ipv4Resource, Ipv4Resource> createIntervalMap() {
+        return new Ipv4CompactIntervalMap<>();
+    }
+
+    @Override
+    protected IntervalMap<Ipv4Resource, Ipv4Resource> copy(final IntervalMap<Ipv4Resource, Ipv4Resource> source) {
+        return new Ipv4CompactIntervalMap<>((Ipv4CompactIntervalMap<Ipv4Resource>) source);
+    }
+}
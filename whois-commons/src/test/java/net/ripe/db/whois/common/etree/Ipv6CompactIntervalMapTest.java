@@ -0,0 +1,104 @@
+package net.ripe.db.whois.common.etree;
+
+import net.ripe.db.whois.common.ip.Ipv6Resource;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.Random;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class Ipv6CompactIntervalMapTest {
+    private final Ipv6Resource all = Ipv6Resource.parse("::/0");
+    private final Ipv6Resource lower = Ipv6Resource.parse("2001::/16");
+    private final Ipv6Resource lowerChild = Ipv6Resource.parse("2001:db8::/32");
+    private final Ipv6Resource upper = Ipv6Resource.parse("ffff::/16");
+    private final Ipv6Resource upperChild = Ipv6Resource.parse("ffff:8000::/17");
+    private final Ipv6Resource upperHost = Ipv6Resource.parse("ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff/128");
+
+    private Ipv6CompactIntervalMap<Ipv6Resource> subject;
+
+    @Before
+    public void setup() {
+        subject = new Ipv6CompactIntervalMap<>();
+        for (final Ipv6Resource resource : asList(upperHost, lowerChild, all, upperChild, upper, lower)) {
+            subject.put(resource, resource);
+        }
+    }
+
+    @Test
+    public void find_exact() {
+        assertEquals(Collections.singletonList(upperHost), subject.findExact(upperHost));
+        assertEquals(Collections.emptyList(), subject.findExact(Ipv6Resource.parse("2001:db8::/48")));
+    }
+
+    @Test
+    public void find_less_specific_across_sign_bit() {
+        assertEquals(asList(all, upper, upperChild), subject.findAllLessSpecific(upperHost));
+        assertEquals(Collections.singletonList(upperChild), subject.findFirstLessSpecific(upperHost));
+        assertEquals(Collections.singletonList(lowerChild), subject.findExactOrFirstLessSpecific(Ipv6Resource.parse("2001:db8::1/128")));
+    }
+
+    @Test
+    public void find_more_specific() {
+        assertEquals(asList(lower, upper), subject.findFirstMoreSpecific(all));
+        assertEquals(asList(lower, lowerChild, upper, upperChild, upperHost), subject.findAllMoreSpecific(all));
+    }
+
+    @Test
+    public void remove_promotes_children() {
+        subject.remove(upper);
+
+        assertEquals(asList(lower, upperChild), subject.findFirstMoreSpecific(all));
+        assertEquals(Collections.singletonList(all), subject.findFirstLessSpecific(upperChild));
+    }
+
+    @Test
+    public void intersecting_interval_rejected() {
+        try {
+            subject.put(new Ipv6Resource(Ipv6Resource.parse("2001:db8:8000::/33").begin(), Ipv6Resource.parse("2001:db9::/32").end()), all);
+            fail();
+        } catch (IntersectingIntervalException expected) {
+            assertEquals(Collections.singletonList(lowerChild), expected.getIntersections());
+        }
+    }
+
+    @Test
+    public void random_operations_match_nested_interval_map() {
+        final long seed = System.currentTimeMillis();
+        final Random random = new Random(seed);
+        final NestedIntervalMap<Ipv6Resource, Ipv6Resource> expected = new NestedIntervalMap<>();
+        final Ipv6CompactIntervalMap<Ipv6Resource> actual = new Ipv6CompactIntervalMap<>();
+
+        for (int i = 0; i < 2000; i++) {
+            final Ipv6Resource resource = randomPrefix(random);
+            if (random.nextInt(4) == 0) {
+                expected.remove(resource);
+                actual.remove(resource);
+            } else {
+                expected.put(resource, resource);
+                actual.put(resource, resource);
+            }
+        }
+
+        for (int i = 0; i < 500; i++) {
+            final Ipv6Resource resource = randomPrefix(random);
+            assertEquals("seed = " + seed, expected.findExactAndAllLessSpecific(resource), actual.findExactAndAllLessSpecific(resource));
+            assertEquals("seed = " + seed, expected.findFirstMoreSpecific(resource), actual.findFirstMoreSpecific(resource));
+            assertEquals("seed = " + seed, expected.findExactAndAllMoreSpecific(resource), actual.findExactAndAllMoreSpecific(resource));
+        }
+    }
+
+    private Ipv6Resource randomPrefix(final Random random) {
+        final int prefixLength = 1 + random.nextInt(128);
+        final BigInteger address = BigInteger.valueOf(random.nextInt(4) * 0x4001 + 0x2001).shiftLeft(112)
+                .or(BigInteger.valueOf(random.nextInt(256)).shiftLeft(56));
+        final BigInteger hostMask = BigInteger.ONE.shiftLeft(128 - prefixLength).subtract(BigInteger.ONE);
+        final BigInteger begin = address.andNot(hostMask);
+        return new Ipv6Resource(begin, begin.or(hostMask));
+    }
+}
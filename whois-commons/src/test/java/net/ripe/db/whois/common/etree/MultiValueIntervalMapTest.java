@@ -5,6 +5,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.List;
+import java.util.SortedSet;
 
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.hasSize;
@@ -80,6 +81,22 @@ public class MultiValueIntervalMapTest {
         assertThat(result, contains(v_131, v_132, v_133, v_121, v_122, v_11));
     }
 
+    @Test
+    public void copy_on_write_does_not_change_previous_version() {
+        final ImmutableNestedIntervalMap.Builder<Ipv4Resource, SortedSet<String>> builder = ImmutableNestedIntervalMap.<Ipv4Resource, SortedSet<String>>of().toBuilder();
+        MultiValueIntervalMap.copyOnWrite(builder).put(k_12, v_121);
+        final ImmutableNestedIntervalMap<Ipv4Resource, SortedSet<String>> previous = builder.build();
+
+        final ImmutableNestedIntervalMap.Builder<Ipv4Resource, SortedSet<String>> next = previous.toBuilder();
+        final MultiValueIntervalMap<Ipv4Resource, String> copyOnWrite = MultiValueIntervalMap.copyOnWrite(next);
+        copyOnWrite.put(k_12, v_122);
+        assertThat(copyOnWrite.findExact(k_12), contains(v_121, v_122));
+        copyOnWrite.remove(k_12, v_121);
+        assertThat(copyOnWrite.findExact(k_12), contains(v_122));
+
+        assertThat(new MultiValueIntervalMap<>(previous).findExact(k_12), contains(v_121));
+    }
+
     @Test
     public void clear() {
         subject.clear();
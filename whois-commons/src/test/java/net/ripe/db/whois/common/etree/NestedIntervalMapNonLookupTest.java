@@ -37,7 +37,15 @@ public class NestedIntervalMapNonLookupTest {
         }
     }
 
-    private NestedIntervalMap<Ipv4Resource, Ipv4Resource> subject = new NestedIntervalMap<>();
+    private IntervalMap<Ipv4Resource, Ipv4Resource> subject = createIntervalMap();
+
+    protected IntervalMap<Ipv4Resource, Ipv4Resource> createIntervalMap() {
+        return new NestedIntervalMap<>();
+    }
+
+    protected IntervalMap<Ipv4Resource, Ipv4Resource> copy(final IntervalMap<Ipv4Resource, Ipv4Resource> source) {
+        return new NestedIntervalMap<>((NestedIntervalMap<Ipv4Resource, Ipv4Resource>) source);
+    }
 
     private List<Ipv4Resource> allNodes() {
         return subject.findAllMoreSpecific(Ipv4Resource.MAX_RANGE);
@@ -305,8 +313,8 @@ public class NestedIntervalMapNonLookupTest {
 
         assertThat(allNodes(), hasSize(4));
 
-        NestedIntervalMap<Ipv4Resource, Ipv4Resource> original = subject;
-        subject = new NestedIntervalMap<>(original);
+        IntervalMap<Ipv4Resource, Ipv4Resource> original = subject;
+        subject = copy(original);
 
         assertThat(allNodes(), hasSize(4));
         assertThat(original, is(subject));
@@ -21,7 +21,7 @@ public class NestedIntervalMapRandomTest {
 
     private List<Ipv4Resource> everything;
     private Map<Ipv4Resource, List<Ipv4Resource>> childrenByParent;
-    private NestedIntervalMap<Ipv4Resource, Ipv4Resource> subject;
+    private IntervalMap<Ipv4Resource, Ipv4Resource> subject;
 
     private List<Ipv4Resource> generateRandomSiblings(Ipv4Resource parent, int count) {
         List<Ipv4Resource> result = new ArrayList<>();
@@ -56,11 +56,19 @@ public class NestedIntervalMapRandomTest {
         }
     }
 
+    protected IntervalMap<Ipv4Resource, Ipv4Resource> createIntervalMap() {
+        return new NestedIntervalMap<>();
+    }
+
+    protected IntervalMap<Ipv4Resource, Ipv4Resource> copy(final IntervalMap<Ipv4Resource, Ipv4Resource> source) {
+        return new NestedIntervalMap<>((NestedIntervalMap<Ipv4Resource, Ipv4Resource>) source);
+    }
+
     @Before
     public void setup() {
         everything = new ArrayList<>();
         childrenByParent = new HashMap<>();
-        subject = new NestedIntervalMap<>();
+        subject = createIntervalMap();
 
         List<Ipv4Resource> roots = generateRandomSiblings(Ipv4Resource.MAX_RANGE, random.nextInt(3) + 5);
         for (Ipv4Resource root : roots) {
@@ -131,7 +139,7 @@ public class NestedIntervalMapRandomTest {
     @Test
     public void should_promote_children_of_delete_node_to_parent() {
         for (int i = 0; i < 10; ) {
-            NestedIntervalMap<Ipv4Resource, Ipv4Resource> copy = new NestedIntervalMap<>(subject);
+            IntervalMap<Ipv4Resource, Ipv4Resource> copy = copy(subject);
             Ipv4Resource interval = everything.get(random.nextInt(everything.size()));
             if (childrenByParent.containsKey(interval)) {
                 Ipv4Resource parent = CollectionHelper.uniqueResult(copy.findFirstLessSpecific(interval));
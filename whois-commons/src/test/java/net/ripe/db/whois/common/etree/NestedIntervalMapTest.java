@@ -14,7 +14,7 @@ import static org.junit.Assert.*;
 
 public class NestedIntervalMapTest {
 
-    private NestedIntervalMap<Ipv4Resource, Ipv4Resource> subject = new NestedIntervalMap<>();
+    private IntervalMap<Ipv4Resource, Ipv4Resource> subject = createIntervalMap();
     private Ipv4Resource N1_12 = new Ipv4Resource(1, 12);
     private Ipv4Resource N1_4 = new Ipv4Resource(1, 4);
     private Ipv4Resource N5_10 = new Ipv4Resource(5, 10);
@@ -34,6 +34,14 @@ public class NestedIntervalMapTest {
     private Ipv4Resource N11_12 = new Ipv4Resource(11, 12);
     private List<Ipv4Resource> all = new ArrayList<>();
 
+    protected IntervalMap<Ipv4Resource, Ipv4Resource> createIntervalMap() {
+        return new NestedIntervalMap<>();
+    }
+
+    protected IntervalMap<Ipv4Resource, Ipv4Resource> copy(final IntervalMap<Ipv4Resource, Ipv4Resource> source) {
+        return new NestedIntervalMap<>((NestedIntervalMap<Ipv4Resource, Ipv4Resource>) source);
+    }
+
     @Before
     public void setup() {
         all.add(N1_12);
@@ -110,7 +118,7 @@ public class NestedIntervalMapTest {
 
     @Test
     public void test_remove_key_value_nonexistant() {
-        NestedIntervalMap<Ipv4Resource, Ipv4Resource> copy = new NestedIntervalMap<>(subject);
+        IntervalMap<Ipv4Resource, Ipv4Resource> copy = copy(subject);
 
         final Ipv4Resource resource = new Ipv4Resource(0, 100);
         subject.remove(resource, resource);
@@ -119,7 +127,7 @@ public class NestedIntervalMapTest {
 
     @Test
     public void test_remove_nonexistant() {
-        NestedIntervalMap<Ipv4Resource, Ipv4Resource> copy = new NestedIntervalMap<>(subject);
+        IntervalMap<Ipv4Resource, Ipv4Resource> copy = copy(subject);
 
         subject.remove(new Ipv4Resource(0, 100));
         assertEquals(copy, subject);
@@ -136,10 +144,10 @@ public class NestedIntervalMapTest {
         assertFalse(subject.equals(null));
         assertEquals(subject, subject);
         assertFalse(subject.equals(new Object()));
-        assertFalse(subject.equals(new NestedIntervalMap<Ipv4Resource, Ipv4Resource>()));
+        assertFalse(subject.equals(createIntervalMap()));
 
         assertEquals(subject.hashCode(), subject.hashCode());
-        assertFalse(subject.hashCode() == new NestedIntervalMap<Ipv4Resource, Ipv4Resource>().hashCode());
+        assertFalse(subject.hashCode() == createIntervalMap().hashCode());
     }
 
     @Test
@@ -224,7 +232,7 @@ public class NestedIntervalMapTest {
         Ipv4Resource child3 = new Ipv4Resource(16, 25);
         Ipv4Resource intersect = new Ipv4Resource(8, 30);
 
-        NestedIntervalMap<Ipv4Resource, Ipv4Resource> test = new NestedIntervalMap<>();
+        IntervalMap<Ipv4Resource, Ipv4Resource> test = createIntervalMap();
         test.put(child1, child1);
         test.put(child2, child2);
         test.put(child3, child3);
@@ -246,7 +254,7 @@ public class NestedIntervalMapTest {
         Ipv4Resource child3 = new Ipv4Resource(16, 25);
         Ipv4Resource intersect = new Ipv4Resource(1, 21);
 
-        NestedIntervalMap<Ipv4Resource, Ipv4Resource> test = new NestedIntervalMap<>();
+        IntervalMap<Ipv4Resource, Ipv4Resource> test = createIntervalMap();
         test.put(child1, child1);
         test.put(child2, child2);
         test.put(child3, child3);
@@ -268,7 +276,7 @@ public class NestedIntervalMapTest {
         Ipv4Resource child3 = new Ipv4Resource(16, 25);
         Ipv4Resource intersect = new Ipv4Resource(4, 21);
 
-        NestedIntervalMap<Ipv4Resource, Ipv4Resource> test = new NestedIntervalMap<>();
+        IntervalMap<Ipv4Resource, Ipv4Resource> test = createIntervalMap();
         test.put(child1, child1);
         test.put(child2, child2);
         test.put(child3, child3);
@@ -0,0 +1,114 @@
+package net.ripe.db.whois.common.iptree;
+
+import net.ripe.db.whois.common.ip.Ipv4Resource;
+import net.ripe.db.whois.common.ip.Ipv6Resource;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+
+import static java.util.Arrays.asList;
+import static net.ripe.db.whois.common.domain.CIString.ciString;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class IpTreeSnapshotStoreTest {
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private IpTreeSnapshotStore subject;
+    private IpTreeSnapshot snapshot;
+
+    @Before
+    public void setup() {
+        subject = new IpTreeSnapshotStore(folder.getRoot().getAbsolutePath());
+        snapshot = new IpTreeSnapshot(
+                42,
+                asList(new Ipv4Entry(Ipv4Resource.parse("10.0.0.0/8"), 1), new Ipv4Entry(Ipv4Resource.parse("255.255.255.0/24"), 2)),
+                asList(new Ipv6Entry(Ipv6Resource.parse("ffff::/16"), 3)),
+                asList(new Ipv4RouteEntry(Ipv4Resource.parse("10.0.0.0/8"), 4, "AS3333")),
+                asList(new Ipv6RouteEntry(Ipv6Resource.parse("2001:db8::/32"), 5, "AS4294967295")),
+                Collections.<Ipv4Entry>emptyList(),
+                asList(new Ipv6Entry(Ipv6Resource.parse("2001:db8::/48"), 6)));
+    }
+
+    @Test
+    public void write_and_read() {
+        subject.write(ciString("TEST"), snapshot);
+
+        final IpTreeSnapshot result = subject.read(ciString("test"));
+
+        assertThat(result.getLastSerial(), is(42L));
+        assertThat(result.getIpv4Entries(), contains(snapshot.getIpv4Entries().toArray()));
+        assertThat(result.getIpv4Entries().get(1).getObjectId(), is(2));
+        assertThat(result.getIpv6Entries(), contains(snapshot.getIpv6Entries().toArray()));
+        assertThat(result.getIpv4RouteEntries(), contains(snapshot.getIpv4RouteEntries().toArray()));
+        assertThat(result.getIpv6RouteEntries(), contains(snapshot.getIpv6RouteEntries().toArray()));
+        assertThat(result.getIpv6RouteEntries().get(0).getObjectId(), is(5));
+        assertThat(result.getIpv4DomainEntries(), is(empty()));
+        assertThat(result.getIpv6DomainEntries(), contains(snapshot.getIpv6DomainEntries().toArray()));
+    }
+
+    @Test
+    public void write_replaces_existing() {
+        subject.write(ciString("TEST"), snapshot);
+        subject.write(ciString("TEST"), new IpTreeSnapshot(43,
+                Collections.<Ipv4Entry>emptyList(),
+                Collections.<Ipv6Entry>emptyList(),
+                Collections.<Ipv4RouteEntry>emptyList(),
+                Collections.<Ipv6RouteEntry>emptyList(),
+                Collections.<Ipv4Entry>emptyList(),
+                Collections.<Ipv6Entry>emptyList()));
+
+        final IpTreeSnapshot result = subject.read(ciString("TEST"));
+
+        assertThat(result.getLastSerial(), is(43L));
+        assertThat(result.getIpv4Entries(), is(empty()));
+        assertThat(folder.getRoot().list().length, is(1));
+    }
+
+    @Test
+    public void read_missing() {
+        assertThat(subject.read(ciString("TEST")), nullValue());
+    }
+
+    @Test
+    public void read_corrupt() throws Exception {
+        subject.write(ciString("TEST"), snapshot);
+
+        try (final RandomAccessFile file = new RandomAccessFile(new File(folder.getRoot(), "TEST.iptree"), "rw")) {
+            file.seek(20);
+            final int value = file.read();
+            file.seek(20);
+            file.write(~value);
+        }
+
+        assertThat(subject.read(ciString("TEST")), nullValue());
+    }
+
+    @Test
+    public void read_truncated() throws Exception {
+        subject.write(ciString("TEST"), snapshot);
+
+        try (final RandomAccessFile file = new RandomAccessFile(new File(folder.getRoot(), "TEST.iptree"), "rw")) {
+            file.setLength(file.length() / 2);
+        }
+
+        assertThat(subject.read(ciString("TEST")), nullValue());
+    }
+
+    @Test
+    public void disabled() {
+        subject = new IpTreeSnapshotStore("");
+        subject.write(ciString("TEST"), snapshot);
+
+        assertThat(subject.read(ciString("TEST")), nullValue());
+        assertThat(folder.getRoot().list().length, is(0));
+    }
+}
@@ -0,0 +1,147 @@
+package net.ripe.db.whois.common.iptree;
+
+import com.google.common.collect.Lists;
+import net.ripe.db.whois.common.source.Source;
+import net.ripe.db.whois.common.source.SourceConfiguration;
+import net.ripe.db.whois.common.source.SourceContext;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SerialFollowingCacheTest {
+    @Mock IpTreeCacheManager ipTreeCacheManager;
+    @Mock SourceContext sourceContext;
+    @Mock SourceConfiguration mainSource;
+    @Mock SourceConfiguration otherSource;
+    @Mock JdbcTemplate jdbcTemplate;
+
+    private TestCache subject;
+
+    @Before
+    public void setup() {
+        when(sourceContext.getWhoisSlaveSource()).thenReturn(Source.slave("TEST"));
+        when(mainSource.getSource()).thenReturn(Source.slave("TEST"));
+        when(mainSource.getJdbcTemplate()).thenReturn(jdbcTemplate);
+        when(otherSource.getSource()).thenReturn(Source.slave("TEST-GRS"));
+
+        subject = new TestCache(true);
+    }
+
+    @Test
+    public void first_update_clears() {
+        assertThat(subject.isInitialised(), is(false));
+
+        update(10);
+
+        assertThat(subject.clears, is(1));
+        assertThat(subject.invalidations, is(empty()));
+        assertThat(subject.isInitialised(), is(true));
+    }
+
+    @Test
+    public void update_invalidates_changed_serials() {
+        update(10);
+        update(15);
+        update(15);
+        update(20);
+
+        assertThat(subject.clears, is(1));
+        assertThat(subject.invalidations, contains("10-15", "15-20"));
+    }
+
+    @Test
+    public void serials_going_backwards_clears() {
+        update(10);
+        update(5);
+        update(8);
+
+        assertThat(subject.clears, is(2));
+        assertThat(subject.invalidations, contains("5-8"));
+    }
+
+    @Test
+    public void ip_trees_not_loaded() {
+        update(-1);
+
+        assertThat(subject.clears, is(0));
+        assertThat(subject.isInitialised(), is(false));
+    }
+
+    @Test
+    public void other_sources_are_ignored() {
+        when(ipTreeCacheManager.getLastSerials()).thenReturn(Collections.singletonMap(otherSource, 10L));
+
+        subject.update();
+
+        assertThat(subject.clears, is(0));
+        assertThat(subject.isInitialised(), is(false));
+    }
+
+    @Test
+    public void disabled_does_not_follow_serials() {
+        subject = new TestCache(false);
+
+        subject.update();
+
+        verify(ipTreeCacheManager, never()).getLastSerials();
+        assertThat(subject.isInitialised(), is(false));
+    }
+
+    @Test
+    public void hit_rate() {
+        assertThat(subject.getHitRate(), is(1.0));
+
+        subject.recordHit();
+        subject.recordHit();
+        subject.recordHit();
+        subject.recordMiss();
+
+        assertThat(subject.getHits(), is(3L));
+        assertThat(subject.getMisses(), is(1L));
+        assertThat(subject.getHitRate(), is(0.75));
+    }
+
+    private void update(final long lastSerial) {
+        when(ipTreeCacheManager.getLastSerials()).thenReturn(Collections.singletonMap(mainSource, lastSerial));
+        subject.update();
+    }
+
+    private class TestCache extends SerialFollowingCache {
+        private final List<String> invalidations = Lists.newArrayList();
+        private int clears;
+
+        private TestCache(final boolean enabled) {
+            super(ipTreeCacheManager, sourceContext, "test", enabled);
+        }
+
+        @Override
+        protected void invalidate(final JdbcTemplate jdbcTemplate, final long fromExclusive, final long toInclusive) {
+            invalidations.add(fromExclusive + "-" + toInclusive);
+        }
+
+        @Override
+        public void clear() {
+            clears++;
+        }
+
+        @Override
+        public long getSize() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package net.ripe.db.whois.common.jdbc.driver;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class LoggingConnectionTest {
+    @Mock Connection connection;
+    @Mock PreparedStatement preparedStatement;
+    @Mock Statement statement;
+    @Mock ResultSet resultSet;
+    @Mock LoggingHandler loggingHandler;
+
+    private LoggingConnection subject;
+
+    @Before
+    public void setUp() throws Exception {
+        when(connection.prepareStatement("sql")).thenReturn(preparedStatement);
+        when(connection.createStatement()).thenReturn(statement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+
+        subject = new LoggingConnection(connection, loggingHandler);
+    }
+
+    @Test
+    public void prepareStatement_not_logging() throws Exception {
+        when(loggingHandler.isLogging()).thenReturn(false);
+
+        final PreparedStatement result = subject.prepareStatement("sql");
+
+        assertThat(result, sameInstance(preparedStatement));
+        result.executeQuery().close();
+        verify(loggingHandler, never()).log(any(StatementInfo.class), any(ResultInfo.class));
+    }
+
+    @Test
+    public void prepareStatement_logging() throws Exception {
+        when(loggingHandler.isLogging()).thenReturn(true);
+
+        final PreparedStatement result = subject.prepareStatement("sql");
+
+        assertThat(result, not(sameInstance(preparedStatement)));
+        result.executeQuery().close();
+        verify(loggingHandler).log(any(StatementInfo.class), any(ResultInfo.class));
+    }
+
+    @Test
+    public void createStatement_not_logging() throws Exception {
+        when(loggingHandler.isLogging()).thenReturn(false);
+
+        assertThat(subject.createStatement(), sameInstance(statement));
+    }
+
+    @Test
+    public void createStatement_logging() throws Exception {
+        when(loggingHandler.isLogging()).thenReturn(true);
+
+        assertThat(subject.createStatement(), not(sameInstance(statement)));
+    }
+
+    @Test
+    public void close() throws Exception {
+        subject.close();
+
+        verify(connection).close();
+    }
+}
@@ -1,6 +1,5 @@
 package net.ripe.db.whois.nrtm;
 
-import com.google.common.util.concurrent.Uninterruptibles;
 import joptsimple.OptionException;
 import net.ripe.db.whois.common.aspects.RetryFor;
 import net.ripe.db.whois.common.dao.SerialDao;
@@ -14,7 +13,6 @@ import org.jboss.netty.channel.ChannelException;
 import org.jboss.netty.channel.ChannelFuture;
 import org.jboss.netty.channel.ChannelFutureListener;
 import org.jboss.netty.channel.ChannelHandlerContext;
-import org.jboss.netty.channel.ChannelLocal;
 import org.jboss.netty.channel.ChannelStateEvent;
 import org.jboss.netty.channel.MessageEvent;
 import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
@@ -24,9 +22,8 @@ import org.springframework.core.task.TaskRejectedException;
 import org.springframework.jdbc.CannotGetJdbcConnectionException;
 import org.springframework.scheduling.TaskScheduler;
 
+import java.util.List;
 import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 
 public class NrtmQueryHandler extends SimpleChannelUpstreamHandler {
 
@@ -35,6 +32,9 @@ public class NrtmQueryHandler extends SimpleChannelUpstreamHandler {
     static final int SECONDS_PER_DAY = 60 * 60 * 24;
     static final int HISTORY_AGE_LIMIT = 14 * SECONDS_PER_DAY;
 
+    static final int SERIAL_BATCH_SIZE = 1000;
+    private static final long WRITABLE_CHECK_INTERVAL_MILLIS = 1000;
+
     private final SerialDao serialDao;
     private final Dummifier dummifier;
     private final TaskScheduler clientSynchronisationScheduler;
@@ -46,6 +46,16 @@ public class NrtmQueryHandler extends SimpleChannelUpstreamHandler {
 
     private volatile ScheduledFuture<?> scheduledFuture;
 
+    private final Object writableMonitor = new Object();
+    private final ChannelFutureListener writableListener = new ChannelFutureListener() {
+        @Override
+        public void operationComplete(final ChannelFuture future) {
+            if (future.getChannel().isWritable()) {
+                notifyWritable();
+            }
+        }
+    };
+
     static final String TERMS_AND_CONDITIONS = "" +
             "% The RIPE Database is subject to Terms and Conditions.\n" +
             "% See http://www.ripe.net/db/support/db-terms-conditions.pdf";
@@ -164,52 +174,62 @@ public class NrtmQueryHandler extends SimpleChannelUpstreamHandler {
     }
 
     private void handleMirrorQuery(final Query query, final Channel channel) {
-        for (int serial = query.getSerialBegin(); serial <= query.getSerialEnd(); ) {
-            serial = writeSerials(serial, query.getSerialEnd(), query.getVersion(), channel);
-            if (serial <= query.getSerialEnd()) {
-                Uninterruptibles.sleepUninterruptibly(1, TimeUnit.SECONDS);
-            }
-        }
-
+        writeSerials(query.getSerialBegin(), query.getSerialEnd(), query.getVersion(), channel);
         writeMessage(channel, "%END " + source);
     }
 
+    // serials are read in batches, and only written when the channel is writable, so a slow client is not sent more than it can take
     private int writeSerials(final int begin, final int end, final int version, final Channel channel) {
         int serial = begin;
 
         while (serial <= end) {
+            final int batchEnd = (int) Math.min(end, (long) serial + SERIAL_BATCH_SIZE - 1);
 
-            if (PendingWrites.isPending(channel)) {
-                Uninterruptibles.sleepUninterruptibly(1, TimeUnit.SECONDS);
-                continue;
-            }
-
-            final SerialEntry serialEntry = readSerial(serial);
-
-            if (serialEntry != null) {
+            for (final SerialEntry serialEntry : readSerials(serial, batchEnd)) {
                 if (dummifier.isAllowed(version, serialEntry.getRpslObject())) {
-                    final String operation = serialEntry.getOperation().toString();
-                    final String message;
+                    final StringBuilder message = new StringBuilder(serialEntry.getOperation().toString());
                     if (version == NrtmServer.NRTM_VERSION) {
-                        message = operation + " " + serial;
-                    } else {
-                        message = operation;
+                        message.append(' ').append(serialEntry.getSerialId());
                     }
+                    message.append("\n\n").append(dummifier.dummify(version, serialEntry.getRpslObject()).toString().trim());
 
-                    writeMessage(channel, message);
-                    writeMessage(channel, dummifier.dummify(version, serialEntry.getRpslObject()).toString().trim());
+                    awaitWritable(channel);
+                    writeMessage(channel, message.toString());
                 }
             }
 
-            serial++;
+            serial = batchEnd + 1;
         }
 
         return serial;
     }
 
     @RetryFor(attempts = 10, value = CannotGetJdbcConnectionException.class)
-    private SerialEntry readSerial(final int serial) {
-        return serialDao.getByIdForNrtm(serial);
+    private List<SerialEntry> readSerials(final int begin, final int end) {
+        return serialDao.getByIdRangeForNrtm(begin, end);
+    }
+
+    private void awaitWritable(final Channel channel) {
+        synchronized (writableMonitor) {
+            while (!channel.isWritable()) {
+                if (!channel.isOpen()) {
+                    throw new ChannelException("channel closed");
+                }
+
+                try {
+                    writableMonitor.wait(WRITABLE_CHECK_INTERVAL_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ChannelException("interrupted", e);
+                }
+            }
+        }
+    }
+
+    private void notifyWritable() {
+        synchronized (writableMonitor) {
+            writableMonitor.notifyAll();
+        }
     }
 
     private boolean isRequestedSerialInRange(final Query query, final SerialRange range) {
@@ -227,8 +247,6 @@ public class NrtmQueryHandler extends SimpleChannelUpstreamHandler {
 
     @Override
     public void channelConnected(final ChannelHandlerContext ctx, final ChannelStateEvent e) throws Exception {
-        PendingWrites.add(ctx.getChannel());
-
         writeMessage(ctx.getChannel(), TERMS_AND_CONDITIONS);
 
         super.channelConnected(ctx, e);
@@ -240,7 +258,7 @@ public class NrtmQueryHandler extends SimpleChannelUpstreamHandler {
             scheduledFuture.cancel(true);
         }
 
-        PendingWrites.remove(ctx.getChannel());
+        notifyWritable();
 
         super.channelDisconnected(ctx, e);
     }
@@ -250,52 +268,6 @@ public class NrtmQueryHandler extends SimpleChannelUpstreamHandler {
             throw new ChannelException();
         }
 
-        PendingWrites.increment(channel);
-
-        channel.write(message + "\n\n").addListener(LISTENER);
-    }
-
-    private static final ChannelFutureListener LISTENER = new ChannelFutureListener() {
-        @Override
-        public void operationComplete(ChannelFuture future) throws Exception {
-            PendingWrites.decrement(future.getChannel());
-        }
-    };
-
-    static final class PendingWrites {
-
-        private static final ChannelLocal<AtomicInteger> PENDING_WRITES = new ChannelLocal<>();
-        private static final int MAX_PENDING_WRITES = 16;
-
-        static void add(final Channel channel) {
-            PENDING_WRITES.set(channel, new AtomicInteger());
-        }
-
-        static void remove(final Channel channel) {
-            PENDING_WRITES.remove(channel);
-        }
-
-        static void increment(final Channel channel) {
-            final AtomicInteger pending = PENDING_WRITES.get(channel);
-            if (pending != null) {
-                pending.incrementAndGet();
-            }
-        }
-
-        static void decrement(final Channel channel) {
-            final AtomicInteger pending = PENDING_WRITES.get(channel);
-            if (pending != null) {
-                pending.decrementAndGet();
-            }
-        }
-
-        static boolean isPending(final Channel channel) {
-            final AtomicInteger pending = PENDING_WRITES.get(channel);
-            if (pending == null) {
-                throw new ChannelException("channel removed");
-            }
-
-            return (pending.get() > MAX_PENDING_WRITES);
-        }
+        channel.write(message + "\n\n").addListener(writableListener);
     }
 }
@@ -1,13 +1,19 @@
 package net.ripe.db.whois.nrtm.client;
 
 
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.SetMultimap;
 import com.google.common.util.concurrent.Uninterruptibles;
 import net.ripe.db.whois.common.MaintenanceMode;
 import net.ripe.db.whois.common.aspects.RetryFor;
 import net.ripe.db.whois.common.dao.RpslObjectUpdateDao;
 import net.ripe.db.whois.common.dao.RpslObjectUpdateInfo;
 import net.ripe.db.whois.common.dao.SerialDao;
+import net.ripe.db.whois.common.domain.CIString;
 import net.ripe.db.whois.common.domain.serials.Operation;
+import net.ripe.db.whois.common.rpsl.ObjectType;
 import net.ripe.db.whois.common.rpsl.RpslObject;
 import net.ripe.db.whois.common.source.Source;
 import net.ripe.db.whois.common.source.SourceContext;
@@ -17,14 +23,20 @@ import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
 import java.net.UnknownHostException;
 import java.nio.channels.ClosedByInterruptException;
 import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -40,18 +52,24 @@ class NrtmClientFactory {
     private final RpslObjectUpdateDao rpslObjectUpdateDao;
     private final NrtmClientDao nrtmClientDao;
     private final MaintenanceMode maintenanceMode;
+    private final int batchSize;
+    private final long batchIntervalMsecs;
 
     @Autowired
     public NrtmClientFactory(final SourceContext sourceContext,
                              final SerialDao serialDao,
                              final RpslObjectUpdateDao rpslObjectUpdateDao,
                              final NrtmClientDao nrtmClientDao,
-                             final MaintenanceMode maintenanceMode) {
+                             final MaintenanceMode maintenanceMode,
+                             @Value("${nrtm.import.batch.size:0}") final int batchSize,
+                             @Value("${nrtm.import.batch.interval.msecs:1000}") final long batchIntervalMsecs) {
         this.sourceContext = sourceContext;
         this.serialDao = serialDao;
         this.rpslObjectUpdateDao = rpslObjectUpdateDao;
         this.nrtmClientDao = nrtmClientDao;
         this.maintenanceMode = maintenanceMode;
+        this.batchSize = batchSize;
+        this.batchIntervalMsecs = batchIntervalMsecs;
     }
 
     public NrtmClient createNrtmClient(final NrtmSource nrtmSource) {
@@ -82,8 +100,12 @@ class NrtmClientFactory {
 
                         readHeader();
                         writeMirrorCommandAndReadResponse();
-                        readUpdates();
-                    } catch (ClosedByInterruptException e) {
+                        if (batchSize > 1) {
+                            readUpdatesInBatches();
+                        } else {
+                            readUpdates();
+                        }
+                    } catch (ClosedByInterruptException | InterruptedException e) {
                         LOGGER.info("Interrupted, stopping.");
                         break;
                     } catch (IllegalStateException e) {
@@ -180,6 +202,121 @@ class NrtmClientFactory {
             }
         }
 
+        /**
+         * A reader thread parses the updates into a queue, from which up to batchSize updates, or the updates received
+         * within batchIntervalMsecs, are applied in a single transaction. Updates are applied in order by this thread,
+         * and a batch is committed or rolled back as a whole, so the client resumes after the last serial of the last
+         * committed batch.
+         */
+        private void readUpdatesInBatches() throws IOException, InterruptedException {
+            final BlockingQueue<QueuedUpdate> queue = new ArrayBlockingQueue<>(2 * batchSize);
+            final UpdateReader updateReader = new UpdateReader(queue);
+            final Thread readerThread = new Thread(updateReader, String.format("NrtmReader-%s", nrtmSource.getName()));
+            readerThread.setDaemon(true);
+            readerThread.start();
+
+            try {
+                while (true) {
+                    final List<QueuedUpdate> batch = Lists.newArrayListWithCapacity(batchSize);
+                    final boolean endOfStream = takeBatch(queue, batch);
+
+                    if (!batch.isEmpty()) {
+                        while (!maintenanceMode.allowUpdate()) {
+                            TimeUnit.SECONDS.sleep(1);
+                        }
+                        updateBatch(batch);
+                    }
+
+                    if (endOfStream) {
+                        updateReader.rethrowFailure();
+                    }
+                }
+            } finally {
+                readerThread.interrupt();
+            }
+        }
+
+        private boolean takeBatch(final BlockingQueue<QueuedUpdate> queue, final List<QueuedUpdate> batch) throws InterruptedException {
+            QueuedUpdate queuedUpdate = queue.take();
+            final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batchIntervalMsecs);
+
+            while (queuedUpdate != QueuedUpdate.END_OF_STREAM) {
+                batch.add(queuedUpdate);
+                if (batch.size() >= batchSize) {
+                    return false;
+                }
+
+                queuedUpdate = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (queuedUpdate == null) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        @Transactional
+        private void updateBatch(final List<QueuedUpdate> batch) {
+            final int serialBegin = batch.get(0).getSerial();
+            final int serialEnd = batch.get(batch.size() - 1).getSerial();
+
+            try {
+                final Map<Integer, Integer> appliedSerials = nrtmClientDao.getObjectIdsBySerial(serialBegin, serialEnd);
+                final Map<ObjectType, Map<CIString, RpslObjectUpdateInfo>> objects = lookupObjects(batch);
+
+                for (final QueuedUpdate queuedUpdate : batch) {
+                    final RpslObject rpslObject = queuedUpdate.getRpslObject();
+                    final Map<CIString, RpslObjectUpdateInfo> objectsOfType = objects.get(rpslObject.getType());
+                    final RpslObjectUpdateInfo updateInfo = objectsOfType.get(rpslObject.getKey());
+                    final int serialId = queuedUpdate.getSerial();
+
+                    switch (queuedUpdate.getOperation()) {
+                        case UPDATE:
+                            if (updateInfo == null) {
+                                objectsOfType.put(rpslObject.getKey(), nrtmClientDao.createObject(rpslObject, serialId));
+                            } else if (!isApplied(appliedSerials, serialId, updateInfo)) {
+                                objectsOfType.put(rpslObject.getKey(), nrtmClientDao.updateObject(rpslObject, updateInfo, serialId));
+                            } else {
+                                LOGGER.warn("Already applied serial {}", serialId);
+                            }
+                            break;
+
+                        case DELETE:
+                            if (updateInfo == null) {
+                                throw new IllegalStateException("DELETE serial:" + serialId + " but object:" + rpslObject.getKey().toString() + " doesn't exist");
+                            } else if (!isApplied(appliedSerials, serialId, updateInfo)) {
+                                nrtmClientDao.deleteObject(updateInfo, serialId);
+                                objectsOfType.remove(rpslObject.getKey());
+                            } else {
+                                LOGGER.warn("Already applied serial {}", serialId);
+                            }
+                            break;
+                    }
+                }
+            } catch (DataAccessException e) {
+                LOGGER.error(e.getMessage(), e);
+                throw new IllegalStateException("Unexpected error on serials " + serialBegin + "-" + serialEnd, e);
+            }
+        }
+
+        private Map<ObjectType, Map<CIString, RpslObjectUpdateInfo>> lookupObjects(final List<QueuedUpdate> batch) {
+            final SetMultimap<ObjectType, CIString> keys = HashMultimap.create();
+            for (final QueuedUpdate queuedUpdate : batch) {
+                keys.put(queuedUpdate.getRpslObject().getType(), queuedUpdate.getRpslObject().getKey());
+            }
+
+            final Map<ObjectType, Map<CIString, RpslObjectUpdateInfo>> result = Maps.newEnumMap(ObjectType.class);
+            for (final ObjectType objectType : keys.keySet()) {
+                result.put(objectType, nrtmClientDao.lookupObjects(objectType, keys.get(objectType)));
+            }
+            return result;
+        }
+
+        private boolean isApplied(final Map<Integer, Integer> appliedSerials, final int serialId, final RpslObjectUpdateInfo updateInfo) {
+            final Integer objectId = appliedSerials.get(serialId);
+            return objectId != null && objectId == updateInfo.getObjectId();
+        }
+
         public void update(final Operation operation, final int serialId, final RpslObject rpslObject) {
             try {
                 switch (operation) {
@@ -240,6 +377,40 @@ class NrtmClientFactory {
             return RpslObject.parse(builder.toString());
         }
 
+        private final class UpdateReader implements Runnable {
+            private final BlockingQueue<QueuedUpdate> queue;
+            private volatile Exception failure;
+
+            private UpdateReader(final BlockingQueue<QueuedUpdate> queue) {
+                this.queue = queue;
+            }
+
+            @Override
+            public void run() {
+                try {
+                    try {
+                        while (true) {
+                            final OperationSerial operationSerial = readOperationAndSerial();
+                            final RpslObject object = readObject();
+                            queue.put(new QueuedUpdate(operationSerial.getOperation(), operationSerial.getSerial(), object));
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        failure = e;
+                        queue.put(QueuedUpdate.END_OF_STREAM);
+                    }
+                } catch (InterruptedException e) {
+                    LOGGER.debug("Reader interrupted, stopping.");
+                }
+            }
+
+            private void rethrowFailure() throws IOException {
+                if (failure instanceof IOException) {
+                    throw (IOException) failure;
+                }
+                throw (RuntimeException) failure;
+            }
+        }
+
         private final class OperationSerial {
             private final Operation operation;
             private final int serial;
@@ -258,4 +429,30 @@ class NrtmClientFactory {
             }
         }
     }
+
+    private static final class QueuedUpdate {
+        private static final QueuedUpdate END_OF_STREAM = new QueuedUpdate(null, 0, null);
+
+        private final Operation operation;
+        private final int serial;
+        private final RpslObject rpslObject;
+
+        private QueuedUpdate(final Operation operation, final int serial, final RpslObject rpslObject) {
+            this.operation = operation;
+            this.serial = serial;
+            this.rpslObject = rpslObject;
+        }
+
+        private Operation getOperation() {
+            return operation;
+        }
+
+        private int getSerial() {
+            return serial;
+        }
+
+        private RpslObject getRpslObject() {
+            return rpslObject;
+        }
+    }
 }
@@ -1,8 +1,13 @@
 package net.ripe.db.whois.nrtm.dao;
 
 import net.ripe.db.whois.common.dao.RpslObjectUpdateInfo;
+import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.rpsl.ObjectType;
 import net.ripe.db.whois.common.rpsl.RpslObject;
 
+import java.util.Collection;
+import java.util.Map;
+
 public interface NrtmClientDao {
 
     RpslObjectUpdateInfo createObject(RpslObject object, int serialId);
@@ -12,4 +17,14 @@ public interface NrtmClientDao {
     void deleteObject(RpslObjectUpdateInfo info, int serialId);
 
     boolean objectExistsWithSerial(int serialId, int objectId);
+
+    /**
+     * @return the object id of every existing serial from <code>serialBegin</code> up to and including <code>serialEnd</code>, by serial id.
+     */
+    Map<Integer, Integer> getObjectIdsBySerial(int serialBegin, int serialEnd);
+
+    /**
+     * @return the update info of the existing objects of the given type with any of the given primary keys, by primary key.
+     */
+    Map<CIString, RpslObjectUpdateInfo> lookupObjects(ObjectType type, Collection<CIString> pkeys);
 }
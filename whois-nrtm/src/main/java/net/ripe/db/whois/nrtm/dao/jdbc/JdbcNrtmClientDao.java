@@ -1,16 +1,31 @@
 package net.ripe.db.whois.nrtm.dao.jdbc;
 
+import com.google.common.base.Functions;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import net.ripe.db.whois.common.DateTimeProvider;
 import net.ripe.db.whois.common.dao.RpslObjectUpdateInfo;
+import net.ripe.db.whois.common.dao.jdbc.domain.ObjectTypeIds;
+import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.rpsl.ObjectType;
 import net.ripe.db.whois.common.rpsl.RpslObject;
 import net.ripe.db.whois.nrtm.dao.NrtmClientDao;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Map;
+
+import static net.ripe.db.whois.common.domain.CIString.ciString;
 
 import static net.ripe.db.whois.common.dao.jdbc.JdbcRpslObjectOperations.*;
 
@@ -59,4 +74,45 @@ public class JdbcNrtmClientDao implements NrtmClientDao {
                 serialId, objectId);
         return found > 0;
     }
+
+    @Override
+    public Map<Integer, Integer> getObjectIdsBySerial(final int serialBegin, final int serialEnd) {
+        final Map<Integer, Integer> result = Maps.newHashMap();
+        jdbcTemplate.query(
+                "SELECT serial_id, object_id FROM serials WHERE serial_id BETWEEN ? AND ?",
+                new RowCallbackHandler() {
+                    @Override
+                    public void processRow(final ResultSet rs) throws SQLException {
+                        result.put(rs.getInt(1), rs.getInt(2));
+                    }
+                },
+                serialBegin, serialEnd);
+        return result;
+    }
+
+    @Override
+    public Map<CIString, RpslObjectUpdateInfo> lookupObjects(final ObjectType type, final Collection<CIString> pkeys) {
+        final Map<CIString, RpslObjectUpdateInfo> result = Maps.newHashMap();
+        if (pkeys.isEmpty()) {
+            return result;
+        }
+
+        final Map<String, Object> params = Maps.newHashMap();
+        params.put("objectType", ObjectTypeIds.getId(type));
+        params.put("pkeys", Lists.newArrayList(Iterables.transform(pkeys, Functions.toStringFunction())));
+
+        new NamedParameterJdbcTemplate(jdbcTemplate).query("" +
+                        "SELECT last.object_id, last.sequence_id, last.pkey " +
+                        "FROM last " +
+                        "WHERE last.object_type = :objectType AND last.pkey IN (:pkeys) AND last.sequence_id > 0",
+                params,
+                new RowCallbackHandler() {
+                    @Override
+                    public void processRow(final ResultSet rs) throws SQLException {
+                        final String pkey = rs.getString(3);
+                        result.put(ciString(pkey), new RpslObjectUpdateInfo(rs.getInt(1), rs.getInt(2), type, pkey));
+                    }
+                });
+        return result;
+    }
 }
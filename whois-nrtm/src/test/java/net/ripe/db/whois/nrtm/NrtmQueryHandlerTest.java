@@ -1,5 +1,6 @@
 package net.ripe.db.whois.nrtm;
 
+import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.Uninterruptibles;
 import net.ripe.db.whois.common.dao.SerialDao;
 import net.ripe.db.whois.common.domain.serials.Operation;
@@ -27,11 +28,13 @@ import org.springframework.scheduling.TaskScheduler;
 import java.net.InetSocketAddress;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.hamcrest.Matchers.containsString;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.atMost;
@@ -61,19 +64,36 @@ public class NrtmQueryHandlerTest {
     private static final RpslObject inetnum = RpslObject.parse("inetnum:10.0.0.1");
     private static final RpslObject person = RpslObject.parse("person:one\nnic-hdl:ONE");
 
+    private final AtomicBoolean channelOpen = new AtomicBoolean(true);
+    private final AtomicBoolean channelWritable = new AtomicBoolean(true);
+
     private NrtmQueryHandler subject;
 
     @Before
     public void setup() {
         when(contextMock.getChannel()).thenReturn(channelMock);
         when(channelMock.getRemoteAddress()).thenReturn(new InetSocketAddress(0));
-        when(channelMock.isOpen()).thenReturn(true);
+        when(channelMock.isOpen()).thenAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) throws Throwable {
+                return channelOpen.get();
+            }
+        });
+        when(channelMock.isWritable()).thenAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) throws Throwable {
+                return channelWritable.get();
+            }
+        });
         when(channelMock.write(any())).thenReturn(channelFutureMock);
         when(serialDaoMock.getSerials()).thenReturn(new SerialRange(1, 2));
-        when(serialDaoMock.getByIdForNrtm(1)).thenReturn(new SerialEntry(Operation.UPDATE, true, 1, 1000, 1000, inetnum.toByteArray()));
+        final SerialEntry inetnumEntry = SerialEntry.createSerialEntryWithoutTimestamps(1, Operation.UPDATE, true, 1, inetnum.toByteArray());
+        final SerialEntry personEntry = SerialEntry.createSerialEntryWithoutTimestamps(2, Operation.UPDATE, true, 2, person.toByteArray());
+        when(serialDaoMock.getByIdRangeForNrtm(1, 1)).thenReturn(Lists.newArrayList(inetnumEntry));
+        when(serialDaoMock.getByIdRangeForNrtm(1, 2)).thenReturn(Lists.newArrayList(inetnumEntry, personEntry));
+        when(serialDaoMock.getByIdRangeForNrtm(2, 2)).thenReturn(Lists.newArrayList(personEntry));
         when(dummifierMock.isAllowed(NrtmServer.NRTM_VERSION, inetnum)).thenReturn(true);
         when(dummifierMock.dummify(NrtmServer.NRTM_VERSION, inetnum)).thenReturn(inetnum);
-        when(serialDaoMock.getByIdForNrtm(2)).thenReturn(new SerialEntry(Operation.UPDATE, true, 2, 1000, 1000, person.toByteArray()));
         when(dummifierMock.isAllowed(NrtmServer.NRTM_VERSION, person)).thenReturn(false);
 
         when(mySchedulerMock.scheduleAtFixedRate(any(Runnable.class), anyLong())).thenAnswer(new Answer<ScheduledFuture<?>>() {
@@ -86,7 +106,6 @@ public class NrtmQueryHandlerTest {
         });
 
         subject = new NrtmQueryHandler(serialDaoMock, dummifierMock, mySchedulerMock, nrtmLogMock, VERSION, SOURCE, UPDATE_INTERVAL);
-        NrtmQueryHandler.PendingWrites.add(channelMock);
     }
 
     @Test
@@ -104,10 +123,8 @@ public class NrtmQueryHandlerTest {
 
         orderedChannelMock.verify(channelMock).write("%START Version: 2 RIPE 1-2\n\n");
         orderedChannelMock.verify(channelMock).write("%WARNING: NRTM version 2 is deprecated, please consider migrating to version 3!\n\n");
-        orderedChannelMock.verify(channelMock).write("ADD\n\n");
-        orderedChannelMock.verify(channelMock).write(inetnum + "\n");
-        orderedChannelMock.verify(channelMock).write("ADD\n\n");
-        orderedChannelMock.verify(channelMock).write(DummifierNrtm.getPlaceholderPersonObject() + "\n");
+        orderedChannelMock.verify(channelMock).write("ADD\n\n" + inetnum + "\n");
+        orderedChannelMock.verify(channelMock).write("ADD\n\n" + DummifierNrtm.getPlaceholderPersonObject() + "\n");
     }
 
     @Test
@@ -135,11 +152,10 @@ public class NrtmQueryHandlerTest {
         subject.messageReceived(contextMock, messageEventMock);
 
         verify(channelMock, times(1)).write("%START Version: 3 RIPE 1-2\n\n");
-        verify(channelMock, times(1)).write("ADD 1\n\n");
-        verify(channelMock, times(1)).write(inetnum.toString() + "\n");
-        verify(channelMock, times(0)).write("ADD 2\n\n");
-        verify(channelMock, times(0)).write(person.toString() + "\n");
+        verify(channelMock, times(1)).write("ADD 1\n\n" + inetnum + "\n");
+        verify(channelMock, times(0)).write("ADD 2\n\n" + person + "\n");
         verify(channelMock, times(1)).write("%END RIPE\n\n");
+        verify(serialDaoMock, times(1)).getByIdRangeForNrtm(1, 2);
     }
 
     @Test
@@ -150,8 +166,7 @@ public class NrtmQueryHandlerTest {
 
         verify(channelMock, times(1)).write("%START Version: 3 RIPE 1-2\n\n");
         verify(mySchedulerMock, times(1)).scheduleAtFixedRate(any(Runnable.class), anyLong());
-        verify(channelMock, times(1)).write("ADD 1\n\n");
-        verify(channelMock, times(1)).write(inetnum.toString() + "\n");
+        verify(channelMock, times(1)).write("ADD 1\n\n" + inetnum + "\n");
     }
 
     @Test
@@ -160,8 +175,22 @@ public class NrtmQueryHandlerTest {
 
         subject.messageReceived(contextMock, messageEventMock);
 
-        verify(channelMock, times(1)).write("ADD 1\n\n");
-        verify(channelMock, times(1)).write(inetnum.toString() + "\n");
+        verify(channelMock, times(1)).write("ADD 1\n\n" + inetnum + "\n");
+    }
+
+    @Test
+    public void gFlagReadsSerialsInBatches() {
+        when(serialDaoMock.getSerials()).thenReturn(new SerialRange(1, 2 * NrtmQueryHandler.SERIAL_BATCH_SIZE + 1));
+        when(serialDaoMock.getByIdRangeForNrtm(anyInt(), anyInt())).thenReturn(Lists.<SerialEntry>newArrayList());
+        when(messageEventMock.getMessage()).thenReturn("-g RIPE:3:1-LAST");
+
+        subject.messageReceived(contextMock, messageEventMock);
+
+        final InOrder orderedSerialDaoMock = inOrder(serialDaoMock);
+        orderedSerialDaoMock.verify(serialDaoMock).getByIdRangeForNrtm(1, NrtmQueryHandler.SERIAL_BATCH_SIZE);
+        orderedSerialDaoMock.verify(serialDaoMock).getByIdRangeForNrtm(NrtmQueryHandler.SERIAL_BATCH_SIZE + 1, 2 * NrtmQueryHandler.SERIAL_BATCH_SIZE);
+        orderedSerialDaoMock.verify(serialDaoMock).getByIdRangeForNrtm(2 * NrtmQueryHandler.SERIAL_BATCH_SIZE + 1, 2 * NrtmQueryHandler.SERIAL_BATCH_SIZE + 1);
+        verify(channelMock, times(1)).write("%END RIPE\n\n");
     }
 
     @Test
@@ -178,7 +207,7 @@ public class NrtmQueryHandlerTest {
 
     @Test
     public void closedChannel() {
-        when(channelMock.isOpen()).thenReturn(false);
+        channelOpen.set(false);
         when(messageEventMock.getMessage()).thenReturn("-g RIPE:3:1-2");
 
         try {
@@ -222,49 +251,59 @@ public class NrtmQueryHandlerTest {
 
     @Test
     public void throttleChannelKeepaliveQuery() {
-        setPending(channelMock);
+        channelWritable.set(false);
         when(messageEventMock.getMessage()).thenReturn("-g RIPE:3:1-LAST -k");
 
         messageReceived();
-        unsetPending(channelMock);
+        Uninterruptibles.sleepUninterruptibly(1, TimeUnit.SECONDS);
 
         verify(channelMock, times(1)).write("%START Version: 3 RIPE 1-2\n\n");
         verify(channelMock, atMost(1)).write(any(String.class));
         verify(mySchedulerMock, times(1)).scheduleAtFixedRate(any(Runnable.class), anyLong());
+
+        channelOpen.set(false);
+    }
+
+    @Test
+    public void throttleChannelUntilWritable() {
+        channelWritable.set(false);
+        when(messageEventMock.getMessage()).thenReturn("-g RIPE:3:1-2");
+
+        final Thread thread = messageReceived();
+        Uninterruptibles.sleepUninterruptibly(1, TimeUnit.SECONDS);
+
+        verify(channelMock, times(1)).write("%START Version: 3 RIPE 1-2\n\n");
+        verify(channelMock, atMost(1)).write(any(String.class));
+
+        channelWritable.set(true);
+        Uninterruptibles.joinUninterruptibly(thread, 5, TimeUnit.SECONDS);
+
+        verify(channelMock, times(1)).write("ADD 1\n\n" + inetnum + "\n");
+        verify(channelMock, times(1)).write("%END RIPE\n\n");
     }
 
     @Test
     public void retryForAnnotation() {
-        when(serialDaoMock.getByIdForNrtm(any(Integer.class))).thenThrow(CannotGetJdbcConnectionException.class);
+        when(serialDaoMock.getByIdRangeForNrtm(anyInt(), anyInt())).thenThrow(CannotGetJdbcConnectionException.class);
         when(messageEventMock.getMessage()).thenReturn("-g RIPE:3:1-LAST");
 
         try {
             subject.messageReceived(contextMock, messageEventMock);
             fail();
         } catch (CannotGetJdbcConnectionException e) {
-            verify(serialDaoMock, times(10)).getByIdForNrtm(1);
-        }
-    }
-
-    private void setPending(final Channel channelMock) {
-        NrtmQueryHandler.PendingWrites.add(channelMock);
-        while (!NrtmQueryHandler.PendingWrites.isPending(channelMock)) {
-            NrtmQueryHandler.PendingWrites.increment(channelMock);
+            verify(serialDaoMock, times(10)).getByIdRangeForNrtm(1, 2);
         }
     }
 
-    private void unsetPending(final Channel channelMock) {
-        Uninterruptibles.sleepUninterruptibly(1, TimeUnit.SECONDS);
-        NrtmQueryHandler.PendingWrites.decrement(channelMock);
-    }
-
-    private void messageReceived() {
-        new Thread(new Runnable() {
+    private Thread messageReceived() {
+        final Thread thread = new Thread(new Runnable() {
             @Override
             public void run() {
                 subject.messageReceived(contextMock, messageEventMock);
             }
-        }).start();
+        });
+        thread.start();
+        return thread;
     }
 
 }
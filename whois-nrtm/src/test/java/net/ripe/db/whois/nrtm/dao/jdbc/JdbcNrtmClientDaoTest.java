@@ -1,6 +1,7 @@
 package net.ripe.db.whois.nrtm.dao.jdbc;
 
 import net.ripe.db.whois.common.dao.RpslObjectUpdateInfo;
+import net.ripe.db.whois.common.domain.CIString;
 import net.ripe.db.whois.common.domain.serials.Operation;
 import net.ripe.db.whois.common.rpsl.ObjectType;
 import net.ripe.db.whois.common.rpsl.RpslObject;
@@ -12,7 +13,10 @@ import org.springframework.test.context.ContextConfiguration;
 
 import java.util.Map;
 
+import static net.ripe.db.whois.common.domain.CIString.ciSet;
+import static net.ripe.db.whois.common.domain.CIString.ciString;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 
@@ -67,6 +71,43 @@ public class JdbcNrtmClientDaoTest extends AbstractDaoTest {
         assertThat(subject.objectExistsWithSerial(2462345, object.getObjectId()), is(true));
     }
 
+    @Test
+    public void getObjectIdsBySerial() {
+        final RpslObject object1 = databaseHelper.addObject(RpslObject.parse("aut-num: AS1"));
+        final RpslObject object2 = databaseHelper.addObject(RpslObject.parse("aut-num: AS2"));
+        databaseHelper.updateObject(object1);
+
+        final Map<Integer, Integer> objectIds = subject.getObjectIdsBySerial(2, 10);
+
+        assertThat(objectIds.size(), is(2));
+        assertThat(objectIds.get(2), is(object2.getObjectId()));
+        assertThat(objectIds.get(3), is(object1.getObjectId()));
+    }
+
+    @Test
+    public void lookupObjects() {
+        final RpslObject object1 = databaseHelper.addObject(RpslObject.parse("aut-num: AS1"));
+        final RpslObject object2 = databaseHelper.updateObject(databaseHelper.addObject(RpslObject.parse("aut-num: AS2")));
+        databaseHelper.addObject(RpslObject.parse("mntner: AS3"));
+
+        final Map<CIString, RpslObjectUpdateInfo> objects = subject.lookupObjects(ObjectType.AUT_NUM, ciSet("as1", "AS2", "AS3"));
+
+        assertThat(objects.keySet(), containsInAnyOrder(ciString("AS1"), ciString("AS2")));
+        assertThat(objects.get(ciString("AS1")).getObjectId(), is(object1.getObjectId()));
+        assertThat(objects.get(ciString("AS1")).getSequenceId(), is(1));
+        assertThat(objects.get(ciString("AS2")).getObjectId(), is(object2.getObjectId()));
+        assertThat(objects.get(ciString("AS2")).getSequenceId(), is(2));
+        assertThat(objects.get(ciString("AS2")).getObjectType(), is(ObjectType.AUT_NUM));
+    }
+
+    @Test
+    public void lookupObjects_deleted() {
+        final RpslObject object = databaseHelper.addObject(RpslObject.parse("aut-num: AS1"));
+        databaseHelper.deleteObject(object);
+
+        assertThat(subject.lookupObjects(ObjectType.AUT_NUM, ciSet("AS1")).isEmpty(), is(true));
+    }
+
     @Test
     public void deleteObject() {
         final RpslObject object = databaseHelper.updateObject(databaseHelper.addObject(RpslObject.parse("person: Test Person\nnic-hdl: TP1-TEST")));
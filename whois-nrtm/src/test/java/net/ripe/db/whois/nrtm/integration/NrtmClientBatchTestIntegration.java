@@ -0,0 +1,27 @@
+package net.ripe.db.whois.nrtm.integration;
+
+import net.ripe.db.whois.common.IntegrationTest;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.experimental.categories.Category;
+import org.springframework.test.annotation.DirtiesContext;
+
+/**
+ * Runs the NRTM client tests with updates applied in batches.
+ */
+@Category(IntegrationTest.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class NrtmClientBatchTestIntegration extends NrtmClientTestIntegration {
+
+    @BeforeClass
+    public static void setBatchSize() {
+        System.setProperty("nrtm.import.batch.size", "10");
+        System.setProperty("nrtm.import.batch.interval.msecs", "100");
+    }
+
+    @AfterClass
+    public static void resetBatchSize() {
+        System.clearProperty("nrtm.import.batch.size");
+        System.clearProperty("nrtm.import.batch.interval.msecs");
+    }
+}
@@ -0,0 +1,52 @@
+package net.ripe.db.whois.nrtm.integration;
+
+import com.google.common.base.Stopwatch;
+import net.ripe.db.whois.common.IntegrationTest;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.common.support.TelnetWhoisClient;
+import net.ripe.db.whois.nrtm.NrtmServer;
+import org.apache.commons.lang.StringUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+@Category(IntegrationTest.class)
+public class NrtmThroughputTestIntegration extends AbstractNrtmIntegrationBase {
+    private static final Logger LOGGER = LoggerFactory.getLogger(NrtmThroughputTestIntegration.class);
+
+    private static final int NUM_SERIALS = 5000;
+
+    @Before
+    public void before() throws Exception {
+        for (int i = 1; i <= NUM_SERIALS; i++) {
+            databaseHelper.addObject(RpslObject.parse(String.format("mntner:MNT%d-TEST\nsource:TEST", i)));
+        }
+        nrtmServer.start();
+    }
+
+    @After
+    public void after() {
+        nrtmServer.stop(true);
+    }
+
+    @Test
+    public void mirrorQueryThroughput() {
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        final String response = TelnetWhoisClient.queryLocalhost(NrtmServer.getPort(), String.format("-g TEST:3:1-%d", NUM_SERIALS), 60 * 1000);
+        final long elapsedMillis = Math.max(1, stopwatch.elapsed(TimeUnit.MILLISECONDS));
+
+        assertThat(StringUtils.countMatches(response, "\nADD "), is(NUM_SERIALS));
+        assertThat(response, containsString("%END TEST"));
+
+        LOGGER.info("Mirrored {} serials in {} ms ({} serials/second)", NUM_SERIALS, elapsedMillis, NUM_SERIALS * 1000L / elapsedMillis);
+    }
+}
@@ -1,5 +1,7 @@
 package net.ripe.db.whois.query.acl;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import net.ripe.db.whois.common.DateTimeProvider;
 import net.ripe.db.whois.common.domain.BlockEvent;
 import net.ripe.db.whois.common.domain.IpRanges;
@@ -26,12 +28,17 @@ public class AccessControlListManager {
 
     static final int IPV6_NETMASK = 64;
 
+    private static final int MAX_DECISIONS = 100_000;
+
     private final DateTimeProvider dateTimeProvider;
     private final IpResourceConfiguration resourceConfiguration;
     private final AccessControlListDao accessControlListDao;
     private final PersonalObjectAccounting personalObjectAccounting;
     private final IpRanges ipRanges;
 
+    // decisions are recomputed once the configuration is reloaded, which also picks up new permanent blocks
+    private final Cache<InetAddress, AclDecision> decisions = CacheBuilder.newBuilder().maximumSize(MAX_DECISIONS).build();
+
     @Autowired
     public AccessControlListManager(final DateTimeProvider dateTimeProvider,
                                     final IpResourceConfiguration resourceConfiguration,
@@ -56,19 +63,19 @@ public class AccessControlListManager {
     }
 
     public boolean isDenied(final InetAddress remoteAddress) {
-        return resourceConfiguration.isDenied(remoteAddress);
+        return getDecision(remoteAddress).isDenied();
     }
 
     public boolean isAllowedToProxy(final InetAddress remoteAddress) {
-        return resourceConfiguration.isProxy(remoteAddress);
+        return getDecision(remoteAddress).isProxy();
     }
 
     int getPersonalDataLimit(final InetAddress remoteAddress) {
-        return resourceConfiguration.getLimit(remoteAddress);
+        return getDecision(remoteAddress).getLimit();
     }
 
     public boolean isUnlimited(final InetAddress remoteAddress) {
-        return getPersonalDataLimit(remoteAddress) < 0;
+        return getDecision(remoteAddress).isUnlimited();
     }
 
     public boolean canQueryPersonalObjects(final InetAddress remoteAddress) {
@@ -80,15 +87,15 @@ public class AccessControlListManager {
     }
 
     public int getPersonalObjects(final InetAddress remoteAddress) {
-        if (isUnlimited(remoteAddress)) {
+        final AclDecision decision = getDecision(remoteAddress);
+        if (decision.isUnlimited()) {
             return Integer.MAX_VALUE;
         }
 
         final InetAddress maskedAddress = mask(remoteAddress, IPV6_NETMASK);
         final int queried = personalObjectAccounting.getQueriedPersonalObjects(maskedAddress);
-        final int personalDataLimit = getPersonalDataLimit(remoteAddress);
 
-        return personalDataLimit - queried;
+        return decision.getLimit() - queried;
     }
 
     /**
@@ -120,6 +127,23 @@ public class AccessControlListManager {
         accessControlListDao.saveAclEvent(maskedAddress, dateTimeProvider.getCurrentDate(), limit, BlockEvent.Type.BLOCK_TEMPORARY);
     }
 
+    AclDecision getDecision(final InetAddress remoteAddress) {
+        final long version = resourceConfiguration.getVersion();
+
+        final AclDecision cached = decisions.getIfPresent(remoteAddress);
+        if (cached != null && cached.getVersion() == version) {
+            return cached;
+        }
+
+        final AclDecision decision = new AclDecision(
+                version,
+                resourceConfiguration.isDenied(remoteAddress),
+                resourceConfiguration.isProxy(remoteAddress),
+                resourceConfiguration.getLimit(remoteAddress));
+
+        decisions.put(remoteAddress, decision);
+        return decision;
+    }
 
     public static InetAddress mask(final InetAddress address, final int mask) {
         if (address instanceof Inet6Address) {
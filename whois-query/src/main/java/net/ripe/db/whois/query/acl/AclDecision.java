@@ -0,0 +1,41 @@
+package net.ripe.db.whois.query.acl;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * The access control settings of a remote address, as of a version of the {@link IpResourceConfiguration}.
+ */
+@Immutable
+final class AclDecision {
+    private final long version;
+    private final boolean denied;
+    private final boolean proxy;
+    private final int limit;
+
+    AclDecision(final long version, final boolean denied, final boolean proxy, final int limit) {
+        this.version = version;
+        this.denied = denied;
+        this.proxy = proxy;
+        this.limit = limit;
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    boolean isDenied() {
+        return denied;
+    }
+
+    boolean isProxy() {
+        return proxy;
+    }
+
+    int getLimit() {
+        return limit;
+    }
+
+    boolean isUnlimited() {
+        return limit < 0;
+    }
+}
@@ -7,12 +7,16 @@ import com.hazelcast.core.OperationTimeoutException;
 import net.ripe.db.whois.common.profiles.DeployedProfile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.net.InetAddress;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -26,6 +30,16 @@ public class HazelcastPersonalObjectAccounting implements PersonalObjectAccounti
 
     private static volatile HazelcastInstance instance;
 
+    private long flushIntervalMillis;
+    private PersonalObjectCounters personalObjectCounters;
+    private ScheduledExecutorService flushExecutor;
+
+    // accounting on each node is merged into the shared counters at this interval, instead of locking them (0 disables)
+    @Value("${personal.accounting.flush.interval.msecs:0}")
+    void setFlushIntervalMillis(final long flushIntervalMillis) {
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
     static synchronized void startHazelcast() {
         if (instance != null) {
             throw new IllegalStateException("Hazelcast already started");
@@ -45,15 +59,52 @@ public class HazelcastPersonalObjectAccounting implements PersonalObjectAccounti
     @PostConstruct
     public void startService() {
         startHazelcast();
+
+        if (flushIntervalMillis > 0) {
+            LOGGER.info("Merging personal object accounting every {} ms", flushIntervalMillis);
+            personalObjectCounters = new PersonalObjectCounters(counterMap, flushIntervalMillis);
+            flushExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable r) {
+                    final Thread thread = new Thread(r, "PersonalObjectAccounting");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            flushExecutor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        personalObjectCounters.flush();
+                    } catch (RuntimeException e) {
+                        LOGGER.error("Unexpected", e);
+                    }
+                }
+            }, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        }
     }
 
     @PreDestroy
     public void stopService() {
+        if (flushExecutor != null) {
+            flushExecutor.shutdown();
+            try {
+                flushExecutor.awaitTermination(flushIntervalMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            personalObjectCounters.flush();
+        }
+
         shutdownHazelcast();
     }
 
     @Override
     public int getQueriedPersonalObjects(final InetAddress remoteAddress) {
+        if (personalObjectCounters != null) {
+            return personalObjectCounters.get(remoteAddress);
+        }
+
         Integer count = null;
         try {
             count = counterMap.get(remoteAddress);
@@ -70,6 +121,10 @@ public class HazelcastPersonalObjectAccounting implements PersonalObjectAccounti
 
     @Override
     public int accountPersonalObject(final InetAddress remoteAddress, final int amount) {
+        if (personalObjectCounters != null) {
+            return personalObjectCounters.account(remoteAddress, amount);
+        }
+
         try {
             Integer count = counterMap.tryLockAndGet(remoteAddress, 3, TimeUnit.SECONDS);
 
@@ -92,5 +147,9 @@ public class HazelcastPersonalObjectAccounting implements PersonalObjectAccounti
     public void resetAccounting() {
         LOGGER.debug("Reset person object counters ({} entries)", counterMap.size());
         counterMap.clear();
+
+        if (personalObjectCounters != null) {
+            personalObjectCounters.clear();
+        }
     }
 }
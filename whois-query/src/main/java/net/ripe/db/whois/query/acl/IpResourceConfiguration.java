@@ -24,6 +24,8 @@ public class IpResourceConfiguration {
     private IpResourceTree<Integer> limit;
     private IpResourceTree<Boolean> unlimitedConnections;
 
+    private volatile long version;
+
     @Autowired
     public IpResourceConfiguration(final Loader loader) {
         this.loader = loader;
@@ -69,6 +71,13 @@ public class IpResourceConfiguration {
         return result != null && result;
     }
 
+    /**
+     * @return The version of the configuration, which changes every time it is reloaded.
+     */
+    public long getVersion() {
+        return version;
+    }
+
     @PostConstruct
     @Scheduled(fixedDelay = TREE_UPDATE_IN_SECONDS * 1000)
     public synchronized void reload() {
@@ -76,6 +85,7 @@ public class IpResourceConfiguration {
         proxy = refreshEntries(loader.loadIpProxy());
         limit = refreshEntries(loader.loadIpLimit());
         unlimitedConnections = refreshEntries(loader.loadUnlimitedConnections());
+        version++;
     }
 
     private <V> IpResourceTree<V> refreshEntries(final List<IpResourceEntry<V>> entries) {
@@ -0,0 +1,139 @@
+package net.ripe.db.whois.query.acl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts personal objects per address on this node, and merges the counts into the counters shared by all nodes with
+ * {@link #flush()}, which is expected to be called every <code>flushIntervalMillis</code>.
+ * <p/>
+ * Accounting never waits for the shared counters. The count of an address is its shared count as of the last flush,
+ * plus what was accounted on this node since. A client can exceed its limit by at most what was accounted for it on
+ * other nodes within about one interval.
+ */
+class PersonalObjectCounters {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PersonalObjectCounters.class);
+
+    // counters of addresses not queried for this many intervals are dropped
+    private static final int IDLE_INTERVALS = 100;
+
+    private final ConcurrentMap<InetAddress, Integer> sharedCounters;
+    private final long flushIntervalMillis;
+    private final ConcurrentMap<InetAddress, Counter> counters = new ConcurrentHashMap<>();
+
+    PersonalObjectCounters(final ConcurrentMap<InetAddress, Integer> sharedCounters, final long flushIntervalMillis) {
+        this.sharedCounters = sharedCounters;
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    int get(final InetAddress address) {
+        return getCounter(address).get();
+    }
+
+    int account(final InetAddress address, final int amount) {
+        final Counter counter = getCounter(address);
+        counter.pending.add(amount);
+        return counter.get();
+    }
+
+    void clear() {
+        counters.clear();
+    }
+
+    void flush() {
+        final long now = System.currentTimeMillis();
+
+        for (final Map.Entry<InetAddress, Counter> entry : counters.entrySet()) {
+            final InetAddress address = entry.getKey();
+            final Counter counter = entry.getValue();
+
+            final boolean touched = counter.touched;
+            counter.touched = false;
+
+            final long amount = counter.pending.sumThenReset();
+            if (amount == 0 && !touched) {
+                if (now - counter.refreshedAt > IDLE_INTERVALS * flushIntervalMillis && counters.remove(address, counter)) {
+                    // merge whatever was accounted while the counter was being removed
+                    final long remaining = counter.pending.sumThenReset();
+                    if (remaining != 0) {
+                        merge(address, counter, remaining, now);
+                    }
+                }
+                continue;
+            }
+
+            merge(address, counter, amount, now);
+        }
+    }
+
+    private Counter getCounter(final InetAddress address) {
+        Counter counter = counters.get(address);
+        if (counter == null) {
+            final Counter created = new Counter();
+            counter = counters.putIfAbsent(address, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+
+        counter.touched = true;
+
+        // new or idle counters are read from the shared counters right away, instead of at the next flush
+        final long now = System.currentTimeMillis();
+        if (now - counter.refreshedAt > 2 * flushIntervalMillis) {
+            try {
+                counter.shared = read(address);
+                counter.refreshedAt = now;
+            } catch (RuntimeException e) {
+                LOGGER.info("Unable to read personal object count, using local count");
+            }
+        }
+
+        return counter;
+    }
+
+    private void merge(final InetAddress address, final Counter counter, final long amount, final long now) {
+        try {
+            counter.shared = (amount == 0) ? read(address) : add(address, (int) amount);
+            counter.refreshedAt = now;
+        } catch (RuntimeException e) {
+            counter.pending.add(amount);
+            LOGGER.info("Unable to merge personal object count, retrying at next flush");
+        }
+    }
+
+    private int read(final InetAddress address) {
+        final Integer shared = sharedCounters.get(address);
+        return (shared == null) ? 0 : shared;
+    }
+
+    private int add(final InetAddress address, final int amount) {
+        for (;;) {
+            final Integer shared = sharedCounters.get(address);
+            if (shared == null) {
+                if (sharedCounters.putIfAbsent(address, amount) == null) {
+                    return amount;
+                }
+            } else if (sharedCounters.replace(address, shared, shared + amount)) {
+                return shared + amount;
+            }
+        }
+    }
+
+    private static class Counter {
+        private final LongAdder pending = new LongAdder();
+        private volatile int shared;
+        private volatile long refreshedAt;
+        private volatile boolean touched;
+
+        private int get() {
+            return shared + (int) pending.sum();
+        }
+    }
+}
@@ -3,6 +3,7 @@ package net.ripe.db.whois.query.executor;
 import com.google.common.base.Function;
 import com.google.common.base.Joiner;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import net.ripe.db.whois.common.domain.CIString;
 import net.ripe.db.whois.common.domain.ResponseObject;
@@ -11,27 +12,77 @@ import net.ripe.db.whois.common.source.Source;
 import net.ripe.db.whois.common.source.SourceContext;
 import net.ripe.db.whois.query.domain.MessageObject;
 import net.ripe.db.whois.query.QueryMessages;
+import net.ripe.db.whois.query.domain.QueryCompletionInfo;
+import net.ripe.db.whois.query.domain.QueryException;
 import net.ripe.db.whois.query.domain.ResponseHandler;
 import net.ripe.db.whois.query.planner.RpslResponseDecorator;
 import net.ripe.db.whois.query.query.Query;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.CheckForNull;
+import javax.annotation.PreDestroy;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Component
 public class SearchQueryExecutor implements QueryExecutor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SearchQueryExecutor.class);
+
+    private static final ResponseObject END_OF_RESPONSES = new MessageObject("");
+
     private final SourceContext sourceContext;
     private final RpslObjectSearcher rpslObjectSearcher;
     private final RpslResponseDecorator rpslResponseDecorator;
+    private final ExecutorService executorService;
+    private final long timeoutMillis;
+    private final int queueSize;
 
     @Autowired
     public SearchQueryExecutor(final SourceContext sourceContext,
                                final RpslObjectSearcher rpslObjectSearcher,
-                               final RpslResponseDecorator rpslResponseDecorator) {
+                               final RpslResponseDecorator rpslResponseDecorator,
+                               @Value("${query.sources.threads:0}") final int nrThreads,
+                               @Value("${query.sources.timeout.msecs:0}") final long timeoutMillis,
+                               @Value("${query.sources.queue.size:1000}") final int queueSize) {
         this.sourceContext = sourceContext;
         this.rpslObjectSearcher = rpslObjectSearcher;
         this.rpslResponseDecorator = rpslResponseDecorator;
+        this.timeoutMillis = timeoutMillis;
+        this.queueSize = queueSize;
+
+        if (nrThreads > 0) {
+            this.executorService = Executors.newFixedThreadPool(nrThreads, new ThreadFactory() {
+                final AtomicInteger threadNum = new AtomicInteger();
+
+                @Override
+                public Thread newThread(final Runnable r) {
+                    final Thread thread = new Thread(r, String.format("SearchQueryExecutor-%s", threadNum.incrementAndGet()));
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        } else {
+            this.executorService = null;
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
     }
 
     @Override
@@ -57,21 +108,35 @@ public class SearchQueryExecutor implements QueryExecutor {
     @Override
     public void execute(final Query query, final ResponseHandler responseHandler) {
         //TODO intentional lack of RsplObject in results should not give below error (-> add+implement Query.shouldProduceRpslObjects())
+        final Set<Source> sources = getSources(query);
+
+        final boolean noResults;
+        if (executorService != null && sources.size() > 1) {
+            noResults = executeConcurrently(query, sources, responseHandler);
+        } else {
+            noResults = executeSequentially(query, sources, responseHandler);
+        }
+
+        if (noResults) {
+            responseHandler.handle(new MessageObject(QueryMessages.noResults(Joiner.on(',').join(Iterables.transform(sources, new Function<Source, String>() {
+                @Override
+                public String apply(final Source input) {
+                    return input.getName().toUpperCase();
+                }
+            })))));
+        }
+    }
+
+    private boolean executeSequentially(final Query query, final Set<Source> sources, final ResponseHandler responseHandler) {
         boolean noResults = true;
 
-        final Set<Source> sources = getSources(query);
         for (final Source source : sources) {
             try {
                 sourceContext.setCurrent(source);
                 final Iterable<? extends ResponseObject> searchResults = rpslObjectSearcher.search(query);
 
-                for (final ResponseObject responseObject : rpslResponseDecorator.getResponse(query, searchResults)) {
-
-                    responseHandler.handle(responseObject);
-
-                    if (!(responseObject instanceof MessageObject)) {
-                        noResults = false;
-                    }
+                if (handle(rpslResponseDecorator.getResponse(query, searchResults), responseHandler)) {
+                    noResults = false;
                 }
             } catch (IllegalSourceException e) {
                 responseHandler.handle(new MessageObject(QueryMessages.unknownSource(source.getName())));
@@ -81,14 +146,157 @@ public class SearchQueryExecutor implements QueryExecutor {
             }
         }
 
-        if (noResults) {
-            responseHandler.handle(new MessageObject(QueryMessages.noResults(Joiner.on(',').join(Iterables.transform(sources, new Function<Source, String>() {
-                @Override
-                public String apply(final Source input) {
-                    return input.getName().toUpperCase();
+        return noResults;
+    }
+
+    /**
+     * Search all sources in parallel, each with its own source context, and stream the responses in source order.
+     * The decorated results are lazy and need the source context of the thread that searched them, so each source
+     * is read on its own thread into a bounded queue: the first source is streamed as it is read, while the later
+     * sources only read ahead up to the queue size. Once the query stops, e.g. because a limit is exceeded, the
+     * searches still running are interrupted.
+     */
+    private boolean executeConcurrently(final Query query, final Set<Source> sources, final ResponseHandler responseHandler) {
+        final Map<Source, SourceSearch> searches = Maps.newLinkedHashMap();
+        for (final Source source : sources) {
+            final SourceSearch search = new SourceSearch(query, source);
+            search.future = executorService.submit(search);
+            searches.put(source, search);
+        }
+
+        final long deadline = System.currentTimeMillis() + timeoutMillis;
+        boolean noResults = true;
+
+        try {
+            for (final Map.Entry<Source, SourceSearch> entry : searches.entrySet()) {
+                final Source source = entry.getKey();
+                final SourceSearch search = entry.getValue();
+
+                try {
+                    // an unknown source fails on the first response, before the response handler is involved
+                    ResponseObject responseObject = search.next(deadline);
+
+                    // the response handler may depend on the current source, e.g. for accounting
+                    sourceContext.setCurrent(source);
+                    while (responseObject != null) {
+                        responseHandler.handle(responseObject);
+                        if (!(responseObject instanceof MessageObject)) {
+                            noResults = false;
+                        }
+
+                        responseObject = search.next(deadline);
+                    }
+                } catch (IllegalSourceException e) {
+                    responseHandler.handle(new MessageObject(QueryMessages.unknownSource(source.getName())));
+                    noResults = false;
+                } finally {
+                    sourceContext.removeCurrentSource();
                 }
-            })))));
+            }
+        } finally {
+            for (final SourceSearch search : searches.values()) {
+                search.future.cancel(true);
+            }
+        }
+
+        return noResults;
+    }
+
+    private final class SourceSearch implements Runnable {
+        private final Query query;
+        private final Source source;
+        private final BlockingQueue<ResponseObject> responses = new ArrayBlockingQueue<>(queueSize);
+
+        private volatile Throwable failure;
+        private Future<?> future;
+
+        private SourceSearch(final Query query, final Source source) {
+            this.query = query;
+            this.source = source;
         }
+
+        @Override
+        public void run() {
+            boolean interrupted = false;
+            try {
+                sourceContext.setCurrent(source);
+                final Iterable<? extends ResponseObject> searchResults = rpslObjectSearcher.search(query);
+                for (final ResponseObject responseObject : rpslResponseDecorator.getResponse(query, searchResults)) {
+                    responses.put(responseObject);
+                }
+            } catch (InterruptedException e) {
+                // the query no longer reads the responses of this source
+                interrupted = true;
+            } catch (Throwable t) {
+                // also errors, as the query would otherwise wait for the end of the responses forever
+                failure = t;
+            } finally {
+                sourceContext.removeCurrentSource();
+
+                if (!interrupted) {
+                    try {
+                        responses.put(END_OF_RESPONSES);
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        /**
+         * @return the next response of this source, or null after the last one
+         */
+        @CheckForNull
+        private ResponseObject next(final long deadline) {
+            final ResponseObject responseObject;
+            try {
+                if (timeoutMillis > 0) {
+                    responseObject = responses.poll(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+                    if (responseObject == null) {
+                        LOGGER.info("Search timed out after {} ms", timeoutMillis);
+                        throw new QueryException(QueryCompletionInfo.EXCEPTION, QueryMessages.timeout());
+                    }
+                } else {
+                    responseObject = responses.take();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new QueryException(QueryCompletionInfo.EXCEPTION, QueryMessages.internalErroroccurred());
+            }
+
+            if (responseObject == END_OF_RESPONSES) {
+                if (failure instanceof RuntimeException) {
+                    throw (RuntimeException) failure;
+                }
+                if (failure instanceof Error) {
+                    throw (Error) failure;
+                }
+                if (failure != null) {
+                    throw new IllegalStateException(failure);
+                }
+                return null;
+            }
+
+            return responseObject;
+        }
+    }
+
+    private static boolean handle(final Iterable<? extends ResponseObject> responseObjects, final ResponseHandler responseHandler) {
+        boolean hasResults = false;
+
+        for (final ResponseObject responseObject : responseObjects) {
+            responseHandler.handle(responseObject);
+
+            if (!(responseObject instanceof MessageObject)) {
+                hasResults = true;
+            }
+        }
+
+        return hasResults;
     }
 
     private Set<Source> getSources(final Query query) {
@@ -3,6 +3,7 @@ package net.ripe.db.whois.query.pipeline;
 import com.google.common.base.Charsets;
 import net.ripe.db.whois.common.Message;
 import net.ripe.db.whois.common.domain.ResponseObject;
+import net.ripe.db.whois.common.rpsl.RpslObject;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBufferOutputStream;
 import org.jboss.netty.buffer.ChannelBuffers;
@@ -22,7 +23,12 @@ public class WhoisEncoder extends OneToOneEncoder {
 
     @Override
     protected Object encode(final ChannelHandlerContext ctx, final Channel channel, final Object msg) throws IOException {
-        if (msg instanceof ResponseObject) {
+        if (msg instanceof RpslObject) {
+            // wrap the encoded object instead of copying it into a new buffer
+            return ChannelBuffers.wrappedBuffer(
+                    ChannelBuffers.wrappedBuffer(((RpslObject) msg).toByteBuffer()),
+                    ChannelBuffers.wrappedBuffer(OBJECT_TERMINATOR));
+        } else if (msg instanceof ResponseObject) {
             final ChannelBuffer result = ChannelBuffers.dynamicBuffer(DEFAULT_BUFFER_SIZE);
             final ChannelBufferOutputStream out = new ChannelBufferOutputStream(result);
 
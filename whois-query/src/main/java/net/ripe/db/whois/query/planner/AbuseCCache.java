@@ -0,0 +1,225 @@
+package net.ripe.db.whois.query.planner;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.SetMultimap;
+import net.ripe.db.whois.common.dao.jdbc.domain.ObjectTypeIds;
+import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.domain.serials.Operation;
+import net.ripe.db.whois.common.ip.IpInterval;
+import net.ripe.db.whois.common.ip.Ipv4Resource;
+import net.ripe.db.whois.common.ip.Ipv6Resource;
+import net.ripe.db.whois.common.iptree.IpTreeCacheManager;
+import net.ripe.db.whois.common.iptree.SerialFollowingCache;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.common.source.SourceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.CheckForNull;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static net.ripe.db.whois.common.domain.CIString.ciString;
+
+/**
+ * Caches the abuse-c role resolved for resources of the main source, by object id.
+ * <p/>
+ * An entry depends on the objects it was resolved from: the resources along the parent chain, their organisations and
+ * abuse-c roles. Entries are invalidated from the serials, once the IP trees have been updated past them, when any of
+ * these objects change, or when a less specific resource is created or deleted.
+ */
+@Component
+public class AbuseCCache extends SerialFollowingCache {
+    private final Cache<Integer, Entry> cache;
+
+    // puts are rejected when an invalidation happened while the entry was resolved
+    private final ReadWriteLock invalidationLock = new ReentrantReadWriteLock();
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @Autowired
+    public AbuseCCache(final IpTreeCacheManager ipTreeCacheManager,
+                       final SourceContext sourceContext,
+                       @Value("${abuse.cache.size:10000}") final int cacheSize) {
+        super(ipTreeCacheManager, sourceContext, "abuse-c", cacheSize > 0);
+        this.cache = CacheBuilder.newBuilder().maximumSize(Math.max(cacheSize, 0)).build();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return super.isEnabled() && isInitialised();
+    }
+
+    @CheckForNull
+    public Entry get(final int objectId) {
+        final Entry entry = cache.getIfPresent(objectId);
+        if (entry == null) {
+            recordMiss();
+        } else {
+            recordHit();
+        }
+        return entry;
+    }
+
+    /**
+     * @return the generation to pass to {@link #put}, to be read before resolving an entry.
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    public void put(final int objectId, final long generation, final Entry entry) {
+        invalidationLock.readLock().lock();
+        try {
+            if (this.generation.get() == generation) {
+                cache.put(objectId, entry);
+            }
+        } finally {
+            invalidationLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        invalidationLock.writeLock().lock();
+        try {
+            generation.incrementAndGet();
+            invalidations.addAndGet(cache.size());
+            cache.invalidateAll();
+        } finally {
+            invalidationLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    protected void invalidate(final JdbcTemplate jdbcTemplate, final long fromExclusive, final long toInclusive) {
+        final SetMultimap<ObjectType, CIString> changedKeys = HashMultimap.create();
+        final List<IpInterval<?>> changedResources = Lists.newArrayList();
+
+        jdbcTemplate.query("" +
+                        "SELECT last.object_type, last.pkey, serials.operation, serials.sequence_id " +
+                        "FROM serials " +
+                        "LEFT JOIN last ON last.object_id = serials.object_id " +
+                        "WHERE serials.serial_id > ? " +
+                        "AND serials.serial_id <= ? " +
+                        "AND last.object_type IN (?, ?, ?, ?, ?)",
+                new RowCallbackHandler() {
+                    @Override
+                    public void processRow(final ResultSet rs) throws SQLException {
+                        final ObjectType objectType = ObjectTypeIds.getType(rs.getInt(1));
+                        final String pkey = rs.getString(2);
+                        changedKeys.put(objectType, ciString(pkey));
+
+                        final boolean createOrDelete = Operation.getByCode(rs.getInt(3)) == Operation.DELETE || rs.getInt(4) == 1;
+                        if (createOrDelete && (objectType == ObjectType.INETNUM || objectType == ObjectType.INET6NUM)) {
+                            changedResources.add(IpInterval.parse(pkey));
+                        }
+                    }
+                },
+                fromExclusive,
+                toInclusive,
+                ObjectTypeIds.getId(ObjectType.INETNUM),
+                ObjectTypeIds.getId(ObjectType.INET6NUM),
+                ObjectTypeIds.getId(ObjectType.AUT_NUM),
+                ObjectTypeIds.getId(ObjectType.ORGANISATION),
+                ObjectTypeIds.getId(ObjectType.ROLE));
+
+        invalidate(changedKeys, changedResources);
+    }
+
+    void invalidate(final SetMultimap<ObjectType, CIString> changedKeys, final List<IpInterval<?>> changedResources) {
+        if (changedKeys.isEmpty() && changedResources.isEmpty()) {
+            return;
+        }
+
+        invalidationLock.writeLock().lock();
+        try {
+            generation.incrementAndGet();
+
+            for (final Iterator<Entry> iterator = cache.asMap().values().iterator(); iterator.hasNext(); ) {
+                if (iterator.next().isAffectedBy(changedKeys, changedResources)) {
+                    iterator.remove();
+                    invalidations.incrementAndGet();
+                }
+            }
+        } finally {
+            invalidationLock.writeLock().unlock();
+        }
+    }
+
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    @Override
+    public long getSize() {
+        return cache.size();
+    }
+
+    public static class Entry {
+        private final RpslObject role;
+        private final IpInterval<?> resource;
+        private final SetMultimap<ObjectType, CIString> dependencies;
+
+        /**
+         * @param role         the resolved abuse-c role, or null if there is none.
+         * @param resource     the resource the role was resolved for, or null if it is not an IP resource.
+         * @param dependencies the keys of all objects the role was resolved from.
+         */
+        public Entry(@CheckForNull final RpslObject role, @CheckForNull final IpInterval<?> resource, final SetMultimap<ObjectType, CIString> dependencies) {
+            this.role = role;
+            this.resource = resource;
+            this.dependencies = dependencies;
+        }
+
+        @CheckForNull
+        public RpslObject getRole() {
+            return role;
+        }
+
+        boolean isAffectedBy(final SetMultimap<ObjectType, CIString> changedKeys, final List<IpInterval<?>> changedResources) {
+            for (final Map.Entry<ObjectType, CIString> dependency : dependencies.entries()) {
+                if (changedKeys.containsEntry(dependency.getKey(), dependency.getValue())) {
+                    return true;
+                }
+            }
+
+            // a created or deleted less specific changes the parent chain
+            if (resource != null) {
+                for (final IpInterval<?> changedResource : changedResources) {
+                    if (contains(changedResource, resource)) {
+                        return true;
+                    }
+                }
+            }
+
+            return false;
+        }
+
+        private static boolean contains(final IpInterval<?> interval, final IpInterval<?> other) {
+            if (interval instanceof Ipv4Resource && other instanceof Ipv4Resource) {
+                return ((Ipv4Resource) interval).contains((Ipv4Resource) other);
+            }
+
+            if (interval instanceof Ipv6Resource && other instanceof Ipv6Resource) {
+                return ((Ipv6Resource) interval).contains((Ipv6Resource) other);
+            }
+
+            return false;
+        }
+    }
+}
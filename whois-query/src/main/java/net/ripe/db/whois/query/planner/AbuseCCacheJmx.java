@@ -0,0 +1,29 @@
+package net.ripe.db.whois.query.planner;
+
+import net.ripe.db.whois.common.iptree.SerialFollowingCacheJmx;
+import net.ripe.db.whois.common.jmx.JmxBase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+@Component
+@ManagedResource(objectName = JmxBase.OBJECT_NAME_BASE + "AbuseCCache", description = "Whois abuse-c cache")
+public class AbuseCCacheJmx extends SerialFollowingCacheJmx {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AbuseCCacheJmx.class);
+
+    private final AbuseCCache abuseCCache;
+
+    @Autowired
+    public AbuseCCacheJmx(final AbuseCCache abuseCCache) {
+        super(LOGGER, abuseCCache);
+        this.abuseCCache = abuseCCache;
+    }
+
+    @ManagedAttribute(description = "Number of entries invalidated")
+    public long getInvalidations() {
+        return abuseCCache.getInvalidations();
+    }
+}
@@ -1,8 +1,12 @@
 package net.ripe.db.whois.query.planner;
 
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.SetMultimap;
 import net.ripe.db.whois.common.collect.CollectionHelper;
 import net.ripe.db.whois.common.dao.RpslObjectDao;
+import net.ripe.db.whois.common.domain.CIString;
 import net.ripe.db.whois.common.domain.Maintainers;
+import net.ripe.db.whois.common.ip.IpInterval;
 import net.ripe.db.whois.common.ip.Ipv4Resource;
 import net.ripe.db.whois.common.ip.Ipv6Resource;
 import net.ripe.db.whois.common.iptree.IpEntry;
@@ -11,6 +15,7 @@ import net.ripe.db.whois.common.iptree.Ipv6Tree;
 import net.ripe.db.whois.common.rpsl.AttributeType;
 import net.ripe.db.whois.common.rpsl.ObjectType;
 import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.common.source.SourceContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -28,16 +33,22 @@ public class AbuseCFinder {
     private final Ipv4Tree ipv4Tree;
     private final Ipv6Tree ipv6Tree;
     private final Maintainers maintainers;
+    private final AbuseCCache abuseCCache;
+    private final SourceContext sourceContext;
 
     @Autowired
     public AbuseCFinder(final RpslObjectDao objectDao,
                         final Ipv4Tree ipv4Tree,
                         final Ipv6Tree ipv6Tree,
-                        final Maintainers maintainers) {
+                        final Maintainers maintainers,
+                        final AbuseCCache abuseCCache,
+                        final SourceContext sourceContext) {
         this.objectDao = objectDao;
         this.ipv4Tree = ipv4Tree;
         this.ipv6Tree = ipv6Tree;
         this.maintainers = maintainers;
+        this.abuseCCache = abuseCCache;
+        this.sourceContext = sourceContext;
     }
 
     @CheckForNull
@@ -50,23 +61,55 @@ public class AbuseCFinder {
     @CheckForNull
     @Nullable
     public RpslObject getAbuseContactRole(final RpslObject object) {
+        switch (object.getType()) {
+            case INETNUM:
+            case INET6NUM:
+            case AUT_NUM:
+                break;
+
+            default:
+                return null;
+        }
+
+        final SetMultimap<ObjectType, CIString> dependencies = HashMultimap.create();
+        if (object.getObjectId() == 0 || !abuseCCache.isEnabled() || !sourceContext.isMain()) {
+            return getAbuseContactRole(object, dependencies);
+        }
+
+        final AbuseCCache.Entry cached = abuseCCache.get(object.getObjectId());
+        if (cached != null) {
+            return cached.getRole();
+        }
+
+        final long generation = abuseCCache.getGeneration();
+        final RpslObject role = getAbuseContactRole(object, dependencies);
+        final IpInterval<?> resource = (object.getType() == ObjectType.AUT_NUM) ? null : IpInterval.parse(object.getKey());
+        abuseCCache.put(object.getObjectId(), generation, new AbuseCCache.Entry(role, resource, dependencies));
+        return role;
+    }
+
+    // dependencies collects the keys of all objects the role is resolved from
+    @Nullable
+    private RpslObject getAbuseContactRole(final RpslObject object, final SetMultimap<ObjectType, CIString> dependencies) {
+        dependencies.put(object.getType(), object.getKey());
+
         switch (object.getType()) {
             case INETNUM:
             case INET6NUM:
 
-                final RpslObject role = getAbuseContactRoleInternal(object);
+                final RpslObject role = getAbuseContactRoleInternal(object, dependencies);
 
                 if (role == null) {
                     final RpslObject parentObject = getParentObject(object);
                     if (parentObject != null && !isMaintainedByRs(object)) {
-                        return getAbuseContactRole(parentObject);
+                        return getAbuseContactRole(parentObject, dependencies);
                     }
                 }
 
                 return role;
 
             case AUT_NUM:
-                return getAbuseContactRoleInternal(object);
+                return getAbuseContactRoleInternal(object, dependencies);
 
             default:
                 return null;
@@ -74,12 +117,16 @@ public class AbuseCFinder {
     }
 
     @Nullable
-    private RpslObject getAbuseContactRoleInternal(final RpslObject object) {
+    private RpslObject getAbuseContactRoleInternal(final RpslObject object, final SetMultimap<ObjectType, CIString> dependencies) {
         try {
             if (object.containsAttribute(AttributeType.ORG)) {
-                final RpslObject organisation = objectDao.getByKey(ObjectType.ORGANISATION, object.getValueForAttribute(AttributeType.ORG));
+                final CIString orgKey = object.getValueForAttribute(AttributeType.ORG);
+                dependencies.put(ObjectType.ORGANISATION, orgKey);
+                final RpslObject organisation = objectDao.getByKey(ObjectType.ORGANISATION, orgKey);
                 if (organisation.containsAttribute(AttributeType.ABUSE_C)) {
-                    final RpslObject abuseCRole = objectDao.getByKey(ObjectType.ROLE, organisation.getValueForAttribute(AttributeType.ABUSE_C));
+                    final CIString abuseCKey = organisation.getValueForAttribute(AttributeType.ABUSE_C);
+                    dependencies.put(ObjectType.ROLE, abuseCKey);
+                    final RpslObject abuseCRole = objectDao.getByKey(ObjectType.ROLE, abuseCKey);
                     if (abuseCRole.containsAttribute(AttributeType.ABUSE_MAILBOX)) {
                         return abuseCRole;
                     }
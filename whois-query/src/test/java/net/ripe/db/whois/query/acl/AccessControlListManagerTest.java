@@ -30,6 +30,7 @@ import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -142,6 +143,28 @@ public class AccessControlListManagerTest {
         assertThat(subject.getPersonalDataLimit(ipv6Unknown), is(PERSONAL_DATA_LIMIT_UNKNOWN));
     }
 
+    @Test
+    public void decision_is_cached() {
+        assertTrue(subject.isDenied(ipv4Restricted));
+        assertFalse(subject.isAllowedToProxy(ipv4Restricted));
+        assertThat(subject.getPersonalDataLimit(ipv4Restricted), is(PERSONAL_DATA_LIMIT));
+
+        verify(ipResourceConfiguration).isDenied(ipv4Restricted);
+        verify(ipResourceConfiguration).isProxy(ipv4Restricted);
+        verify(ipResourceConfiguration).getLimit(ipv4Restricted);
+    }
+
+    @Test
+    public void decision_is_recomputed_after_reload() {
+        assertTrue(subject.isDenied(ipv4Restricted));
+
+        when(ipResourceConfiguration.getVersion()).thenReturn(1L);
+        when(ipResourceConfiguration.isDenied(ipv4Restricted)).thenReturn(false);
+
+        assertFalse(subject.isDenied(ipv4Restricted));
+        verify(ipResourceConfiguration, times(2)).getLimit(ipv4Restricted);
+    }
+
     @Captor
     ArgumentCaptor<Ipv6Resource> ipv6ResourceCaptor;
 
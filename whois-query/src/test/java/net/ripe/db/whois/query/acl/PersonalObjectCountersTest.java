@@ -0,0 +1,74 @@
+package net.ripe.db.whois.query.acl;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class PersonalObjectCountersTest {
+    private ConcurrentMap<InetAddress, Integer> sharedCounters;
+    private InetAddress address;
+
+    @Before
+    public void setUp() throws Exception {
+        sharedCounters = new ConcurrentHashMap<>();
+        address = InetAddress.getByName("10.0.0.1");
+    }
+
+    @Test
+    public void account_locally_until_flush() {
+        final PersonalObjectCounters subject = new PersonalObjectCounters(sharedCounters, 60000);
+
+        assertThat(subject.account(address, 2), is(2));
+        assertThat(subject.account(address, 3), is(5));
+        assertThat(sharedCounters.get(address), is(nullValue()));
+
+        subject.flush();
+
+        assertThat(sharedCounters.get(address), is(5));
+        assertThat(subject.get(address), is(5));
+    }
+
+    @Test
+    public void starts_from_shared_count() {
+        sharedCounters.put(address, 10);
+        final PersonalObjectCounters subject = new PersonalObjectCounters(sharedCounters, 60000);
+
+        assertThat(subject.account(address, 1), is(11));
+    }
+
+    @Test
+    public void merge_counts_of_all_nodes() {
+        final PersonalObjectCounters node1 = new PersonalObjectCounters(sharedCounters, 60000);
+        final PersonalObjectCounters node2 = new PersonalObjectCounters(sharedCounters, 60000);
+
+        node1.account(address, 2);
+        node2.account(address, 3);
+        node1.flush();
+        node2.flush();
+
+        assertThat(sharedCounters.get(address), is(5));
+        assertThat(node1.get(address), is(2));
+        assertThat(node2.get(address), is(5));
+
+        node1.flush();
+
+        assertThat(node1.get(address), is(5));
+    }
+
+    @Test
+    public void clear() {
+        final PersonalObjectCounters subject = new PersonalObjectCounters(sharedCounters, 60000);
+        subject.account(address, 2);
+
+        subject.clear();
+
+        assertThat(subject.get(address), is(0));
+    }
+}
@@ -0,0 +1,127 @@
+package net.ripe.db.whois.query.acl;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import net.ripe.db.whois.common.IntegrationTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetAddress;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+@Category(IntegrationTest.class)
+public class PersonalObjectCountersTestIntegration {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PersonalObjectCountersTestIntegration.class);
+
+    private static final int NODES = 3;
+    private static final int THREADS_PER_NODE = 4;
+    private static final int LIMIT = 10000;
+    private static final long FLUSH_INTERVAL_MILLIS = 200;
+    // every query thread accounts at most this many personal objects per flush interval
+    private static final int QUOTA_PER_INTERVAL = 100;
+
+    private final List<HazelcastInstance> instances = Lists.newArrayList();
+    private final List<PersonalObjectCounters> nodes = Lists.newArrayList();
+    private ScheduledExecutorService flushExecutor;
+    private ExecutorService queryExecutor;
+
+    @Before
+    public void setUp() {
+        for (int i = 0; i < NODES; i++) {
+            final HazelcastInstance instance = Hazelcast.newHazelcastInstance(null);
+            final IMap<InetAddress, Integer> counterMap = instance.getMap("queriedPersonal");
+            instances.add(instance);
+            nodes.add(new PersonalObjectCounters(counterMap, FLUSH_INTERVAL_MILLIS));
+        }
+
+        flushExecutor = Executors.newScheduledThreadPool(NODES);
+        for (final PersonalObjectCounters node : nodes) {
+            flushExecutor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    node.flush();
+                }
+            }, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        queryExecutor = Executors.newFixedThreadPool(NODES * THREADS_PER_NODE);
+    }
+
+    @After
+    public void tearDown() {
+        queryExecutor.shutdownNow();
+        flushExecutor.shutdownNow();
+        for (final HazelcastInstance instance : instances) {
+            instance.getLifecycleService().shutdown();
+        }
+    }
+
+    @Test
+    public void limit_is_enforced_with_bounded_overshoot() throws Exception {
+        final InetAddress address = InetAddress.getByName("10.0.0.1");
+        final AtomicLong accounted = new AtomicLong();
+        final CountDownLatch done = new CountDownLatch(NODES * THREADS_PER_NODE);
+
+        final long start = System.nanoTime();
+        for (final PersonalObjectCounters node : nodes) {
+            for (int i = 0; i < THREADS_PER_NODE; i++) {
+                queryExecutor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            // like AccessControlListManager, stop once the node sees the limit exceeded
+                            int count = 0;
+                            while (node.account(address, 1) <= LIMIT) {
+                                accounted.incrementAndGet();
+                                if (++count % QUOTA_PER_INTERVAL == 0) {
+                                    Uninterruptibles.sleepUninterruptibly(FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                                }
+                            }
+                            accounted.incrementAndGet();
+                        } finally {
+                            done.countDown();
+                        }
+                    }
+                });
+            }
+        }
+
+        assertThat(done.await(60, TimeUnit.SECONDS), is(true));
+        final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        flushExecutor.shutdown();
+        flushExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        for (final PersonalObjectCounters node : nodes) {
+            node.flush();
+        }
+
+        final int total = instances.get(0).<InetAddress, Integer>getMap("queriedPersonal").get(address);
+        final long overshoot = total - LIMIT;
+        final long perSecond = accounted.get() * 1000 / Math.max(elapsedMillis, 1);
+        LOGGER.info("Accounted {} personal objects in {} ms ({}/s) on {} nodes, overshoot {}", accounted.get(), elapsedMillis, perSecond, NODES, overshoot);
+
+        assertThat((long) total, is(accounted.get()));
+
+        // every node stops once it sees the limit, which lags the other nodes by up to two flush intervals (their flush
+        // and its own), so the overshoot is bounded by the quota of all threads over a few intervals
+        final long maxOvershoot = 3 * NODES * THREADS_PER_NODE * QUOTA_PER_INTERVAL;
+        assertThat(overshoot, lessThanOrEqualTo(maxOvershoot));
+    }
+}
@@ -7,6 +7,7 @@ import net.ripe.db.whois.common.source.IllegalSourceException;
 import net.ripe.db.whois.common.source.Source;
 import net.ripe.db.whois.common.source.SourceContext;
 import net.ripe.db.whois.query.domain.MessageObject;
+import net.ripe.db.whois.query.domain.QueryCompletionInfo;
 import net.ripe.db.whois.query.domain.QueryException;
 import net.ripe.db.whois.query.QueryMessages;
 import net.ripe.db.whois.query.planner.RpslResponseDecorator;
@@ -15,13 +16,16 @@ import org.hamcrest.Matchers;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.mockito.stubbing.Answer;
 
+import java.net.InetAddress;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static net.ripe.db.whois.common.domain.CIString.ciSet;
 import static net.ripe.db.whois.common.domain.CIString.ciString;
@@ -29,6 +33,7 @@ import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.*;
 
@@ -37,10 +42,12 @@ public class SearchQueryExecutorTest {
     @Mock SourceContext sourceContext;
     @Mock RpslObjectSearcher rpslObjectSearcher;
     @Mock RpslResponseDecorator rpslResponseDecorator;
-    @InjectMocks SearchQueryExecutor subject;
+    SearchQueryExecutor subject;
 
     @Before
     public void setUp() throws Exception {
+        subject = new SearchQueryExecutor(sourceContext, rpslObjectSearcher, rpslResponseDecorator, 0, 0, 1000);
+
         when(rpslObjectSearcher.search(any(Query.class))).thenReturn((Iterable)Collections.emptyList());
         when(rpslResponseDecorator.getResponse(any(Query.class), any(Iterable.class))).thenAnswer(new Answer<Object>() {
             @Override
@@ -235,4 +242,194 @@ public class SearchQueryExecutorTest {
         verify(rpslObjectSearcher, times(2)).search(query);
     }
 
+    @Test
+    public void query_sources_concurrently_in_source_order() {
+        final SearchQueryExecutor concurrentSubject = new SearchQueryExecutor(sourceContext, rpslObjectSearcher, rpslResponseDecorator, 4, 0, 1000);
+        final Query query = Query.parse("--sources APNIC-GRS,ARIN-GRS,AFRINIC-GRS 10.0.0.0");
+
+        final ThreadLocal<Source> currentSource = trackCurrentSource();
+        when(rpslObjectSearcher.search(query)).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(final InvocationOnMock invocation) throws Throwable {
+                final Source source = currentSource.get();
+                // the first source is the slowest
+                if (source.getName().equals(ciString("APNIC-GRS"))) {
+                    Thread.sleep(100);
+                }
+                return Collections.singletonList(new MessageObject(source.getName().toString()));
+            }
+        });
+
+        try {
+            final CaptureResponseHandler responseHandler = new CaptureResponseHandler();
+            concurrentSubject.execute(query, responseHandler);
+
+            verify(rpslObjectSearcher, times(3)).search(query);
+
+            final List<ResponseObject> responseObjects = responseHandler.getResponseObjects();
+            assertThat(responseObjects, hasSize(4));
+            assertThat(responseObjects.get(0), Matchers.<ResponseObject>is(new MessageObject("APNIC-GRS")));
+            assertThat(responseObjects.get(1), Matchers.<ResponseObject>is(new MessageObject("ARIN-GRS")));
+            assertThat(responseObjects.get(2), Matchers.<ResponseObject>is(new MessageObject("AFRINIC-GRS")));
+        } finally {
+            concurrentSubject.stop();
+        }
+    }
+
+    @Test
+    public void query_sources_concurrently_unknown_source() {
+        final SearchQueryExecutor concurrentSubject = new SearchQueryExecutor(sourceContext, rpslObjectSearcher, rpslResponseDecorator, 4, 0, 1000);
+        final Query query = Query.parse("--sources UNKNOWN,ARIN-GRS 10.0.0.0");
+        doThrow(IllegalSourceException.class).when(sourceContext).setCurrent(Source.slave("UNKNOWN"));
+
+        try {
+            final CaptureResponseHandler responseHandler = new CaptureResponseHandler();
+            concurrentSubject.execute(query, responseHandler);
+
+            verify(rpslObjectSearcher).search(query);
+            assertThat(responseHandler.getResponseObjects(), contains((ResponseObject) new MessageObject(QueryMessages.unknownSource("UNKNOWN"))));
+        } finally {
+            concurrentSubject.stop();
+        }
+    }
+
+    @Test
+    public void query_sources_concurrently_later_source_fails() {
+        final SearchQueryExecutor concurrentSubject = new SearchQueryExecutor(sourceContext, rpslObjectSearcher, rpslResponseDecorator, 4, 0, 1000);
+        final Query query = Query.parse("--sources APNIC-GRS,ARIN-GRS 10.0.0.0");
+
+        final ThreadLocal<Source> currentSource = trackCurrentSource();
+        when(rpslObjectSearcher.search(query)).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(final InvocationOnMock invocation) throws Throwable {
+                final Source source = currentSource.get();
+                if (source.getName().equals(ciString("ARIN-GRS"))) {
+                    throw new IllegalStateException("ARIN-GRS unavailable");
+                }
+                return Collections.singletonList(new MessageObject(source.getName().toString()));
+            }
+        });
+
+        final CaptureResponseHandler responseHandler = new CaptureResponseHandler();
+        try {
+            concurrentSubject.execute(query, responseHandler);
+            fail();
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), is("ARIN-GRS unavailable"));
+            assertThat(responseHandler.getResponseObjects(), contains((ResponseObject) new MessageObject("APNIC-GRS")));
+        } finally {
+            concurrentSubject.stop();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void query_sources_concurrently_later_source_error() {
+        final SearchQueryExecutor concurrentSubject = new SearchQueryExecutor(sourceContext, rpslObjectSearcher, rpslResponseDecorator, 4, 0, 1000);
+        final Query query = Query.parse("--sources APNIC-GRS,ARIN-GRS 10.0.0.0");
+
+        final ThreadLocal<Source> currentSource = trackCurrentSource();
+        when(rpslObjectSearcher.search(query)).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(final InvocationOnMock invocation) throws Throwable {
+                final Source source = currentSource.get();
+                if (source.getName().equals(ciString("ARIN-GRS"))) {
+                    throw new StackOverflowError();
+                }
+                return Collections.singletonList(new MessageObject(source.getName().toString()));
+            }
+        });
+
+        final CaptureResponseHandler responseHandler = new CaptureResponseHandler();
+        try {
+            concurrentSubject.execute(query, responseHandler);
+            fail();
+        } catch (StackOverflowError e) {
+            assertThat(responseHandler.getResponseObjects(), contains((ResponseObject) new MessageObject("APNIC-GRS")));
+        } finally {
+            concurrentSubject.stop();
+        }
+    }
+
+    @Test
+    public void query_sources_concurrently_limit_exceeded_stops_later_sources() {
+        final int queueSize = 10;
+        final SearchQueryExecutor concurrentSubject = new SearchQueryExecutor(sourceContext, rpslObjectSearcher, rpslResponseDecorator, 4, 0, queueSize);
+        final Query query = Query.parse("--sources APNIC-GRS,ARIN-GRS 10.0.0.0");
+
+        final AtomicInteger read = new AtomicInteger();
+        final ThreadLocal<Source> currentSource = trackCurrentSource();
+        when(rpslObjectSearcher.search(query)).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(final InvocationOnMock invocation) throws Throwable {
+                final Source source = currentSource.get();
+                if (source.getName().equals(ciString("APNIC-GRS"))) {
+                    return Collections.singletonList(new MessageObject("APNIC-GRS"));
+                }
+
+                // a source with more results than the query is allowed to return
+                return new Iterable<ResponseObject>() {
+                    @Override
+                    public Iterator<ResponseObject> iterator() {
+                        return new Iterator<ResponseObject>() {
+                            @Override
+                            public boolean hasNext() {
+                                return true;
+                            }
+
+                            @Override
+                            public ResponseObject next() {
+                                return new MessageObject("ARIN-GRS " + read.incrementAndGet());
+                            }
+
+                            @Override
+                            public void remove() {
+                                throw new UnsupportedOperationException();
+                            }
+                        };
+                    }
+                };
+            }
+        });
+
+        final CaptureResponseHandler responseHandler = new CaptureResponseHandler() {
+            @Override
+            public void handle(final ResponseObject responseObject) {
+                if (getResponseObjects().size() == 3) {
+                    throw new QueryException(QueryCompletionInfo.BLOCKED, QueryMessages.accessDeniedTemporarily(InetAddress.getLoopbackAddress()));
+                }
+                super.handle(responseObject);
+            }
+        };
+
+        try {
+            concurrentSubject.execute(query, responseHandler);
+            fail();
+        } catch (QueryException e) {
+            assertThat(e.getCompletionInfo(), is(QueryCompletionInfo.BLOCKED));
+            assertThat(responseHandler.getResponseObjects(), contains(
+                    (ResponseObject) new MessageObject("APNIC-GRS"),
+                    new MessageObject("ARIN-GRS 1"),
+                    new MessageObject("ARIN-GRS 2")));
+
+            // both searches and both sources streamed by the query remove their source context once stopped
+            verify(sourceContext, timeout(5000).times(4)).removeCurrentSource();
+
+            // the source read ahead no further than its queue, and the response it was waiting to queue
+            assertThat(read.get(), lessThanOrEqualTo(3 + queueSize + 1));
+        } finally {
+            concurrentSubject.stop();
+        }
+    }
+
+    private ThreadLocal<Source> trackCurrentSource() {
+        final ThreadLocal<Source> currentSource = new ThreadLocal<>();
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws Throwable {
+                currentSource.set((Source) invocation.getArguments()[0]);
+                return null;
+            }
+        }).when(sourceContext).setCurrent(any(Source.class));
+        return currentSource;
+    }
 }
@@ -3,6 +3,7 @@ package net.ripe.db.whois.query.pipeline;
 import com.google.common.base.Charsets;
 import net.ripe.db.whois.common.Message;
 import net.ripe.db.whois.common.domain.ResponseObject;
+import net.ripe.db.whois.common.rpsl.RpslObject;
 import net.ripe.db.whois.query.QueryMessages;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.channel.Channel;
@@ -68,4 +69,12 @@ public class WhoisEncoderTest {
 
         assertThat(toString(result), is("\n"));
     }
+
+    @Test
+    public void encode_RpslObject() throws IOException {
+        final RpslObject object = RpslObject.parse("mntner: TEST-MNT\nsource: TEST");
+
+        assertThat(toString(encode(object)), is(object.toString() + "\n"));
+        assertThat(toString(encode(object)), is(object.toString() + "\n"));
+    }
 }
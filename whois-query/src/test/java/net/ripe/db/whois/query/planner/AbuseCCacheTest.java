@@ -0,0 +1,94 @@
+package net.ripe.db.whois.query.planner;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.SetMultimap;
+import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.ip.IpInterval;
+import net.ripe.db.whois.common.iptree.IpTreeCacheManager;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.common.source.SourceContext;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.Collections;
+import java.util.List;
+
+import static net.ripe.db.whois.common.domain.CIString.ciString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AbuseCCacheTest {
+    @Mock IpTreeCacheManager ipTreeCacheManager;
+    @Mock SourceContext sourceContext;
+
+    private AbuseCCache subject;
+
+    @Before
+    public void setup() {
+        subject = new AbuseCCache(ipTreeCacheManager, sourceContext, 100);
+    }
+
+    @Test
+    public void get_counts_hits_and_misses() {
+        assertThat(subject.get(1), is(nullValue()));
+
+        subject.put(1, subject.getGeneration(), entry("10.0.0.0 - 10.0.0.255", ObjectType.ORGANISATION, "ORG1-TEST"));
+
+        assertThat(subject.get(1), is(notNullValue()));
+        assertThat(subject.getHits(), is(1L));
+        assertThat(subject.getMisses(), is(1L));
+    }
+
+    @Test
+    public void invalidate_changed_dependency() {
+        subject.put(1, subject.getGeneration(), entry("10.0.0.0 - 10.0.0.255", ObjectType.ORGANISATION, "ORG1-TEST"));
+        subject.put(2, subject.getGeneration(), entry("10.0.1.0 - 10.0.1.255", ObjectType.ORGANISATION, "ORG2-TEST"));
+
+        subject.invalidate(keys(ObjectType.ORGANISATION, "org1-test"), Collections.<IpInterval<?>>emptyList());
+
+        assertThat(subject.get(1), is(nullValue()));
+        assertThat(subject.get(2), is(notNullValue()));
+        assertThat(subject.getInvalidations(), is(1L));
+    }
+
+    @Test
+    public void invalidate_created_less_specific() {
+        subject.put(1, subject.getGeneration(), entry("10.0.0.0 - 10.0.0.255", ObjectType.ORGANISATION, "ORG1-TEST"));
+        subject.put(2, subject.getGeneration(), entry("10.0.1.0 - 10.0.1.255", ObjectType.ORGANISATION, "ORG2-TEST"));
+
+        final List<IpInterval<?>> changedResources = Lists.<IpInterval<?>>newArrayList(IpInterval.parse("10.0.0.0/24"));
+        subject.invalidate(HashMultimap.<ObjectType, CIString>create(), changedResources);
+
+        assertThat(subject.get(1), is(nullValue()));
+        assertThat(subject.get(2), is(notNullValue()));
+    }
+
+    @Test
+    public void put_after_invalidation_is_ignored() {
+        final long generation = subject.getGeneration();
+
+        subject.invalidate(keys(ObjectType.ROLE, "AB-TEST"), Collections.<IpInterval<?>>emptyList());
+        subject.put(1, generation, entry("10.0.0.0 - 10.0.0.255", ObjectType.ROLE, "AB-TEST"));
+
+        assertThat(subject.get(1), is(nullValue()));
+    }
+
+    private static AbuseCCache.Entry entry(final String resource, final ObjectType objectType, final String key) {
+        final RpslObject role = RpslObject.parse("role: A Role\nabuse-mailbox: abuse@ripe.net\nnic-hdl: AB-TEST");
+        return new AbuseCCache.Entry(role, IpInterval.parse(resource), keys(objectType, key));
+    }
+
+    private static SetMultimap<ObjectType, CIString> keys(final ObjectType objectType, final String key) {
+        final SetMultimap<ObjectType, CIString> keys = HashMultimap.create();
+        keys.put(objectType, ciString(key));
+        return keys;
+    }
+}
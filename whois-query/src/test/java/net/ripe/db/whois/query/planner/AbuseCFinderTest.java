@@ -1,18 +1,24 @@
 package net.ripe.db.whois.query.planner;
 
 
+import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.SetMultimap;
 import net.ripe.db.whois.common.dao.RpslObjectDao;
+import net.ripe.db.whois.common.domain.CIString;
 import net.ripe.db.whois.common.domain.Maintainers;
+import net.ripe.db.whois.common.ip.IpInterval;
 import net.ripe.db.whois.common.ip.Ipv4Resource;
 import net.ripe.db.whois.common.iptree.Ipv4Entry;
 import net.ripe.db.whois.common.iptree.Ipv4Tree;
 import net.ripe.db.whois.common.iptree.Ipv6Tree;
 import net.ripe.db.whois.common.rpsl.ObjectType;
 import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.common.source.SourceContext;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
@@ -20,8 +26,14 @@ import org.mockito.runners.MockitoJUnitRunner;
 import static net.ripe.db.whois.common.domain.CIString.ciSet;
 import static net.ripe.db.whois.common.domain.CIString.ciString;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyInt;
+import static org.mockito.Mockito.anyLong;
+import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.verifyZeroInteractions;
@@ -34,6 +46,8 @@ public class AbuseCFinderTest {
     @Mock Ipv6Tree ipv6Tree;
     @Mock RpslObjectDao objectDao;
     @Mock Maintainers maintainers;
+    @Mock AbuseCCache abuseCCache;
+    @Mock SourceContext sourceContext;
 
     @InjectMocks AbuseCFinder subject;
 
@@ -158,4 +172,50 @@ public class AbuseCFinderTest {
         verifyZeroInteractions(maintainers);
 
     }
+
+    @Test
+    public void getAbuseContacts_cached() {
+        final RpslObject inetnum = new RpslObject(5, RpslObject.parse("inetnum: 10.0.0.0 - 10.0.0.255\norg: ORG1-TEST"));
+        final RpslObject role = RpslObject.parse("role: A Role\nabuse-mailbox: abuse@ripe.net\nnic-hdl: AB-TEST");
+        when(abuseCCache.isEnabled()).thenReturn(true);
+        when(sourceContext.isMain()).thenReturn(true);
+        when(abuseCCache.get(5)).thenReturn(new AbuseCCache.Entry(role, IpInterval.parse(inetnum.getKey()), HashMultimap.<ObjectType, CIString>create()));
+
+        assertThat(subject.getAbuseContact(inetnum), is("abuse@ripe.net"));
+
+        verifyZeroInteractions(objectDao, ipv4Tree);
+    }
+
+    @Test
+    public void getAbuseContacts_not_cached() {
+        final RpslObject inetnum = new RpslObject(5, RpslObject.parse("inetnum: 10.0.0.0 - 10.0.0.255\norg: ORG1-TEST"));
+        when(abuseCCache.isEnabled()).thenReturn(true);
+        when(sourceContext.isMain()).thenReturn(true);
+        when(abuseCCache.getGeneration()).thenReturn(3L);
+        when(objectDao.getByKey(ObjectType.ORGANISATION, ciString("ORG1-TEST"))).thenReturn(RpslObject.parse("organisation: ORG1-TEST\nabuse-c: AB-TEST"));
+        when(objectDao.getByKey(ObjectType.ROLE, ciString("AB-TEST"))).thenReturn(RpslObject.parse("role: A Role\nabuse-mailbox: abuse@ripe.net\nnic-hdl: AB-TEST"));
+
+        assertThat(subject.getAbuseContact(inetnum), is("abuse@ripe.net"));
+
+        final ArgumentCaptor<AbuseCCache.Entry> entryCaptor = ArgumentCaptor.forClass(AbuseCCache.Entry.class);
+        verify(abuseCCache).put(eq(5), eq(3L), entryCaptor.capture());
+        assertThat(entryCaptor.getValue().getRole(), is(notNullValue()));
+
+        final SetMultimap<ObjectType, CIString> changedRole = HashMultimap.create();
+        changedRole.put(ObjectType.ROLE, ciString("ab-test"));
+        assertThat(entryCaptor.getValue().isAffectedBy(changedRole, Lists.<IpInterval<?>>newArrayList()), is(true));
+    }
+
+    @Test
+    public void getAbuseContacts_other_source_not_cached() {
+        final RpslObject autnum = new RpslObject(5, RpslObject.parse("aut-num: AS8462\norg: ORG1-TEST"));
+        when(abuseCCache.isEnabled()).thenReturn(true);
+        when(sourceContext.isMain()).thenReturn(false);
+        when(objectDao.getByKey(ObjectType.ORGANISATION, ciString("ORG1-TEST"))).thenReturn(RpslObject.parse("organisation: ORG1-TEST"));
+
+        assertThat(subject.getAbuseContact(autnum), is(nullValue()));
+
+        verify(abuseCCache, never()).get(anyInt());
+        verify(abuseCCache, never()).put(anyInt(), anyLong(), any(AbuseCCache.Entry.class));
+    }
 }
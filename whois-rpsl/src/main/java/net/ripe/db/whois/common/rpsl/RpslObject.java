@@ -18,6 +18,7 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -38,6 +39,9 @@ public class RpslObject implements Identifiable, ResponseObject {
     private Map<AttributeType, List<RpslAttribute>> typeCache;
     private int hash;
 
+    // encoded form, written as-is for every response that contains this object
+    private volatile byte[] encoded;
+
     public RpslObject(final RpslObject oldObject, final List<RpslAttribute> attributes) {
         this(oldObject.objectId, attributes);
     }
@@ -55,6 +59,7 @@ public class RpslObject implements Identifiable, ResponseObject {
         this.key = rpslObject.key;
         this.typeCache = rpslObject.typeCache;
         this.hash = rpslObject.hash;
+        this.encoded = rpslObject.encoded;
     }
 
     public RpslObject(final List<RpslAttribute> attributes) {
@@ -235,7 +240,7 @@ public class RpslObject implements Identifiable, ResponseObject {
 
     @Override
     public void writeTo(final OutputStream out) throws IOException {
-        writeTo(new OutputStreamWriter(out, Charsets.ISO_8859_1));
+        out.write(getEncoded());
     }
 
     public void writeTo(final Writer writer) throws IOException {
@@ -248,13 +253,31 @@ public class RpslObject implements Identifiable, ResponseObject {
 
     @Override
     public byte[] toByteArray() {
-        try {
-            final ByteArrayOutput baos = new ByteArrayOutput();
-            writeTo(baos);
-            return baos.toByteArray();
-        } catch (IOException e) {
-            throw new IllegalStateException("Should never occur", e);
+        return getEncoded().clone();
+    }
+
+    /**
+     * @return The encoded object as a read-only buffer, without copying it.
+     */
+    public ByteBuffer toByteBuffer() {
+        return ByteBuffer.wrap(getEncoded()).asReadOnlyBuffer();
+    }
+
+    private byte[] getEncoded() {
+        byte[] result = encoded;
+        if (result == null) {
+            try {
+                final ByteArrayOutput baos = new ByteArrayOutput();
+                writeTo(new OutputStreamWriter(baos, Charsets.ISO_8859_1));
+                result = baos.toByteArray();
+            } catch (IOException e) {
+                throw new IllegalStateException("Should never occur", e);
+            }
+
+            encoded = result;
         }
+
+        return result;
     }
 
     @Override
@@ -767,6 +767,17 @@ public class RpslObjectTest {
                 "+\n"));
     }
 
+    @Test
+    public void toByteArray_returns_copy() {
+        final RpslObject subject = RpslObject.parse("mntner: DEV-MNT\nsource: TEST");
+
+        final byte[] bytes = subject.toByteArray();
+        bytes[0] = 'x';
+
+        assertThat(new String(subject.toByteArray(), Charsets.ISO_8859_1), is(subject.toString()));
+        assertThat(subject.toByteBuffer().remaining(), is(bytes.length));
+    }
+
     // helper methods
 
     private static Iterable<String> convertToString(final Iterable<CIString> c) {
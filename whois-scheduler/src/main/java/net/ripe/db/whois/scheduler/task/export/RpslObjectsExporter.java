@@ -1,11 +1,16 @@
 package net.ripe.db.whois.scheduler.task.export;
 
 import com.google.common.base.Stopwatch;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
 import net.ripe.db.whois.common.dao.TagsDao;
 import net.ripe.db.whois.common.domain.Tag;
 import net.ripe.db.whois.common.rpsl.RpslObject;
 import net.ripe.db.whois.scheduler.task.export.dao.ExportCallbackHandler;
 import net.ripe.db.whois.scheduler.task.export.dao.ExportDao;
+import net.ripe.db.whois.scheduler.task.export.dao.ExportSnapshotHandler;
 import org.apache.commons.lang.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,13 +24,21 @@ import org.springframework.util.FileSystemUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 @Component
 class RpslObjectsExporter {
     private static final Logger LOGGER = LoggerFactory.getLogger(RpslObjectsExporter.class);
 
+    private static final int LOG_EVERY = 500000;
+    private static final int BATCH_SIZE = 1000;
+    private static final int QUEUE_SIZE = 16;
+
     private final ExportFileWriterFactory exportFileWriterFactory;
     private final ExportDao exportDao;
     private final TagsDao tagsDao;
@@ -34,6 +47,7 @@ class RpslObjectsExporter {
 
     private final AtomicBoolean exporting = new AtomicBoolean();
     private final boolean enabled;
+    private final boolean parallel;
 
     @Autowired
     public RpslObjectsExporter(final ExportFileWriterFactory exportFileWriterFactory,
@@ -41,11 +55,13 @@ class RpslObjectsExporter {
                                final TagsDao tagsDao,
                                @Value("${dir.rpsl.export}") final String exportDirName,
                                @Value("${dir.rpsl.export.tmp}") final String tmpDirName,
-                               @Value("${rpsl.export.enabled:true}") final boolean enabled) {
+                               @Value("${rpsl.export.enabled:true}") final boolean enabled,
+                               @Value("${rpsl.export.parallel:false}") final boolean parallel) {
         this.exportFileWriterFactory = exportFileWriterFactory;
         this.exportDao = exportDao;
         this.tagsDao = tagsDao;
         this.enabled = enabled;
+        this.parallel = parallel;
 
         exportDir = new File(exportDirName);
         tmpDir = new File(tmpDirName);
@@ -99,6 +115,11 @@ class RpslObjectsExporter {
 
     @Transactional(isolation = Isolation.REPEATABLE_READ, propagation = Propagation.REQUIRES_NEW)
     private void exportToFiles() {
+        if (parallel) {
+            exportToFilesInParallel();
+            return;
+        }
+
         final int maxSerial = exportDao.getMaxSerial();
         LOGGER.info("Max serial: {}", maxSerial);
 
@@ -117,8 +138,165 @@ class RpslObjectsExporter {
         }
     }
 
+    /*
+     * The max serial, objects and tags are read in a single stream from one consistent snapshot of the database, so
+     * the dump matches its serial even while updates go on. Every export file writer formats and compresses on its own
+     * thread, fed with batches in the order the objects are read.
+     *
+     * The objects are read in object id order, while the sequential export writes them in the order the database scans
+     * them, so the split files list the same objects in a different order.
+     */
+    private void exportToFilesInParallel() {
+        final ParallelExporter parallelExporter = new ParallelExporter();
+        try {
+            exportDao.exportSnapshot(parallelExporter);
+            parallelExporter.finish();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while exporting", e);
+        } finally {
+            parallelExporter.close();
+        }
+    }
+
+    private static final class ExportBatch {
+        private final List<RpslObject> objects;
+        private final ListMultimap<Integer, Tag> tags;
+
+        private ExportBatch(final List<RpslObject> objects, final ListMultimap<Integer, Tag> tags) {
+            this.objects = objects;
+            this.tags = tags;
+        }
+    }
+
+    private final class ParallelExporter implements ExportSnapshotHandler {
+        private final List<ExportFileWriter> exportFileWriters = Lists.newArrayList();
+        private final List<ExportFileWriterThread> writerThreads = Lists.newArrayList();
+
+        private List<RpslObject> objects = Lists.newArrayListWithCapacity(BATCH_SIZE);
+        private ListMultimap<Integer, Tag> tags = ArrayListMultimap.create();
+        private int nrExported;
+
+        @Override
+        public void start(final int maxSerial) {
+            LOGGER.info("Max serial: {}", maxSerial);
+
+            exportFileWriters.addAll(exportFileWriterFactory.createExportFileWriters(tmpDir, maxSerial));
+            for (final ExportFileWriter exportFileWriter : exportFileWriters) {
+                final ExportFileWriterThread writerThread = new ExportFileWriterThread(exportFileWriter, writerThreads.size() + 1);
+                writerThread.start();
+                writerThreads.add(writerThread);
+            }
+        }
+
+        @Override
+        public void exportObject(final RpslObject object, final List<Tag> objectTags) {
+            objects.add(object);
+            tags.putAll(object.getObjectId(), objectTags);
+
+            if (objects.size() >= BATCH_SIZE) {
+                try {
+                    dispatch();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while exporting", e);
+                }
+            }
+        }
+
+        void finish() throws InterruptedException {
+            dispatch();
+            for (final ExportFileWriterThread writerThread : writerThreads) {
+                writerThread.finish();
+            }
+        }
+
+        void close() {
+            for (final ExportFileWriterThread writerThread : writerThreads) {
+                writerThread.abort();
+            }
+            for (final ExportFileWriter exportFileWriter : exportFileWriters) {
+                exportFileWriter.close();
+            }
+
+            LOGGER.info("Exported {} objects", nrExported);
+        }
+
+        private void dispatch() throws InterruptedException {
+            if (objects.isEmpty()) {
+                return;
+            }
+
+            final ExportBatch batch = new ExportBatch(objects, tags);
+            for (final ExportFileWriterThread writerThread : writerThreads) {
+                writerThread.put(batch);
+            }
+
+            final int total = nrExported + objects.size();
+            if (total / LOG_EVERY != nrExported / LOG_EVERY) {
+                LOGGER.info("Exported {} objects", total);
+            }
+            nrExported = total;
+
+            objects = Lists.newArrayListWithCapacity(BATCH_SIZE);
+            tags = ArrayListMultimap.create();
+        }
+    }
+
+    private static final class ExportFileWriterThread extends Thread {
+        private static final ExportBatch END_OF_EXPORT = new ExportBatch(Collections.<RpslObject>emptyList(), ImmutableListMultimap.<Integer, Tag>of());
+
+        private final ExportFileWriter exportFileWriter;
+        private final BlockingQueue<ExportBatch> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+        private volatile Exception failure;
+
+        private ExportFileWriterThread(final ExportFileWriter exportFileWriter, final int threadNum) {
+            super(String.format("ExportWriter-%s", threadNum));
+            this.exportFileWriter = exportFileWriter;
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (ExportBatch batch = queue.take(); batch != END_OF_EXPORT; batch = queue.take()) {
+                    for (final RpslObject object : batch.objects) {
+                        exportFileWriter.write(object, batch.tags.get(object.getObjectId()));
+                    }
+                }
+            } catch (InterruptedException ignored) {
+                LOGGER.debug("{} aborted", getName());
+            } catch (IOException | RuntimeException e) {
+                failure = e;
+            }
+        }
+
+        void put(final ExportBatch batch) throws InterruptedException {
+            do {
+                if (!isAlive()) {
+                    throw new RuntimeException("Exporting to " + exportFileWriter, failure);
+                }
+            } while (!queue.offer(batch, 1, TimeUnit.SECONDS));
+        }
+
+        void finish() throws InterruptedException {
+            put(END_OF_EXPORT);
+            join();
+            if (failure != null) {
+                throw new RuntimeException("Exporting to " + exportFileWriter, failure);
+            }
+        }
+
+        void abort() {
+            interrupt();
+            try {
+                join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     private final class TextFileExporter implements ExportCallbackHandler {
-        private static final int LOG_EVERY = 500000;
         private final Iterable<ExportFileWriter> exportFileWriters;
 
         private int lastLogged = -1;
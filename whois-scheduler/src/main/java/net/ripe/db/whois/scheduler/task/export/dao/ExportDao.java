@@ -4,4 +4,10 @@ public interface ExportDao {
     int getMaxSerial();
 
     void exportObjects(ExportCallbackHandler exportCallbackHandler);
+
+    /**
+     * Export the max serial and all objects with their tags, read in one stream from a single consistent snapshot of
+     * the database.
+     */
+    void exportSnapshot(ExportSnapshotHandler exportSnapshotHandler);
 }
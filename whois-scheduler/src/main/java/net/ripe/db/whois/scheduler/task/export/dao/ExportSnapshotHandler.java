@@ -0,0 +1,15 @@
+package net.ripe.db.whois.scheduler.task.export.dao;
+
+import net.ripe.db.whois.common.domain.Tag;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+
+import java.util.List;
+
+public interface ExportSnapshotHandler {
+    /**
+     * Called once, before any object, with the max serial the exported objects are consistent with.
+     */
+    void start(int maxSerial);
+
+    void exportObject(RpslObject object, List<Tag> tags);
+}
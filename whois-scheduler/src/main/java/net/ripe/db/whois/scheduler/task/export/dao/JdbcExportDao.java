@@ -1,28 +1,43 @@
 package net.ripe.db.whois.scheduler.task.export.dao;
 
+import com.google.common.collect.Lists;
 import net.ripe.db.whois.common.dao.jdbc.JdbcStreamingHelper;
+import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.domain.Tag;
 import net.ripe.db.whois.common.rpsl.RpslObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.annotation.Nullable;
 import javax.sql.DataSource;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.List;
 
 @Repository
 class JdbcExportDao implements ExportDao {
     private static final Logger LOGGER = LoggerFactory.getLogger(JdbcExportDao.class);
 
     private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate snapshotTransactionTemplate;
 
     @Autowired
     JdbcExportDao(@Qualifier("whoisSlaveDataSource") final DataSource dataSource) {
         this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.snapshotTransactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.snapshotTransactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
     }
 
     @Override
@@ -39,6 +54,25 @@ class JdbcExportDao implements ExportDao {
                 new ExportRowCallbackHandler(exportCallbackHandler));
     }
 
+    @Override
+    public void exportSnapshot(final ExportSnapshotHandler exportSnapshotHandler) {
+        snapshotTransactionTemplate.execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(final TransactionStatus status) {
+                // the first read of a REPEATABLE READ transaction fixes the snapshot that all later reads see
+                exportSnapshotHandler.start(getMaxSerial());
+
+                JdbcStreamingHelper.executeStreaming(jdbcTemplate,
+                        "SELECT last.object_id, last.object, tags.tag_id, tags.data " +
+                                "FROM last " +
+                                "LEFT JOIN tags ON tags.object_id = last.object_id " +
+                                "WHERE last.sequence_id != 0 " +
+                                "ORDER BY last.object_id",
+                        new SnapshotResultSetExtractor(exportSnapshotHandler));
+            }
+        });
+    }
+
     private static final class ExportRowCallbackHandler implements RowCallbackHandler {
         private final ExportCallbackHandler exportCallbackHandler;
 
@@ -48,17 +82,60 @@ class JdbcExportDao implements ExportDao {
 
         @Override
         public void processRow(final ResultSet rs) throws SQLException {
-            final int objectId = rs.getInt(1);
+            final RpslObject object = parse(rs.getInt(1), rs.getBytes(2));
+            if (object != null) {
+                exportCallbackHandler.exportObject(object);
+            }
+        }
+    }
+
+    // rows are ordered by object_id (the primary key order of last), so the rows of an object, one per tag, are adjacent
+    private static final class SnapshotResultSetExtractor implements ResultSetExtractor<Void> {
+        private final ExportSnapshotHandler exportSnapshotHandler;
+
+        private SnapshotResultSetExtractor(final ExportSnapshotHandler exportSnapshotHandler) {
+            this.exportSnapshotHandler = exportSnapshotHandler;
+        }
+
+        @Override
+        public Void extractData(final ResultSet rs) throws SQLException {
+            int objectId = 0;
             RpslObject object = null;
-            try {
-                object = RpslObject.parse(objectId, rs.getBytes(2));
-            } catch (RuntimeException e) {
-                LOGGER.warn("Unable to parse RPSL object with object_id: {}, {}", objectId, e.toString());
+            List<Tag> tags = Lists.newArrayList();
+
+            while (rs.next()) {
+                final int rowObjectId = rs.getInt(1);
+                if (rowObjectId != objectId) {
+                    if (object != null) {
+                        exportSnapshotHandler.exportObject(object, tags);
+                    }
+
+                    objectId = rowObjectId;
+                    object = parse(objectId, rs.getBytes(2));
+                    tags = Lists.newArrayList();
+                }
+
+                final String tagId = rs.getString(3);
+                if (tagId != null) {
+                    tags.add(new Tag(CIString.ciString(tagId), objectId, rs.getString(4)));
+                }
             }
 
             if (object != null) {
-                exportCallbackHandler.exportObject(object);
+                exportSnapshotHandler.exportObject(object, tags);
             }
+
+            return null;
+        }
+    }
+
+    @Nullable
+    private static RpslObject parse(final int objectId, final byte[] bytes) {
+        try {
+            return RpslObject.parse(objectId, bytes);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Unable to parse RPSL object with object_id: {}, {}", objectId, e.toString());
+            return null;
         }
     }
 }
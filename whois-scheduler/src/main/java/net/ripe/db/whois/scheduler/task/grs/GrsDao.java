@@ -1,26 +1,42 @@
 package net.ripe.db.whois.scheduler.task.grs;
 
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
 import net.ripe.db.whois.common.DateTimeProvider;
 import net.ripe.db.whois.common.collect.CollectionHelper;
 import net.ripe.db.whois.common.dao.RpslObjectInfo;
 import net.ripe.db.whois.common.dao.RpslObjectUpdateInfo;
 import net.ripe.db.whois.common.dao.jdbc.JdbcRpslObjectOperations;
+import net.ripe.db.whois.common.dao.jdbc.JdbcStreamingHelper;
 import net.ripe.db.whois.common.dao.jdbc.domain.ObjectTypeIds;
 import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.domain.serials.Operation;
 import net.ripe.db.whois.common.rpsl.ObjectType;
 import net.ripe.db.whois.common.rpsl.RpslObject;
 import net.ripe.db.whois.common.source.Source;
 import net.ripe.db.whois.common.source.SourceContext;
 import org.slf4j.Logger;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.CheckForNull;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static net.ripe.db.whois.common.dao.jdbc.JdbcRpslObjectOperations.deleteFromLastAndUpdateSerials;
@@ -28,6 +44,7 @@ import static net.ripe.db.whois.common.dao.jdbc.JdbcRpslObjectOperations.deleteF
 import static net.ripe.db.whois.common.dao.jdbc.JdbcRpslObjectOperations.insertIntoLastAndUpdateSerials;
 import static net.ripe.db.whois.common.dao.jdbc.JdbcRpslObjectOperations.insertIntoTablesIgnoreMissing;
 import static net.ripe.db.whois.common.dao.jdbc.JdbcRpslObjectOperations.updateLastAndUpdateSerials;
+import static net.ripe.db.whois.common.domain.CIString.ciString;
 
 // TODO: [AH] add an init() method instead of the ensureInitialized() hack
 class GrsDao {
@@ -170,6 +187,269 @@ class GrsDao {
         deleteFromLastAndUpdateSerials(dateTimeProvider, masterJdbcTemplate, rpslObjectInfo);
     }
 
+    /**
+     * Reads the key, version and checksum of every current object in a single pass.
+     */
+    Map<GrsObjectKey, GrsObjectState> getCurrentObjects() {
+        ensureInitialized();
+        final Map<GrsObjectKey, GrsObjectState> currentObjects = Maps.newHashMap();
+        JdbcStreamingHelper.executeStreaming(masterJdbcTemplate, "" +
+                        "SELECT object_id, sequence_id, object_type, pkey, object " +
+                        "FROM last " +
+                        "WHERE sequence_id != 0",
+                new RowCallbackHandler() {
+                    @Override
+                    public void processRow(final ResultSet rs) throws SQLException {
+                        final ObjectType objectType = ObjectTypeIds.getType(rs.getInt(3));
+                        final String pkey = rs.getString(4);
+                        currentObjects.put(
+                                new GrsObjectKey(objectType, ciString(pkey)),
+                                new GrsObjectState(rs.getInt(1), rs.getInt(2), objectType, pkey, checksum(rs.getBytes(5))));
+                    }
+                });
+        return currentObjects;
+    }
+
+    static long checksum(final byte[] object) {
+        return Hashing.murmur3_128().hashBytes(object).asLong();
+    }
+
+    Map<Integer, RpslObject> getObjects(final Collection<Integer> objectIds) {
+        ensureInitialized();
+        final Map<Integer, RpslObject> objects = Maps.newHashMapWithExpectedSize(objectIds.size());
+        if (objectIds.isEmpty()) {
+            return objects;
+        }
+
+        new NamedParameterJdbcTemplate(masterJdbcTemplate).query("" +
+                        "SELECT object_id, object " +
+                        "FROM last " +
+                        "WHERE object_id IN (:objectIds) " +
+                        "AND sequence_id != 0",
+                Collections.singletonMap("objectIds", objectIds),
+                new RowCallbackHandler() {
+                    @Override
+                    public void processRow(final ResultSet rs) throws SQLException {
+                        final int objectId = rs.getInt(1);
+                        objects.put(objectId, RpslObject.parse(objectId, rs.getBytes(2)));
+                    }
+                });
+        return objects;
+    }
+
+    /**
+     * Creates objects that do not exist yet, with a single batch for last and serials.
+     *
+     * @return the results, in the same order as the objects.
+     */
+    @Transactional
+    List<UpdateResult> createObjects(final List<RpslObject> rpslObjects) {
+        ensureInitialized();
+        final int timestamp = JdbcRpslObjectOperations.now(dateTimeProvider);
+        checkBatchUpdate("INSERT INTO last", masterJdbcTemplate.batchUpdate("" +
+                        "INSERT INTO last (object, timestamp, sequence_id, object_type, pkey) " +
+                        "VALUES (?, ?, 1, ?, ?)",
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(final PreparedStatement ps, final int i) throws SQLException {
+                        final RpslObject rpslObject = rpslObjects.get(i);
+                        ps.setBytes(1, rpslObject.toByteArray());
+                        ps.setInt(2, timestamp);
+                        ps.setInt(3, ObjectTypeIds.getId(rpslObject.getType()));
+                        ps.setString(4, rpslObject.getKey().toString());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return rpslObjects.size();
+                    }
+                }));
+
+        final Map<GrsObjectKey, Integer> objectIds = getObjectIds(rpslObjects);
+        final List<RpslObjectUpdateInfo> updateInfos = Lists.newArrayListWithCapacity(rpslObjects.size());
+        for (final RpslObject rpslObject : rpslObjects) {
+            final Integer objectId = objectIds.get(GrsObjectKey.of(rpslObject));
+            if (objectId == null) {
+                throw new DataIntegrityViolationException("Created object not found: " + GrsObjectKey.of(rpslObject));
+            }
+            updateInfos.add(new RpslObjectUpdateInfo(objectId, 1, rpslObject.getType(), rpslObject.getKey().toString()));
+        }
+
+        insertSerials(updateInfos, 0, 1, Operation.UPDATE);
+        return addToIndexes(updateInfos, rpslObjects);
+    }
+
+    /**
+     * Replaces the current version of objects, with a single batch for last and serials, and a single delete per index.
+     *
+     * @return the results, in the same order as the objects.
+     */
+    @Transactional
+    List<UpdateResult> updateObjects(final List<GrsObjectState> grsObjectStates, final List<RpslObject> rpslObjects) {
+        ensureInitialized();
+        final List<RpslObjectUpdateInfo> updateInfos = Lists.newArrayListWithCapacity(grsObjectStates.size());
+        for (final GrsObjectState grsObjectState : grsObjectStates) {
+            updateInfos.add(grsObjectState.createUpdateInfo());
+        }
+
+        removeFromIndexes(updateInfos);
+
+        final int timestamp = JdbcRpslObjectOperations.now(dateTimeProvider);
+        checkBatchUpdate("UPDATE last", masterJdbcTemplate.batchUpdate("" +
+                        "UPDATE last " +
+                        "SET object = ?, timestamp = ?, sequence_id = ? " +
+                        "WHERE object_id = ?",
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(final PreparedStatement ps, final int i) throws SQLException {
+                        final RpslObjectUpdateInfo updateInfo = updateInfos.get(i);
+                        ps.setBytes(1, rpslObjects.get(i).toByteArray());
+                        ps.setInt(2, timestamp);
+                        ps.setInt(3, updateInfo.getSequenceId() + 1);
+                        ps.setInt(4, updateInfo.getObjectId());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return updateInfos.size();
+                    }
+                }));
+
+        insertSerials(updateInfos, 1, 1, Operation.UPDATE);
+        return addToIndexes(updateInfos, rpslObjects);
+    }
+
+    /**
+     * Deletes objects, with a single batch for last and serials, and a single delete per index.
+     */
+    @Transactional
+    void deleteObjects(final List<GrsObjectState> grsObjectStates) {
+        ensureInitialized();
+        final List<RpslObjectUpdateInfo> updateInfos = Lists.newArrayListWithCapacity(grsObjectStates.size());
+        for (final GrsObjectState grsObjectState : grsObjectStates) {
+            updateInfos.add(grsObjectState.createUpdateInfo());
+        }
+
+        removeFromIndexes(updateInfos);
+
+        final int timestamp = JdbcRpslObjectOperations.now(dateTimeProvider);
+        checkBatchUpdate("UPDATE last", masterJdbcTemplate.batchUpdate("" +
+                        "UPDATE last " +
+                        "SET object = '', timestamp = ?, sequence_id = 0 " +
+                        "WHERE object_id = ? AND sequence_id > 0",
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(final PreparedStatement ps, final int i) throws SQLException {
+                        ps.setInt(1, timestamp);
+                        ps.setInt(2, updateInfos.get(i).getObjectId());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return updateInfos.size();
+                    }
+                }));
+
+        insertSerials(updateInfos, 1, 0, Operation.DELETE);
+    }
+
+    /**
+     * Rebuilds the indexes of objects, with a single delete per index.
+     */
+    @Transactional
+    void updateIndexes(final Collection<Integer> objectIds) {
+        ensureInitialized();
+        final Map<Integer, RpslObject> objects = getObjects(objectIds);
+        if (objects.size() != objectIds.size()) {
+            logger.warn("Unable to update index for {} unexisting objects", objectIds.size() - objects.size());
+        }
+
+        final List<RpslObjectUpdateInfo> updateInfos = Lists.newArrayListWithCapacity(objects.size());
+        final List<RpslObject> rpslObjects = Lists.newArrayListWithCapacity(objects.size());
+        for (final RpslObject rpslObject : objects.values()) {
+            updateInfos.add(new RpslObjectUpdateInfo(rpslObject.getObjectId(), 0, rpslObject.getType(), rpslObject.getKey().toString()));
+            rpslObjects.add(rpslObject);
+        }
+
+        removeFromIndexes(updateInfos);
+        for (final UpdateResult updateResult : addToIndexes(updateInfos, rpslObjects)) {
+            if (updateResult.hasMissingReferences()) {
+                logger.debug("Ignore missing references for object with id {}", updateResult.getObjectId());
+            }
+        }
+    }
+
+    private Map<GrsObjectKey, Integer> getObjectIds(final List<RpslObject> rpslObjects) {
+        final Set<String> pkeys = Sets.newHashSetWithExpectedSize(rpslObjects.size());
+        for (final RpslObject rpslObject : rpslObjects) {
+            pkeys.add(rpslObject.getKey().toString());
+        }
+
+        final Map<GrsObjectKey, Integer> objectIds = Maps.newHashMapWithExpectedSize(rpslObjects.size());
+        new NamedParameterJdbcTemplate(masterJdbcTemplate).query("" +
+                        "SELECT object_id, object_type, pkey " +
+                        "FROM last " +
+                        "WHERE pkey IN (:pkeys) " +
+                        "AND sequence_id != 0",
+                Collections.singletonMap("pkeys", pkeys),
+                new RowCallbackHandler() {
+                    @Override
+                    public void processRow(final ResultSet rs) throws SQLException {
+                        objectIds.put(new GrsObjectKey(ObjectTypeIds.getType(rs.getInt(2)), ciString(rs.getString(3))), rs.getInt(1));
+                    }
+                });
+        return objectIds;
+    }
+
+    private void removeFromIndexes(final List<RpslObjectUpdateInfo> updateInfos) {
+        final Multimap<ObjectType, Integer> objectIdsByType = ArrayListMultimap.create();
+        for (final RpslObjectUpdateInfo updateInfo : updateInfos) {
+            objectIdsByType.put(updateInfo.getObjectType(), updateInfo.getObjectId());
+        }
+
+        for (final Map.Entry<ObjectType, Collection<Integer>> entry : objectIdsByType.asMap().entrySet()) {
+            JdbcRpslObjectOperations.deleteFromTables(masterJdbcTemplate, entry.getKey(), entry.getValue());
+        }
+    }
+
+    private List<UpdateResult> addToIndexes(final List<RpslObjectUpdateInfo> updateInfos, final List<RpslObject> rpslObjects) {
+        final List<UpdateResult> updateResults = Lists.newArrayListWithCapacity(updateInfos.size());
+        for (int i = 0; i < updateInfos.size(); i++) {
+            final RpslObjectUpdateInfo updateInfo = updateInfos.get(i);
+            updateResults.add(new UpdateResult(updateInfo, insertIntoTablesIgnoreMissing(masterJdbcTemplate, updateInfo, rpslObjects.get(i))));
+        }
+        return updateResults;
+    }
+
+    private void insertSerials(final List<RpslObjectUpdateInfo> updateInfos, final int sequenceIdIncrement, final int atLast, final Operation operation) {
+        checkBatchUpdate("INSERT INTO serials", masterJdbcTemplate.batchUpdate("" +
+                        "INSERT INTO serials (object_id, sequence_id, atlast, operation) " +
+                        "VALUES (?, ?, ?, ?)",
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(final PreparedStatement ps, final int i) throws SQLException {
+                        final RpslObjectUpdateInfo updateInfo = updateInfos.get(i);
+                        ps.setInt(1, updateInfo.getObjectId());
+                        ps.setInt(2, updateInfo.getSequenceId() + sequenceIdIncrement);
+                        ps.setInt(3, atLast);
+                        ps.setInt(4, operation.getCode());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return updateInfos.size();
+                    }
+                }));
+    }
+
+    private static void checkBatchUpdate(final String statement, final int[] rowsAffected) {
+        for (final int rows : rowsAffected) {
+            if (rows != 1 && rows != Statement.SUCCESS_NO_INFO) {
+                throw new DataIntegrityViolationException("Rows affected by " + statement + ": " + rows);
+            }
+        }
+    }
+
     static class UpdateResult {
         private final int objectId;
         private final boolean hasMissingReferences;
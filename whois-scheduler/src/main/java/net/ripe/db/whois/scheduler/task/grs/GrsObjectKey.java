@@ -0,0 +1,57 @@
+package net.ripe.db.whois.scheduler.task.grs;
+
+import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+
+import javax.annotation.concurrent.Immutable;
+
+@Immutable
+class GrsObjectKey {
+    private final ObjectType type;
+    private final CIString pkey;
+
+    GrsObjectKey(final ObjectType type, final CIString pkey) {
+        this.type = type;
+        this.pkey = pkey;
+    }
+
+    static GrsObjectKey of(final RpslObject rpslObject) {
+        return new GrsObjectKey(rpslObject.getType(), rpslObject.getKey());
+    }
+
+    GrsObjectKey withType(final ObjectType type) {
+        return new GrsObjectKey(type, pkey);
+    }
+
+    public ObjectType getType() {
+        return type;
+    }
+
+    public CIString getPkey() {
+        return pkey;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        final GrsObjectKey that = (GrsObjectKey) o;
+        return type == that.type && pkey.equals(that.pkey);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * type.hashCode() + pkey.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return type.getName() + " " + pkey;
+    }
+}
@@ -0,0 +1,50 @@
+package net.ripe.db.whois.scheduler.task.grs;
+
+import net.ripe.db.whois.common.dao.RpslObjectUpdateInfo;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * The version of a current object in a GRS source, with a checksum of its contents instead of the object itself.
+ */
+@Immutable
+class GrsObjectState {
+    private final int objectId;
+    private final int sequenceId;
+    private final ObjectType type;
+    private final String pkey;
+    private final long checksum;
+
+    GrsObjectState(final int objectId, final int sequenceId, final ObjectType type, final String pkey, final long checksum) {
+        this.objectId = objectId;
+        this.sequenceId = sequenceId;
+        this.type = type;
+        this.pkey = pkey;
+        this.checksum = checksum;
+    }
+
+    public int getObjectId() {
+        return objectId;
+    }
+
+    public int getSequenceId() {
+        return sequenceId;
+    }
+
+    public ObjectType getType() {
+        return type;
+    }
+
+    public String getPkey() {
+        return pkey;
+    }
+
+    public long getChecksum() {
+        return checksum;
+    }
+
+    public RpslObjectUpdateInfo createUpdateInfo() {
+        return new RpslObjectUpdateInfo(objectId, sequenceId, type, pkey);
+    }
+}
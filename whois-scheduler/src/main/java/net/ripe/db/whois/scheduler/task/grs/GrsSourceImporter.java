@@ -1,8 +1,14 @@
 package net.ripe.db.whois.scheduler.task.grs;
 
+import com.google.common.base.Function;
 import com.google.common.base.Joiner;
 import com.google.common.base.Stopwatch;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Queues;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Uninterruptibles;
 import net.ripe.db.whois.common.grs.AuthoritativeResource;
 import net.ripe.db.whois.common.rpsl.AttributeSanitizer;
 import net.ripe.db.whois.common.rpsl.AttributeType;
@@ -21,14 +27,25 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.CheckForNull;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Component
 class GrsSourceImporter {
@@ -36,10 +53,12 @@ class GrsSourceImporter {
 
     private static final Joiner LINE_JOINER = Joiner.on("");
     private static final int LOG_EVERY_NR_HANDLED = 100000;
+    private static final int BULK_BATCH_SIZE = 1000;
 
     private final AttributeSanitizer sanitizer;
     private final ResourceTagger resourceTagger;
     private final SourceContext sourceContext;
+    private final int bulkImportThreads;
 
     private Path downloadDir;
 
@@ -50,8 +69,10 @@ class GrsSourceImporter {
             @Value("${dir.grs.import.download}") final String downloadDir,
             final AttributeSanitizer sanitizer,
             final ResourceTagger resourceTagger,
-            final SourceContext sourceContext) {
+            final SourceContext sourceContext,
+            @Value("${grs.import.bulk.threads:0}") final int bulkImportThreads) {
         this.sourceContext = sourceContext;
+        this.bulkImportThreads = bulkImportThreads;
         this.downloadDir = Paths.get(downloadDir);
         this.sanitizer = sanitizer;
         this.resourceTagger = resourceTagger;
@@ -76,6 +97,11 @@ class GrsSourceImporter {
     }
 
     private void acquireAndUpdateGrsData(final GrsSource grsSource, final boolean rebuild, final AuthoritativeResource authoritativeData) {
+        if (bulkImportThreads > 0) {
+            new BulkImport(grsSource, rebuild, authoritativeData).run();
+            return;
+        }
+
         final Logger logger = grsSource.getLogger();
 
         new Runnable() {
@@ -91,14 +117,7 @@ class GrsSourceImporter {
 
             @Override
             public void run() {
-                final Path dump = downloadDir.resolve(String.format("%s-DMP", grsSource.getName().toUpperCase()));
-
-                try {
-                    grsSource.acquireDump(dump);
-                } catch (IOException e) {
-                    throw new RuntimeException("Unable to acquire dump", e);
-                }
-
+                final Path dump = acquireDump(grsSource);
                 final Stopwatch stopwatch = Stopwatch.createStarted();
 
                 if (rebuild) {
@@ -127,61 +146,20 @@ class GrsSourceImporter {
                 grsSource.handleObjects(dumpFile, new ObjectHandler() {
                     @Override
                     public void handle(final List<String> lines) {
-                        final String rpslObjectString = LINE_JOINER.join(lines);
-
-                        final RpslObject rpslObject;
-                        try {
-                            rpslObject = RpslObject.parse(rpslObjectString);
-                        } catch (RuntimeException e) {
-                            logger.info("Unable to parse input as object: {}\n\n{}\n", e.getMessage(), rpslObjectString);
-                            return;
+                        final RpslObject rpslObject = parseObject(logger, lines);
+                        if (rpslObject != null) {
+                            handle(rpslObject);
                         }
-
-                        handle(FILTER_CHANGED_FUNCTION.apply(rpslObject));
                     }
 
                     @Override
                     public void handle(final RpslObject rpslObject) {
-                        if (rpslObject.getType() == null) {
-                            logger.debug("Unknown type: \n\n{}\n", rpslObject);
+                        final RpslObject cleanObject = cleanObject(logger, rpslObject, sourceAttribute);
+                        if (cleanObject == null) {
                             nrIgnored++;
-                        } else {
-                            final ObjectMessages messages = new ObjectMessages();
-                            final RpslObject filteredObject = filterObject(rpslObject);
-                            final RpslObject cleanObject = sanitizer.sanitize(filteredObject, messages);
-                            final RpslAttribute typeAttribute = cleanObject.getTypeAttribute();
-                            typeAttribute.validateSyntax(cleanObject.getType(), messages);
-                            if (messages.hasErrors()) {
-                                logger.debug("Errors for object with key {}: {}", typeAttribute, messages);
-                                nrIgnored++;
-                            } else if (authoritativeData.isMaintainedInRirSpace(cleanObject)) {
-                                createOrUpdate(cleanObject);
-                            }
-                        }
-                    }
-
-                    private RpslObject filterObject(final RpslObject rpslObject) {
-                        final ObjectTemplate objectTemplate = ObjectTemplate.getTemplate(rpslObject.getType());
-
-                        final RpslObjectBuilder builder = new RpslObjectBuilder(rpslObject);
-
-                        for (int i = 0; i < builder.size(); i++) {
-                            final RpslAttribute rpslAttribute = builder.get(i);
-                            final AttributeType attributeType = rpslAttribute.getType();
-
-                            if (attributeType == null || !objectTemplate.hasAttribute(attributeType)) {
-                                logger.debug("Ignoring attribute in object {}: {}", rpslObject.getFormattedKey(), rpslAttribute);
-                                builder.remove(i--);
-
-                            } else  if (attributeType.equals(AttributeType.SOURCE)) {
-                                builder.remove(i--);
-                            }
+                        } else if (authoritativeData.isMaintainedInRirSpace(cleanObject)) {
+                            createOrUpdate(cleanObject);
                         }
-
-                        // best not to sort to avoid reordering remarks: attributes
-                        builder.append(sourceAttribute);
-
-                        return builder.get();
                     }
 
                     @Transactional
@@ -268,4 +246,426 @@ class GrsSourceImporter {
             }
         }.run();
     }
+
+    private Path acquireDump(final GrsSource grsSource) {
+        final Path dump = downloadDir.resolve(String.format("%s-DMP", grsSource.getName().toUpperCase()));
+
+        try {
+            grsSource.acquireDump(dump);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to acquire dump", e);
+        }
+
+        return dump;
+    }
+
+    @CheckForNull
+    private static RpslObject parseObject(final Logger logger, final List<String> lines) {
+        final String rpslObjectString = LINE_JOINER.join(lines);
+
+        final RpslObject rpslObject;
+        try {
+            rpslObject = RpslObject.parse(rpslObjectString);
+        } catch (RuntimeException e) {
+            logger.info("Unable to parse input as object: {}\n\n{}\n", e.getMessage(), rpslObjectString);
+            return null;
+        }
+
+        return FILTER_CHANGED_FUNCTION.apply(rpslObject);
+    }
+
+    /**
+     * @return the object as it is stored in the GRS source, or null if it has an unknown type or syntax errors.
+     */
+    @CheckForNull
+    private RpslObject cleanObject(final Logger logger, final RpslObject rpslObject, final RpslAttribute sourceAttribute) {
+        if (rpslObject.getType() == null) {
+            logger.debug("Unknown type: \n\n{}\n", rpslObject);
+            return null;
+        }
+
+        final ObjectMessages messages = new ObjectMessages();
+        final RpslObject filteredObject = filterObject(logger, rpslObject, sourceAttribute);
+        final RpslObject cleanObject = sanitizer.sanitize(filteredObject, messages);
+        final RpslAttribute typeAttribute = cleanObject.getTypeAttribute();
+        typeAttribute.validateSyntax(cleanObject.getType(), messages);
+        if (messages.hasErrors()) {
+            logger.debug("Errors for object with key {}: {}", typeAttribute, messages);
+            return null;
+        }
+
+        return cleanObject;
+    }
+
+    private static RpslObject filterObject(final Logger logger, final RpslObject rpslObject, final RpslAttribute sourceAttribute) {
+        final ObjectTemplate objectTemplate = ObjectTemplate.getTemplate(rpslObject.getType());
+
+        final RpslObjectBuilder builder = new RpslObjectBuilder(rpslObject);
+
+        for (int i = 0; i < builder.size(); i++) {
+            final RpslAttribute rpslAttribute = builder.get(i);
+            final AttributeType attributeType = rpslAttribute.getType();
+
+            if (attributeType == null || !objectTemplate.hasAttribute(attributeType)) {
+                logger.debug("Ignoring attribute in object {}: {}", rpslObject.getFormattedKey(), rpslAttribute);
+                builder.remove(i--);
+
+            } else  if (attributeType.equals(AttributeType.SOURCE)) {
+                builder.remove(i--);
+            }
+        }
+
+        // best not to sort to avoid reordering remarks: attributes
+        builder.append(sourceAttribute);
+
+        return builder.get();
+    }
+
+    /**
+     * Imports a dump by comparing it to the current objects in memory, instead of looking up every object separately.
+     * <p/>
+     * Objects are parsed and cleaned on a thread pool, in dump order. Current objects are compared by checksum, and only
+     * objects with a different checksum are loaded and compared to the imported object. Changes are written in batches.
+     */
+    private class BulkImport implements Runnable {
+        private final GrsSource grsSource;
+        private final boolean rebuild;
+        private final AuthoritativeResource authoritativeData;
+        private final Logger logger;
+        private final GrsDao dao;
+        private final RpslAttribute sourceAttribute;
+
+        private final AtomicInteger nrIgnored = new AtomicInteger();
+        private int nrCreated;
+        private int nrUpdated;
+        private int nrDeleted;
+
+        private Map<GrsObjectKey, GrsObjectState> currentObjects;
+        private final Set<Integer> currentObjectIds = Sets.newHashSet();
+        private final Set<Integer> incompletelyIndexedObjectIds = Sets.newHashSet();
+
+        private final Map<GrsObjectKey, RpslObject> pendingCreates = Maps.newLinkedHashMap();
+        private final Map<GrsObjectKey, RpslObject> pendingUpdates = Maps.newLinkedHashMap();
+
+        BulkImport(final GrsSource grsSource, final boolean rebuild, final AuthoritativeResource authoritativeData) {
+            this.grsSource = grsSource;
+            this.rebuild = rebuild;
+            this.authoritativeData = authoritativeData;
+            this.logger = grsSource.getLogger();
+            this.dao = grsSource.getDao();
+            this.sourceAttribute = new RpslAttribute(AttributeType.SOURCE, grsSource.getName().toUpperCase());
+        }
+
+        @Override
+        public void run() {
+            final Path dump = acquireDump(grsSource);
+            final Stopwatch stopwatch = Stopwatch.createStarted();
+
+            if (rebuild) {
+                dao.cleanDatabase();
+                currentObjects = Maps.newHashMap();
+                logger.info("Rebuilding database");
+            } else {
+                currentObjects = dao.getCurrentObjects();
+                logger.info("Updating {} current objects in database", currentObjects.size());
+            }
+
+            for (final GrsObjectState grsObjectState : currentObjects.values()) {
+                currentObjectIds.add(grsObjectState.getObjectId());
+            }
+
+            try {
+                importObjects(dump.toFile());
+                flush();
+                deleteNotFoundInImport();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            } finally {
+                logger.info("created {} / updated {} / deleted {} / ignored {} in {}", nrCreated, nrUpdated, nrDeleted, nrIgnored, stopwatch.stop());
+            }
+
+            updateIndexes();
+        }
+
+        private void importObjects(final File dumpFile) throws IOException {
+            final ExecutorService executorService = Executors.newFixedThreadPool(bulkImportThreads, new ThreadFactory() {
+                final AtomicInteger threadNum = new AtomicInteger();
+
+                @Override
+                public Thread newThread(final Runnable r) {
+                    return new Thread(r, String.format("GrsImport-%s-%s", grsSource.getName(), threadNum.incrementAndGet()));
+                }
+            });
+
+            final Deque<Future<RpslObject>> pendingObjects = Queues.newArrayDeque();
+            try {
+                grsSource.handleObjects(dumpFile, new ObjectHandler() {
+                    @Override
+                    public void handle(final List<String> lines) {
+                        submit(new Callable<RpslObject>() {
+                            @Override
+                            public RpslObject call() {
+                                final RpslObject rpslObject = parseObject(logger, lines);
+                                return rpslObject == null ? null : prepare(rpslObject);
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void handle(final RpslObject rpslObject) {
+                        submit(new Callable<RpslObject>() {
+                            @Override
+                            public RpslObject call() {
+                                return prepare(rpslObject);
+                            }
+                        });
+                    }
+
+                    private void submit(final Callable<RpslObject> callable) {
+                        pendingObjects.add(executorService.submit(callable));
+                        if (pendingObjects.size() > bulkImportThreads * 4) {
+                            diff(pendingObjects.remove());
+                        }
+                    }
+                });
+
+                while (!pendingObjects.isEmpty()) {
+                    diff(pendingObjects.remove());
+                }
+            } finally {
+                executorService.shutdownNow();
+            }
+        }
+
+        @CheckForNull
+        private RpslObject prepare(final RpslObject rpslObject) {
+            final RpslObject cleanObject = cleanObject(logger, rpslObject, sourceAttribute);
+            if (cleanObject == null) {
+                nrIgnored.incrementAndGet();
+                return null;
+            }
+
+            return authoritativeData.isMaintainedInRirSpace(cleanObject) ? cleanObject : null;
+        }
+
+        private void diff(final Future<RpslObject> pendingObject) {
+            final RpslObject importedObject;
+            try {
+                importedObject = Uninterruptibles.getUninterruptibly(pendingObject);
+            } catch (ExecutionException e) {
+                logger.error("Preparing object", e.getCause());
+                return;
+            }
+
+            if (importedObject == null) {
+                return;
+            }
+
+            final GrsObjectKey key = GrsObjectKey.of(importedObject);
+            final GrsObjectState grsObjectState = currentObjects.get(key);
+            if (grsObjectState == null) {
+                if (!pendingCreates.containsKey(key)) {
+                    if (key.getType() == ObjectType.PERSON && exists(key.withType(ObjectType.ROLE))) {
+                        return;
+                    }
+
+                    if (key.getType() == ObjectType.ROLE && exists(key.withType(ObjectType.PERSON))) {
+                        return;
+                    }
+                }
+
+                pendingCreates.put(key, importedObject);
+            } else {
+                currentObjectIds.remove(grsObjectState.getObjectId());
+                if (GrsDao.checksum(importedObject.toByteArray()) != grsObjectState.getChecksum()) {
+                    pendingUpdates.put(key, importedObject);
+                } else {
+                    pendingUpdates.remove(key);
+                }
+            }
+
+            if (pendingCreates.size() + pendingUpdates.size() >= BULK_BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        private boolean exists(final GrsObjectKey key) {
+            return currentObjects.containsKey(key) || pendingCreates.containsKey(key);
+        }
+
+        /**
+         * Writes the pending batch. The batch is always cleared, so a failed batch is not written again with the next
+         * one. The objects of a failed batch are imported one by one instead, so a bad object only fails itself.
+         */
+        private void flush() {
+            final int nrImportedBefore = nrCreated + nrUpdated;
+
+            try {
+                if (!pendingCreates.isEmpty()) {
+                    createPending();
+                }
+
+                if (!pendingUpdates.isEmpty()) {
+                    updatePending();
+                }
+            } finally {
+                pendingCreates.clear();
+                pendingUpdates.clear();
+            }
+
+            final int nrImported = nrCreated + nrUpdated;
+            if (nrImported / LOG_EVERY_NR_HANDLED > nrImportedBefore / LOG_EVERY_NR_HANDLED) {
+                logger.info("Imported {} objects", nrImported);
+            }
+        }
+
+        private void createPending() {
+            final List<RpslObject> importedObjects = Lists.newArrayList(pendingCreates.values());
+
+            final List<GrsDao.UpdateResult> updateResults;
+            try {
+                updateResults = dao.createObjects(importedObjects);
+            } catch (RuntimeException e) {
+                logger.error("Creating {} objects, importing them one by one", importedObjects.size(), e);
+                importOneByOne(importedObjects);
+                return;
+            }
+
+            for (int i = 0; i < importedObjects.size(); i++) {
+                final RpslObject importedObject = importedObjects.get(i);
+                final GrsDao.UpdateResult updateResult = updateResults.get(i);
+                if (updateResult.hasMissingReferences()) {
+                    incompletelyIndexedObjectIds.add(updateResult.getObjectId());
+                }
+
+                currentObjects.put(GrsObjectKey.of(importedObject), createState(updateResult.getObjectId(), 1, importedObject));
+            }
+
+            nrCreated += importedObjects.size();
+        }
+
+        private void updatePending() {
+            final List<GrsObjectState> grsObjectStates = Lists.newArrayListWithCapacity(pendingUpdates.size());
+            for (final GrsObjectKey key : pendingUpdates.keySet()) {
+                grsObjectStates.add(currentObjects.get(key));
+            }
+
+            final List<GrsObjectState> changedStates = Lists.newArrayListWithCapacity(grsObjectStates.size());
+            final List<RpslObject> changedObjects = Lists.newArrayListWithCapacity(grsObjectStates.size());
+            final List<GrsDao.UpdateResult> updateResults;
+            try {
+                final Map<Integer, RpslObject> storedObjects = dao.getObjects(Lists.transform(grsObjectStates, new Function<GrsObjectState, Integer>() {
+                    @Override
+                    public Integer apply(final GrsObjectState input) {
+                        return input.getObjectId();
+                    }
+                }));
+
+                final Iterator<RpslObject> importedObjects = pendingUpdates.values().iterator();
+                for (final GrsObjectState grsObjectState : grsObjectStates) {
+                    final RpslObject importedObject = importedObjects.next();
+                    if (!importedObject.equals(storedObjects.get(grsObjectState.getObjectId()))) {
+                        changedStates.add(grsObjectState);
+                        changedObjects.add(importedObject);
+                    }
+                }
+
+                if (changedStates.isEmpty()) {
+                    return;
+                }
+
+                updateResults = dao.updateObjects(changedStates, changedObjects);
+            } catch (RuntimeException e) {
+                logger.error("Updating {} objects, importing them one by one", pendingUpdates.size(), e);
+                importOneByOne(pendingUpdates.values());
+                return;
+            }
+
+            for (int i = 0; i < changedStates.size(); i++) {
+                final GrsObjectState grsObjectState = changedStates.get(i);
+                final RpslObject importedObject = changedObjects.get(i);
+                if (updateResults.get(i).hasMissingReferences()) {
+                    incompletelyIndexedObjectIds.add(grsObjectState.getObjectId());
+                }
+
+                currentObjects.put(GrsObjectKey.of(importedObject), createState(grsObjectState.getObjectId(), grsObjectState.getSequenceId() + 1, importedObject));
+            }
+
+            nrUpdated += changedStates.size();
+        }
+
+        /**
+         * Imports the objects of a failed batch like the object-by-object import does. The batch may have been written
+         * partially, so objects that are already current are reindexed at the end of the import.
+         */
+        private void importOneByOne(final Iterable<RpslObject> importedObjects) {
+            for (final RpslObject importedObject : importedObjects) {
+                final GrsObjectKey key = GrsObjectKey.of(importedObject);
+                try {
+                    final GrsObjectInfo grsObjectInfo = dao.find(importedObject.getKey().toString(), importedObject.getType());
+                    if (grsObjectInfo == null) {
+                        final GrsDao.UpdateResult updateResult = dao.createObject(importedObject);
+                        if (updateResult.hasMissingReferences()) {
+                            incompletelyIndexedObjectIds.add(updateResult.getObjectId());
+                        }
+                        currentObjects.put(key, createState(updateResult.getObjectId(), 1, importedObject));
+                        nrCreated++;
+                    } else if (!grsObjectInfo.getRpslObject().equals(importedObject)) {
+                        final GrsDao.UpdateResult updateResult = dao.updateObject(grsObjectInfo, importedObject);
+                        if (updateResult.hasMissingReferences()) {
+                            incompletelyIndexedObjectIds.add(updateResult.getObjectId());
+                        }
+                        currentObjects.put(key, createState(grsObjectInfo.getObjectId(), grsObjectInfo.createUpdateInfo().getSequenceId() + 1, importedObject));
+                        nrUpdated++;
+                    } else {
+                        incompletelyIndexedObjectIds.add(grsObjectInfo.getObjectId());
+                        currentObjects.put(key, createState(grsObjectInfo.getObjectId(), grsObjectInfo.createUpdateInfo().getSequenceId(), importedObject));
+                    }
+                } catch (RuntimeException e) {
+                    logger.error("Importing object {}", key, e);
+                }
+            }
+        }
+
+        private GrsObjectState createState(final int objectId, final int sequenceId, final RpslObject rpslObject) {
+            return new GrsObjectState(objectId, sequenceId, rpslObject.getType(), rpslObject.getKey().toString(), GrsDao.checksum(rpslObject.toByteArray()));
+        }
+
+        private void deleteNotFoundInImport() {
+            if (nrCreated == 0 && nrUpdated == 0) {
+                logger.warn("Skipping deletion since there were no other updates");
+                return;
+            }
+
+            logger.info("Cleaning up {} currently unreferenced objects", currentObjectIds.size());
+
+            final List<GrsObjectState> unreferencedObjects = Lists.newArrayListWithCapacity(currentObjectIds.size());
+            for (final GrsObjectState grsObjectState : currentObjects.values()) {
+                if (currentObjectIds.contains(grsObjectState.getObjectId())) {
+                    unreferencedObjects.add(grsObjectState);
+                }
+            }
+
+            for (final List<GrsObjectState> batch : Lists.partition(unreferencedObjects, BULK_BATCH_SIZE)) {
+                try {
+                    dao.deleteObjects(batch);
+                    nrDeleted += batch.size();
+                } catch (RuntimeException e) {
+                    logger.error("Deleting {} objects", batch.size(), e);
+                }
+            }
+        }
+
+        private void updateIndexes() {
+            logger.info("Updating indexes for {} changed objects with missing references", incompletelyIndexedObjectIds.size());
+
+            for (final List<Integer> batch : Iterables.partition(incompletelyIndexedObjectIds, BULK_BATCH_SIZE)) {
+                try {
+                    dao.updateIndexes(batch);
+                } catch (RuntimeException e) {
+                    logger.error("Updating index for {} objects", batch.size(), e);
+                }
+            }
+        }
+    }
 }
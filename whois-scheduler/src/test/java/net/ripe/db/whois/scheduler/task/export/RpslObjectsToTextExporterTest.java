@@ -2,10 +2,12 @@ package net.ripe.db.whois.scheduler.task.export;
 
 import com.google.common.collect.Lists;
 import net.ripe.db.whois.common.dao.TagsDao;
+import net.ripe.db.whois.common.domain.CIString;
 import net.ripe.db.whois.common.domain.Tag;
 import net.ripe.db.whois.common.rpsl.RpslObject;
 import net.ripe.db.whois.scheduler.task.export.dao.ExportCallbackHandler;
 import net.ripe.db.whois.scheduler.task.export.dao.ExportDao;
+import net.ripe.db.whois.scheduler.task.export.dao.ExportSnapshotHandler;
 import org.hamcrest.Matchers;
 import org.junit.Assert;
 import org.junit.Before;
@@ -13,6 +15,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.invocation.InvocationOnMock;
@@ -28,6 +31,7 @@ import java.util.concurrent.TimeUnit;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -52,7 +56,7 @@ public class RpslObjectsToTextExporterTest {
 
         when(exportFileWriterFactory.isExportDir(any(File.class))).thenReturn(true);
 
-        subject = new RpslObjectsExporter(exportFileWriterFactory, exportDao, tagsDao, exportdirName, tmpDirName, true);
+        subject = new RpslObjectsExporter(exportFileWriterFactory, exportDao, tagsDao, exportdirName, tmpDirName, true, false);
     }
 
     @Test(expected = RuntimeException.class)
@@ -154,6 +158,78 @@ public class RpslObjectsToTextExporterTest {
         Mockito.verify(exportFileWriter).close();
     }
 
+    @Test
+    public void export_objects_in_parallel() throws IOException {
+        subject = new RpslObjectsExporter(exportFileWriterFactory, exportDao, tagsDao, exportDir.getAbsolutePath(), tmpDir.getAbsolutePath(), true, true);
+
+        final ExportFileWriter exportFileWriter1 = Mockito.mock(ExportFileWriter.class);
+        final ExportFileWriter exportFileWriter2 = Mockito.mock(ExportFileWriter.class);
+        when(exportFileWriterFactory.createExportFileWriters(tmpDir, 1234)).thenReturn(Lists.newArrayList(exportFileWriter1, exportFileWriter2));
+
+        final List<RpslObject> rpslObjects = Lists.newArrayList();
+        for (int objectId = 1; objectId <= 25000; objectId += 7) {
+            rpslObjects.add(RpslObject.parse(objectId, "mntner: DEV-MNT" + objectId));
+        }
+
+        final Tag tag = new Tag(CIString.ciString("unref"), 8, "28");
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws Throwable {
+                final ExportSnapshotHandler exportSnapshotHandler = (ExportSnapshotHandler) invocation.getArguments()[0];
+                exportSnapshotHandler.start(1234);
+                for (final RpslObject rpslObject : rpslObjects) {
+                    exportSnapshotHandler.exportObject(rpslObject, rpslObject.getObjectId() == 8 ? Lists.newArrayList(tag) : Collections.<Tag>emptyList());
+                }
+                return null;
+            }
+        }).when(exportDao).exportSnapshot(any(ExportSnapshotHandler.class));
+
+        subject.export();
+
+        for (final ExportFileWriter exportFileWriter : Lists.newArrayList(exportFileWriter1, exportFileWriter2)) {
+            final InOrder inOrder = Mockito.inOrder(exportFileWriter);
+            for (final RpslObject rpslObject : rpslObjects) {
+                inOrder.verify(exportFileWriter).write(rpslObject, rpslObject.getObjectId() == 8 ? Lists.newArrayList(tag) : Collections.<Tag>emptyList());
+            }
+            inOrder.verify(exportFileWriter).close();
+        }
+
+        Mockito.verify(exportDao, Mockito.never()).getMaxSerial();
+        Mockito.verify(exportDao, Mockito.never()).exportObjects(any(ExportCallbackHandler.class));
+        Mockito.verifyZeroInteractions(tagsDao);
+    }
+
+    @Test
+    public void export_objects_in_parallel_exception() throws IOException {
+        subject = new RpslObjectsExporter(exportFileWriterFactory, exportDao, tagsDao, exportDir.getAbsolutePath(), tmpDir.getAbsolutePath(), true, true);
+
+        final ExportFileWriter exportFileWriter = Mockito.mock(ExportFileWriter.class);
+        when(exportFileWriterFactory.createExportFileWriters(tmpDir, 0)).thenReturn(Lists.newArrayList(exportFileWriter));
+
+        final RpslObject rpslObject = RpslObject.parse(2, "mntner: DEV-MNT1");
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws Throwable {
+                final ExportSnapshotHandler exportSnapshotHandler = (ExportSnapshotHandler) invocation.getArguments()[0];
+                exportSnapshotHandler.start(0);
+                for (int i = 0; i < 100000; i++) {
+                    exportSnapshotHandler.exportObject(rpslObject, Collections.<Tag>emptyList());
+                }
+                return null;
+            }
+        }).when(exportDao).exportSnapshot(any(ExportSnapshotHandler.class));
+        Mockito.doThrow(IOException.class).when(exportFileWriter).write(any(RpslObject.class), anyListOf(Tag.class));
+
+        try {
+            subject.export();
+            Assert.fail("Expected exception");
+        } catch (RuntimeException ignored) {
+        }
+
+        Mockito.verify(exportFileWriter).write(rpslObject, Collections.<Tag>emptyList());
+        Mockito.verify(exportFileWriter).close();
+    }
+
     @Test
     public void export_check_files() {
         subject.export();
@@ -1,16 +1,27 @@
 package net.ripe.db.whois.scheduler.task.export.dao;
 
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.jayway.awaitility.Awaitility;
+import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.domain.Tag;
 import net.ripe.db.whois.common.rpsl.RpslObject;
 import net.ripe.db.whois.scheduler.AbstractSchedulerIntegrationTest;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.IntStream;
 
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.fail;
@@ -66,4 +77,82 @@ public class JdbcExportDaoTest extends AbstractSchedulerIntegrationTest {
 
         assertThat(objects, hasSize(0));
     }
+
+    @Test
+    public void exportSnapshot() {
+        final RpslObject object1 = databaseHelper.addObject(RpslObject.parse("mntner: DEV1-MNT"));
+        final RpslObject object2 = databaseHelper.addObject(RpslObject.parse("mntner: DEV2-MNT"));
+        final RpslObject object3 = databaseHelper.addObject(RpslObject.parse("mntner: DEV3-MNT"));
+        databaseHelper.deleteObject(object3);
+        whoisTemplate.update("INSERT INTO tags VALUES (?, ?, ?)", object2.getObjectId(), "foo", "Foo Data");
+        whoisTemplate.update("INSERT INTO tags VALUES (?, ?, ?)", object2.getObjectId(), "bar", "Bar Data");
+
+        final CollectingSnapshotHandler handler = new CollectingSnapshotHandler();
+        subject.exportSnapshot(handler);
+
+        assertThat(handler.maxSerial, is(subject.getMaxSerial()));
+        assertThat(handler.objects, contains(object1, object2));
+        assertThat(handler.tags.get(object1.getObjectId()), hasSize(0));
+        assertThat(handler.tags.get(object2.getObjectId()), containsInAnyOrder(
+                new Tag(CIString.ciString("bar"), object2.getObjectId(), "Bar Data"),
+                new Tag(CIString.ciString("foo"), object2.getObjectId(), "Foo Data")));
+    }
+
+    @Test
+    public void exportSnapshot_ignores_modifications_during_export() throws Exception {
+        final List<RpslObject> added = Lists.newArrayList();
+        IntStream.range(0, 10).forEach(index -> added.add(databaseHelper.addObject(RpslObject.parse("mntner: DEV-MNT" + index))));
+        whoisTemplate.update("INSERT INTO tags VALUES (?, ?, ?)", added.get(2).getObjectId(), "foo", "Foo Data");
+        final int maxSerial = subject.getMaxSerial();
+
+        final ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            final CollectingSnapshotHandler handler = new CollectingSnapshotHandler() {
+                @Override
+                public void exportObject(final RpslObject object, final List<Tag> tags) {
+                    if (this.objects.isEmpty()) {
+                        // modify on another thread, outside the transaction of the export
+                        try {
+                            executorService.submit(() -> {
+                                databaseHelper.addObject(RpslObject.parse("mntner: DEV-NEW-MNT"));
+                                databaseHelper.deleteObject(added.get(9));
+                                databaseHelper.updateObject(RpslObject.parse("mntner: DEV-MNT5\nremarks: updated"));
+                                whoisTemplate.update("INSERT INTO tags VALUES (?, ?, ?)", added.get(3).getObjectId(), "bar", "Bar Data");
+                            }).get(10, TimeUnit.SECONDS);
+                        } catch (Exception e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }
+
+                    super.exportObject(object, tags);
+                }
+            };
+
+            subject.exportSnapshot(handler);
+
+            assertThat(handler.maxSerial, is(maxSerial));
+            assertThat(handler.objects, is(added));
+            assertThat(handler.tags.keySet(), contains(added.get(2).getObjectId()));
+            assertThat(subject.getMaxSerial(), is(maxSerial + 3));
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private static class CollectingSnapshotHandler implements ExportSnapshotHandler {
+        final List<RpslObject> objects = Lists.newArrayList();
+        final ListMultimap<Integer, Tag> tags = ArrayListMultimap.create();
+        int maxSerial = -1;
+
+        @Override
+        public void start(final int maxSerial) {
+            this.maxSerial = maxSerial;
+        }
+
+        @Override
+        public void exportObject(final RpslObject object, final List<Tag> tags) {
+            objects.add(object);
+            this.tags.putAll(object.getObjectId(), tags);
+        }
+    }
 }
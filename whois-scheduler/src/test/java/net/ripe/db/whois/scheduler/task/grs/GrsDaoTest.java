@@ -1,5 +1,6 @@
 package net.ripe.db.whois.scheduler.task.grs;
 
+import com.google.common.collect.Lists;
 import net.ripe.db.whois.common.IntegrationTest;
 import net.ripe.db.whois.common.domain.CIString;
 import net.ripe.db.whois.common.rpsl.ObjectType;
@@ -15,6 +16,8 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.annotation.DirtiesContext;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static net.ripe.db.whois.common.domain.CIString.ciString;
@@ -123,4 +126,42 @@ public class GrsDaoTest extends AbstractSchedulerIntegrationTest {
         final Set<CIString> missingReferences = subject.updateIndexes(1);
         assertThat(missingReferences, hasSize(0));
     }
+
+    @Test
+    public void create_update_and_delete_objects_in_bulk() {
+        final List<GrsDao.UpdateResult> created = subject.createObjects(Lists.newArrayList(
+                RpslObject.parse("mntner: DEV1-MNT\nmnt-by: DEV2-MNT"),
+                RpslObject.parse("mntner: DEV2-MNT\nmnt-by: DEV2-MNT")));
+        assertThat(created, hasSize(2));
+        assertThat(created.get(0).hasMissingReferences(), is(true));
+        assertThat(created.get(1).hasMissingReferences(), is(false));
+
+        final Map<GrsObjectKey, GrsObjectState> currentObjects = subject.getCurrentObjects();
+        assertThat(currentObjects.size(), is(2));
+
+        final GrsObjectState dev1 = currentObjects.get(new GrsObjectKey(ObjectType.MNTNER, ciString("dev1-mnt")));
+        assertThat(dev1.getObjectId(), is(created.get(0).getObjectId()));
+        assertThat(dev1.getSequenceId(), is(1));
+        assertThat(dev1.getChecksum(), is(GrsDao.checksum(RpslObject.parse("mntner: DEV1-MNT\nmnt-by: DEV2-MNT").toByteArray())));
+
+        final RpslObject updatedObject = RpslObject.parse("mntner: DEV1-MNT\nmnt-by: DEV1-MNT");
+        subject.updateObjects(Lists.newArrayList(dev1), Lists.newArrayList(updatedObject));
+        assertThat(subject.getObjects(Lists.newArrayList(dev1.getObjectId())).get(dev1.getObjectId()), is(updatedObject));
+        assertThat(subject.getCurrentObjects().get(new GrsObjectKey(ObjectType.MNTNER, ciString("DEV1-MNT"))).getSequenceId(), is(2));
+
+        final GrsObjectState dev2 = currentObjects.get(new GrsObjectKey(ObjectType.MNTNER, ciString("DEV2-MNT")));
+        subject.deleteObjects(Lists.newArrayList(dev2));
+        assertThat(subject.getCurrentObjectIds(), contains(dev1.getObjectId()));
+    }
+
+    @Test
+    public void update_indexes_in_bulk() {
+        final List<GrsDao.UpdateResult> created = subject.createObjects(Lists.newArrayList(RpslObject.parse("mntner: DEV1-MNT\nmnt-by: DEV2-MNT")));
+        assertThat(created.get(0).hasMissingReferences(), is(true));
+
+        subject.createObjects(Lists.newArrayList(RpslObject.parse("mntner: DEV2-MNT\nmnt-by: DEV2-MNT")));
+        subject.updateIndexes(Lists.newArrayList(created.get(0).getObjectId(), 1000));
+
+        assertThat(subject.updateIndexes(created.get(0).getObjectId()), hasSize(0));
+    }
 }
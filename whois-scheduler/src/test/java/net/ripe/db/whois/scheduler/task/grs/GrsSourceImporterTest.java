@@ -1,6 +1,8 @@
 package net.ripe.db.whois.scheduler.task.grs;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import net.ripe.db.whois.common.grs.AuthoritativeResource;
 import net.ripe.db.whois.common.rpsl.AttributeSanitizer;
 import net.ripe.db.whois.common.rpsl.ObjectMessages;
@@ -18,6 +20,7 @@ import org.mockito.runners.MockitoJUnitRunner;
 import org.mockito.stubbing.Answer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
 
 import java.io.File;
 import java.io.IOException;
@@ -27,6 +30,8 @@ import static net.ripe.db.whois.common.domain.CIString.ciString;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyCollectionOf;
+import static org.mockito.Mockito.anyListOf;
 import static org.mockito.Mockito.anyInt;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
@@ -69,7 +74,7 @@ public class GrsSourceImporterTest {
         when(grsDao.createObject(any(RpslObject.class))).thenReturn(updateResultCreate);
         when(grsDao.updateObject(any(GrsObjectInfo.class), any(RpslObject.class))).thenReturn(updateResultUpdate);
 
-        subject = new GrsSourceImporter(folder.getRoot().getAbsolutePath(), sanitizer, resourceTagger, sourceContext);
+        subject = new GrsSourceImporter(folder.getRoot().getAbsolutePath(), sanitizer, resourceTagger, sourceContext, 0);
     }
 
     @Test
@@ -362,4 +367,149 @@ public class GrsSourceImporterTest {
 
         verify(grsDao).deleteObject(3);
     }
+
+    @Test
+    public void bulk_rebuild() {
+        subject = new GrsSourceImporter(folder.getRoot().getAbsolutePath(), sanitizer, resourceTagger, sourceContext, 2);
+        when(grsSource.getName()).thenReturn(ciString("APNIC-GRS"));
+        subject.grsImport(grsSource, true);
+
+        verify(grsDao).cleanDatabase();
+        verify(grsDao, never()).getCurrentObjects();
+        verify(grsDao, never()).getCurrentObjectIds();
+    }
+
+    @Test
+    public void bulk_process_nothing_does_not_delete() {
+        subject = new GrsSourceImporter(folder.getRoot().getAbsolutePath(), sanitizer, resourceTagger, sourceContext, 2);
+        when(grsSource.getName()).thenReturn(ciString("APNIC-GRS"));
+        when(grsDao.getCurrentObjects()).thenReturn(Maps.newHashMap(ImmutableMap.of(
+                new GrsObjectKey(ObjectType.MNTNER, ciString("DEV-MNT")), new GrsObjectState(1, 1, ObjectType.MNTNER, "DEV-MNT", 0))));
+
+        subject.grsImport(grsSource, false);
+
+        verify(grsDao, never()).deleteObjects(anyListOf(GrsObjectState.class));
+    }
+
+    @Test
+    public void bulk_create_update_delete() throws IOException {
+        subject = new GrsSourceImporter(folder.getRoot().getAbsolutePath(), sanitizer, resourceTagger, sourceContext, 2);
+        when(grsSource.getName()).thenReturn(ciString("APNIC-GRS"));
+        when(authoritativeResource.isMaintainedInRirSpace(any(RpslObject.class))).thenReturn(true);
+
+        final GrsObjectState modifyState = new GrsObjectState(1, 1, ObjectType.MNTNER, "MODIFY-MNT", 0);
+        final GrsObjectState noopState = new GrsObjectState(2, 2, ObjectType.MNTNER, "NOOP-MNT", 0);
+        final GrsObjectState deleteState = new GrsObjectState(3, 1, ObjectType.MNTNER, "DELETE-MNT", 0);
+        when(grsDao.getCurrentObjects()).thenReturn(Maps.newHashMap(ImmutableMap.of(
+                new GrsObjectKey(ObjectType.MNTNER, ciString("MODIFY-MNT")), modifyState,
+                new GrsObjectKey(ObjectType.MNTNER, ciString("NOOP-MNT")), noopState,
+                new GrsObjectKey(ObjectType.MNTNER, ciString("DELETE-MNT")), deleteState)));
+        when(grsDao.getObjects(anyCollectionOf(Integer.class))).thenReturn(ImmutableMap.of(
+                1, RpslObject.parse("mntner: MODIFY-MNT"),
+                2, RpslObject.parse("mntner:         NOOP-MNT\nsource:         APNIC-GRS")));
+        when(grsDao.createObjects(anyListOf(RpslObject.class))).thenReturn(Lists.newArrayList(updateResultCreate));
+        when(grsDao.updateObjects(anyListOf(GrsObjectState.class), anyListOf(RpslObject.class))).thenReturn(Lists.newArrayList(updateResultUpdate));
+        when(updateResultUpdate.hasMissingReferences()).thenReturn(true);
+        when(updateResultCreate.getObjectId()).thenReturn(5);
+
+        doAnswer(new Answer() {
+            @Override
+            public Object answer(final InvocationOnMock invocation) throws Throwable {
+                final ObjectHandler objectHandler = (ObjectHandler) invocation.getArguments()[1];
+
+                objectHandler.handle(RpslObject.parse("" +
+                        "mntner: MODIFY-MNT\n" +
+                        "mnt-by: CREATE-MNT\n"));
+
+                objectHandler.handle(RpslObject.parse("" +
+                        "mntner: CREATE-MNT\n" +
+                        "descr: first\n"));
+
+                objectHandler.handle(Lists.newArrayList(
+                        "mntner: CREATE-MNT\n",
+                        "mnt-by: CREATE-MNT\n"));
+
+                objectHandler.handle(RpslObject.parse("" +
+                        "mntner: NOOP-MNT\n"));
+
+                return null;
+            }
+        }).when(grsSource).handleObjects(any(File.class), any(ObjectHandler.class));
+
+        subject.grsImport(grsSource, false);
+
+        verify(grsDao).createObjects(Lists.newArrayList(RpslObject.parse("" +
+                "mntner:         CREATE-MNT\n" +
+                "mnt-by:         CREATE-MNT\n" +
+                "source:         APNIC-GRS")));
+
+        verify(grsDao).updateObjects(Lists.newArrayList(modifyState), Lists.newArrayList(RpslObject.parse("" +
+                "mntner:         MODIFY-MNT\n" +
+                "mnt-by:         CREATE-MNT\n" +
+                "source:         APNIC-GRS")));
+
+        verify(grsDao).deleteObjects(Lists.newArrayList(deleteState));
+        verify(grsDao).updateIndexes(Lists.newArrayList(1));
+        verify(grsDao, never()).createObject(any(RpslObject.class));
+    }
+
+    @Test
+    public void bulk_try_inserting_person_with_same_nichdl_as_role() throws IOException {
+        subject = new GrsSourceImporter(folder.getRoot().getAbsolutePath(), sanitizer, resourceTagger, sourceContext, 2);
+        when(grsSource.getName()).thenReturn(ciString("APNIC-GRS"));
+        when(authoritativeResource.isMaintainedInRirSpace(any(RpslObject.class))).thenReturn(true);
+        when(grsDao.getCurrentObjects()).thenReturn(Maps.newHashMap(ImmutableMap.of(
+                new GrsObjectKey(ObjectType.ROLE, ciString("NI124-RIPE")), new GrsObjectState(1, 1, ObjectType.ROLE, "NI124-RIPE", 0))));
+
+        doAnswer(new Answer() {
+            @Override
+            public Object answer(final InvocationOnMock invocation) throws Throwable {
+                final ObjectHandler objectHandler = (ObjectHandler) invocation.getArguments()[1];
+
+                objectHandler.handle(RpslObject.parse("" +
+                        "person: Ninja Person\n" +
+                        "nic-hdl: NI124-RIPE\n"));
+
+                return null;
+            }
+        }).when(grsSource).handleObjects(any(File.class), any(ObjectHandler.class));
+
+        subject.grsImport(grsSource, false);
+
+        verify(grsDao, never()).createObjects(anyListOf(RpslObject.class));
+        verify(grsDao, never()).updateObjects(anyListOf(GrsObjectState.class), anyListOf(RpslObject.class));
+    }
+
+    @Test
+    public void bulk_create_fails_imports_one_by_one() throws IOException {
+        subject = new GrsSourceImporter(folder.getRoot().getAbsolutePath(), sanitizer, resourceTagger, sourceContext, 2);
+        when(grsSource.getName()).thenReturn(ciString("APNIC-GRS"));
+        when(authoritativeResource.isMaintainedInRirSpace(any(RpslObject.class))).thenReturn(true);
+
+        final GrsObjectState deleteState = new GrsObjectState(3, 1, ObjectType.MNTNER, "DELETE-MNT", 0);
+        when(grsDao.getCurrentObjects()).thenReturn(Maps.newHashMap(ImmutableMap.of(
+                new GrsObjectKey(ObjectType.MNTNER, ciString("DELETE-MNT")), deleteState)));
+
+        final RpslObject goodObject = RpslObject.parse("mntner:         GOOD-MNT\nsource:         APNIC-GRS");
+        final RpslObject badObject = RpslObject.parse("mntner:         BAD-MNT\nsource:         APNIC-GRS");
+        when(grsDao.createObjects(anyListOf(RpslObject.class))).thenThrow(new DataIntegrityViolationException("bulk insert failed"));
+        when(grsDao.createObject(badObject)).thenThrow(new DataIntegrityViolationException("insert failed"));
+
+        doAnswer(new Answer() {
+            @Override
+            public Object answer(final InvocationOnMock invocation) throws Throwable {
+                final ObjectHandler objectHandler = (ObjectHandler) invocation.getArguments()[1];
+                objectHandler.handle(RpslObject.parse("mntner: BAD-MNT\n"));
+                objectHandler.handle(RpslObject.parse("mntner: GOOD-MNT\n"));
+                return null;
+            }
+        }).when(grsSource).handleObjects(any(File.class), any(ObjectHandler.class));
+
+        subject.grsImport(grsSource, false);
+
+        verify(grsDao).createObjects(Lists.newArrayList(badObject, goodObject));
+        verify(grsDao).createObject(badObject);
+        verify(grsDao).createObject(goodObject);
+        verify(grsDao).deleteObjects(Lists.newArrayList(deleteState));
+    }
 }
@@ -15,10 +15,12 @@ import java.util.Collection;
 @Component
 class PasswordCredentialValidator implements CredentialValidator<PasswordCredential> {
     private final LoggerContext loggerContext;
+    private final VerifiedPasswordCache verifiedPasswordCache;
 
     @Autowired
-    PasswordCredentialValidator(LoggerContext loggerContext) {
+    PasswordCredentialValidator(final LoggerContext loggerContext, final VerifiedPasswordCache verifiedPasswordCache) {
         this.loggerContext = loggerContext;
+        this.verifiedPasswordCache = verifiedPasswordCache;
     }
 
     @Override
@@ -36,7 +38,7 @@ class PasswordCredentialValidator implements CredentialValidator<PasswordCredent
             try {
                 String offeredPassword = offeredCredential.getPassword();
                 String knownPassword = knownCredential.getPassword();
-                if (PasswordHelper.authenticateMd5Passwords(knownPassword, offeredPassword)) {
+                if (authenticate(updateContext, knownPassword, offeredPassword)) {
                     loggerContext.logString(
                             update.getUpdate(),
                             getClass().getCanonicalName(),
@@ -51,4 +53,27 @@ class PasswordCredentialValidator implements CredentialValidator<PasswordCredent
 
         return false;
     }
+
+    // every offered password is checked against every known hash only once per request
+    private boolean authenticate(final UpdateContext updateContext, final String knownPassword, final String offeredPassword) {
+        final String key = verifiedPasswordCache.getKey(knownPassword, offeredPassword);
+
+        final Boolean cachedResult = updateContext.getPasswordVerificationResult(key);
+        if (cachedResult != null) {
+            return cachedResult;
+        }
+
+        final boolean result;
+        if (verifiedPasswordCache.isVerified(key)) {
+            result = true;
+        } else {
+            result = PasswordHelper.authenticateMd5Passwords(knownPassword, offeredPassword);
+            if (result) {
+                verifiedPasswordCache.verified(key);
+            }
+        }
+
+        updateContext.addPasswordVerificationResult(key, result);
+        return result;
+    }
 }
@@ -0,0 +1,71 @@
+package net.ripe.db.whois.update.authentication.credential;
+
+import com.google.common.base.Charsets;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.io.BaseEncoding;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers for a short time which MD5-PW hashes were successfully verified against an offered password, so clients
+ * sending the same password with every update do not pay for the crypt rounds every time.
+ * <p/>
+ * Passwords are never stored: entries are keyed by an HMAC of the hash and the password, with a secret that is
+ * generated on startup and never leaves the process.
+ */
+@Component
+class VerifiedPasswordCache {
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec secret;
+    private final Cache<String, Boolean> verified;
+    private final boolean enabled;
+
+    @Autowired
+    VerifiedPasswordCache(@Value("${password.cache.size:10000}") final int cacheSize,
+                          @Value("${password.cache.ttl.secs:300}") final int ttlSeconds) {
+        final byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+
+        this.secret = new SecretKeySpec(key, ALGORITHM);
+        this.verified = CacheBuilder.newBuilder()
+                .maximumSize(Math.max(cacheSize, 0))
+                .expireAfterWrite(Math.max(ttlSeconds, 0), TimeUnit.SECONDS)
+                .build();
+        this.enabled = cacheSize > 0 && ttlSeconds > 0;
+    }
+
+    /**
+     * @return a key for the combination of known hash and offered password, which does not reveal the password.
+     */
+    String getKey(final String knownPassword, final String offeredPassword) {
+        try {
+            final Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(secret);
+            mac.update(knownPassword.getBytes(Charsets.UTF_8));
+            mac.update((byte) 0);
+            mac.update(offeredPassword.getBytes(Charsets.UTF_8));
+            return BaseEncoding.base16().encode(mac.doFinal());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM, e);
+        }
+    }
+
+    boolean isVerified(final String key) {
+        return enabled && verified.getIfPresent(key) != null;
+    }
+
+    void verified(final String key) {
+        if (enabled) {
+            verified.put(key, Boolean.TRUE);
+        }
+    }
+}
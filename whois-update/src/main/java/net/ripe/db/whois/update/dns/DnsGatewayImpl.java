@@ -1,8 +1,13 @@
 package net.ripe.db.whois.update.dns;
 
+import com.google.common.base.Joiner;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.common.util.concurrent.SettableFuture;
 import net.ripe.db.whois.common.Message;
 import net.ripe.db.whois.common.Messages;
 import net.ripe.db.whois.common.profiles.DeployedProfile;
@@ -16,19 +21,34 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Primary;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
 
-import javax.annotation.Nullable;
+import javax.annotation.PreDestroy;
 import javax.sql.DataSource;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+/**
+ * Performs DNS checks by queueing them for dnscheck, and reading the results from its database.
+ * <p/>
+ * All checks of an update are queued in one batch, and waited for together until a single timeout expires. Results of
+ * all outstanding checks, of all updates, are collected by a single poller thread with one query per poll.
+ */
 @DeployedProfile
 @Primary
 @Component
@@ -36,6 +56,8 @@ class DnsGatewayImpl implements DnsGateway {
     private static final Logger LOGGER = LoggerFactory.getLogger(DnsGatewayImpl.class);
 
     private static final int DEFAULT_TIMEOUT = 5 * 60 * 1000;
+    private static final int POLL_INTERVAL = 1000;
+    private static final int POLL_BATCH_SIZE = 500;
 
     private static final Map<String, Messages.Type> ERRORLEVEL_CONVERSION = ImmutableMap.of(
             "ERROR", Messages.Type.ERROR,
@@ -43,37 +65,87 @@ class DnsGatewayImpl implements DnsGateway {
             "WARNING", Messages.Type.WARNING);
 
     private final JdbcTemplate jdbcTemplate;
+    private final ConcurrentMap<String, PendingCheck> pendingChecks = Maps.newConcurrentMap();
+    private final ScheduledExecutorService poller;
+    private final Runnable pollTask = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                pollResults();
+            } catch (RuntimeException e) {
+                // an exception would cancel the scheduled poll
+                LOGGER.error("Unexpected exception polling dnscheck results", e);
+            }
+        }
+    };
+
     private int timeout = DEFAULT_TIMEOUT;
 
     @Autowired
     public DnsGatewayImpl(@Qualifier("dnscheckDataSource") final DataSource dataSource) {
         this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.poller = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, "DnsResultPoller");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.poller.scheduleWithFixedDelay(pollTask, POLL_INTERVAL, POLL_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        poller.shutdownNow();
     }
 
     void setTimeout(final int timeout) {
         this.timeout = timeout;
     }
 
+    /**
+     * Poll for results now, instead of waiting for the next poll. Used by local dnscheck stand-ins to signal that
+     * results have been written.
+     */
+    void resultsAvailable() {
+        if (!poller.isShutdown()) {
+            poller.execute(pollTask);
+        }
+    }
+
     @Override
     public Map<DnsCheckRequest, DnsCheckResponse> performDnsChecks(final Set<DnsCheckRequest> dnsCheckRequests) {
         final Map<DnsCheckRequest, DnsCheckResponse> dnsResults = Maps.newHashMap();
 
-        final Map<DnsCheckRequest, String> dnsRequestsPerProcessId = Maps.newHashMap();
-        for (DnsCheckRequest dnsCheckRequest : dnsCheckRequests) {
-            try {
-                dnsRequestsPerProcessId.put(dnsCheckRequest, queueDnsCheck(dnsCheckRequest));
-            } catch (IllegalStateException e) {
+        final Map<DnsCheckRequest, PendingCheck> checks;
+        try {
+            checks = queueDnsChecks(dnsCheckRequests);
+        } catch (IllegalStateException e) {
+            for (DnsCheckRequest dnsCheckRequest : dnsCheckRequests) {
                 dnsResults.put(dnsCheckRequest, new DnsCheckResponse(UpdateMessages.dnsCheckMessageParsingError()));
             }
+            return dnsResults;
         }
 
-        for (Map.Entry<DnsCheckRequest, String> dnsRequestPerProcessId : dnsRequestsPerProcessId.entrySet()) {
-            final DnsCheckRequest dnsCheckRequest = dnsRequestPerProcessId.getKey();
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        for (Map.Entry<DnsCheckRequest, PendingCheck> check : checks.entrySet()) {
+            final DnsCheckRequest dnsCheckRequest = check.getKey();
+            final PendingCheck pendingCheck = check.getValue();
             try {
-                final DnsResult dnsResult = pollResult(dnsRequestPerProcessId.getValue());
+                final DnsResult dnsResult = pendingCheck.result.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+                LOGGER.info("DNS check for {} took {}", dnsCheckRequest.getDomain(), pendingCheck.stopwatch);
                 dnsResults.put(dnsCheckRequest, getDnsResponseForPollResult(dnsResult));
-            } catch (IllegalStateException e) {
+            } catch (TimeoutException e) {
+                LOGGER.info("DNS check for {} timed out after {}", dnsCheckRequest.getDomain(), pendingCheck.stopwatch);
+                dnsResults.put(dnsCheckRequest, getDnsResponseForPollResult(null));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                dnsResults.put(dnsCheckRequest, getDnsResponseForPollResult(null));
+            } catch (ExecutionException e) {
                 dnsResults.put(dnsCheckRequest, new DnsCheckResponse(UpdateMessages.dnsCheckMessageParsingError()));
+            } finally {
+                pendingChecks.remove(pendingCheck.processId);
             }
         }
 
@@ -143,57 +215,86 @@ class DnsGatewayImpl implements DnsGateway {
         }
     }
 
-    private String queueDnsCheck(final DnsCheckRequest dnsCheckRequest) {
-        final String processId = "RDP-" + UUID.randomUUID().toString();
+    private Map<DnsCheckRequest, PendingCheck> queueDnsChecks(final Set<DnsCheckRequest> dnsCheckRequests) {
+        final Map<DnsCheckRequest, PendingCheck> checks = Maps.newLinkedHashMap();
+        final List<Object[]> rows = Lists.newArrayListWithExpectedSize(dnsCheckRequests.size());
+        for (DnsCheckRequest dnsCheckRequest : dnsCheckRequests) {
+            final PendingCheck pendingCheck = new PendingCheck("RDP-" + UUID.randomUUID().toString());
+            checks.put(dnsCheckRequest, pendingCheck);
+            rows.add(new Object[]{dnsCheckRequest.getDomain(), pendingCheck.processId, dnsCheckRequest.getGlue()});
+        }
+
         try {
-            final int rows = jdbcTemplate.update(
+            final int[] updatedRows = jdbcTemplate.batchUpdate(
                     "INSERT INTO queue (DOMAIN, priority, source_id, source_data, fake_parent_glue) " +
                     "VALUES (?, 1, 2, ?, ?) ",
-                    dnsCheckRequest.getDomain(),
-                    processId,
-                    dnsCheckRequest.getGlue());
-            Validate.isTrue(rows == 1);
-            return processId;
-        } catch (DataAccessException e) {
+                    rows);
+            for (int updated : updatedRows) {
+                Validate.isTrue(updated == 1 || updated == Statement.SUCCESS_NO_INFO);
+            }
+        } catch (DataAccessException | IllegalArgumentException e) {
             LOGGER.error("dnscheck queue failed", e);
             throw new IllegalStateException("dnscheck queue failed", e);
         }
-    }
 
-    @Nullable
-    private DnsResult pollResult(final String processId) {
-        final long maxTime = System.currentTimeMillis() + timeout;
+        for (PendingCheck pendingCheck : checks.values()) {
+            pendingChecks.put(pendingCheck.processId, pendingCheck);
+        }
 
-        while (System.currentTimeMillis() < maxTime) {
-            Uninterruptibles.sleepUninterruptibly(1, TimeUnit.SECONDS);
+        return checks;
+    }
 
+    private void pollResults() {
+        if (pendingChecks.isEmpty()) {
+            return;
+        }
 
-            final DnsResult dnsResult;
+        for (List<String> processIds : Iterables.partition(ImmutableList.copyOf(pendingChecks.keySet()), POLL_BATCH_SIZE)) {
             try {
-                dnsResult = jdbcTemplate.query(
-                    "SELECT id, END, count_critical, count_error " +
-                    "FROM tests " +
-                    "WHERE source_id = 2 " +
-                    "AND source_data = ?",
-                    rs -> {
-                        if (rs.next() && rs.getTimestamp("end") != null) {
-                            return new DnsResult(rs.getInt("id"), rs.getInt("count_critical") + rs.getInt("count_error"));
-                        } else {
-                            return null;
-                        }
-                    },
-                    processId);
+                jdbcTemplate.query(
+                        "SELECT id, source_data, count_critical, count_error " +
+                        "FROM tests " +
+                        "WHERE source_id = 2 " +
+                        "AND END IS NOT NULL " +
+                        "AND source_data IN (" + Joiner.on(',').join(Collections.nCopies(processIds.size(), "?")) + ")",
+                        new RowCallbackHandler() {
+                            @Override
+                            public void processRow(final ResultSet rs) throws SQLException {
+                                final PendingCheck pendingCheck = pendingChecks.get(rs.getString("source_data"));
+                                if (pendingCheck != null) {
+                                    pendingCheck.complete(new DnsResult(rs.getInt("id"), rs.getInt("count_critical") + rs.getInt("count_error")));
+                                }
+                            }
+                        },
+                        processIds.toArray());
             } catch (DataAccessException e) {
                 LOGGER.error("dnscheck poll result failed", e);
-                throw new IllegalStateException("dnscheck poll result failed", e);
+                for (String processId : processIds) {
+                    final PendingCheck pendingCheck = pendingChecks.get(processId);
+                    if (pendingCheck != null) {
+                        pendingCheck.result.setException(new IllegalStateException("dnscheck poll result failed", e));
+                    }
+                }
             }
+        }
+    }
 
-            if (dnsResult != null) {
-                return dnsResult;
-            }
+    private static final class PendingCheck {
+        private final String processId;
+        private final SettableFuture<DnsResult> result = SettableFuture.create();
+        private final Stopwatch stopwatch = Stopwatch.createStarted();
+
+        private PendingCheck(final String processId) {
+            this.processId = processId;
         }
 
-        return null;
+        // stop the stopwatch when the result arrives, not when the waiting update gets to it
+        private void complete(final DnsResult dnsResult) {
+            if (stopwatch.isRunning()) {
+                stopwatch.stop();
+            }
+            result.set(dnsResult);
+        }
     }
 
     private static final class DnsResult {
@@ -34,6 +34,7 @@ public class UpdateContext {
     private final Map<Update, Context> contexts = Maps.newLinkedHashMap();
     private final Map<DnsCheckRequest, DnsCheckResponse> dnsCheckResponses = Maps.newHashMap();
     private final Map<String, String> ssoTranslation = Maps.newHashMap();
+    private final Map<String, Boolean> passwordVerificationResults = Maps.newHashMap();
     private final LoggerContext loggerContext;
 
     private int nrSinceRestart;
@@ -96,6 +97,15 @@ public class UpdateContext {
         return ssoTranslation.get(usernameOrUuid);
     }
 
+    public void addPasswordVerificationResult(final String key, final boolean verified) {
+        passwordVerificationResults.put(key, verified);
+    }
+
+    @CheckForNull
+    public Boolean getPasswordVerificationResult(final String key) {
+        return passwordVerificationResults.get(key);
+    }
+
     public void addPendingUpdate(final UpdateContainer updateContainer, final PendingUpdate pendingUpdate) {
         getOrCreateContext(updateContainer).pendingUpdate = pendingUpdate;
     }
@@ -28,16 +28,19 @@ public class MultipleUpdateHandler {
     private static final Logger LOGGER = LoggerFactory.getLogger(MultipleUpdateHandler.class);
 
     private final SingleUpdateHandler singleUpdateHandler;
+    private final UpdateLocking updateLocking;
     private final IpTreeUpdater ipTreeUpdater;
     private final LoggerContext loggerContext;
     private final UpdateLog updateLog;
 
     @Autowired
     public MultipleUpdateHandler(final SingleUpdateHandler singleUpdateHandler,
+                                 final UpdateLocking updateLocking,
                                  final IpTreeUpdater ipTreeUpdater,
                                  final LoggerContext loggerContext,
                                  final UpdateLog updateLog) {
         this.singleUpdateHandler = singleUpdateHandler;
+        this.updateLocking = updateLocking;
         this.ipTreeUpdater = ipTreeUpdater;
         this.loggerContext = loggerContext;
         this.updateLog = updateLog;
@@ -45,6 +48,9 @@ public class MultipleUpdateHandler {
 
     @Transactional(isolation = Isolation.READ_COMMITTED, propagation = Propagation.REQUIRED)
     public void handle(final UpdateRequest updateRequest, final UpdateContext updateContext) {
+        // lock the objects of all updates up front, as locking more of them after writing could deadlock
+        updateLocking.lock(updateRequest.getUpdates());
+
         for (final Update update : updateRequest.getUpdates()) {
             final Stopwatch stopwatch = Stopwatch.createStarted();
             try {
@@ -1,7 +1,6 @@
 package net.ripe.db.whois.update.handler;
 
 import net.ripe.db.whois.common.dao.RpslObjectDao;
-import net.ripe.db.whois.common.dao.UpdateLockDao;
 import net.ripe.db.whois.common.domain.CIString;
 import net.ripe.db.whois.common.iptree.IpTreeUpdater;
 import net.ripe.db.whois.common.rpsl.AttributeSanitizer;
@@ -40,6 +39,7 @@ import org.springframework.transaction.annotation.Transactional;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.Collections;
 
 
 @Component
@@ -47,7 +47,7 @@ public class SingleUpdateHandler {
     private final AttributeSanitizer attributeSanitizer;
     private final AttributeGenerator[] attributeGenerators;
     private final RpslObjectDao rpslObjectDao;
-    private final UpdateLockDao updateLockDao;
+    private final UpdateLocking updateLocking;
     private final Authenticator authenticator;
     private final UpdateObjectHandler updateObjectHandler;
     private final IpTreeUpdater ipTreeUpdater;
@@ -62,7 +62,7 @@ public class SingleUpdateHandler {
     @Autowired
     public SingleUpdateHandler(final AttributeGenerator[] attributeGenerators,
                                final AttributeSanitizer attributeSanitizer,
-                               final UpdateLockDao updateLockDao,
+                               final UpdateLocking updateLocking,
                                final Authenticator authenticator,
                                final UpdateObjectHandler updateObjectHandler,
                                final RpslObjectDao rpslObjectDao,
@@ -74,7 +74,7 @@ public class SingleUpdateHandler {
         this.attributeGenerators = attributeGenerators;
         this.attributeSanitizer = attributeSanitizer;
         this.rpslObjectDao = rpslObjectDao;
-        this.updateLockDao = updateLockDao;
+        this.updateLocking = updateLocking;
         this.authenticator = authenticator;
         this.updateObjectHandler = updateObjectHandler;
         this.ipTreeUpdater = ipTreeUpdater;
@@ -86,7 +86,7 @@ public class SingleUpdateHandler {
 
     @Transactional(isolation = Isolation.READ_COMMITTED, propagation = Propagation.REQUIRED)
     public void handle(final Origin origin, final Keyword keyword, final Update update, final UpdateContext updateContext) {
-        updateLockDao.setUpdateLock();
+        updateLocking.lock(Collections.singleton(update));
         ipTreeUpdater.updateTransactional();
 
         if (updateContext.isDryRun()) {
@@ -152,7 +152,10 @@ public class SingleUpdateHandler {
 
         if (updateContext.isDryRun()) {
             throw new UpdateAbortedException();
-        } else if (pendingAuthentication) {
+        }
+
+        updateLocking.lockForWrite();
+        if (pendingAuthentication) {
             pendingUpdateHandler.handle(preparedUpdate, updateContext);
         } else {
             updateObjectHandler.execute(preparedUpdate, updateContext);
@@ -0,0 +1,262 @@
+package net.ripe.db.whois.update.handler;
+
+import com.google.common.collect.Sets;
+import net.ripe.db.whois.common.dao.RpslObjectDao;
+import net.ripe.db.whois.common.dao.UpdateLockDao;
+import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.rpsl.AttributeType;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import net.ripe.db.whois.common.rpsl.RpslAttribute;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.update.domain.Update;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.CheckForNull;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Serialises updates.
+ * <p/>
+ * By default, every update waits for the global update lock before reading anything. With per-object locking, an
+ * update first waits only for updates of the same objects: its own key, the keys it references, the keys the stored
+ * version of the object references (e.g. the mnt-by of the original, which authorises a modify or delete), the
+ * maintainers in mnt-ref of the organisations it references, and for resources the resource hierarchy. The global
+ * update lock is then taken just before writing, so serials are still allocated and committed in order for NRTM.
+ * <p/>
+ * The stored objects are read before they are locked. If they changed in the meantime and now reference keys that are
+ * not locked, the update takes the global update lock before reading anything, like before. So do updates with AUTO-
+ * keys, as the keys they will claim are not known up front.
+ * <p/>
+ * Maintainers reached through the resource hierarchy (mnt-lower, mnt-routes, mnt-domains of a parent) are not known up
+ * front either. Instead, every modify or delete of a maintainer also takes the shared resource lock.
+ * <p/>
+ * A transaction takes its object locks only once, before the global update lock. When a later update in the same
+ * transaction (e.g. in a batched request) needs objects that are not locked yet, it takes the global update lock
+ * instead, as locking more objects after the global update lock could deadlock with other updates.
+ * <p/>
+ * Remaining gap: objects reached through more than one reference, other than the above, are not locked. E.g. the
+ * key-certs in the auth of a maintainer, or the abuse-c of a referenced organisation, can change while an update is
+ * validated against them.
+ */
+@Component
+public class UpdateLocking {
+    private static final Set<ObjectType> RESOURCE_TYPES = Sets.immutableEnumSet(
+            ObjectType.AS_BLOCK, ObjectType.AUT_NUM, ObjectType.DOMAIN,
+            ObjectType.INETNUM, ObjectType.INET6NUM, ObjectType.ROUTE, ObjectType.ROUTE6);
+
+    private static final String RESOURCES = "RESOURCES";
+    private static final String NIC_HDL = "NIC-HDL";
+    private static final String AUTO_KEY = "AUTO-";
+
+    private final UpdateLockDao updateLockDao;
+    private final RpslObjectDao rpslObjectDao;
+    private final boolean perObject;
+
+    @Autowired
+    public UpdateLocking(final UpdateLockDao updateLockDao,
+                         final RpslObjectDao rpslObjectDao,
+                         @Value("${update.lock.per.object:false}") final boolean perObject) {
+        this.updateLockDao = updateLockDao;
+        this.rpslObjectDao = rpslObjectDao;
+        this.perObject = perObject;
+    }
+
+    /**
+     * Lock the objects of the updates, before reading anything. Locks are held until the end of the transaction, so
+     * locking them again later in the same transaction does not wait.
+     */
+    public void lock(final Collection<Update> updates) {
+        if (!perObject) {
+            updateLockDao.setUpdateLock();
+            return;
+        }
+
+        final TransactionLocks transactionLocks = getTransactionLocks();
+        if (transactionLocks.global) {
+            return;
+        }
+
+        final Set<String> keys = Sets.newHashSet();
+        boolean global = !addLockKeys(updates, keys);
+
+        if (!transactionLocks.keys.isEmpty()) {
+            // the object locks of this transaction were taken already, locking more of them now could deadlock
+            if (global || !transactionLocks.keys.containsAll(keys)) {
+                setGlobalLock(transactionLocks);
+            }
+            return;
+        }
+
+        // object locks before the global lock, in every transaction
+        updateLockDao.setUpdateLocks(keys);
+        transactionLocks.keys.addAll(keys);
+
+        if (!global) {
+            // the stored objects were read before they were locked, if they changed since then the keys they reference now may not be locked
+            final Set<String> lockedKeys = Sets.newHashSet();
+            global = !addLockKeys(updates, lockedKeys) || !keys.containsAll(lockedKeys);
+        }
+
+        if (global) {
+            setGlobalLock(transactionLocks);
+        }
+    }
+
+    /**
+     * Lock before writing anything.
+     */
+    public void lockForWrite() {
+        if (perObject) {
+            setGlobalLock(getTransactionLocks());
+        }
+    }
+
+    private void setGlobalLock(final TransactionLocks transactionLocks) {
+        updateLockDao.setUpdateLock();
+        transactionLocks.global = true;
+    }
+
+    /**
+     * @return the locks taken by the current transaction, or no locks if there is no transaction to hold them.
+     */
+    private TransactionLocks getTransactionLocks() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return new TransactionLocks();
+        }
+
+        TransactionLocks transactionLocks = (TransactionLocks) TransactionSynchronizationManager.getResource(this);
+        if (transactionLocks == null) {
+            transactionLocks = new TransactionLocks();
+            TransactionSynchronizationManager.bindResource(this, transactionLocks);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(final int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(UpdateLocking.this);
+                }
+            });
+        }
+        return transactionLocks;
+    }
+
+    private static class TransactionLocks {
+        private final Set<String> keys = Sets.newHashSet();
+        private boolean global;
+    }
+
+    /**
+     * Adds the keys to lock for the updates, including the keys referenced by the stored objects.
+     *
+     * @return false if the keys of some update cannot be determined, the keys of the other updates are added anyway.
+     */
+    private boolean addLockKeys(final Collection<Update> updates, final Set<String> keys) {
+        boolean complete = true;
+        for (final Update update : updates) {
+            final Set<String> updateKeys = getLockKeys(update.getSubmittedObject());
+            if (updateKeys == null) {
+                complete = false;
+                continue;
+            }
+            keys.addAll(updateKeys);
+
+            final Set<String> storedKeys = getStoredLockKeys(update.getSubmittedObject());
+            if (storedKeys == null) {
+                complete = false;
+                continue;
+            }
+            keys.addAll(storedKeys);
+        }
+        return complete;
+    }
+
+    /**
+     * @return the keys referenced by the stored version of the object and the maintainers of the organisations it
+     * references, which authentication reads, or null if these cannot be determined.
+     */
+    @CheckForNull
+    private Set<String> getStoredLockKeys(final RpslObject object) {
+        final Set<String> keys = Sets.newHashSet();
+        try {
+            final RpslObject original = rpslObjectDao.getByKeyOrNull(object.getType(), object.getKey());
+            if (original != null) {
+                final Set<String> originalKeys = getLockKeys(original);
+                if (originalKeys == null) {
+                    return null;
+                }
+                keys.addAll(originalKeys);
+
+                if (original.getType() == ObjectType.MNTNER) {
+                    // the maintainer can authorise updates of resources through the hierarchy
+                    keys.add(RESOURCES);
+                }
+            }
+
+            for (final RpslObject organisation : rpslObjectDao.getByKeys(ObjectType.ORGANISATION, object.getValuesForAttribute(AttributeType.ORG))) {
+                for (final CIString mntRef : organisation.getValuesForAttribute(AttributeType.MNT_REF)) {
+                    keys.add(getLockKey(ObjectType.MNTNER, mntRef));
+                }
+            }
+        } catch (RuntimeException e) {
+            // invalid key, which will fail the update anyway
+            return null;
+        }
+
+        return keys;
+    }
+
+    /**
+     * @return the keys to lock for the object, or null if these cannot be determined.
+     */
+    @CheckForNull
+    static Set<String> getLockKeys(final RpslObject object) {
+        final Set<String> keys = Sets.newHashSet();
+        try {
+            final CIString key = object.getKey();
+            if (key.startsWith(AUTO_KEY)) {
+                return null;
+            }
+            keys.add(getLockKey(object.getType(), key));
+
+            for (final RpslAttribute attribute : object.getAttributes()) {
+                final AttributeType attributeType = attribute.getType();
+                if (attributeType == null) {
+                    continue;
+                }
+
+                for (final CIString value : attribute.getReferenceValues()) {
+                    final Set<ObjectType> references = attributeType.getReferences(value);
+                    if (!references.isEmpty() && value.startsWith(AUTO_KEY)) {
+                        return null;
+                    }
+                    for (final ObjectType reference : references) {
+                        keys.add(getLockKey(reference, value));
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            // invalid syntax, which will fail the update anyway
+            return null;
+        }
+
+        return keys;
+    }
+
+    private static String getLockKey(final ObjectType type, final CIString key) {
+        if (RESOURCE_TYPES.contains(type)) {
+            return RESOURCES;
+        }
+
+        switch (type) {
+            case PERSON:
+            case ROLE:
+                // persons and roles share their primary keys
+                return NIC_HDL + ":" + key.toUpperCase();
+            default:
+                return type.getName().toUpperCase() + ":" + key.toUpperCase();
+        }
+    }
+}
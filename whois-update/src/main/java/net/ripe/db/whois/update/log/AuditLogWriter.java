@@ -0,0 +1,155 @@
+package net.ripe.db.whois.update.log;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import javax.annotation.PreDestroy;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses and writes the files of the update logs on background threads.
+ * <p/>
+ * Files are queued in a bounded queue. If the queue is full, the file is written by the calling thread instead, so
+ * no log is ever dropped and callers are slowed down to the rate at which the files can be written.
+ */
+@Component
+public class AuditLogWriter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AuditLogWriter.class);
+
+    private static final int SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    @Nullable private final ThreadPoolExecutor executor;
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong writtenByCaller = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    @Autowired
+    public AuditLogWriter(@Value("${audit.log.writer.threads:2}") final int nrThreads,
+                          @Value("${audit.log.writer.queue.size:1000}") final int queueSize) {
+        if (nrThreads > 0) {
+            this.executor = new ThreadPoolExecutor(nrThreads, nrThreads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<Runnable>(Math.max(queueSize, 1)),
+                    new ThreadFactory() {
+                        final AtomicInteger threadNum = new AtomicInteger();
+
+                        @Override
+                        public Thread newThread(final Runnable r) {
+                            final Thread thread = new Thread(r, String.format("AuditLogWriter-%s", threadNum.incrementAndGet()));
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    },
+                    new RejectedExecutionHandler() {
+                        @Override
+                        public void rejectedExecution(final Runnable r, final ThreadPoolExecutor executor) {
+                            writtenByCaller.incrementAndGet();
+                            r.run();
+                        }
+                    });
+        } else {
+            this.executor = null;
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    LOGGER.error("Timeout writing {} queued update log files", executor.getQueue().size());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Write the contents to a compressed file.
+     *
+     * @return a future that is done when the file has been written.
+     */
+    public Future<?> write(final File file, final byte[] contents) {
+        final FutureTask<Void> task = new FutureTask<>(new Callable<Void>() {
+            @Override
+            public Void call() {
+                writeFile(file, contents);
+                return null;
+            }
+        });
+
+        if (executor == null || executor.isShutdown()) {
+            task.run();
+        } else {
+            executor.execute(task);
+        }
+
+        return task;
+    }
+
+    /**
+     * Wait until the files have been written. Files that could not be written are logged, and not reported to the caller.
+     */
+    public void flush(final Collection<Future<?>> futures) {
+        for (final Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException ignored) {
+                // logged by writeFile()
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void writeFile(final File file, final byte[] contents) {
+        try (final OutputStream os = new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            os.write(contents);
+            written.incrementAndGet();
+        } catch (IOException | RuntimeException e) {
+            failed.incrementAndGet();
+            LOGGER.error("Unable to write to {}", file.getAbsolutePath(), e);
+            throw new IllegalStateException("Unable to write to " + file.getAbsolutePath(), e);
+        }
+    }
+
+    public int getQueueSize() {
+        return executor == null ? 0 : executor.getQueue().size();
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    public long getWrittenByCaller() {
+        return writtenByCaller.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+}
@@ -0,0 +1,43 @@
+package net.ripe.db.whois.update.log;
+
+import net.ripe.db.whois.common.jmx.JmxBase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+@Component
+@ManagedResource(objectName = JmxBase.OBJECT_NAME_BASE + "AuditLogWriter", description = "Whois update log writer")
+public class AuditLogWriterJmx extends JmxBase {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AuditLogWriterJmx.class);
+
+    private final AuditLogWriter auditLogWriter;
+
+    @Autowired
+    public AuditLogWriterJmx(final AuditLogWriter auditLogWriter) {
+        super(LOGGER);
+        this.auditLogWriter = auditLogWriter;
+    }
+
+    @ManagedAttribute(description = "Number of files waiting to be written")
+    public int getQueueSize() {
+        return auditLogWriter.getQueueSize();
+    }
+
+    @ManagedAttribute(description = "Number of files written")
+    public long getWritten() {
+        return auditLogWriter.getWritten();
+    }
+
+    @ManagedAttribute(description = "Number of files written by the update thread because the queue was full")
+    public long getWrittenByCaller() {
+        return auditLogWriter.getWrittenByCaller();
+    }
+
+    @ManagedAttribute(description = "Number of files that could not be written")
+    public long getFailed() {
+        return auditLogWriter.getFailed();
+    }
+}
@@ -1,6 +1,7 @@
 package net.ripe.db.whois.update.log;
 
 import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
 import net.ripe.db.whois.common.DateTimeProvider;
 import net.ripe.db.whois.common.Message;
 import net.ripe.db.whois.common.Messages;
@@ -26,12 +27,15 @@ import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.GZIPOutputStream;
 
@@ -48,6 +52,7 @@ public class LoggerContext {
     private static final ThreadLocal<Context> context = new ThreadLocal<>();
 
     private final DateTimeProvider dateTimeProvider;
+    private final AuditLogWriter auditLogWriter;
 
     @Value("${dir.update.audit.log}") private String baseDir;
 
@@ -56,8 +61,9 @@ public class LoggerContext {
     }
 
     @Autowired
-    public LoggerContext(final DateTimeProvider dateTimeProvider) {
+    public LoggerContext(final DateTimeProvider dateTimeProvider, final AuditLogWriter auditLogWriter) {
         this.dateTimeProvider = dateTimeProvider;
+        this.auditLogWriter = auditLogWriter;
     }
 
     @PostConstruct
@@ -95,9 +101,15 @@ public class LoggerContext {
         context.set(new Context(dir, fileNumber, auditLogger));
     }
 
+    /**
+     * Write the audit log and wait until all files of the current context have been written.
+     */
     public void remove() {
+        final Context ctx = getContext();
         try {
-            getContext().auditLogger.close();
+            // the audit log is streamed to its file, the other files were handed to the writer already
+            ctx.auditLogger.close();
+            auditLogWriter.flush(ctx.pendingFiles);
         } finally {
             context.remove();
         }
@@ -113,19 +125,21 @@ public class LoggerContext {
         return new File(dir, name);
     }
 
+    /**
+     * The callback is invoked immediately, the file is written in the background and is complete after {@link #remove()}.
+     */
     public File log(final String name, final LogCallback callback) {
-        final File file = getFile(name);
+        final Context ctx = getContext();
+        final File file = getFile(ctx.baseDir, ctx.nextFileNumber(), name);
 
-        OutputStream os = null;
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
         try {
-            os = getOutputstream(file);
             callback.log(os);
         } catch (IOException e) {
             throw new IllegalStateException("Unable to write to " + file.getAbsolutePath(), e);
-        } finally {
-            closeOutputStream(os);
         }
 
+        ctx.pendingFiles.add(auditLogWriter.write(file, os.toByteArray()));
         return file;
     }
 
@@ -187,6 +201,11 @@ public class LoggerContext {
         getContext().auditLogger.logPreparedUpdate(preparedUpdate);
     }
 
+    public boolean isLoggingQueries() {
+        final Context ctx = context.get();
+        return ctx != null && ctx.currentUpdate != null;
+    }
+
     public void logQuery(final StatementInfo statementInfo, final ResultInfo resultInfo) {
         final Context ctx = context.get();
         if (ctx != null && ctx.currentUpdate != null) {
@@ -281,6 +300,7 @@ public class LoggerContext {
         private final File baseDir;
         private final AtomicInteger fileNumber;
         private final AuditLogger auditLogger;
+        private final List<Future<?>> pendingFiles = Lists.newArrayList();
         private Stopwatch stopwatch;
         private Update currentUpdate;
 
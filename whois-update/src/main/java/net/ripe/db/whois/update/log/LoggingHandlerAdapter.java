@@ -18,6 +18,11 @@ public class LoggingHandlerAdapter implements LoggingHandler {
         this.loggerContext = loggerContext;
     }
 
+    @Override
+    public boolean isLogging() {
+        return loggerContext.isLoggingQueries();
+    }
+
     @Override
     public void log(final StatementInfo statementInfo, final ResultInfo resultInfo) {
         loggerContext.logQuery(statementInfo, resultInfo);
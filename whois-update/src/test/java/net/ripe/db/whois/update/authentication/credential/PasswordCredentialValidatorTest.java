@@ -4,24 +4,34 @@ import net.ripe.db.whois.update.domain.PasswordCredential;
 import net.ripe.db.whois.update.domain.PreparedUpdate;
 import net.ripe.db.whois.update.domain.UpdateContext;
 import net.ripe.db.whois.update.log.LoggerContext;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import java.util.Collections;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 
 @RunWith(MockitoJUnitRunner.class)
 public class PasswordCredentialValidatorTest {
     @Mock private PreparedUpdate update;
-    @Mock private UpdateContext updateContext;
     @Mock private LoggerContext loggerContext;
-    @InjectMocks private PasswordCredentialValidator subject;
+    private UpdateContext updateContext;
+    private VerifiedPasswordCache verifiedPasswordCache;
+    private PasswordCredentialValidator subject;
+
+    @Before
+    public void setUp() {
+        updateContext = new UpdateContext(loggerContext);
+        verifiedPasswordCache = new VerifiedPasswordCache(100, 60);
+        subject = new PasswordCredentialValidator(loggerContext, verifiedPasswordCache);
+    }
 
     @Test
     public void authenticatePassword() {
@@ -42,6 +52,46 @@ public class PasswordCredentialValidatorTest {
         assertThat(authenticate("", ""), is(false));
     }
 
+    @Test
+    public void verification_is_cached_per_request() {
+        final String known = "MD5-PW $1$/7f2XnzQ$p5ddbI7SXq4z4yNrObFS/0";
+        final String key = verifiedPasswordCache.getKey(known, "wrongpassword");
+
+        assertThat(authenticate("wrongpassword", known), is(false));
+        assertThat(updateContext.getPasswordVerificationResult(key), is(false));
+
+        updateContext.addPasswordVerificationResult(key, true);
+        assertThat(authenticate("wrongpassword", known), is(true));
+    }
+
+    @Test
+    public void successful_verification_is_cached_across_requests() {
+        final String known = "MD5-PW $1$/7f2XnzQ$p5ddbI7SXq4z4yNrObFS/0";
+
+        assertThat(authenticate("emptypassword", known), is(true));
+
+        assertThat(verifiedPasswordCache.isVerified(verifiedPasswordCache.getKey(known, "emptypassword")), is(true));
+        assertThat(verifiedPasswordCache.isVerified(verifiedPasswordCache.getKey(known, "otherpassword")), is(false));
+    }
+
+    @Test
+    public void failed_verification_is_not_cached_across_requests() {
+        final String known = "MD5-PW $1$/7f2XnzQ$p5ddbI7SXq4z4yNrObFS/0";
+
+        assertThat(authenticate("wrongpassword", known), is(false));
+
+        assertThat(verifiedPasswordCache.isVerified(verifiedPasswordCache.getKey(known, "wrongpassword")), is(false));
+    }
+
+    @Test
+    public void cache_key_does_not_contain_password() {
+        final String key = verifiedPasswordCache.getKey("MD5-PW $1$/7f2XnzQ$p5ddbI7SXq4z4yNrObFS/0", "emptypassword");
+
+        assertThat(key, not(containsString("emptypassword")));
+        assertThat(key, is(verifiedPasswordCache.getKey("MD5-PW $1$/7f2XnzQ$p5ddbI7SXq4z4yNrObFS/0", "emptypassword")));
+        assertThat(key, not(is(new VerifiedPasswordCache(100, 60).getKey("MD5-PW $1$/7f2XnzQ$p5ddbI7SXq4z4yNrObFS/0", "emptypassword"))));
+    }
+
     private boolean authenticate(final String offered, final String known) {
         return subject.hasValidCredential(update, updateContext, Collections.singleton(new PasswordCredential(offered)), new PasswordCredential(known));
     }
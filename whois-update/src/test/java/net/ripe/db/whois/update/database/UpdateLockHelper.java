@@ -1,5 +1,6 @@
 package net.ripe.db.whois.update.database;
 
+import com.google.common.util.concurrent.Uninterruptibles;
 import net.ripe.db.whois.common.dao.UpdateLockDao;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -10,6 +11,8 @@ import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class UpdateLockHelper {
@@ -32,6 +35,14 @@ public class UpdateLockHelper {
         return jdbcTemplate.queryForObject("SELECT mntner FROM mntner WHERE object_id = 1", String.class);
     }
 
+    private void setMntnerValue(final int objectId, final String value) {
+        jdbcTemplate.update("UPDATE mntner SET mntner = ? WHERE object_id = ?", value.getBytes(), objectId);
+    }
+
+    private String getMntnerValue(final int objectId) {
+        return jdbcTemplate.queryForObject("SELECT mntner FROM mntner WHERE object_id = ?", String.class, objectId);
+    }
+
     @Transactional(isolation = Isolation.READ_COMMITTED, propagation = Propagation.REQUIRES_NEW)
     public void testUpdateLock() {
         jdbcTemplate.queryForObject("SELECT count(*) FROM mntner", Integer.class);
@@ -42,4 +53,19 @@ public class UpdateLockHelper {
 
         setMntnerValue(getMntnerValue() + ".");
     }
+
+    @Transactional(isolation = Isolation.READ_COMMITTED, propagation = Propagation.REQUIRES_NEW)
+    public void testUpdateLocks(final String key, final int objectId, final long validationMillis) {
+        jdbcTemplate.queryForObject("SELECT count(*) FROM mntner", Integer.class);
+
+        updateLockDao.setUpdateLocks(Collections.singleton(key));
+
+        final String value = getMntnerValue(objectId);
+        Uninterruptibles.sleepUninterruptibly(validationMillis, TimeUnit.MILLISECONDS);
+
+        // writes are still serialised by the global update lock
+        updateLockDao.setUpdateLock();
+
+        setMntnerValue(objectId, value + ".");
+    }
 }
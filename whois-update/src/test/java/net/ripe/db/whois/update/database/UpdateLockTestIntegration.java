@@ -13,6 +13,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
 import static org.junit.Assert.assertThat;
 
 @Category(IntegrationTest.class)
@@ -54,10 +55,47 @@ public class UpdateLockTestIntegration extends AbstractUpdateDaoTest {
         assertThat(getMntnerValue(), is("Dot: " + StringUtils.repeat(".", threads)));
     }
 
+    @Test
+    public void test_update_locks_conflicting_keys() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int cnt = 0; cnt < threads; ++cnt) {
+            executor.execute(new UpdateLocksWorker(updateLockHelper, "MNTNER:DOT", 1, 50));
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS), is(true));
+        assertThat(getMntnerValue(), is("Dot: " + StringUtils.repeat(".", threads)));
+    }
+
+    @Test
+    public void test_update_locks_disjoint_keys() throws Exception {
+        final int validationMillis = 500;
+        for (int cnt = 0; cnt < threads; ++cnt) {
+            whoisTemplate.update("INSERT INTO mntner (object_id, mntner) VALUES (?, ?)", 100 + cnt, "TEST" + cnt + "-MNT");
+        }
+
+        final long start = System.currentTimeMillis();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int cnt = 0; cnt < threads; ++cnt) {
+            executor.execute(new UpdateLocksWorker(updateLockHelper, "MNTNER:TEST" + cnt + "-MNT", 100 + cnt, validationMillis));
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS), is(true));
+
+        // one after the other would take threads * validationMillis
+        assertThat(System.currentTimeMillis() - start, lessThan((long) threads * validationMillis / 2));
+        for (int cnt = 0; cnt < threads; ++cnt) {
+            assertThat(getMntnerValue(100 + cnt), is("TEST" + cnt + "-MNT."));
+        }
+    }
+
     private String getMntnerValue() {
         return whoisTemplate.queryForObject("SELECT mntner FROM mntner WHERE object_id = 1", String.class);
     }
 
+    private String getMntnerValue(final int objectId) {
+        return whoisTemplate.queryForObject("SELECT mntner FROM mntner WHERE object_id = ?", String.class, objectId);
+    }
+
     private static class UpdateLockWorker implements Runnable {
         UpdateLockHelper updateLockHelper;
 
@@ -70,4 +108,23 @@ public class UpdateLockTestIntegration extends AbstractUpdateDaoTest {
             updateLockHelper.testUpdateLock();
         }
     }
+
+    private static class UpdateLocksWorker implements Runnable {
+        final UpdateLockHelper updateLockHelper;
+        final String key;
+        final int objectId;
+        final long validationMillis;
+
+        UpdateLocksWorker(final UpdateLockHelper updateLockHelper, final String key, final int objectId, final long validationMillis) {
+            this.updateLockHelper = updateLockHelper;
+            this.key = key;
+            this.objectId = objectId;
+            this.validationMillis = validationMillis;
+        }
+
+        @Override
+        public void run() {
+            updateLockHelper.testUpdateLocks(key, objectId, validationMillis);
+        }
+    }
 }
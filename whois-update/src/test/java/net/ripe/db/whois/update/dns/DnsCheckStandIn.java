@@ -0,0 +1,44 @@
+package net.ripe.db.whois.update.dns;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for dnscheck: completes every queued check without errors, and wakes up the gateway instead of
+ * leaving it to find the results on its next poll.
+ */
+class DnsCheckStandIn implements Runnable {
+    private final JdbcTemplate dnscheckTemplate;
+    private final DnsGatewayImpl dnsGateway;
+    private final AtomicInteger checked = new AtomicInteger();
+
+    DnsCheckStandIn(final JdbcTemplate dnscheckTemplate, final DnsGatewayImpl dnsGateway) {
+        this.dnscheckTemplate = dnscheckTemplate;
+        this.dnsGateway = dnsGateway;
+    }
+
+    @Override
+    public void run() {
+        final List<String> processIds = dnscheckTemplate.queryForList("SELECT source_data FROM queue WHERE source_id = 2", String.class);
+        if (processIds.isEmpty()) {
+            return;
+        }
+
+        for (final String processId : processIds) {
+            dnscheckTemplate.update("DELETE FROM queue WHERE source_data = ?", processId);
+            dnscheckTemplate.update("" +
+                    "INSERT INTO tests (END, count_critical, count_error, source_id, source_data) " +
+                    "VALUES (NOW(), 0, 0, 2, ?)",
+                    processId);
+            checked.incrementAndGet();
+        }
+
+        dnsGateway.resultsAvailable();
+    }
+
+    int getChecked() {
+        return checked.get();
+    }
+}
@@ -7,6 +7,7 @@ import net.ripe.db.whois.common.Messages;
 import net.ripe.db.whois.update.dao.AbstractUpdateDaoTest;
 import net.ripe.db.whois.update.domain.Update;
 import net.ripe.db.whois.update.domain.UpdateMessages;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
@@ -24,7 +25,9 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import static net.ripe.db.whois.common.dao.jdbc.JdbcRpslObjectOperations.truncateTables;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 
@@ -42,6 +45,11 @@ public class DnsGatewayImplTest extends AbstractUpdateDaoTest {
         dnsCheckRequest = new DnsCheckRequest(update, "domain", "ns1.test.se/80.84.32.12 ns2.test.se/80.84.32.10");
     }
 
+    @After
+    public void tearDown() {
+        subject.stop();
+    }
+
     @Test
     public void performDnsCheck_timeout() {
         subject.setTimeout(0);
@@ -67,6 +75,33 @@ public class DnsGatewayImplTest extends AbstractUpdateDaoTest {
         assertThat(dnsResults.get(new DnsCheckRequest(update, "domain", "ns5.test.se/80.84.32.18 ns6.test.se/80.84.32.20")).getMessages(), contains(UpdateMessages.dnsCheckTimeout()));
     }
 
+    @Test
+    public void performDnsChecks_waited_for_together() {
+        subject.setTimeout(10000);
+
+        final Set<DnsCheckRequest> dnsCheckRequests = Sets.newLinkedHashSet();
+        for (int i = 0; i < 10; i++) {
+            dnsCheckRequests.add(new DnsCheckRequest(update, i + ".0.193.in-addr.arpa", "ns1.test.se/80.84.32.12 ns2.test.se/80.84.32.10"));
+        }
+
+        final DnsCheckStandIn standIn = new DnsCheckStandIn(dnscheckTemplate, subject);
+        final ScheduledExecutorService executorService = Executors.newScheduledThreadPool(1);
+        executorService.scheduleWithFixedDelay(standIn, 100, 100, TimeUnit.MILLISECONDS);
+
+        final long start = System.currentTimeMillis();
+        final Map<DnsCheckRequest, DnsCheckResponse> dnsResults = subject.performDnsChecks(dnsCheckRequests);
+        final long elapsed = System.currentTimeMillis() - start;
+        executorService.shutdown();
+
+        assertThat(dnsResults.values(), hasSize(10));
+        for (DnsCheckResponse dnsCheckResponse : dnsResults.values()) {
+            assertThat(dnsCheckResponse.getMessages(), is(empty()));
+        }
+        assertThat(standIn.getChecked(), is(10));
+        // polling each check in turn takes at least a second per check
+        assertThat(elapsed, lessThan(5000L));
+    }
+
     @Test
     public void singleErrorReturned() throws InterruptedException {
         ScheduledExecutorService executorService = Executors.newScheduledThreadPool(1);
@@ -140,6 +175,7 @@ public class DnsGatewayImplTest extends AbstractUpdateDaoTest {
                         "INSERT INTO tests (id, END, count_critical, count_error, source_id, source_data) " +
                         "VALUES (1, 1001, ?, ?, 2, ?)",
                         count_critical, count_error, queue.get("source_data"));
+                subject.resultsAvailable();
 
             } catch (EmptyResultDataAccessException ignored) {
             } catch (Exception e) {
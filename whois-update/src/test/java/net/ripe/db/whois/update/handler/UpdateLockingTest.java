@@ -0,0 +1,254 @@
+package net.ripe.db.whois.update.handler;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import net.ripe.db.whois.common.dao.RpslObjectDao;
+import net.ripe.db.whois.common.dao.UpdateLockDao;
+import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.update.domain.Update;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class UpdateLockingTest {
+    private static final RpslObject MNTNER = RpslObject.parse("" +
+            "mntner: TEST-MNT\n" +
+            "admin-c: TP1-TEST\n" +
+            "auth: MD5-PW $1$d9fKeTr2$Si7YudNf4rUGmR71n/cqk/\n" +
+            "mnt-by: TEST-MNT\n" +
+            "source: TEST");
+
+    private static final RpslObject INETNUM = RpslObject.parse("" +
+            "inetnum: 10.0.0.0 - 10.0.0.255\n" +
+            "netname: TEST-NET\n" +
+            "mnt-by: TEST-MNT\n" +
+            "source: TEST");
+
+    private static final RpslObject AUTO_PERSON = RpslObject.parse("" +
+            "person: Test Person\n" +
+            "nic-hdl: AUTO-1\n" +
+            "source: TEST");
+
+    @Mock UpdateLockDao updateLockDao;
+    @Mock RpslObjectDao rpslObjectDao;
+
+    @Test
+    public void global_lock() {
+        final UpdateLocking subject = new UpdateLocking(updateLockDao, rpslObjectDao, false);
+
+        subject.lock(updates(MNTNER));
+        subject.lockForWrite();
+
+        verify(updateLockDao).setUpdateLock();
+        verifyNoMoreInteractions(updateLockDao);
+        verifyZeroInteractions(rpslObjectDao);
+    }
+
+    @Test
+    public void per_object_lock() {
+        final UpdateLocking subject = new UpdateLocking(updateLockDao, rpslObjectDao, true);
+
+        subject.lock(updates(MNTNER, INETNUM));
+
+        verify(updateLockDao).setUpdateLocks(ImmutableSet.of("MNTNER:TEST-MNT", "NIC-HDL:TP1-TEST", "RESOURCES"));
+        verify(updateLockDao, never()).setUpdateLock();
+
+        subject.lockForWrite();
+
+        verify(updateLockDao).setUpdateLock();
+    }
+
+    @Test
+    public void per_object_lock_auto_key_takes_global_lock() {
+        final UpdateLocking subject = new UpdateLocking(updateLockDao, rpslObjectDao, true);
+
+        subject.lock(updates(MNTNER, AUTO_PERSON));
+
+        final InOrder inOrder = inOrder(updateLockDao);
+        inOrder.verify(updateLockDao).setUpdateLocks(ImmutableSet.of("MNTNER:TEST-MNT", "NIC-HDL:TP1-TEST"));
+        inOrder.verify(updateLockDao).setUpdateLock();
+    }
+
+    @Test
+    public void per_object_lock_includes_references_of_stored_object() {
+        final UpdateLocking subject = new UpdateLocking(updateLockDao, rpslObjectDao, true);
+        when(rpslObjectDao.getByKeyOrNull(ObjectType.PERSON, CIString.ciString("TP1-TEST"))).thenReturn(RpslObject.parse("" +
+                "person: Test Person\n" +
+                "nic-hdl: TP1-TEST\n" +
+                "mnt-by: OLD-MNT\n" +
+                "source: TEST"));
+
+        subject.lock(updates(RpslObject.parse("" +
+                "person: Test Person\n" +
+                "nic-hdl: TP1-TEST\n" +
+                "mnt-by: NEW-MNT\n" +
+                "source: TEST")));
+
+        verify(updateLockDao).setUpdateLocks(ImmutableSet.of("NIC-HDL:TP1-TEST", "MNTNER:NEW-MNT", "MNTNER:OLD-MNT"));
+        verify(updateLockDao, never()).setUpdateLock();
+    }
+
+    @Test
+    public void per_object_lock_includes_mnt_ref_of_referenced_organisation() {
+        final UpdateLocking subject = new UpdateLocking(updateLockDao, rpslObjectDao, true);
+        when(rpslObjectDao.getByKeys(ObjectType.ORGANISATION, Collections.singleton(CIString.ciString("ORG-TEST1-TEST")))).thenReturn(Lists.newArrayList(RpslObject.parse("" +
+                "organisation: ORG-TEST1-TEST\n" +
+                "mnt-ref: REF-MNT\n" +
+                "mnt-by: ORG-MNT\n" +
+                "source: TEST")));
+
+        subject.lock(updates(RpslObject.parse("" +
+                "person: Test Person\n" +
+                "nic-hdl: TP1-TEST\n" +
+                "org: ORG-TEST1-TEST\n" +
+                "source: TEST")));
+
+        verify(updateLockDao).setUpdateLocks(ImmutableSet.of("NIC-HDL:TP1-TEST", "ORGANISATION:ORG-TEST1-TEST", "MNTNER:REF-MNT"));
+        verify(updateLockDao, never()).setUpdateLock();
+    }
+
+    @Test
+    public void per_object_lock_modify_maintainer_locks_resources() {
+        final UpdateLocking subject = new UpdateLocking(updateLockDao, rpslObjectDao, true);
+        when(rpslObjectDao.getByKeyOrNull(ObjectType.MNTNER, CIString.ciString("TEST-MNT"))).thenReturn(MNTNER);
+
+        subject.lock(updates(MNTNER));
+
+        verify(updateLockDao).setUpdateLocks(ImmutableSet.of("MNTNER:TEST-MNT", "NIC-HDL:TP1-TEST", "RESOURCES"));
+        verify(updateLockDao, never()).setUpdateLock();
+    }
+
+    @Test
+    public void per_object_lock_stored_object_changed_takes_global_lock() {
+        final UpdateLocking subject = new UpdateLocking(updateLockDao, rpslObjectDao, true);
+        when(rpslObjectDao.getByKeyOrNull(ObjectType.PERSON, CIString.ciString("TP1-TEST")))
+                .thenReturn(RpslObject.parse("person: Test Person\nnic-hdl: TP1-TEST\nmnt-by: OLD-MNT\nsource: TEST"))
+                .thenReturn(RpslObject.parse("person: Test Person\nnic-hdl: TP1-TEST\nmnt-by: OTHER-MNT\nsource: TEST"));
+
+        subject.lock(updates(RpslObject.parse("person: Test Person\nnic-hdl: TP1-TEST\nmnt-by: NEW-MNT\nsource: TEST")));
+
+        final InOrder inOrder = inOrder(updateLockDao);
+        inOrder.verify(updateLockDao).setUpdateLocks(ImmutableSet.of("NIC-HDL:TP1-TEST", "MNTNER:NEW-MNT", "MNTNER:OLD-MNT"));
+        inOrder.verify(updateLockDao).setUpdateLock();
+    }
+
+    @Test
+    public void per_object_lock_after_global_lock_in_transaction() {
+        final UpdateLocking subject = new UpdateLocking(updateLockDao, rpslObjectDao, true);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            subject.lock(updates(MNTNER));
+            subject.lockForWrite();
+            subject.lock(updates(INETNUM));
+        } finally {
+            completeTransaction();
+        }
+
+        final InOrder inOrder = inOrder(updateLockDao);
+        inOrder.verify(updateLockDao).setUpdateLocks(ImmutableSet.of("MNTNER:TEST-MNT", "NIC-HDL:TP1-TEST"));
+        inOrder.verify(updateLockDao).setUpdateLock();
+        verifyNoMoreInteractions(updateLockDao);
+    }
+
+    @Test
+    public void per_object_lock_more_objects_in_transaction_takes_global_lock() {
+        final UpdateLocking subject = new UpdateLocking(updateLockDao, rpslObjectDao, true);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            subject.lock(updates(MNTNER));
+            subject.lock(updates(MNTNER));
+            verify(updateLockDao, never()).setUpdateLock();
+
+            subject.lock(updates(INETNUM));
+        } finally {
+            completeTransaction();
+        }
+
+        final InOrder inOrder = inOrder(updateLockDao);
+        inOrder.verify(updateLockDao).setUpdateLocks(ImmutableSet.of("MNTNER:TEST-MNT", "NIC-HDL:TP1-TEST"));
+        inOrder.verify(updateLockDao).setUpdateLock();
+        verifyNoMoreInteractions(updateLockDao);
+    }
+
+    @Test
+    public void per_object_lock_next_transaction_locks_objects_again() {
+        final UpdateLocking subject = new UpdateLocking(updateLockDao, rpslObjectDao, true);
+
+        for (int i = 0; i < 2; i++) {
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                subject.lock(updates(MNTNER));
+                subject.lockForWrite();
+            } finally {
+                completeTransaction();
+            }
+        }
+
+        verify(updateLockDao, times(2)).setUpdateLocks(ImmutableSet.of("MNTNER:TEST-MNT", "NIC-HDL:TP1-TEST"));
+        verify(updateLockDao, times(2)).setUpdateLock();
+    }
+
+    @Test
+    public void lock_keys_include_references() {
+        assertThat(UpdateLocking.getLockKeys(MNTNER), containsInAnyOrder("MNTNER:TEST-MNT", "NIC-HDL:TP1-TEST"));
+    }
+
+    @Test
+    public void lock_keys_resources_share_a_lock() {
+        assertThat(UpdateLocking.getLockKeys(INETNUM), containsInAnyOrder("RESOURCES", "MNTNER:TEST-MNT"));
+        assertThat(UpdateLocking.getLockKeys(RpslObject.parse("route: 10.0.0.0/24\norigin: AS3333\nsource: TEST")), containsInAnyOrder("RESOURCES"));
+    }
+
+    @Test
+    public void lock_keys_persons_and_roles_share_nic_hdls() {
+        assertThat(UpdateLocking.getLockKeys(RpslObject.parse("person: Test Person\nnic-hdl: tp1-test\nsource: TEST")), containsInAnyOrder("NIC-HDL:TP1-TEST"));
+        assertThat(UpdateLocking.getLockKeys(RpslObject.parse("role: Test Role\nnic-hdl: TP1-TEST\nsource: TEST")), containsInAnyOrder("NIC-HDL:TP1-TEST"));
+    }
+
+    @Test
+    public void lock_keys_auto_key() {
+        assertThat(UpdateLocking.getLockKeys(AUTO_PERSON), nullValue());
+        assertThat(UpdateLocking.getLockKeys(RpslObject.parse("mntner: TEST-MNT\nadmin-c: AUTO-1\nsource: TEST")), nullValue());
+    }
+
+    private static void completeTransaction() {
+        for (final TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    private static List<Update> updates(final RpslObject... objects) {
+        final List<Update> updates = Lists.newArrayList();
+        for (final RpslObject object : objects) {
+            final Update update = mock(Update.class);
+            when(update.getSubmittedObject()).thenReturn(object);
+            updates.add(update);
+        }
+        return updates;
+    }
+}
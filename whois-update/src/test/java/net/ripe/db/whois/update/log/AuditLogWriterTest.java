@@ -0,0 +1,79 @@
+package net.ripe.db.whois.update.log;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.util.FileCopyUtils;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class AuditLogWriterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private AuditLogWriter subject;
+
+    @After
+    public void tearDown() {
+        subject.stop();
+    }
+
+    @Test
+    public void write_on_calling_thread() throws IOException {
+        subject = new AuditLogWriter(0, 0);
+        final File file = new File(folder.getRoot(), "000.test.gz");
+
+        final Future<?> future = subject.write(file, "contents".getBytes(Charsets.UTF_8));
+
+        assertThat(future.isDone(), is(true));
+        assertThat(read(file), is("contents"));
+        assertThat(subject.getWritten(), is(1L));
+    }
+
+    @Test
+    public void write_in_background_until_flush() throws IOException {
+        subject = new AuditLogWriter(2, 10);
+
+        final List<Future<?>> futures = Lists.newArrayList();
+        for (int i = 0; i < 100; i++) {
+            futures.add(subject.write(new File(folder.getRoot(), i + ".test.gz"), String.valueOf(i).getBytes(Charsets.UTF_8)));
+        }
+        subject.flush(futures);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(read(new File(folder.getRoot(), i + ".test.gz")), is(String.valueOf(i)));
+        }
+        assertThat(subject.getWritten(), is(100L));
+        assertThat(subject.getQueueSize(), is(0));
+    }
+
+    @Test
+    public void write_failure_is_counted() {
+        subject = new AuditLogWriter(1, 10);
+        final File file = new File(new File(folder.getRoot(), "missing"), "000.test.gz");
+
+        subject.flush(Lists.<Future<?>>newArrayList(subject.write(file, new byte[0])));
+
+        assertThat(subject.getFailed(), is(1L));
+        assertThat(subject.getWritten(), is(0L));
+    }
+
+    private static String read(final File file) throws IOException {
+        try (final InputStream is = new GZIPInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return new String(FileCopyUtils.copyToByteArray(is), Charsets.UTF_8);
+        }
+    }
+}
@@ -9,12 +9,12 @@ import net.ripe.db.whois.update.domain.Operation;
 import net.ripe.db.whois.update.domain.Paragraph;
 import net.ripe.db.whois.update.domain.Update;
 import org.joda.time.LocalDateTime;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.springframework.util.FileCopyUtils;
@@ -33,13 +33,17 @@ import static org.mockito.Mockito.when;
 public class LoggerContextTest {
     @Mock Update update;
     @Mock DateTimeProvider dateTimeProvider;
-    @InjectMocks LoggerContext subject;
+    private AuditLogWriter auditLogWriter;
+    private LoggerContext subject;
 
     @Rule
     public TemporaryFolder folder = new TemporaryFolder();
 
     @Before
     public void setUp() throws Exception {
+        auditLogWriter = new AuditLogWriter(1, 10);
+        subject = new LoggerContext(dateTimeProvider, auditLogWriter);
+
         try {   // need to reinit static threadlocal
             subject.remove();
         } catch (IllegalStateException ignored) {}
@@ -50,6 +54,11 @@ public class LoggerContextTest {
         when(update.getUpdate()).thenReturn(update);
     }
 
+    @After
+    public void tearDown() {
+        auditLogWriter.stop();
+    }
+
     @Test
     public void checkDirs() {
         subject.remove();
@@ -77,6 +86,8 @@ public class LoggerContextTest {
                 outputStream.write("test".getBytes());
             }
         });
+        // the file is written in the background, and is complete once the context is removed
+        subject.remove();
 
         final InputStream is = new GZIPInputStream(new BufferedInputStream(new FileInputStream(new File(folder.getRoot(), "001.test.txt.gz"))));
         final String contents = new String(FileCopyUtils.copyToByteArray(is), Charsets.UTF_8);
@@ -127,6 +138,38 @@ public class LoggerContextTest {
                 "            </query>\n"));
     }
 
+    @Test
+    public void log_file_is_written_on_remove() throws IOException {
+        final File file = subject.log("msg-in.txt", new LogCallback() {
+            @Override
+            public void log(final OutputStream outputStream) throws IOException {
+                outputStream.write("message".getBytes(Charsets.UTF_8));
+            }
+        });
+        subject.remove();
+
+        assertThat(file.getName(), is("001.msg-in.txt.gz"));
+        final InputStream is = new GZIPInputStream(new BufferedInputStream(new FileInputStream(file)));
+        assertThat(new String(FileCopyUtils.copyToByteArray(is), Charsets.UTF_8), is("message"));
+        assertThat(new File(folder.getRoot(), "000.audit.xml.gz").exists(), is(true));
+    }
+
+    @Test
+    public void isLoggingQueries() {
+        final String content = "mntner: DEV-ROOT-MNT";
+        when(update.getOperation()).thenReturn(Operation.DELETE);
+        when(update.getParagraph()).thenReturn(new Paragraph(content));
+        when(update.getSubmittedObject()).thenReturn(RpslObject.parse(content));
+
+        assertThat(subject.isLoggingQueries(), is(false));
+
+        subject.logUpdateStarted(update);
+        assertThat(subject.isLoggingQueries(), is(true));
+
+        subject.logUpdateCompleted(update);
+        assertThat(subject.isLoggingQueries(), is(false));
+    }
+
     @Test
     public void log_query_no_context_should_not_fail() {
         subject.logQuery(new StatementInfo("sql"), new ResultInfo(Collections.<List<String>>emptyList()));
@@ -162,7 +205,7 @@ public class LoggerContextTest {
 
     @Test
     public void init_with_null_should_not_fail() throws Exception {
-        LoggerContext context = new LoggerContext(dateTimeProvider);
+        LoggerContext context = new LoggerContext(dateTimeProvider, auditLogWriter);
         context.remove();
         context.setBaseDir(folder.getRoot().getCanonicalPath());
 
@@ -173,7 +216,7 @@ public class LoggerContextTest {
 
     @Test
     public void init_filename_too_long() throws Exception {
-        LoggerContext context = new LoggerContext(dateTimeProvider);
+        LoggerContext context = new LoggerContext(dateTimeProvider, auditLogWriter);
         context.remove();
         context.setBaseDir(folder.getRoot().getCanonicalPath());
 
@@ -189,7 +232,7 @@ public class LoggerContextTest {
 
     @Test
     public void init_filename_illegal_path() throws Exception {
-        LoggerContext context = new LoggerContext(dateTimeProvider);
+        LoggerContext context = new LoggerContext(dateTimeProvider, auditLogWriter);
         context.remove();
         context.setBaseDir(folder.getRoot().getCanonicalPath());
 
@@ -201,7 +244,7 @@ public class LoggerContextTest {
 
     @Test
     public void init_filename_illegal_characters() throws Exception {
-        LoggerContext context = new LoggerContext(dateTimeProvider);
+        LoggerContext context = new LoggerContext(dateTimeProvider, auditLogWriter);
         context.remove();
         context.setBaseDir(folder.getRoot().getCanonicalPath());
 
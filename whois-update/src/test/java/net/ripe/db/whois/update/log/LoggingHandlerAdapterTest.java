@@ -12,8 +12,11 @@ import org.mockito.runners.MockitoJUnitRunner;
 
 import java.util.List;
 
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
 public class LoggingHandlerAdapterTest {
@@ -38,4 +41,12 @@ public class LoggingHandlerAdapterTest {
 
         verify(loggerContext, times(1)).logQuery(statementInfo, resultInfo);
     }
+
+    @Test
+    public void isLogging() throws Exception {
+        when(loggerContext.isLoggingQueries()).thenReturn(true);
+        subject = new LoggingHandlerAdapter(loggerContext);
+
+        assertThat(subject.isLogging(), is(true));
+    }
 }